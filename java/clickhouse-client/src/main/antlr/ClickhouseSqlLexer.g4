@@ -8,6 +8,10 @@ NULLABLE_COLUMN_TYPE:
 'Nullable'
 ;
 
+LOW_CARDINALITY_COLUMN_TYPE:
+'LowCardinality'
+;
+
 TUPLE_COLUMN_TYPE:
 'Tuple'
 ;
@@ -15,6 +15,7 @@ columnTypeLiteral :
     arrayColumnTypeLiteral |
     tupleColumnTypeLiteral |
     nullableColumnTypeLiteral |
+    lowCardinalityColumnTypeLiteral |
     nestedColumnTypeLiteral;
 
 primitiveColumnTypeLiteral:
@@ -31,6 +32,9 @@ nestedColumnTypeLiteral:
 nullableColumnTypeLiteral:
     NULLABLE_COLUMN_TYPE LR_BRACKET primitiveColumnTypeLiteral RR_BRACKET;
 
+lowCardinalityColumnTypeLiteral:
+    LOW_CARDINALITY_COLUMN_TYPE LR_BRACKET (primitiveColumnTypeLiteral | nullableColumnTypeLiteral) RR_BRACKET;
+
 tupleColumnTypeLiteral:
     TUPLE_COLUMN_TYPE LR_BRACKET columnTypeLiteral (COMMA columnTypeLiteral)* RR_BRACKET;
 
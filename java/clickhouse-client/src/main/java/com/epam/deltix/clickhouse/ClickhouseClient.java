@@ -17,11 +17,14 @@
 package com.epam.deltix.clickhouse;
 
 import com.epam.deltix.clickhouse.models.TableIdentity;
+import com.epam.deltix.clickhouse.pool.ConnectionPool;
 import com.epam.deltix.clickhouse.util.CheckedConsumer;
 import com.epam.deltix.clickhouse.util.SqlQueryHelper;
 import com.epam.deltix.clickhouse.writer.IntrospectionType;
 import com.epam.deltix.clickhouse.writer.Introspector;
 import com.epam.deltix.clickhouse.schema.ColumnDeclaration;
+import com.epam.deltix.clickhouse.schema.IndexDeclaration;
+import com.epam.deltix.clickhouse.schema.ProjectionDeclaration;
 import com.epam.deltix.clickhouse.schema.TableDeclaration;
 import com.epam.deltix.clickhouse.schema.engines.Engine;
 import com.epam.deltix.clickhouse.selector.QuerySource;
@@ -35,6 +38,7 @@ import org.springframework.jdbc.support.rowset.SqlRowSet;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 
 public class ClickhouseClient implements AutoCloseable {
@@ -44,9 +48,12 @@ public class ClickhouseClient implements AutoCloseable {
 
 
     private final DataSource clickhouseDataSource;
+    private final DataSource unpooledDataSource;
     private final ClickhouseClientSettings settings;
 
     private final JdbcTemplate jdbcTemplate;
+    // null when disabled
+    private final TableMetadataCache metadataCache;
 
     public ClickhouseClient(final DataSource clickhouseDataSource) {
         this(clickhouseDataSource, ClickhouseClientSettings.DEFAULT);
@@ -60,9 +67,13 @@ public class ClickhouseClient implements AutoCloseable {
         if (settings == null)
             throw new IllegalArgumentException("settings is NULL");
 
-        this.clickhouseDataSource = clickhouseDataSource;
+        this.clickhouseDataSource = settings.getMaxConnections() > 0 ?
+                new ConnectionPool(clickhouseDataSource, settings) : clickhouseDataSource;
+        this.unpooledDataSource = clickhouseDataSource;
         this.settings = settings;
-        this.jdbcTemplate = new JdbcTemplate(clickhouseDataSource);
+        this.jdbcTemplate = new JdbcTemplate(this.clickhouseDataSource);
+        this.metadataCache = settings.getMetadataCacheTtlMs() > 0 ?
+                new TableMetadataCache(jdbcTemplate, settings.getMetadataCacheTtlMs()) : null;
     }
 
     public ClickhouseClientSettings getSettings() {
@@ -75,13 +86,24 @@ public class ClickhouseClient implements AutoCloseable {
 
     public void dropTable(TableIdentity tableIdentity, boolean ifExists) {
         jdbcTemplate.execute(SqlQueryHelper.getDropTableQuery(tableIdentity, ifExists));
+        invalidateMetadata(tableIdentity);
+    }
+
+    public void dropTable(TableIdentity tableIdentity, boolean ifExists, String cluster, boolean sync) {
+        jdbcTemplate.execute(SqlQueryHelper.getDropTableQuery(tableIdentity, ifExists, cluster, sync));
+        invalidateMetadata(tableIdentity);
     }
 
     public void renameTable(TableIdentity from, TableIdentity to) {
         jdbcTemplate.execute(SqlQueryHelper.getRenameTableQuery(from, to));
+        invalidateMetadata(from);
+        invalidateMetadata(to);
     }
 
     public boolean existsTable(TableIdentity tableIdentity) {
+        if (isMetadataCached(tableIdentity))
+            return metadataCache.getTable(tableIdentity) != null;
+
         SqlRowSet rowSet = jdbcTemplate.queryForRowSet(SqlQueryHelper.getExistsTableQuery(tableIdentity));
 
         if (rowSet.next())
@@ -91,20 +113,67 @@ public class ClickhouseClient implements AutoCloseable {
     }
 
     public void createDatabase(String databaseName, boolean createIfNotExists) throws SQLException {
-        String createDatabaseQuery = SqlQueryHelper.getCreateDatabaseQuery(databaseName, createIfNotExists);
+        createDatabase(databaseName, createIfNotExists, null);
+    }
+
+    public void createDatabase(String databaseName, boolean createIfNotExists, String cluster) throws SQLException {
+        String createDatabaseQuery = SqlQueryHelper.getCreateDatabaseQuery(databaseName, createIfNotExists, cluster);
         executeExpression(createDatabaseQuery);
     }
 
     public void createTable(TableDeclaration tableDeclaration, Engine engineDeclaration, boolean createIfNotExists) throws SQLException {
-        String query = SqlQueryHelper.getCreateTableQuery(tableDeclaration, engineDeclaration, createIfNotExists);
+        createTable(tableDeclaration, engineDeclaration, createIfNotExists, null);
+    }
+
+    public void createTable(TableDeclaration tableDeclaration, Engine engineDeclaration, boolean createIfNotExists, String cluster) throws SQLException {
+        String query = SqlQueryHelper.getCreateTableQuery(tableDeclaration, engineDeclaration, createIfNotExists, cluster);
         executeExpression(query);
+        invalidateMetadata(tableDeclaration.getTableIdentity());
+    }
+
+    public void addIndex(TableIdentity tableIdentity, IndexDeclaration index, String cluster) throws SQLException {
+        executeExpression(SqlQueryHelper.getAddIndexQuery(tableIdentity, index, cluster));
+    }
+
+    public void addColumn(TableIdentity tableIdentity, ColumnDeclaration column, String cluster) throws SQLException {
+        executeExpression(SqlQueryHelper.getAddColumnQuery(tableIdentity, column, cluster));
+        invalidateMetadata(tableIdentity);
+    }
+
+    public void addProjection(TableIdentity tableIdentity, ProjectionDeclaration projection, String cluster) throws SQLException {
+        executeExpression(SqlQueryHelper.getAddProjectionQuery(tableIdentity, projection, cluster));
     }
 
     public TableDeclaration describeTable(TableIdentity tableIdentity) {
+        if (isMetadataCached(tableIdentity)) {
+            TableDeclaration tableDeclaration = metadataCache.getTable(tableIdentity);
+            // missing table fails by DESCRIBE query
+            if (tableDeclaration != null)
+                return tableDeclaration;
+        }
+
         List<ColumnDeclaration> columns = jdbcTemplate.query(SqlQueryHelper.getDescribeQuery(tableIdentity), new DescribeTableResultSetExtractor());
         return new TableDeclaration(tableIdentity, columns);
     }
 
+    /**
+     * Drops cached metadata of the table database, should be called after DDL executed bypassing the client.
+     */
+    public void invalidateMetadata(TableIdentity tableIdentity) {
+        if (metadataCache == null)
+            return;
+
+        if (tableIdentity.getDatabaseName() != null)
+            metadataCache.invalidate(tableIdentity.getDatabaseName());
+        else
+            metadataCache.invalidateAll();
+    }
+
+    // table of default database is described by a query
+    private boolean isMetadataCached(TableIdentity tableIdentity) {
+        return metadataCache != null && tableIdentity.getDatabaseName() != null;
+    }
+
     public <T> TableDeclaration describeClass(Class<T> clazz, IntrospectionType introspectionType) {
         return Introspector.getTableDeclaration(clazz, introspectionType);
     }
@@ -117,12 +186,19 @@ public class ClickhouseClient implements AutoCloseable {
         return clickhouseDataSource;
     }
 
+    /**
+     * Returns data source which opens connections outside of the pool, e.g. for connections kept open for a long time.
+     */
+    public DataSource getUnpooledDataSource() {
+        return unpooledDataSource;
+    }
+
     public Connection getConnection() throws SQLException {
         return clickhouseDataSource.getConnection();
     }
 
     public TableSelectQuery createSelectQuery(TableIdentity tableIdentity) {
-        return createSelectQuery(new TableSource(clickhouseDataSource, tableIdentity));
+        return createSelectQuery(new TableSource(this, tableIdentity));
     }
 
     public TableSelectQuery createSelectQuery(QuerySource querySource) {
@@ -131,7 +207,8 @@ public class ClickhouseClient implements AutoCloseable {
 
     @Override
     public void close() {
-        //jdbcTemplate.
+        if (clickhouseDataSource instanceof ConnectionPool)
+            ((ConnectionPool) clickhouseDataSource).close();
     }
 
     public void executeExpression(String sqlExpression) throws SQLException {
@@ -142,7 +219,9 @@ public class ClickhouseClient implements AutoCloseable {
                 .commit();
 
         executeInSqlConnection(connection -> {
-            connection.createStatement().execute(sqlExpression);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sqlExpression);
+            }
         });
     }
 
@@ -23,6 +23,13 @@ public class ClickhouseClientSettings {
     private int maxRecordsForSelectQuery = 5_000;
     private boolean saveGeneratedClasses = false;
     private String generatedClassPath = ".appdata/byteBuddy";
+    // connection pool, 0 - connections are not pooled
+    private int maxConnections = 0;
+    private long connectionAcquireTimeoutMs = 30_000;
+    private long connectionIdleTimeoutMs = 300_000;
+    private long connectionValidationIntervalMs = 30_000;
+    // table metadata cache, 0 - tables are described by a query each time
+    private long metadataCacheTtlMs = 0;
 
     public int getMaxRecordsForSelectQuery() {
         return maxRecordsForSelectQuery;
@@ -47,4 +54,44 @@ public class ClickhouseClientSettings {
     public void setGeneratedClassPath(String generatedClassPath) {
         this.generatedClassPath = generatedClassPath;
     }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public long getConnectionAcquireTimeoutMs() {
+        return connectionAcquireTimeoutMs;
+    }
+
+    public void setConnectionAcquireTimeoutMs(long connectionAcquireTimeoutMs) {
+        this.connectionAcquireTimeoutMs = connectionAcquireTimeoutMs;
+    }
+
+    public long getConnectionIdleTimeoutMs() {
+        return connectionIdleTimeoutMs;
+    }
+
+    public void setConnectionIdleTimeoutMs(long connectionIdleTimeoutMs) {
+        this.connectionIdleTimeoutMs = connectionIdleTimeoutMs;
+    }
+
+    public long getConnectionValidationIntervalMs() {
+        return connectionValidationIntervalMs;
+    }
+
+    public void setConnectionValidationIntervalMs(long connectionValidationIntervalMs) {
+        this.connectionValidationIntervalMs = connectionValidationIntervalMs;
+    }
+
+    public long getMetadataCacheTtlMs() {
+        return metadataCacheTtlMs;
+    }
+
+    public void setMetadataCacheTtlMs(long metadataCacheTtlMs) {
+        this.metadataCacheTtlMs = metadataCacheTtlMs;
+    }
 }
\ No newline at end of file
@@ -30,25 +30,33 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class DescribeTableResultSetExtractor implements ResultSetExtractor<List<ColumnDeclaration>> {
-    private static final String FIELD_NAME = "name";
-    private static final String FIELD_TYPE = "type";
+    static final String FIELD_NAME = "name";
+    static final String FIELD_TYPE = "type";
     private static final String FIELD_DEFAULT_TYPE = "default_type";
-    private static final String FIELD_DEFAULT_EXPRESSION = "default_expression";
+    static final String FIELD_DEFAULT_EXPRESSION = "default_expression";
 
     @Override
     public List<ColumnDeclaration> extractData(ResultSet rs) throws SQLException, DataAccessException {
+        ColumnsBuilder builder = new ColumnsBuilder();
+        while (rs.next())
+            builder.add(rs.getString(FIELD_NAME), rs.getString(FIELD_TYPE), rs.getString(FIELD_DEFAULT_EXPRESSION));
 
-        List<ColumnDeclaration> columns = new ArrayList<>();
+        return builder.build();
+    }
+
+    /**
+     * Builds column declarations of a table from rows of {@code DESCRIBE TABLE} or {@code system.columns},
+     * columns of {@code Nested} type come as adjacent {@code name.field} rows.
+     */
+    static class ColumnsBuilder {
+        private final List<ColumnDeclaration> columns = new ArrayList<>();
         //Map<String, ColumnDeclaration> nestedColumns = new HashMap<>();
 
-        String currentNestedColumn = null;
-        List<ColumnDeclaration> currentNestedDataType = null;
+        private String currentNestedColumn = null;
+        private List<ColumnDeclaration> currentNestedDataType = null;
 
-        while (rs.next()) {
-            String name = rs.getString(FIELD_NAME);
-            String type = rs.getString(FIELD_TYPE);
+        void add(String name, String type, String defaultExpression) {
             SqlDataType dataType = ParseProcessor.parseDataType(type);
-            String defaultExpression = rs.getString(FIELD_DEFAULT_EXPRESSION);
 
             // check for nested
             String[] nameParts = name.split("\\.");
@@ -83,10 +91,14 @@ public class DescribeTableResultSetExtractor implements ResultSetExtractor<List<
             }
         }
 
-        if (currentNestedColumn != null) {
-            columns.add(new ColumnDeclaration(currentNestedColumn, new NestedDataType(currentNestedDataType)));
-        }
+        List<ColumnDeclaration> build() {
+            if (currentNestedColumn != null) {
+                columns.add(new ColumnDeclaration(currentNestedColumn, new NestedDataType(currentNestedDataType)));
+                currentNestedColumn = null;
+                currentNestedDataType = null;
+            }
 
-        return columns;
+            return columns;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse;
+
+import com.epam.deltix.clickhouse.models.TableIdentity;
+import com.epam.deltix.clickhouse.schema.ColumnDeclaration;
+import com.epam.deltix.clickhouse.schema.TableDeclaration;
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column metadata of tables loaded by single {@code system.columns} query per database instead of
+ * {@code EXISTS} and {@code DESCRIBE} queries per table. Snapshot of a database is reloaded when it is older
+ * than TTL or after DDL issued through the client invalidated it.
+ */
+public class TableMetadataCache {
+
+    private static final Log LOG = LogFactory.getLog(TableMetadataCache.class);
+    private static final String COLUMNS_QUERY = "SELECT table, name, type, default_expression FROM system.columns " +
+            "WHERE database = ? ORDER BY table, position";
+    private static final String FIELD_TABLE = "table";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlMs;
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    // incremented by each invalidation, so snapshot loaded concurrently with DDL is not kept
+    private long version = 0;
+
+    public TableMetadataCache(JdbcTemplate jdbcTemplate, long ttlMs) {
+        if (ttlMs <= 0)
+            throw new IllegalArgumentException("ttlMs must be greater than zero.");
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Returns declaration of the table or null if table does not exist. Declaration is shared by all callers,
+     * so its columns are immutable: column lists, including columns of nested types, cannot be changed.
+     */
+    public TableDeclaration getTable(TableIdentity tableIdentity) {
+        List<ColumnDeclaration> columns = getSnapshot(tableIdentity.getDatabaseName()).tables.get(tableIdentity.getTableName());
+        return columns != null ? new TableDeclaration(tableIdentity, columns) : null;
+    }
+
+    public synchronized void invalidate(String database) {
+        version++;
+        snapshots.remove(database);
+    }
+
+    public synchronized void invalidateAll() {
+        version++;
+        snapshots.clear();
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    private Snapshot getSnapshot(String database) {
+        Snapshot snapshot = snapshots.get(database);
+        if (snapshot != null && System.currentTimeMillis() - snapshot.loadTime < ttlMs)
+            return snapshot;
+
+        long loadVersion = getVersion();
+        snapshot = load(database);
+        synchronized (this) {
+            if (version == loadVersion)
+                snapshots.put(database, snapshot);
+        }
+        return snapshot;
+    }
+
+    private Snapshot load(String database) {
+        long loadTime = System.currentTimeMillis();
+        Map<String, DescribeTableResultSetExtractor.ColumnsBuilder> builders = new HashMap<>();
+        jdbcTemplate.query(COLUMNS_QUERY, rs -> {
+            builders.computeIfAbsent(rs.getString(FIELD_TABLE), table -> new DescribeTableResultSetExtractor.ColumnsBuilder())
+                    .add(rs.getString(DescribeTableResultSetExtractor.FIELD_NAME), rs.getString(DescribeTableResultSetExtractor.FIELD_TYPE),
+                            rs.getString(DescribeTableResultSetExtractor.FIELD_DEFAULT_EXPRESSION));
+        }, database);
+
+        Map<String, List<ColumnDeclaration>> tables = new HashMap<>(builders.size());
+        for (Map.Entry<String, DescribeTableResultSetExtractor.ColumnsBuilder> entry : builders.entrySet())
+            tables.put(entry.getKey(), List.copyOf(entry.getValue().build()));
+
+        LOG.debug()
+                .append("Loaded columns of ")
+                .append(tables.size())
+                .append(" tables of database ")
+                .append(database)
+                .commit();
+        return new Snapshot(tables, loadTime);
+    }
+
+    private static class Snapshot {
+        private final Map<String, List<ColumnDeclaration>> tables;
+        private final long loadTime;
+
+        Snapshot(Map<String, List<ColumnDeclaration>> tables, long loadTime) {
+            this.tables = tables;
+            this.loadTime = loadTime;
+        }
+    }
+}
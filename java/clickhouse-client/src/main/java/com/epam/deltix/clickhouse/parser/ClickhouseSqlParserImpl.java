@@ -126,6 +126,23 @@ class ClickhouseSqlParserImpl extends ClickhouseSqlParserBaseListener {
         stack.push(nullableDataType);
     }
 
+    @Override
+    public void enterLowCardinalityColumnTypeLiteral(ClickhouseSqlParser.LowCardinalityColumnTypeLiteralContext ctx){ }
+
+    @Override
+    public void exitLowCardinalityColumnTypeLiteral(ClickhouseSqlParser.LowCardinalityColumnTypeLiteralContext ctx){
+        SqlDataType nestedType = (SqlDataType)stack.pop();
+
+        // only String columns are dictionary encoded by connector, other types keep plain representation
+        if (nestedType instanceof StringDataType) {
+            stack.push(new StringDataType(true));
+        } else if (nestedType instanceof NullableDataType && ((NullableDataType) nestedType).getNestedType() instanceof StringDataType) {
+            stack.push(new NullableDataType(new StringDataType(true)));
+        } else {
+            stack.push(nestedType);
+        }
+    }
+
     @Override
     public void enterTupleColumnTypeLiteral(ClickhouseSqlParser.TupleColumnTypeLiteralContext ctx){
         enterAnyColumnTypeLiteral(ctx);
@@ -293,6 +310,17 @@ class ClickhouseSqlParserImpl extends ClickhouseSqlParserBaseListener {
     @Override
     public void exitSimpleColumnTypeLiteral(ClickhouseSqlParser.SimpleColumnTypeLiteralContext ctx){
         DataTypes clickhouseType = (DataTypes)stack.pop();
+        SqlDataType dataType = createSimpleDataType(clickhouseType);
+        if (dataType == null)
+            throw unexpectedType(clickhouseType);
+
+        stack.push(dataType);
+    }
+
+    /**
+     * Returns type without arguments or null if the type has arguments.
+     */
+    static SqlDataType createSimpleDataType(DataTypes clickhouseType) {
         SqlDataType dataType;
 
         switch (clickhouseType) {
@@ -336,10 +364,10 @@ class ClickhouseSqlParserImpl extends ClickhouseSqlParserBaseListener {
                 dataType = new StringDataType();
                 break;
             default:
-                throw unexpectedType(clickhouseType);
+                return null;
         }
 
-        stack.push(dataType);
+        return dataType;
     }
 
     @Override
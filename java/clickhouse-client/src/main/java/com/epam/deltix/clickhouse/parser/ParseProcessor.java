@@ -18,6 +18,8 @@ package com.epam.deltix.clickhouse.parser;
 
 import com.epam.deltix.clickhouse.parser.gen.ClickhouseSqlLexer;
 import com.epam.deltix.clickhouse.parser.gen.ClickhouseSqlParser;
+import com.epam.deltix.clickhouse.schema.types.DataTypes;
+import com.epam.deltix.clickhouse.schema.types.NullableDataType;
 import com.epam.deltix.clickhouse.schema.types.SqlDataType;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
@@ -27,13 +29,54 @@ import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ParseProcessor {
 
+    private static final String NULLABLE_PREFIX = DataTypes.NULLABLE.getSqlDefinition() + "(";
+    private static final int MAX_CACHED_TYPES = 4096;
+
+    private static final Map<String, SqlDataType> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Parses type string of Clickhouse column. Parsed types are cached by type string,
+     * so the same instance is returned for repeated strings. Returned types are immutable.
+     */
     public static SqlDataType parseDataType(final String dataTypeString) {
         if (dataTypeString == null)
             throw new ParseException("Expression can not be null");
 
+        SqlDataType dataType = CACHE.get(dataTypeString);
+        if (dataType != null)
+            return dataType;
+
+        dataType = parseSimpleDataType(dataTypeString);
+        if (dataType == null)
+            dataType = parseComplexDataType(dataTypeString);
+
+        if (CACHE.size() < MAX_CACHED_TYPES) {
+            SqlDataType cached = CACHE.putIfAbsent(dataTypeString, dataType);
+            if (cached != null)
+                return cached;
+        }
+
+        return dataType;
+    }
+
+    // fast path for types without arguments and Nullable of them, null if the string has other form
+    private static SqlDataType parseSimpleDataType(final String dataTypeString) {
+        if (dataTypeString.startsWith(NULLABLE_PREFIX) && dataTypeString.endsWith(")")) {
+            String nestedTypeString = dataTypeString.substring(NULLABLE_PREFIX.length(), dataTypeString.length() - 1);
+            SqlDataType nestedType = parseSimpleDataType(nestedTypeString);
+            return nestedType != null && nestedType.getType() != DataTypes.NULLABLE ? new NullableDataType(nestedType) : null;
+        }
+
+        DataTypes type = DataTypes.tryFindByName(dataTypeString);
+        return type != null ? ClickhouseSqlParserImpl.createSimpleDataType(type) : null;
+    }
+
+    private static SqlDataType parseComplexDataType(final String dataTypeString) {
         CharStream input = null;
         try {
             input = CharStreams.fromReader(new StringReader(dataTypeString));
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.pool;
+
+import com.epam.deltix.clickhouse.ClickhouseClientSettings;
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * {@link DataSource} which reuses connections of the target data source. Number of connections in use is bounded,
+ * idle connections are validated before reuse and closed after idle timeout. Connection returns to the pool on close.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private static final Log LOG = LogFactory.getLog(ConnectionPool.class);
+    private static final int VALIDATION_TIMEOUT_SEC = 5;
+
+    private final DataSource dataSource;
+    private final int maxConnections;
+    private final long acquireTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long validationIntervalMs;
+
+    private final Semaphore permits;
+    // most recently used connections first
+    private final ArrayDeque<IdleConnection> idleConnections = new ArrayDeque<>();
+    private volatile boolean closed = false;
+
+    public ConnectionPool(DataSource dataSource, ClickhouseClientSettings settings) {
+        this(dataSource, settings.getMaxConnections(), settings.getConnectionAcquireTimeoutMs(),
+                settings.getConnectionIdleTimeoutMs(), settings.getConnectionValidationIntervalMs());
+    }
+
+    public ConnectionPool(DataSource dataSource, int maxConnections, long acquireTimeoutMs, long idleTimeoutMs, long validationIntervalMs) {
+        if (dataSource == null)
+            throw new IllegalArgumentException("dataSource is NULL");
+        if (maxConnections <= 0)
+            throw new IllegalArgumentException("Illegal maxConnections");
+        if (acquireTimeoutMs < 0)
+            throw new IllegalArgumentException("Illegal acquireTimeoutMs");
+        if (idleTimeoutMs <= 0)
+            throw new IllegalArgumentException("Illegal idleTimeoutMs");
+        if (validationIntervalMs < 0)
+            throw new IllegalArgumentException("Illegal validationIntervalMs");
+
+        this.dataSource = dataSource;
+        this.maxConnections = maxConnections;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validationIntervalMs = validationIntervalMs;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getActiveConnections() {
+        return maxConnections - permits.availablePermits();
+    }
+
+    public int getIdleConnections() {
+        synchronized (idleConnections) {
+            return idleConnections.size();
+        }
+    }
+
+    /**
+     * Returns idle connection of the pool or opens a new one, waits while all connections are in use.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed)
+            throw new SQLException("Connection pool is closed.");
+
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS))
+                throw new SQLTimeoutException(String.format("No free connection in %d ms, all %d connections are in use.",
+                        acquireTimeoutMs, maxConnections));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for connection.", e);
+        }
+
+        try {
+            Connection connection = takeIdleConnection();
+            if (connection == null)
+                connection = dataSource.getConnection();
+            return wrap(connection);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use credentials of the data source.");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+
+    /**
+     * Closes idle connections, connections in use are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        List<IdleConnection> connections;
+        synchronized (idleConnections) {
+            connections = new ArrayList<>(idleConnections);
+            idleConnections.clear();
+        }
+        for (IdleConnection idleConnection : connections)
+            closeQuietly(idleConnection.connection);
+    }
+
+    private Connection takeIdleConnection() {
+        while (true) {
+            IdleConnection idleConnection;
+            synchronized (idleConnections) {
+                idleConnection = idleConnections.pollFirst();
+            }
+            if (idleConnection == null)
+                return null;
+
+            long idleTime = System.currentTimeMillis() - idleConnection.since;
+            if (idleTime >= idleTimeoutMs || (idleTime >= validationIntervalMs && !isValid(idleConnection.connection))) {
+                closeQuietly(idleConnection.connection);
+                continue;
+            }
+
+            return idleConnection.connection;
+        }
+    }
+
+    private void release(Connection connection) {
+        try {
+            if (closed || isBroken(connection)) {
+                closeQuietly(connection);
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            List<Connection> expired = new ArrayList<>();
+            synchronized (idleConnections) {
+                idleConnections.addFirst(new IdleConnection(connection, now));
+                while (now - idleConnections.peekLast().since >= idleTimeoutMs)
+                    expired.add(idleConnections.pollLast().connection);
+            }
+            for (Connection expiredConnection : expired)
+                closeQuietly(expiredConnection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean(false);
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (released.compareAndSet(false, true))
+                                release(connection);
+                            return null;
+                        case "isClosed":
+                            return released.get() || connection.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Pooled " + connection;
+                        default:
+                            if (released.get())
+                                throw new SQLException("Connection is returned to the pool.");
+
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SEC);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static boolean isBroken(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOG.warn()
+                    .append("Error while closing pooled connection.")
+                    .append(e)
+                    .commit();
+        }
+    }
+
+    private static class IdleConnection {
+        private final Connection connection;
+        private final long since;
+
+        IdleConnection(Connection connection, long since) {
+            this.connection = connection;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.pool;
+
+import com.epam.deltix.clickhouse.ClickhouseClient;
+import com.epam.deltix.clickhouse.util.CheckedSupplier;
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * {@link DataSource} which distributes connections between ClickHouse shards. Each connection goes to the shard with
+ * the lowest expected wait: average time the shard holds a connection multiplied by the number of connections in use.
+ */
+public class ShardRouter implements DataSource, AutoCloseable {
+
+    private static final Log LOG = LogFactory.getLog(ShardRouter.class);
+    // weight of the last observation in the average connection hold time
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final List<Shard> shards;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ShardRouter(List<ClickhouseClient> clients) {
+        if (clients == null || clients.isEmpty())
+            throw new IllegalArgumentException("No shards");
+
+        List<Shard> shards = new ArrayList<>(clients.size());
+        for (int i = 0; i < clients.size(); i++)
+            shards.add(new Shard(i, clients.get(i)));
+        this.shards = Collections.unmodifiableList(shards);
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    /**
+     * Returns the same shard for the same key, e.g. to keep retried inserts on the shard which deduplicates them.
+     */
+    public Shard getShard(String key) {
+        return shards.get(Math.floorMod(key.hashCode(), shards.size()));
+    }
+
+    /**
+     * Returns the least loaded shard, ties are broken round-robin.
+     */
+    public Shard getLeastLoadedShard() {
+        int start = Math.floorMod(next.getAndIncrement(), shards.size());
+        Shard result = null;
+        double minLoad = Double.MAX_VALUE;
+        for (int i = 0; i < shards.size(); i++) {
+            Shard shard = shards.get((start + i) % shards.size());
+            double load = shard.getLoad();
+            if (load < minLoad) {
+                minLoad = load;
+                result = shard;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getLeastLoadedShard().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Shard connections use credentials of the shard data sources.");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return shards.get(0).getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        for (Shard shard : shards)
+            shard.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        for (Shard shard : shards)
+            shard.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return shards.get(0).getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return shards.get(0).getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        throw new SQLException("Not a wrapper for " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    @Override
+    public void close() {
+        for (Shard shard : shards)
+            shard.client.close();
+    }
+
+    /**
+     * Shard data source which measures how long its connections are held, i.e. duration of inserts.
+     */
+    public static class Shard implements DataSource {
+
+        private final int index;
+        private final ClickhouseClient client;
+        private final AtomicInteger inUse = new AtomicInteger();
+        private final AtomicLong latencyNanos = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+
+        Shard(int index, ClickhouseClient client) {
+            this.index = index;
+            this.client = client;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public ClickhouseClient getClient() {
+            return client;
+        }
+
+        public int getConnectionsInUse() {
+            return inUse.get();
+        }
+
+        public long getLatencyNanos() {
+            return latencyNanos.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        double getLoad() {
+            return (latencyNanos.get() + 1.0) * (inUse.get() + 1);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            inUse.incrementAndGet();
+            try {
+                return wrap(client.getConnection(), System.nanoTime());
+            } catch (SQLException | RuntimeException e) {
+                inUse.decrementAndGet();
+                onFailure(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLFeatureNotSupportedException("Shard connections use credentials of the shard data source.");
+        }
+
+        /**
+         * Measures insert sent over a connection which is not taken from this data source, e.g. kept by a prepared
+         * statement, so it counts in the load of the shard like inserts over connections of this data source.
+         */
+        public <T> T measure(CheckedSupplier<T, SQLException> insert) throws SQLException {
+            inUse.incrementAndGet();
+            long startNanos = System.nanoTime();
+            try {
+                return insert.get();
+            } catch (SQLException | RuntimeException e) {
+                onFailure(e);
+                throw e;
+            } finally {
+                onReleased(startNanos);
+            }
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return client.getDataSource().getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException {
+            client.getDataSource().setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException {
+            client.getDataSource().setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return client.getDataSource().getLoginTimeout();
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            return client.getDataSource().getParentLogger();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return iface.isInstance(this) ? iface.cast(this) : client.getDataSource().unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return iface.isInstance(this) || client.getDataSource().isWrapperFor(iface);
+        }
+
+        private void onReleased(long startNanos) {
+            long latency = System.nanoTime() - startNanos;
+            latencyNanos.updateAndGet(average -> average == 0 ? latency :
+                    (long) (average + LATENCY_SMOOTHING * (latency - average)));
+            inUse.decrementAndGet();
+        }
+
+        private void onFailure(Exception e) {
+            // failed shard looks slow until successful inserts bring its average down
+            failures.incrementAndGet();
+            latencyNanos.updateAndGet(average -> Math.max(average * 2, 1_000_000_000L));
+            LOG.warn()
+                    .append("Shard ")
+                    .append(index)
+                    .append(" failed: ")
+                    .append(e.getMessage())
+                    .commit();
+        }
+
+        private Connection wrap(Connection connection, long startNanos) {
+            AtomicBoolean released = new AtomicBoolean(false);
+            return (Connection) Proxy.newProxyInstance(ShardRouter.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                if (released.compareAndSet(false, true)) {
+                                    try {
+                                        connection.close();
+                                    } finally {
+                                        onReleased(startNanos);
+                                    }
+                                }
+                                return null;
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "toString":
+                                return "Shard " + index + " " + connection;
+                            default:
+                                try {
+                                    return method.invoke(connection, args);
+                                } catch (InvocationTargetException e) {
+                                    if (e.getCause() instanceof SQLException)
+                                        onFailure((SQLException) e.getCause());
+                                    throw e.getCause();
+                                }
+                        }
+                    });
+        }
+    }
+}
@@ -25,6 +25,7 @@ public class ColumnDeclaration implements SqlElement, ExpressionDeclaration {
     private final String defaultExpression;
     private final boolean partition;
     private final boolean index;
+    private final String codec;
 
     public ColumnDeclaration(String name, SqlDataType dataType) {
         this(name, dataType, null, false, false);
@@ -39,6 +40,13 @@ public class ColumnDeclaration implements SqlElement, ExpressionDeclaration {
     }
 
     public ColumnDeclaration(String name, SqlDataType dataType, String defaultExpression, boolean partition, boolean index) {
+        this(name, dataType, defaultExpression, partition, index, null);
+    }
+
+    /**
+     * @param codec compression codecs of column, e.g. {@code Delta, ZSTD}, null for default compression
+     */
+    public ColumnDeclaration(String name, SqlDataType dataType, String defaultExpression, boolean partition, boolean index, String codec) {
         if (name == null)
             throw new IllegalArgumentException("Argument 'name' is null");
 
@@ -50,6 +58,7 @@ public class ColumnDeclaration implements SqlElement, ExpressionDeclaration {
         this.defaultExpression = defaultExpression;
         this.partition = partition;
         this.index = index;
+        this.codec = codec;
     }
 
     public String getDefaultExpression() {
@@ -64,9 +73,14 @@ public class ColumnDeclaration implements SqlElement, ExpressionDeclaration {
         return index;
     }
 
+    public String getCodec() {
+        return codec;
+    }
+
     @Override
     public String getSqlDefinition() {
-        return String.format("`%s` %s", name, dataType.getSqlDefinition());
+        return codec == null ? String.format("`%s` %s", name, dataType.getSqlDefinition()) :
+                String.format("`%s` %s CODEC(%s)", name, dataType.getSqlDefinition(), codec);
     }
 
     @Override
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.schema;
+
+/**
+ * Data skipping index of MergeTree table: {@code INDEX name expression TYPE type GRANULARITY granularity}.
+ */
+public class IndexDeclaration implements SqlElement {
+    private final String name;
+    private final String expression;
+    private final String type;
+    private final int granularity;
+
+    public IndexDeclaration(String name, String expression, String type, int granularity) {
+        if (name == null || name.isEmpty())
+            throw new IllegalArgumentException("Argument 'name' is empty");
+        if (expression == null || expression.isEmpty())
+            throw new IllegalArgumentException("Argument 'expression' is empty");
+        if (type == null || type.isEmpty())
+            throw new IllegalArgumentException("Argument 'type' is empty");
+        if (granularity <= 0)
+            throw new IllegalArgumentException("granularity must be greater than zero.");
+
+        this.name = name;
+        this.expression = expression;
+        this.type = type;
+        this.granularity = granularity;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getGranularity() {
+        return granularity;
+    }
+
+    @Override
+    public String getSqlDefinition() {
+        return getSqlDefinition(false);
+    }
+
+    /**
+     * @param ifNotExists whether the definition is added by ALTER TABLE unless the index exists
+     */
+    public String getSqlDefinition(boolean ifNotExists) {
+        return String.format("INDEX %s`%s` %s TYPE %s GRANULARITY %d",
+                ifNotExists ? "IF NOT EXISTS " : "", name, expression, type, granularity);
+    }
+
+    @Override
+    public String toString() {
+        return getSqlDefinition();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.schema;
+
+/**
+ * Projection of MergeTree table: {@code PROJECTION name (query)}, e.g. rows ordered by another key.
+ */
+public class ProjectionDeclaration implements SqlElement {
+    private final String name;
+    private final String query;
+
+    public ProjectionDeclaration(String name, String query) {
+        if (name == null || name.isEmpty())
+            throw new IllegalArgumentException("Argument 'name' is empty");
+        if (query == null || query.isEmpty())
+            throw new IllegalArgumentException("Argument 'query' is empty");
+
+        this.name = name;
+        this.query = query;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    @Override
+    public String getSqlDefinition() {
+        return String.format("PROJECTION `%s` (%s)", name, query);
+    }
+
+    @Override
+    public String toString() {
+        return getSqlDefinition();
+    }
+}
@@ -43,9 +43,15 @@ public class TableDeclaration implements SqlElement {
 
     @Override
     public String getSqlDefinition() {
+        return tableIdentity.toString() + getColumnsSqlDefinition();
+    }
+
+    /**
+     * Returns column list of table definition.
+     */
+    public String getColumnsSqlDefinition() {
         StringBuilder sb = new StringBuilder();
 
-        sb.append(tableIdentity.toString());
         sb.append('(');
 
         for (int i = 0; i < columns.size(); ++i) {
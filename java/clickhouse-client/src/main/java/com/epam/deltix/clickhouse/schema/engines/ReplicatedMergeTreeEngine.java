@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.schema.engines;
+
+/**
+ * Replicated variant of a MergeTree family engine: {@code MergeTree()} becomes
+ * {@code ReplicatedMergeTree('zooKeeperPath', 'replicaName')} with the same partitioning, ordering and settings.
+ * Path and replica name may contain server macros like {@code {shard}}, {@code {replica}}, {@code {database}} and {@code {table}}.
+ */
+public class ReplicatedMergeTreeEngine implements Engine {
+
+    private static final String REPLICATED_PREFIX = "Replicated";
+
+    private final Engine engine;
+    private final String zooKeeperPath;
+    private final String replicaName;
+
+    public ReplicatedMergeTreeEngine(Engine engine, String zooKeeperPath, String replicaName) {
+        if (engine == null)
+            throw new IllegalArgumentException("engine is null");
+        if (!engine.getName().endsWith("MergeTree") || !engine.getSqlDefinition().startsWith(engine.getName() + "()"))
+            throw new IllegalArgumentException(String.format("Engine %s is not a MergeTree family engine.", engine.getName()));
+        if (zooKeeperPath == null || zooKeeperPath.isEmpty())
+            throw new IllegalArgumentException("zooKeeperPath is not defined.");
+        if (replicaName == null || replicaName.isEmpty())
+            throw new IllegalArgumentException("replicaName is not defined.");
+
+        this.engine = engine;
+        this.zooKeeperPath = zooKeeperPath;
+        this.replicaName = replicaName;
+    }
+
+    @Override
+    public String getSqlDefinition() {
+        String definition = engine.getSqlDefinition();
+
+        StringBuilder sb = new StringBuilder(getName());
+        sb.append("('");
+        sb.append(escape(zooKeeperPath));
+        sb.append("', '");
+        sb.append(escape(replicaName));
+        sb.append("')");
+        sb.append(definition, engine.getName().length() + 2, definition.length());
+
+        return sb.toString();
+    }
+
+    @Override
+    public String getName() {
+        return REPLICATED_PREFIX + engine.getName();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("'", "\\'");
+    }
+}
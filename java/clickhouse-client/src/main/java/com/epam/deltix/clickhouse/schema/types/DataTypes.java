@@ -76,6 +76,13 @@ public enum DataTypes implements SqlElement {
         return result;
     }
 
+    /**
+     * Returns type of the given name or null if it is not defined.
+     */
+    public static DataTypes tryFindByName(String name) {
+        return name != null ? typesByName.get(name) : null;
+    }
+
     public String getSqlDefinition() {
         return sqlTypeName;
     }
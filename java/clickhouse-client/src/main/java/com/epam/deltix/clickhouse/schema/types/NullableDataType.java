@@ -41,6 +41,10 @@ public class NullableDataType extends BaseDataType {
 
     @Override
     public String getSqlDefinition() {
+        // LowCardinality wraps Nullable
+        if (nestedType instanceof StringDataType && ((StringDataType) nestedType).isLowCardinality())
+            return String.format("LowCardinality(%s(%s))", type.getSqlDefinition(), nestedType.getType().getSqlDefinition());
+
         return String.format("%s(%s)", type.getSqlDefinition(), nestedType.getSqlDefinition());
     }
 }
\ No newline at end of file
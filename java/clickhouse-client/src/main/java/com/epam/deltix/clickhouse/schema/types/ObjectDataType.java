@@ -47,6 +47,8 @@ public class ObjectDataType extends BaseDataType {
                 sb.append(", ");
 
             sb.append(String.format("`%s_%s` %s", columnName, columns.get(i).getDbColumnName(), columns.get(i).getDbDataType()));
+            if (columns.get(i).getCodec() != null)
+                sb.append(String.format(" CODEC(%s)", columns.get(i).getCodec()));
         }
 
         return sb.toString();
@@ -18,7 +18,27 @@ package com.epam.deltix.clickhouse.schema.types;
 
 public class StringDataType extends BaseDataType {
 
+    private final boolean lowCardinality;
+
     public StringDataType() {
+        this(false);
+    }
+
+    /**
+     * @param lowCardinality whether values are dictionary encoded, i.e. {@code LowCardinality(String)}.
+     *                       Values are sent the same way as plain strings.
+     */
+    public StringDataType(boolean lowCardinality) {
         super(DataTypes.STRING);
+        this.lowCardinality = lowCardinality;
+    }
+
+    public boolean isLowCardinality() {
+        return lowCardinality;
+    }
+
+    @Override
+    public String getSqlDefinition() {
+        return lowCardinality ? String.format("LowCardinality(%s)", type.getSqlDefinition()) : type.getSqlDefinition();
     }
 }
\ No newline at end of file
@@ -34,8 +34,15 @@ public class TableSource implements QuerySource {
     private final List<ColumnDeclaration> columnDeclarations;
 
     public TableSource(final DataSource dataSource, final TableIdentity tableIdentity) {
+        this(new ClickhouseClient(dataSource), tableIdentity);
+    }
+
+    /**
+     * Columns are described by the client, so its metadata cache is used when enabled.
+     */
+    public TableSource(final ClickhouseClient clickhouseClient, final TableIdentity tableIdentity) {
 
-        this.clickhouseClient = new ClickhouseClient(dataSource);
+        this.clickhouseClient = clickhouseClient;
         this.tableIdentity = tableIdentity;
 
         columnDeclarations = new ArrayList<>(clickhouseClient.describeTable(tableIdentity).getColumns());
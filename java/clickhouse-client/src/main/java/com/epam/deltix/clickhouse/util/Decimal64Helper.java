@@ -0,0 +1,95 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Decodes Decimal64 values (IEEE 754-2008 decimal with binary integer significand) without allocations.
+ * Finite value equals to {@code (-1)^sign * coefficient * 10^exponent}.
+ */
+public class Decimal64Helper {
+    /**
+     * Largest and smallest finite values, same as {@code Decimal64Utils.MAX_VALUE} and {@code Decimal64Utils.MIN_VALUE}.
+     */
+    public static final long MAX_VALUE = 0x77FB86F26FC0FFFFL;
+    public static final long MIN_VALUE = 0xF7FB86F26FC0FFFFL;
+
+    private static final long SIGN_MASK = 0x8000000000000000L;
+    private static final long STEERING_MASK = 0x6000000000000000L;
+    private static final long INFINITY_MASK = 0x7800000000000000L;
+    private static final long NAN_MASK = 0x7C00000000000000L;
+
+    private static final long SMALL_COEFFICIENT_MASK = 0x001FFFFFFFFFFFFFL;
+    private static final long LARGE_COEFFICIENT_MASK = 0x0007FFFFFFFFFFFFL;
+    private static final long LARGE_COEFFICIENT_HIGH_BIT = 0x0020000000000000L;
+    private static final long MAX_COEFFICIENT = 9999999999999999L;
+
+    private static final int EXPONENT_MASK = 0x3FF;
+    private static final int EXPONENT_BIAS = 398;
+
+    public static boolean isNaN(long value) {
+        return (value & NAN_MASK) == NAN_MASK;
+    }
+
+    public static boolean isInfinity(long value) {
+        return (value & NAN_MASK) == INFINITY_MASK;
+    }
+
+    public static boolean isFinite(long value) {
+        return (value & INFINITY_MASK) != INFINITY_MASK;
+    }
+
+    /**
+     * @return true for infinities, {@link #MAX_VALUE} and {@link #MIN_VALUE}, values written as bounds of Decimal column
+     */
+    public static boolean isBound(long value) {
+        return isInfinity(value) || value == MAX_VALUE || value == MIN_VALUE;
+    }
+
+    public static boolean isNegative(long value) {
+        return (value & SIGN_MASK) != 0;
+    }
+
+    /**
+     * @return non-negative coefficient of finite value, non-canonical coefficients are decoded as zero
+     */
+    public static long getCoefficient(long value) {
+        if ((value & STEERING_MASK) == STEERING_MASK) {
+            long coefficient = (value & LARGE_COEFFICIENT_MASK) | LARGE_COEFFICIENT_HIGH_BIT;
+            return coefficient > MAX_COEFFICIENT ? 0 : coefficient;
+        }
+        return value & SMALL_COEFFICIENT_MASK;
+    }
+
+    /**
+     * @return decimal exponent of finite value
+     */
+    public static int getExponent(long value) {
+        if ((value & STEERING_MASK) == STEERING_MASK)
+            return (int) ((value >>> 51) & EXPONENT_MASK) - EXPONENT_BIAS;
+        return (int) ((value >>> 53) & EXPONENT_MASK) - EXPONENT_BIAS;
+    }
+
+    public static BigDecimal toBigDecimal(long value) {
+        if (!isFinite(value))
+            throw new IllegalArgumentException(isNaN(value) ? "Cannot convert NaN to BigDecimal." : "Cannot convert Infinity to BigDecimal.");
+
+        long coefficient = getCoefficient(value);
+        return BigDecimal.valueOf(isNegative(value) ? -coefficient : coefficient, -getExponent(value));
+    }
+}
@@ -130,17 +130,15 @@ public class SelectQueryHelper {
                     }
 
                     List<TEntry> entries = new ArrayList<>();
-                    PreparedStatement ps;
-                    try {
-                        Connection connection = clickhouseClient.getConnection();
-                        ps = connection.prepareStatement(sql);
+                    try (Connection connection = clickhouseClient.getConnection();
+                         PreparedStatement ps = connection.prepareStatement(sql)) {
                         buildPrepareStatement(params, ps);
 
-                        ResultSet resultSet = ps.executeQuery();
-
-                        int row = 0;
-                        while (resultSet.next()) {
-                            entries.add(rowMapper.mapRow(resultSet, ++row));
+                        try (ResultSet resultSet = ps.executeQuery()) {
+                            int row = 0;
+                            while (resultSet.next()) {
+                                entries.add(rowMapper.mapRow(resultSet, ++row));
+                            }
                         }
                     } catch (SQLException e) {
                         LOG.error()
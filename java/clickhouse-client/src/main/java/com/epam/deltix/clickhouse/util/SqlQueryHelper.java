@@ -19,6 +19,8 @@ package com.epam.deltix.clickhouse.util;
 import com.epam.deltix.clickhouse.models.ExpressionDeclaration;
 import com.epam.deltix.clickhouse.models.TableIdentity;
 import com.epam.deltix.clickhouse.schema.ColumnDeclaration;
+import com.epam.deltix.clickhouse.schema.IndexDeclaration;
+import com.epam.deltix.clickhouse.schema.ProjectionDeclaration;
 import com.epam.deltix.clickhouse.schema.TableDeclaration;
 import com.epam.deltix.clickhouse.schema.engines.Engine;
 import com.epam.deltix.clickhouse.schema.types.SqlDataType;
@@ -40,10 +42,18 @@ public class SqlQueryHelper {
     }
 
     public static String getCreateDatabaseQuery(String databaseName, boolean ifNotExists) {
+        return getCreateDatabaseQuery(databaseName, ifNotExists, null);
+    }
+
+    /**
+     * Returns create database query, executed on all nodes of {@code cluster} unless it is null.
+     */
+    public static String getCreateDatabaseQuery(String databaseName, boolean ifNotExists, String cluster) {
         StringBuilder sb = new StringBuilder("CREATE DATABASE ");
         if (ifNotExists)
             sb.append("IF NOT EXISTS ");
         sb.append(databaseName);
+        appendOnCluster(sb, cluster);
         return sb.toString();
     }
 
@@ -52,6 +62,25 @@ public class SqlQueryHelper {
         return String.format("CREATE TABLE %s %s ENGINE = %s", createIfNotExistsStatement, tableDeclaration.getSqlDefinition(), engineDeclaration.getSqlDefinition());
     }
 
+    /**
+     * Returns create table query, executed on all nodes of {@code cluster} unless it is null.
+     */
+    public static String getCreateTableQuery(TableDeclaration tableDeclaration, Engine engineDeclaration, boolean createIfNotExists, String cluster) {
+        if (cluster == null)
+            return getCreateTableQuery(tableDeclaration, engineDeclaration, createIfNotExists);
+
+        StringBuilder sb = new StringBuilder("CREATE TABLE ");
+        if (createIfNotExists)
+            sb.append("IF NOT EXISTS ");
+        buildTableName(tableDeclaration.getTableIdentity(), sb);
+        appendOnCluster(sb, cluster);
+        sb.append(' ')
+                .append(tableDeclaration.getColumnsSqlDefinition())
+                .append(" ENGINE = ")
+                .append(engineDeclaration.getSqlDefinition());
+        return sb.toString();
+    }
+
     public static String getRenameTableQuery(TableIdentity from, TableIdentity to) {
         StringBuilder sb = new StringBuilder("RENAME TABLE ");
 
@@ -71,21 +100,103 @@ public class SqlQueryHelper {
 
 
     public static String getDropTableQuery(TableIdentity tableIdentity, boolean ifExists) {
+        return getDropTableQuery(tableIdentity, ifExists, null, false);
+    }
+
+    /**
+     * Returns drop table query, executed on all nodes of {@code cluster} unless it is null.
+     * Synchronous drop releases Keeper path of replicated table before the query returns.
+     */
+    public static String getDropTableQuery(TableIdentity tableIdentity, boolean ifExists, String cluster, boolean sync) {
         StringBuilder sb = new StringBuilder("DROP TABLE ");
         if (ifExists)
             sb.append("IF EXISTS ");
 
         buildTableName(tableIdentity, sb);
+        appendOnCluster(sb, cluster);
+        if (sync)
+            sb.append(" SYNC");
 
         return sb.toString();
     }
 
+    /**
+     * Returns query which adds data skipping index to the table unless it exists. Index covers parts inserted later,
+     * existing parts are indexed by {@code MATERIALIZE INDEX}.
+     */
+    public static String getAddIndexQuery(TableIdentity tableIdentity, IndexDeclaration index, String cluster) {
+        StringBuilder sb = new StringBuilder("ALTER TABLE ");
+        buildTableName(tableIdentity, sb);
+        appendOnCluster(sb, cluster);
+        sb.append(" ADD ").append(index.getSqlDefinition(true));
+        return sb.toString();
+    }
+
+    /**
+     * Returns query which adds column to the table unless it exists. Existing rows get default value of the column type.
+     */
+    public static String getAddColumnQuery(TableIdentity tableIdentity, ColumnDeclaration column, String cluster) {
+        StringBuilder sb = new StringBuilder("ALTER TABLE ");
+        buildTableName(tableIdentity, sb);
+        appendOnCluster(sb, cluster);
+        sb.append(" ADD COLUMN IF NOT EXISTS ").append(column.getSqlDefinition());
+        return sb.toString();
+    }
+
+    /**
+     * Returns query which adds projection to the table unless it exists. Projection covers parts inserted later,
+     * existing parts are projected by {@code MATERIALIZE PROJECTION}.
+     */
+    public static String getAddProjectionQuery(TableIdentity tableIdentity, ProjectionDeclaration projection, String cluster) {
+        StringBuilder sb = new StringBuilder("ALTER TABLE ");
+        buildTableName(tableIdentity, sb);
+        appendOnCluster(sb, cluster);
+        sb.append(String.format(" ADD PROJECTION IF NOT EXISTS `%s` (%s)", projection.getName(), projection.getQuery()));
+        return sb.toString();
+    }
+
+    public static StringBuilder appendOnCluster(StringBuilder sb, String cluster) {
+        if (cluster != null)
+            sb.append(" ON CLUSTER `").append(cluster).append('`');
+
+        return sb;
+    }
+
     public static String getInsertIntoQuery(TableDeclaration tableDeclaration) {
         return getInsertIntoQuery(tableDeclaration.getTableIdentity(), tableDeclaration.getColumns());
     }
 
     public static String getInsertIntoQuery(TableIdentity tableIdentity, List<? extends ExpressionDeclaration> expressions) {
-        StringBuilder sb = new StringBuilder("INSERT INTO ");
+        StringBuilder sb = new StringBuilder();
+        int paramIndex = appendInsertInto(tableIdentity, expressions, sb);
+
+        sb.append(" VALUES(");
+        for (int i = 0; i < paramIndex; ++i) {
+            if (i > 0)
+                sb.append(", ");
+
+            sb.append('?');
+        }
+        sb.append(')');
+
+        return sb.toString();
+    }
+
+    /**
+     * Returns insert query which expects data in the specified input format (e.g. RowBinary) instead of parameters.
+     */
+    public static String getInsertIntoQuery(TableIdentity tableIdentity, List<? extends ExpressionDeclaration> expressions, String format) {
+        StringBuilder sb = new StringBuilder();
+        appendInsertInto(tableIdentity, expressions, sb);
+
+        sb.append(" FORMAT ");
+        sb.append(format);
+
+        return sb.toString();
+    }
+
+    private static int appendInsertInto(TableIdentity tableIdentity, List<? extends ExpressionDeclaration> expressions, StringBuilder sb) {
+        sb.append("INSERT INTO ");
         buildTableName(tableIdentity, sb);
         sb.append(" (");
 
@@ -98,16 +209,7 @@ public class SqlQueryHelper {
         }
         sb.append(')');
 
-        sb.append(" VALUES(");
-        for (int i = 0; i < paramIndex; ++i) {
-            if (i > 0)
-                sb.append(", ");
-
-            sb.append('?');
-        }
-        sb.append(')');
-
-        return sb.toString();
+        return paramIndex;
     }
 
     public static List<String> getQueryExpressions(List<? extends ExpressionDeclaration> expressions) {
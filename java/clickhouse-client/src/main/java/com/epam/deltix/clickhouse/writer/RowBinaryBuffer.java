@@ -0,0 +1,222 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Growable off-heap buffer that stores values in ClickHouse RowBinary encoding (little-endian numbers,
+ * LEB128 lengths, UTF-8 strings). The buffer is reused between batches, so encoding does not allocate
+ * once it reached its working size.
+ */
+public class RowBinaryBuffer {
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+    private static final int COPY_CHUNK_SIZE = 64 * 1024;
+
+    private ByteBuffer buffer;
+    private ByteBuffer view;
+    private byte[] chunk;
+
+    public RowBinaryBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RowBinaryBuffer(int initialCapacity) {
+        if (initialCapacity <= 0)
+            throw new IllegalArgumentException("initialCapacity must be greater than zero.");
+
+        allocate(initialCapacity);
+    }
+
+    public int size() {
+        return buffer.position();
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    public void clear() {
+        buffer.clear();
+    }
+
+    public void writeInt8(int value) {
+        ensureCapacity(1);
+        buffer.put((byte) value);
+    }
+
+    public void writeInt16(int value) {
+        ensureCapacity(2);
+        buffer.putShort((short) value);
+    }
+
+    public void writeInt32(int value) {
+        ensureCapacity(4);
+        buffer.putInt(value);
+    }
+
+    public void writeInt64(long value) {
+        ensureCapacity(8);
+        buffer.putLong(value);
+    }
+
+    /**
+     * Writes 128-bit two's complement integer given as two 64-bit halves.
+     */
+    public void writeInt128(long high, long low) {
+        ensureCapacity(16);
+        buffer.putLong(low);
+        buffer.putLong(high);
+    }
+
+    public void writeFloat32(float value) {
+        ensureCapacity(4);
+        buffer.putFloat(value);
+    }
+
+    public void writeFloat64(double value) {
+        ensureCapacity(8);
+        buffer.putDouble(value);
+    }
+
+    public void writeVarInt(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes string as LEB128 byte length followed by UTF-8 bytes.
+     */
+    public void writeString(CharSequence value) {
+        final int length = value.length();
+        final int utf8Length = getUtf8Length(value);
+
+        writeVarInt(utf8Length);
+        ensureCapacity(utf8Length);
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Writes binary value as LEB128 length followed by raw bytes.
+     */
+    public void writeBinary(byte[] value, int offset, int length) {
+        writeVarInt(length);
+        writeBytes(value, offset, length);
+    }
+
+    public void writeBytes(byte[] value, int offset, int length) {
+        ensureCapacity(length);
+        buffer.put(value, offset, length);
+    }
+
+    /**
+     * Appends region of another buffer (e.g. single encoded value) to this buffer.
+     */
+    public void writeBytes(RowBinaryBuffer source, int offset, int length) {
+        if (length == 0)
+            return;
+
+        ensureCapacity(length);
+
+        ByteBuffer src = source.view;
+        src.limit(offset + length);
+        src.position(offset);
+        buffer.put(src);
+    }
+
+    /**
+     * Copies buffer content to the output stream through a reusable chunk.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (chunk == null)
+            chunk = new byte[COPY_CHUNK_SIZE];
+
+        final int size = size();
+        for (int offset = 0; offset < size; ) {
+            int length = Math.min(chunk.length, size - offset);
+            view.limit(offset + length);
+            view.position(offset);
+            view.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+            offset += length;
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (buffer.remaining() >= extra)
+            return;
+
+        final ByteBuffer previous = buffer;
+        allocate(Math.max(previous.capacity() * 2, previous.position() + extra));
+
+        previous.flip();
+        buffer.put(previous);
+    }
+
+    private void allocate(int capacity) {
+        buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        view = buffer.duplicate();
+    }
+
+    private static int getUtf8Length(CharSequence value) {
+        final int length = value.length();
+        int result = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                result++;
+            } else if (c < 0x800) {
+                result += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                result += 4;
+                i++;
+            } else {
+                result += 3;
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,602 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.writer;
+
+import com.clickhouse.data.ClickHouseValue;
+import com.clickhouse.data.value.ClickHouseDateValue;
+import com.epam.deltix.clickhouse.schema.types.*;
+import com.epam.deltix.clickhouse.util.Decimal64Helper;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes values of a single column into {@link RowBinaryBuffer} according to the column SQL type.
+ */
+public class RowBinaryColumn {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private final SqlDataType dataType;
+    private final DataTypes type;
+    private final boolean nullable;
+    private final int scale;
+    private final int decimalSize;
+    private final BigInteger decimalMaxValue;
+    private final int fixedLength;
+    private final Map<String, Short> enumValues;
+    private final short enumDefault;
+    private final RowBinaryColumn elementColumn;
+
+    public RowBinaryColumn(SqlDataType dataType) {
+        this.dataType = dataType;
+
+        SqlDataType essentialType = dataType;
+        if (essentialType instanceof NullableDataType) {
+            essentialType = ((NullableDataType) essentialType).getNestedType();
+            nullable = true;
+        } else {
+            nullable = false;
+        }
+
+        type = essentialType.getType();
+
+        int scale = 0;
+        int decimalSize = 0;
+        int precision = 0;
+        int fixedLength = 0;
+        Map<String, Short> enumValues = null;
+        short enumDefault = 0;
+        RowBinaryColumn elementColumn = null;
+
+        switch (type) {
+            case DECIMAL:
+                DecimalDataType decimalDataType = (DecimalDataType) essentialType;
+                scale = decimalDataType.getS();
+                precision = decimalDataType.getP();
+                decimalSize = getDecimalSize(precision);
+                break;
+            case DECIMAL32:
+                scale = ((BaseDecimalDataType) essentialType).getS();
+                precision = 9;
+                decimalSize = 4;
+                break;
+            case DECIMAL64:
+                scale = ((BaseDecimalDataType) essentialType).getS();
+                precision = 18;
+                decimalSize = 8;
+                break;
+            case DECIMAL128:
+                scale = ((BaseDecimalDataType) essentialType).getS();
+                precision = 38;
+                decimalSize = 16;
+                break;
+            case DATE_TIME64:
+                scale = ((DateTime64DataType) essentialType).getPrecision();
+                break;
+            case FIXED_STRING:
+                fixedLength = ((FixedStringDataType) essentialType).getLength();
+                break;
+            case ENUM8:
+                enumValues = new HashMap<>();
+                for (Enum8DataType.Enum8Value value : ((Enum8DataType) essentialType).getValues())
+                    enumValues.put(value.getName(), (short) value.getValue());
+                if (!((Enum8DataType) essentialType).getValues().isEmpty())
+                    enumDefault = ((Enum8DataType) essentialType).getValues().get(0).getValue();
+                break;
+            case ENUM16:
+                enumValues = new HashMap<>();
+                for (Enum16DataType.Enum16Value value : ((Enum16DataType) essentialType).getValues())
+                    enumValues.put(value.getName(), value.getValue());
+                if (!((Enum16DataType) essentialType).getValues().isEmpty())
+                    enumDefault = ((Enum16DataType) essentialType).getValues().get(0).getValue();
+                break;
+            case ARRAY:
+                elementColumn = new RowBinaryColumn(((ArraySqlType) essentialType).getElementType());
+                break;
+            case UINT8:
+            case UINT16:
+            case UINT32:
+            case UINT64:
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+            case FLOAT32:
+            case FLOAT64:
+            case STRING:
+            case DATE:
+            case DATE_TIME:
+                break;
+            default:
+                throw new UnsupportedOperationException(String.format("Data type '%s' is not supported by RowBinary format.",
+                        dataType.getSqlDefinition()));
+        }
+
+        this.scale = scale;
+        this.decimalSize = decimalSize;
+        this.decimalMaxValue = decimalSize != 0 ? BigInteger.TEN.pow(precision).subtract(BigInteger.ONE) : null;
+        this.fixedLength = fixedLength;
+        this.enumValues = enumValues;
+        this.enumDefault = enumDefault;
+        this.elementColumn = elementColumn;
+    }
+
+    public SqlDataType getDataType() {
+        return dataType;
+    }
+
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    /**
+     * Writes NULL for nullable column, empty array for array column and default value otherwise.
+     */
+    public void writeNull(RowBinaryBuffer out) {
+        if (nullable)
+            out.writeInt8(1);
+        else
+            writeZero(out);
+    }
+
+    /**
+     * Writes column default value: NULL for nullable column and zero value otherwise.
+     */
+    public void writeDefault(RowBinaryBuffer out) {
+        writeNull(out);
+    }
+
+    public void writeLong(RowBinaryBuffer out, long value) {
+        writeNotNull(out);
+
+        switch (type) {
+            case UINT8:
+            case INT8:
+                out.writeInt8((int) value);
+                break;
+            case UINT16:
+            case INT16:
+            case ENUM16:
+                out.writeInt16((int) value);
+                break;
+            case ENUM8:
+                out.writeInt8((int) value);
+                break;
+            case UINT32:
+            case INT32:
+                out.writeInt32((int) value);
+                break;
+            case UINT64:
+            case INT64:
+                out.writeInt64(value);
+                break;
+            case FLOAT32:
+                out.writeFloat32(value);
+                break;
+            case FLOAT64:
+                out.writeFloat64(value);
+                break;
+            case DECIMAL:
+            case DECIMAL32:
+            case DECIMAL64:
+            case DECIMAL128:
+                final long limit = scale < POWERS_OF_TEN.length ? Long.MAX_VALUE / POWERS_OF_TEN[scale] : 0;
+                if (value < limit && value > -limit)
+                    writeUnscaled(out, value * POWERS_OF_TEN[scale]);
+                else
+                    writeUnscaled(out, BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP).unscaledValue());
+                break;
+            case DATE:
+            case DATE_TIME:
+            case DATE_TIME64:
+                writeTimestampValue(out, value);
+                break;
+            case STRING:
+                out.writeString(Long.toString(value));
+                break;
+            default:
+                throw unexpectedValue(value);
+        }
+    }
+
+    public void writeDouble(RowBinaryBuffer out, double value) {
+        switch (type) {
+            case FLOAT32:
+                writeNotNull(out);
+                out.writeFloat32((float) value);
+                break;
+            case FLOAT64:
+                writeNotNull(out);
+                out.writeFloat64(value);
+                break;
+            case DECIMAL:
+            case DECIMAL32:
+            case DECIMAL64:
+            case DECIMAL128:
+                writeDecimal(out, BigDecimal.valueOf(value));
+                break;
+            default:
+                writeLong(out, (long) value);
+        }
+    }
+
+    public void writeBoolean(RowBinaryBuffer out, boolean value) {
+        writeLong(out, value ? 1 : 0);
+    }
+
+    public void writeDecimal(RowBinaryBuffer out, BigDecimal value) {
+        switch (type) {
+            case DECIMAL:
+            case DECIMAL32:
+            case DECIMAL64:
+            case DECIMAL128:
+                writeNotNull(out);
+                BigInteger unscaled = value.setScale(scale, RoundingMode.HALF_UP).unscaledValue();
+                if (unscaled.bitLength() < 64)
+                    writeUnscaled(out, unscaled.longValue());
+                else
+                    writeUnscaled(out, unscaled);
+                break;
+            case FLOAT32:
+            case FLOAT64:
+                writeDouble(out, value.doubleValue());
+                break;
+            case STRING:
+                writeString(out, value.toPlainString());
+                break;
+            default:
+                writeLong(out, value.longValue());
+        }
+    }
+
+    /**
+     * Writes Decimal64 value given in its binary representation. Decimal columns get the value rounded to the column scale
+     * without intermediate objects, infinities and Decimal64 bounds as bounds of the column, NaN is written as NULL.
+     */
+    public void writeDecimal64(RowBinaryBuffer out, long value) {
+        if (Decimal64Helper.isNaN(value)) {
+            writeNull(out);
+            return;
+        }
+
+        switch (type) {
+            case DECIMAL:
+            case DECIMAL32:
+            case DECIMAL64:
+            case DECIMAL128:
+                writeNotNull(out);
+                if (Decimal64Helper.isBound(value)) {
+                    if (decimalSize == 16)
+                        writeUnscaled(out, Decimal64Helper.isNegative(value) ? decimalMaxValue.negate() : decimalMaxValue);
+                    else
+                        writeUnscaled(out, Decimal64Helper.isNegative(value) ? -decimalMaxValue.longValue() : decimalMaxValue.longValue());
+                    break;
+                }
+
+                writeUnscaled(out, Decimal64Helper.isNegative(value), Decimal64Helper.getCoefficient(value),
+                        Decimal64Helper.getExponent(value) + scale);
+                break;
+            case FLOAT32:
+            case FLOAT64:
+                writeDouble(out, Decimal64Helper.isFinite(value) ?
+                        Decimal64Helper.toBigDecimal(value).doubleValue() :
+                        Decimal64Helper.isNegative(value) ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+                break;
+            default:
+                writeDecimal(out, Decimal64Helper.toBigDecimal(value));
+        }
+    }
+
+    /**
+     * Writes timestamp given as milliseconds since epoch.
+     */
+    public void writeTimestamp(RowBinaryBuffer out, long epochMillis) {
+        writeNotNull(out);
+        writeTimestampValue(out, epochMillis);
+    }
+
+    public void writeString(RowBinaryBuffer out, CharSequence value) {
+        switch (type) {
+            case STRING:
+                writeNotNull(out);
+                out.writeString(value);
+                break;
+            case FIXED_STRING:
+                byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                writeBytes(out, bytes, 0, bytes.length);
+                break;
+            case ENUM8:
+            case ENUM16:
+                Short enumValue = enumValues.get(value.toString());
+                if (enumValue == null)
+                    throw new IllegalArgumentException(String.format("Unknown value '%s' for %s.", value, dataType.getSqlDefinition()));
+
+                writeLong(out, enumValue);
+                break;
+            default:
+                throw unexpectedValue(value);
+        }
+    }
+
+    public void writeBytes(RowBinaryBuffer out, byte[] value, int offset, int length) {
+        switch (type) {
+            case STRING:
+                writeNotNull(out);
+                out.writeBinary(value, offset, length);
+                break;
+            case FIXED_STRING:
+                writeNotNull(out);
+                final int copyLength = Math.min(length, fixedLength);
+                out.writeBytes(value, offset, copyLength);
+                for (int i = copyLength; i < fixedLength; i++)
+                    out.writeInt8(0);
+                break;
+            default:
+                throw unexpectedValue(value);
+        }
+    }
+
+    /**
+     * Writes array length and returns column of array elements, the elements should be written next.
+     */
+    public RowBinaryColumn beginArray(RowBinaryBuffer out, int length) {
+        if (elementColumn == null)
+            throw new IllegalArgumentException(String.format("Column of type %s is not an array.", dataType.getSqlDefinition()));
+
+        out.writeVarInt(length);
+        return elementColumn;
+    }
+
+    public void writeArray(RowBinaryBuffer out, Object[] values) {
+        if (elementColumn == null)
+            throw unexpectedValue(values);
+
+        out.writeVarInt(values.length);
+        for (Object value : values)
+            elementColumn.writeObject(out, value);
+    }
+
+    /**
+     * Writes value of arbitrary supported Java type, e.g. boxed primitive, string, date or array.
+     */
+    public void writeObject(RowBinaryBuffer out, Object value) {
+        if (value == null) {
+            writeNull(out);
+        } else if (value instanceof BigDecimal) {
+            writeDecimal(out, (BigDecimal) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            writeDouble(out, ((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            writeLong(out, ((Number) value).longValue());
+        } else if (value instanceof CharSequence) {
+            writeString(out, (CharSequence) value);
+        } else if (value instanceof Character) {
+            writeString(out, String.valueOf((char) (Character) value));
+        } else if (value instanceof Boolean) {
+            writeBoolean(out, (Boolean) value);
+        } else if (value instanceof java.util.Date) {
+            writeTimestamp(out, ((java.util.Date) value).getTime());
+        } else if (value instanceof ClickHouseDateValue) {
+            writeTimestamp(out, ((ClickHouseDateValue) value).asLong() * MILLIS_PER_DAY);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            writeBytes(out, bytes, 0, bytes.length);
+        } else if (value instanceof Object[]) {
+            writeArray(out, (Object[]) value);
+        } else if (value instanceof Collection) {
+            writeArray(out, ((Collection<?>) value).toArray());
+        } else if (value instanceof ClickHouseValue) {
+            ClickHouseValue chValue = (ClickHouseValue) value;
+            if (chValue.isNullOrEmpty() && elementColumn == null)
+                writeNull(out);
+            else
+                writeObject(out, chValue.asObject());
+        } else {
+            throw unexpectedValue(value);
+        }
+    }
+
+    private void writeNotNull(RowBinaryBuffer out) {
+        if (nullable)
+            out.writeInt8(0);
+    }
+
+    private void writeZero(RowBinaryBuffer out) {
+        switch (type) {
+            case UINT8:
+            case INT8:
+                out.writeInt8(0);
+                break;
+            case ENUM8:
+                out.writeInt8(enumDefault);
+                break;
+            case UINT16:
+            case INT16:
+            case DATE:
+                out.writeInt16(0);
+                break;
+            case ENUM16:
+                out.writeInt16(enumDefault);
+                break;
+            case UINT32:
+            case INT32:
+            case DATE_TIME:
+                out.writeInt32(0);
+                break;
+            case UINT64:
+            case INT64:
+            case DATE_TIME64:
+                out.writeInt64(0);
+                break;
+            case FLOAT32:
+                out.writeFloat32(0);
+                break;
+            case FLOAT64:
+                out.writeFloat64(0);
+                break;
+            case DECIMAL:
+            case DECIMAL32:
+            case DECIMAL64:
+            case DECIMAL128:
+                writeUnscaled(out, 0);
+                break;
+            case STRING:
+            case ARRAY:
+                out.writeVarInt(0);
+                break;
+            case FIXED_STRING:
+                for (int i = 0; i < fixedLength; i++)
+                    out.writeInt8(0);
+                break;
+            default:
+                throw new UnsupportedOperationException();
+        }
+    }
+
+    private void writeTimestampValue(RowBinaryBuffer out, long epochMillis) {
+        switch (type) {
+            case DATE:
+                out.writeInt16((int) Math.floorDiv(epochMillis, MILLIS_PER_DAY));
+                break;
+            case DATE_TIME:
+                out.writeInt32((int) Math.floorDiv(epochMillis, 1000));
+                break;
+            case DATE_TIME64:
+                if (scale >= 3)
+                    out.writeInt64(epochMillis * POWERS_OF_TEN[scale - 3]);
+                else
+                    out.writeInt64(Math.floorDiv(epochMillis, POWERS_OF_TEN[3 - scale]));
+                break;
+            case UINT64:
+            case INT64:
+                out.writeInt64(epochMillis);
+                break;
+            default:
+                throw unexpectedValue(epochMillis);
+        }
+    }
+
+    private void writeUnscaled(RowBinaryBuffer out, long unscaled) {
+        switch (decimalSize) {
+            case 4:
+                if (unscaled != (int) unscaled)
+                    throw decimalOutOfRange(unscaled);
+                out.writeInt32((int) unscaled);
+                break;
+            case 8:
+                out.writeInt64(unscaled);
+                break;
+            default:
+                out.writeInt128(unscaled < 0 ? -1L : 0L, unscaled);
+        }
+    }
+
+    /**
+     * Writes {@code coefficient * 10^power} with HALF_UP rounding, using 128-bit arithmetic for Decimal128.
+     */
+    private void writeUnscaled(RowBinaryBuffer out, boolean negative, long coefficient, int power) {
+        long high = 0;
+        long low = 0;
+        if (coefficient == 0) {
+            // zero for any power
+        } else if (power < 0) {
+            if (power >= -18) {
+                long divisor = POWERS_OF_TEN[-power];
+                low = coefficient / divisor;
+                if ((coefficient % divisor) * 2 >= divisor)
+                    low++;
+            }
+        } else if (power <= 18) {
+            low = coefficient * POWERS_OF_TEN[power];
+            high = Math.multiplyHigh(coefficient, POWERS_OF_TEN[power]);
+        } else if (power <= 38) {
+            // coefficient * 10^18 * 10^(power - 18)
+            long low1 = coefficient * POWERS_OF_TEN[18];
+            long high1 = Math.multiplyHigh(coefficient, POWERS_OF_TEN[18]);
+            long multiplier = POWERS_OF_TEN[power - 18];
+
+            low = low1 * multiplier;
+            try {
+                // unsigned high part of low1 * multiplier, multiplier is positive
+                long carry = Math.multiplyHigh(low1, multiplier) + ((low1 >> 63) & multiplier);
+                high = Math.addExact(Math.multiplyExact(high1, multiplier), carry);
+            } catch (ArithmeticException e) {
+                high = -1;
+            }
+        } else {
+            high = -1;
+        }
+
+        if (decimalSize != 16) {
+            if (high != 0 || low < 0)
+                throw decimalOutOfRange(negative, coefficient, power);
+            writeUnscaled(out, negative ? -low : low);
+        } else {
+            if (high < 0)
+                throw decimalOutOfRange(negative, coefficient, power);
+            if (negative) {
+                low = -low;
+                high = low == 0 ? -high : ~high;
+            }
+            out.writeInt128(high, low);
+        }
+    }
+
+    private IllegalArgumentException decimalOutOfRange(boolean negative, long coefficient, int power) {
+        return new IllegalArgumentException(String.format("Value %s%dE%d is out of range for %s.",
+                negative ? "-" : "", coefficient, power - scale, dataType.getSqlDefinition()));
+    }
+
+    private IllegalArgumentException decimalOutOfRange(long unscaled) {
+        return new IllegalArgumentException(String.format("Value %s is out of range for %s.",
+                BigDecimal.valueOf(unscaled, scale), dataType.getSqlDefinition()));
+    }
+
+    private void writeUnscaled(RowBinaryBuffer out, BigInteger unscaled) {
+        if (decimalSize != 16)
+            throw new IllegalArgumentException(String.format("Value %s is out of range for %s.", unscaled, dataType.getSqlDefinition()));
+
+        out.writeInt128(unscaled.shiftRight(64).longValue(), unscaled.longValue());
+    }
+
+    private IllegalArgumentException unexpectedValue(Object value) {
+        return new IllegalArgumentException(String.format("Cannot write value of type '%s' to column of type %s.",
+                value.getClass().getName(), dataType.getSqlDefinition()));
+    }
+
+    private static int getDecimalSize(int precision) {
+        if (precision <= 9)
+            return 4;
+        else if (precision <= 18)
+            return 8;
+        else
+            return 16;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.unit;
+
+import com.epam.deltix.clickhouse.mock.MockConnection;
+import com.epam.deltix.clickhouse.mock.MockDataSource;
+import com.epam.deltix.clickhouse.pool.ConnectionPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConnectionPoolTests {
+
+    @Test
+    public void closeConnection_expectReuse() throws SQLException {
+        CountingDataSource dataSource = new CountingDataSource();
+        ConnectionPool pool = new ConnectionPool(dataSource, 2, 100, 60_000, 60_000);
+
+        Connection connection = pool.getConnection();
+        connection.close();
+        Assert.assertTrue(connection.isClosed());
+        pool.getConnection().close();
+
+        Assert.assertEquals(1, dataSource.connections.size());
+        Assert.assertFalse(dataSource.connections.get(0).closed);
+        Assert.assertEquals(1, pool.getIdleConnections());
+        Assert.assertEquals(0, pool.getActiveConnections());
+    }
+
+    @Test(expected = SQLTimeoutException.class)
+    public void allConnectionsInUse_expectTimeout() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(new CountingDataSource(), 2, 10, 60_000, 60_000);
+
+        pool.getConnection();
+        pool.getConnection();
+        pool.getConnection();
+    }
+
+    @Test
+    public void invalidIdleConnection_expectNewConnection() throws SQLException {
+        CountingDataSource dataSource = new CountingDataSource();
+        ConnectionPool pool = new ConnectionPool(dataSource, 1, 100, 60_000, 0);
+
+        pool.getConnection().close();
+        dataSource.connections.get(0).valid = false;
+        pool.getConnection().close();
+
+        Assert.assertEquals(2, dataSource.connections.size());
+        Assert.assertTrue(dataSource.connections.get(0).closed);
+    }
+
+    @Test
+    public void closePool_expectConnectionsClosed() throws SQLException {
+        CountingDataSource dataSource = new CountingDataSource();
+        ConnectionPool pool = new ConnectionPool(dataSource, 2, 100, 60_000, 60_000);
+
+        Connection inUse = pool.getConnection();
+        pool.getConnection().close();
+        pool.close();
+        Assert.assertTrue(dataSource.connections.get(1).closed);
+        Assert.assertFalse(dataSource.connections.get(0).closed);
+
+        inUse.close();
+        Assert.assertTrue(dataSource.connections.get(0).closed);
+    }
+
+    private static class CountingDataSource extends MockDataSource {
+        private final List<TestConnection> connections = new ArrayList<>();
+
+        @Override
+        public MockConnection getConnection() {
+            TestConnection connection = new TestConnection();
+            connections.add(connection);
+            return connection;
+        }
+    }
+
+    private static class TestConnection extends MockConnection {
+        private boolean closed = false;
+        private boolean valid = true;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public boolean isValid(int timeout) {
+            return valid;
+        }
+    }
+}
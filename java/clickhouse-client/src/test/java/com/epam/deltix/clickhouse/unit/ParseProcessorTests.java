@@ -0,0 +1,93 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.unit;
+
+import com.epam.deltix.clickhouse.parser.ParseProcessor;
+import com.epam.deltix.clickhouse.schema.types.ArraySqlType;
+import com.epam.deltix.clickhouse.schema.types.DataTypes;
+import com.epam.deltix.clickhouse.schema.types.NullableDataType;
+import com.epam.deltix.clickhouse.schema.types.SqlDataType;
+import com.epam.deltix.clickhouse.schema.types.StringDataType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ParseProcessorTests {
+
+    @Test
+    public void parseDataType_expectLowCardinalityString() {
+        SqlDataType dataType = ParseProcessor.parseDataType("LowCardinality(String)");
+
+        Assert.assertTrue(dataType instanceof StringDataType);
+        Assert.assertTrue(((StringDataType) dataType).isLowCardinality());
+        Assert.assertEquals("LowCardinality(String)", dataType.getSqlDefinition());
+    }
+
+    @Test
+    public void parseDataType_expectLowCardinalityNullableString() {
+        SqlDataType dataType = ParseProcessor.parseDataType("LowCardinality(Nullable(String))");
+
+        Assert.assertTrue(dataType instanceof NullableDataType);
+        Assert.assertEquals(DataTypes.STRING, ((NullableDataType) dataType).getNestedType().getType());
+        Assert.assertEquals("LowCardinality(Nullable(String))", dataType.getSqlDefinition());
+    }
+
+    @Test
+    public void parseDataType_expectPlainString() {
+        SqlDataType dataType = ParseProcessor.parseDataType("String");
+
+        Assert.assertFalse(((StringDataType) dataType).isLowCardinality());
+        Assert.assertEquals("String", dataType.getSqlDefinition());
+    }
+
+    @Test
+    public void parseDataType_expectSameInstanceForRepeatedString() {
+        SqlDataType first = ParseProcessor.parseDataType("Nullable(Int64)");
+        SqlDataType second = ParseProcessor.parseDataType("Nullable(Int64)");
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(DataTypes.INT64, ((NullableDataType) first).getNestedType().getType());
+        Assert.assertEquals("Nullable(Int64)", first.getSqlDefinition());
+    }
+
+    @Test
+    public void parseDataType_expectComplexTypes() {
+        SqlDataType arrayType = ParseProcessor.parseDataType("Array(Nullable(Float64))");
+        Assert.assertTrue(arrayType instanceof ArraySqlType);
+        Assert.assertEquals("Array(Nullable(Float64))", arrayType.getSqlDefinition());
+
+        Assert.assertEquals("DateTime64(3)", ParseProcessor.parseDataType("DateTime64(3)").getSqlDefinition());
+        Assert.assertEquals(DataTypes.DECIMAL64, ParseProcessor.parseDataType("Decimal64(4)").getType());
+    }
+
+    @Test
+    public void parseDataType_expectColumnsOfWideTable() {
+        String[] typeStrings = {"Int64", "Nullable(Float64)", "String", "LowCardinality(String)", "Nullable(UInt8)",
+                "Array(Nullable(Int32))", "DateTime", "Nullable(DateTime64(9))"};
+
+        List<SqlDataType> types = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++)
+            types.add(ParseProcessor.parseDataType(typeStrings[i % typeStrings.length]));
+
+        for (int i = 0; i < types.size(); i++) {
+            Assert.assertEquals(typeStrings[i % typeStrings.length], types.get(i).getSqlDefinition());
+            Assert.assertSame(types.get(i % typeStrings.length), types.get(i));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.unit;
+
+import com.epam.deltix.clickhouse.schema.types.*;
+import com.epam.deltix.clickhouse.util.Decimal64Helper;
+import com.epam.deltix.clickhouse.writer.RowBinaryBuffer;
+import com.epam.deltix.clickhouse.writer.RowBinaryColumn;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+public class RowBinaryColumnTests {
+
+    @Test
+    public void writeNumbers_expectLittleEndian() throws IOException {
+        RowBinaryBuffer buffer = new RowBinaryBuffer(4);
+
+        new RowBinaryColumn(new Int32DataType()).writeLong(buffer, 0x01020304);
+        new RowBinaryColumn(new Int16DataType()).writeLong(buffer, -2);
+
+        assertBytes(buffer, 0x04, 0x03, 0x02, 0x01, 0xFE, 0xFF);
+    }
+
+    @Test
+    public void writeNullable_expectNullPrefix() throws IOException {
+        RowBinaryBuffer buffer = new RowBinaryBuffer();
+        RowBinaryColumn column = new RowBinaryColumn(new NullableDataType(new Int8DataType()));
+
+        column.writeNull(buffer);
+        column.writeLong(buffer, 7);
+
+        assertBytes(buffer, 1, 0, 7);
+    }
+
+    @Test
+    public void writeString_expectUtf8WithLength() throws IOException {
+        RowBinaryBuffer buffer = new RowBinaryBuffer();
+
+        new RowBinaryColumn(new StringDataType()).writeString(buffer, "aé€");
+
+        assertBytes(buffer, 6, 'a', 0xC3, 0xA9, 0xE2, 0x82, 0xAC);
+    }
+
+    @Test
+    public void writeDecimal_expectScaledValue() throws IOException {
+        RowBinaryBuffer buffer = new RowBinaryBuffer();
+        RowBinaryColumn column = new RowBinaryColumn(new DecimalDataType(9, 2));
+
+        column.writeDecimal(buffer, new BigDecimal("-1.5"));
+
+        assertBytes(buffer, 0x6A, 0xFF, 0xFF, 0xFF);
+    }
+
+    @Test
+    public void writeDecimal64_expectSameAsBigDecimal() throws IOException {
+        long[] values = {
+                decimal64(false, 0, 0),
+                decimal64(false, 123, -2),
+                decimal64(true, 123, -2),
+                decimal64(false, 15, -14),
+                decimal64(true, 25, -14),
+                decimal64(false, 1, -40),
+                decimal64(false, 9999999999999999L, -3),
+                decimal64(true, 9999999999999999L, 10),
+                decimal64(false, 1234567, 20),
+        };
+
+        for (SqlDataType dataType : new SqlDataType[] {new Decimal128DataType(12), new DecimalDataType(18, 4)}) {
+            RowBinaryColumn column = new RowBinaryColumn(dataType);
+            for (long value : values) {
+                if (dataType.getType() != DataTypes.DECIMAL128 && Decimal64Helper.getExponent(value) > 0)
+                    continue;
+
+                RowBinaryBuffer expected = new RowBinaryBuffer();
+                column.writeDecimal(expected, Decimal64Helper.toBigDecimal(value));
+
+                RowBinaryBuffer actual = new RowBinaryBuffer();
+                column.writeDecimal64(actual, value);
+
+                Assert.assertArrayEquals(Decimal64Helper.toBigDecimal(value) + " as " + dataType.getSqlDefinition(),
+                        toBytes(expected), toBytes(actual));
+            }
+        }
+    }
+
+    @Test
+    public void writeDecimal64_expectNoAllocations() {
+        java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long threadId = Thread.currentThread().getId();
+
+        RowBinaryColumn decimal128 = new RowBinaryColumn(new Decimal128DataType(12));
+        RowBinaryColumn decimal64 = new RowBinaryColumn(new DecimalDataType(18, 4));
+        RowBinaryBuffer buffer = new RowBinaryBuffer(1024 * 1024);
+        long value = decimal64(true, 123456789, -5);
+
+        long allocated = 0;
+        for (int iteration = 0; iteration < 3; iteration++) {
+            long before = allocations.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 40_000; i++) {
+                decimal128.writeDecimal64(buffer, value);
+                decimal64.writeDecimal64(buffer, value);
+            }
+            allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+            buffer.clear();
+        }
+
+        // BigDecimal conversion allocates more than 100 bytes per value
+        Assert.assertTrue("Allocated " + allocated + " bytes", allocated < 80_000);
+    }
+
+    @Test
+    public void writeDecimal64NaN_expectNull() throws IOException {
+        RowBinaryBuffer buffer = new RowBinaryBuffer();
+
+        new RowBinaryColumn(new NullableDataType(new DecimalDataType(9, 2))).writeDecimal64(buffer, 0x7C00000000000000L);
+
+        assertBytes(buffer, 1);
+    }
+
+    @Test
+    public void writeDecimal64Bounds_expectColumnBounds() throws IOException {
+        long positiveInfinity = 0x7800000000000000L;
+        long negativeInfinity = 0xF800000000000000L;
+        BigDecimal max128 = new BigDecimal("99999999999999999999999999.999999999999");
+        BigDecimal max32 = new BigDecimal("9999999.99");
+
+        assertDecimal64(new Decimal128DataType(12), positiveInfinity, max128);
+        assertDecimal64(new Decimal128DataType(12), negativeInfinity, max128.negate());
+        assertDecimal64(new Decimal128DataType(12), Decimal64Helper.MAX_VALUE, max128);
+        assertDecimal64(new Decimal128DataType(12), Decimal64Helper.MIN_VALUE, max128.negate());
+        assertDecimal64(new DecimalDataType(9, 2), positiveInfinity, max32);
+        assertDecimal64(new DecimalDataType(9, 2), Decimal64Helper.MIN_VALUE, max32.negate());
+    }
+
+    @Test
+    public void writeDecimal32OutOfRange_expectException() {
+        RowBinaryColumn column = new RowBinaryColumn(new Decimal32DataType(2));
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> column.writeLong(new RowBinaryBuffer(), 100_000_000));
+        Assert.assertThrows(IllegalArgumentException.class, () -> column.writeDecimal(new RowBinaryBuffer(), new BigDecimal("-21474836.49")));
+        Assert.assertThrows(IllegalArgumentException.class, () -> column.writeDecimal64(new RowBinaryBuffer(), decimal64(false, 3, 7)));
+    }
+
+    @Test
+    public void writeTimestamp_expectPrecisionApplied() throws IOException {
+        RowBinaryBuffer buffer = new RowBinaryBuffer();
+
+        new RowBinaryColumn(new DateTime64DataType(6)).writeTimestamp(buffer, 1);
+        new RowBinaryColumn(new DateDataType()).writeTimestamp(buffer, 2 * 24 * 60 * 60 * 1000L);
+
+        assertBytes(buffer, 0xE8, 0x03, 0, 0, 0, 0, 0, 0, 2, 0);
+    }
+
+    @Test
+    public void writeArray_expectLengthAndElements() throws IOException {
+        RowBinaryBuffer buffer = new RowBinaryBuffer();
+        RowBinaryColumn column = new RowBinaryColumn(new ArraySqlType(new NullableDataType(new UInt8DataType())));
+
+        column.writeObject(buffer, new Object[] {true, null});
+        column.writeNull(buffer);
+
+        assertBytes(buffer, 2, 0, 1, 1, 0);
+    }
+
+    @Test
+    public void writeEnum_expectEnumValue() throws IOException {
+        RowBinaryBuffer buffer = new RowBinaryBuffer();
+        RowBinaryColumn column = new RowBinaryColumn(new Enum16DataType(Arrays.asList(
+                new Enum16DataType.Enum16Value("A", (short) 5),
+                new Enum16DataType.Enum16Value("B", (short) 300))));
+
+        column.writeString(buffer, "B");
+        column.writeDefault(buffer);
+
+        assertBytes(buffer, 0x2C, 0x01, 5, 0);
+    }
+
+    private static void assertDecimal64(SqlDataType dataType, long value, BigDecimal expectedValue) throws IOException {
+        RowBinaryColumn column = new RowBinaryColumn(dataType);
+
+        RowBinaryBuffer expected = new RowBinaryBuffer();
+        column.writeDecimal(expected, expectedValue);
+
+        RowBinaryBuffer actual = new RowBinaryBuffer();
+        column.writeDecimal64(actual, value);
+
+        Assert.assertArrayEquals(expectedValue + " as " + dataType.getSqlDefinition(), toBytes(expected), toBytes(actual));
+    }
+
+    private static void assertBytes(RowBinaryBuffer buffer, int... expected) throws IOException {
+        byte[] expectedBytes = new byte[expected.length];
+        for (int i = 0; i < expected.length; i++)
+            expectedBytes[i] = (byte) expected[i];
+
+        Assert.assertArrayEquals(expectedBytes, toBytes(buffer));
+    }
+
+    private static byte[] toBytes(RowBinaryBuffer buffer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static long decimal64(boolean negative, long coefficient, int exponent) {
+        long sign = negative ? Long.MIN_VALUE : 0;
+        if (coefficient < (1L << 53))
+            return sign | ((long) (exponent + 398) << 53) | coefficient;
+        return sign | 0x6000000000000000L | ((long) (exponent + 398) << 51) | (coefficient & 0x0007FFFFFFFFFFFFL);
+    }
+}
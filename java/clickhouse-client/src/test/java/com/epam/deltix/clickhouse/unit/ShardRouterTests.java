@@ -0,0 +1,106 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.unit;
+
+import com.epam.deltix.clickhouse.ClickhouseClient;
+import com.epam.deltix.clickhouse.mock.MockConnection;
+import com.epam.deltix.clickhouse.mock.MockDataSource;
+import com.epam.deltix.clickhouse.pool.ShardRouter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+public class ShardRouterTests {
+
+    @Test
+    public void connectionInUse_expectOtherShard() throws SQLException {
+        ShardRouter router = createRouter(2);
+
+        Connection first = router.getConnection();
+        Connection second = router.getConnection();
+
+        Assert.assertEquals(1, router.getShards().get(0).getConnectionsInUse());
+        Assert.assertEquals(1, router.getShards().get(1).getConnectionsInUse());
+
+        first.close();
+        second.close();
+        Assert.assertEquals(0, router.getShards().get(0).getConnectionsInUse());
+        Assert.assertEquals(0, router.getShards().get(1).getConnectionsInUse());
+    }
+
+    @Test
+    public void slowShard_expectFastShard() throws SQLException, InterruptedException {
+        ShardRouter router = createRouter(2);
+        ShardRouter.Shard slow = router.getShards().get(0);
+        ShardRouter.Shard fast = router.getShards().get(1);
+
+        Connection connection = slow.getConnection();
+        Thread.sleep(20);
+        connection.close();
+        fast.getConnection().close();
+
+        for (int i = 0; i < 10; i++)
+            Assert.assertSame(fast, router.getLeastLoadedShard());
+    }
+
+    @Test
+    public void measuredInsert_expectShardLoad() throws SQLException {
+        ShardRouter router = createRouter(2);
+        ShardRouter.Shard shard = router.getShards().get(0);
+
+        shard.measure(() -> {
+            Assert.assertEquals(1, shard.getConnectionsInUse());
+            Assert.assertSame(router.getShards().get(1), router.getLeastLoadedShard());
+            return null;
+        });
+
+        Assert.assertEquals(0, shard.getConnectionsInUse());
+        Assert.assertTrue(shard.getLatencyNanos() > 0);
+        Assert.assertThrows(SQLException.class, () -> shard.measure(() -> {
+            throw new SQLException("Insert failed");
+        }));
+        Assert.assertEquals(1, shard.getFailures());
+        Assert.assertEquals(0, shard.getConnectionsInUse());
+    }
+
+    @Test
+    public void sameKey_expectSameShard() {
+        ShardRouter router = createRouter(3);
+
+        Assert.assertSame(router.getShard("stream#lane"), router.getShard("stream#lane"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noShards_expectException() {
+        new ShardRouter(Arrays.asList());
+    }
+
+    private static ShardRouter createRouter(int shards) {
+        ClickhouseClient[] clients = new ClickhouseClient[shards];
+        for (int i = 0; i < shards; i++)
+            clients[i] = new ClickhouseClient(new MockDataSource() {
+                @Override
+                public MockConnection getConnection() {
+                    return new MockConnection();
+                }
+            });
+        return new ShardRouter(Arrays.asList(clients));
+    }
+}
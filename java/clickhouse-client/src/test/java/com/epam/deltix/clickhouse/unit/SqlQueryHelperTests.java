@@ -18,8 +18,16 @@ package com.epam.deltix.clickhouse.unit;
 
 import com.epam.deltix.clickhouse.models.ClickhouseTableIdentity;
 import com.epam.deltix.clickhouse.models.TableIdentity;
+import com.epam.deltix.clickhouse.schema.IndexDeclaration;
+import com.epam.deltix.clickhouse.schema.ProjectionDeclaration;
+import com.epam.deltix.clickhouse.schema.TableDeclaration;
+import com.epam.deltix.clickhouse.schema.engines.MergeTreeEngine;
+import com.epam.deltix.clickhouse.schema.engines.ReplicatedMergeTreeEngine;
+import com.epam.deltix.clickhouse.schema.types.DateDataType;
+import com.epam.deltix.clickhouse.schema.types.DateTime64DataType;
 import com.epam.deltix.clickhouse.schema.types.Int64DataType;
 import com.epam.deltix.clickhouse.schema.types.NestedDataType;
+import com.epam.deltix.clickhouse.schema.types.NullableDataType;
 import com.epam.deltix.clickhouse.schema.types.StringDataType;
 import com.epam.deltix.clickhouse.util.SqlQueryHelper;
 import com.epam.deltix.clickhouse.schema.ColumnDeclaration;
@@ -50,4 +58,86 @@ public class SqlQueryHelperTests {
 
         Assert.assertEquals(expected, actual);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getInsertIntoFormatQuery_expectCorrectQuery() {
+        TableIdentity tableIdentity = ClickhouseTableIdentity.of("test");
+
+        List<ColumnDeclaration> columns = Arrays.asList(
+                new ColumnDeclaration("col1", new StringDataType()),
+                new ColumnDeclaration("col2", new Int64DataType())
+        );
+
+        String expected = "INSERT INTO test (`col1`, `col2`) FORMAT RowBinary";
+        String actual = SqlQueryHelper.getInsertIntoQuery(tableIdentity, columns, "RowBinary");
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void getCreateTableQueryOnCluster_expectReplicatedEngine() {
+        ColumnDeclaration partition = new ColumnDeclaration("partition", new DateDataType());
+        ColumnDeclaration id = new ColumnDeclaration("id", new Int64DataType());
+        TableDeclaration table = new TableDeclaration(ClickhouseTableIdentity.of("db", "test"), Arrays.asList(partition, id));
+        ReplicatedMergeTreeEngine engine = new ReplicatedMergeTreeEngine(new MergeTreeEngine(partition, Arrays.asList(id)),
+                "/clickhouse/tables/{shard}/{database}/{table}", "{replica}");
+
+        String expected = "CREATE TABLE IF NOT EXISTS db.test ON CLUSTER `main` (`partition` Date, `id` Int64) ENGINE = " +
+                "ReplicatedMergeTree('/clickhouse/tables/{shard}/{database}/{table}', '{replica}') partition by partition " +
+                "order by (id) settings index_granularity = 8192";
+        String actual = SqlQueryHelper.getCreateTableQuery(table, engine, true, "main");
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void getDropTableQueryOnCluster_expectSyncDrop() {
+        String expected = "DROP TABLE IF EXISTS db.test ON CLUSTER `main` SYNC";
+        String actual = SqlQueryHelper.getDropTableQuery(ClickhouseTableIdentity.of("db", "test"), true, "main", true);
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void getAddIndexQuery_expectCorrectQuery() {
+        IndexDeclaration index = new IndexDeclaration("idx_instrument", "`instrument`", "bloom_filter", 4);
+
+        String expected = "ALTER TABLE db.test ADD INDEX IF NOT EXISTS `idx_instrument` `instrument` TYPE bloom_filter GRANULARITY 4";
+        String actual = SqlQueryHelper.getAddIndexQuery(ClickhouseTableIdentity.of("db", "test"), index, null);
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void getAddColumnQuery_expectCorrectQuery() {
+        ColumnDeclaration column = new ColumnDeclaration("entry_venue", new NullableDataType(new StringDataType()));
+
+        String expected = "ALTER TABLE db.test ADD COLUMN IF NOT EXISTS `entry_venue` Nullable(String)";
+        String actual = SqlQueryHelper.getAddColumnQuery(ClickhouseTableIdentity.of("db", "test"), column, null);
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void getAddProjectionQueryOnCluster_expectCorrectQuery() {
+        ProjectionDeclaration projection = new ProjectionDeclaration("by_instrument", "SELECT * ORDER BY instrument");
+
+        String expected = "ALTER TABLE db.test ON CLUSTER `main` ADD PROJECTION IF NOT EXISTS `by_instrument` (SELECT * ORDER BY instrument)";
+        String actual = SqlQueryHelper.getAddProjectionQuery(ClickhouseTableIdentity.of("db", "test"), projection, "main");
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void getColumnsSqlDefinition_expectLowCardinalityAndCodecs() {
+        ColumnDeclaration timestamp = new ColumnDeclaration("timestamp", new DateTime64DataType(9), null, false, true, "DoubleDelta, ZSTD");
+        ColumnDeclaration instrument = new ColumnDeclaration("instrument", new StringDataType(true), null, false, true);
+        ColumnDeclaration venue = new ColumnDeclaration("venue", new NullableDataType(new StringDataType(true)));
+        TableDeclaration table = new TableDeclaration(ClickhouseTableIdentity.of("db", "test"), Arrays.asList(timestamp, instrument, venue));
+
+        String expected = "(`timestamp` DateTime64(9) CODEC(DoubleDelta, ZSTD), `instrument` LowCardinality(String), " +
+                "`venue` LowCardinality(Nullable(String)))";
+
+        Assert.assertEquals(expected, table.getColumnsSqlDefinition());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.clickhouse.unit;
+
+import com.epam.deltix.clickhouse.TableMetadataCache;
+import com.epam.deltix.clickhouse.models.ClickhouseTableIdentity;
+import com.epam.deltix.clickhouse.schema.ColumnDeclaration;
+import com.epam.deltix.clickhouse.schema.TableDeclaration;
+import com.epam.deltix.clickhouse.schema.types.NestedDataType;
+import com.epam.deltix.clickhouse.schema.types.StringDataType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+public class TableMetadataCacheTests {
+
+    @Test
+    public void getTable_expectSingleQueryPerDatabase() {
+        ColumnsJdbcTemplate jdbcTemplate = new ColumnsJdbcTemplate();
+        TableMetadataCache cache = new TableMetadataCache(jdbcTemplate, 60_000);
+
+        TableDeclaration trades = cache.getTable(ClickhouseTableIdentity.of("db", "trades"));
+        TableDeclaration quotes = cache.getTable(ClickhouseTableIdentity.of("db", "quotes"));
+
+        Assert.assertEquals(1, jdbcTemplate.queries);
+        Assert.assertEquals("(`timestamp` DateTime64(9), `instrument` LowCardinality(String))", trades.getColumnsSqlDefinition());
+        Assert.assertEquals(2, quotes.getColumns().size());
+        Assert.assertTrue(quotes.getColumns().get(1).getDbDataType() instanceof NestedDataType);
+        Assert.assertNull(cache.getTable(ClickhouseTableIdentity.of("db", "missing")));
+        Assert.assertEquals(1, jdbcTemplate.queries);
+    }
+
+    @Test
+    public void getTable_expectImmutableColumns() {
+        TableMetadataCache cache = new TableMetadataCache(new ColumnsJdbcTemplate(), 60_000);
+
+        TableDeclaration quotes = cache.getTable(ClickhouseTableIdentity.of("db", "quotes"));
+        List<ColumnDeclaration> nestedColumns = ((NestedDataType) quotes.getColumns().get(1).getDbDataType()).getColumns();
+
+        Assert.assertThrows(UnsupportedOperationException.class, () -> quotes.getColumns().remove(0));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> nestedColumns.add(new ColumnDeclaration("venue", new StringDataType())));
+        Assert.assertEquals(2, cache.getTable(ClickhouseTableIdentity.of("db", "quotes")).getColumns().size());
+        Assert.assertEquals(2, nestedColumns.size());
+    }
+
+    @Test
+    public void invalidate_expectReload() {
+        ColumnsJdbcTemplate jdbcTemplate = new ColumnsJdbcTemplate();
+        TableMetadataCache cache = new TableMetadataCache(jdbcTemplate, 60_000);
+
+        cache.getTable(ClickhouseTableIdentity.of("db", "trades"));
+        cache.invalidate("db");
+        cache.getTable(ClickhouseTableIdentity.of("db", "trades"));
+
+        Assert.assertEquals(2, jdbcTemplate.queries);
+        Assert.assertEquals(1, cache.getVersion());
+    }
+
+    @Test
+    public void invalidateDuringLoad_expectSnapshotNotKept() {
+        TableMetadataCache[] cache = new TableMetadataCache[1];
+        ColumnsJdbcTemplate jdbcTemplate = new ColumnsJdbcTemplate() {
+            @Override
+            public void query(String sql, RowCallbackHandler rch, Object... args) {
+                super.query(sql, rch, args);
+                // DDL issued while columns are loaded
+                if (queries == 1)
+                    cache[0].invalidate("db");
+            }
+        };
+        cache[0] = new TableMetadataCache(jdbcTemplate, 60_000);
+
+        cache[0].getTable(ClickhouseTableIdentity.of("db", "trades"));
+        cache[0].getTable(ClickhouseTableIdentity.of("db", "trades"));
+        cache[0].getTable(ClickhouseTableIdentity.of("db", "trades"));
+
+        Assert.assertEquals(2, jdbcTemplate.queries);
+    }
+
+    // returns rows of system.columns for any database
+    private static class ColumnsJdbcTemplate extends JdbcTemplate {
+        private static final List<String[]> ROWS = Arrays.asList(
+                new String[]{"quotes", "timestamp", "DateTime64(9)"},
+                new String[]{"quotes", "entries.price", "Array(Float64)"},
+                new String[]{"quotes", "entries.size", "Array(Float64)"},
+                new String[]{"trades", "timestamp", "DateTime64(9)"},
+                new String[]{"trades", "instrument", "LowCardinality(String)"});
+
+        int queries;
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            queries++;
+            for (String[] row : ROWS) {
+                try {
+                    rch.processRow(resultSet(row));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        private static ResultSet resultSet(String[] row) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, methodArgs) -> {
+                        if (!method.getName().equals("getString"))
+                            throw new UnsupportedOperationException(method.getName());
+
+                        switch ((String) methodArgs[0]) {
+                            case "table":
+                                return row[0];
+                            case "name":
+                                return row[1];
+                            case "type":
+                                return row[2];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}
@@ -96,6 +96,7 @@ public abstract class BaseStreamReplicatorTests {
     private static final int DEFAULT_EXPECTED_MESSAGE_COUNT = 1;
     private static final int DEFAULT_FLUSH_MESSAGE_COUNT = 1;
     private static final long DEFAULT_FLUSH_TIMEOUT_MS = 1;
+    private static final int DEFAULT_FLUSH_BUFFER_COUNT = 2;
 
 
     // required environment variables values
@@ -447,7 +448,8 @@ public abstract class BaseStreamReplicatorTests {
             streamRequest.setColumnNamingScheme(ColumnNamingScheme.TYPE_AND_NAME);
             streamRequest.setIncludePartitionColumn(true);
         }
-        StreamReplicator replicator = new StreamReplicator(streamRequest, tickDB, clickhouseClient, clickhouseProperties, flushMessageCount, flushTimeoutMs, streamReplicator -> {});
+        StreamReplicator replicator = new StreamReplicator(streamRequest, tickDB, clickhouseClient, clickhouseProperties, flushMessageCount, flushTimeoutMs,
+                DEFAULT_FLUSH_BUFFER_COUNT, streamReplicator -> {});
         Thread replicatorThread = new Thread(replicator, String.format("Stream replicator '%s'", stream.getKey()));
 
         replicatorThread.start();
@@ -490,7 +492,8 @@ public abstract class BaseStreamReplicatorTests {
 
     protected void startQueryReplication(final TableIdentity tableIdentity, final int expectedMessageCount,
                                           final int flushMessageCount, final long flushTimeoutMs, QueryRequest queryRequest) {
-        QueryReplicator replicator = new QueryReplicator(queryRequest, tickDB, clickhouseClient, clickhouseProperties, flushMessageCount, flushTimeoutMs, streamReplicator -> {});
+        QueryReplicator replicator = new QueryReplicator(queryRequest, tickDB, clickhouseClient, clickhouseProperties, flushMessageCount, flushTimeoutMs,
+                DEFAULT_FLUSH_BUFFER_COUNT, streamReplicator -> {});
         Thread replicatorThread = new Thread(replicator, String.format("Stream replicator '%s'", queryRequest.getKey()));
 
         replicatorThread.start();
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.schema.TableDeclaration;
+import com.epam.deltix.qsrv.hf.pub.RawMessage;
+import com.epam.deltix.qsrv.hf.pub.codec.CodecFactory;
+import com.epam.deltix.qsrv.hf.pub.codec.UnboundDecoder;
+import com.epam.deltix.qsrv.hf.pub.md.RecordClassDescriptor;
+import com.epam.deltix.qsrv.hf.tickdb.pub.DXTickStream;
+import com.epam.deltix.qsrv.hf.tickdb.pub.SelectionOptions;
+import com.epam.deltix.qsrv.hf.tickdb.pub.TickCursor;
+import com.epam.deltix.qsrv.hf.tickdb.pub.TickLoader;
+import com.epam.deltix.timebase.connector.clickhouse.BaseStreamReplicatorTests;
+import com.epam.deltix.timebase.connector.clickhouse.model.ColumnNamingScheme;
+import com.epam.deltix.timebase.connector.clickhouse.model.InsertFormat;
+import com.epam.deltix.timebase.connector.clickhouse.model.SchemaOptions;
+import com.epam.deltix.timebase.connector.clickhouse.timebase.BestBidOfferTestMessage;
+import com.epam.deltix.timebase.connector.clickhouse.timebase.TradeTestMessage;
+import com.epam.deltix.timebase.connector.clickhouse.util.Util;
+import com.epam.deltix.util.memory.MemoryDataInput;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// in the package of the writer to compare its batch bytes
+public class EncoderThreadsTests extends BaseStreamReplicatorTests {
+
+    private static final int MESSAGE_COUNT = 2_000; // several encode chunks and a partial one
+
+    @Timeout(30)
+    @Test
+    void encodeWithEncoderThreads_expectSameBatchBytes() throws SQLException {
+        DXTickStream stream = loadMessages();
+
+        SchemaOptions schemaOptions = Util.getSchemaOptions(stream, ColumnNamingScheme.TYPE_AND_NAME);
+        SchemaProcessor schemaProcessor = new SchemaProcessor(schemaOptions, clickhouseClient, clickhouseProperties);
+        Map<String, TableDeclaration> tableDeclarations = schemaProcessor.timebaseStreamToClickhouseTable();
+
+        try (UnboundTableWriter sequential = createWriter(stream, schemaOptions, schemaProcessor, tableDeclarations, 0);
+             UnboundTableWriter parallel = createWriter(stream, schemaOptions, schemaProcessor, tableDeclarations, 3)) {
+            int count = 0;
+            try (TickCursor cursor = stream.select(Long.MIN_VALUE, new SelectionOptions(true, false))) {
+                while (cursor.next()) {
+                    RawMessage message = (RawMessage) cursor.getMessage();
+                    sequential.send(message, cursor);
+                    parallel.send(message, cursor);
+                    count++;
+                }
+            }
+
+            byte[] expected = sequential.getBatchBytes();
+            assertEquals(MESSAGE_COUNT, count);
+            assertEquals(MESSAGE_COUNT, parallel.getBatchMsgCount());
+            assertTrue(expected.length > 0);
+            assertArrayEquals(expected, parallel.getBatchBytes());
+        }
+    }
+
+    private UnboundTableWriter createWriter(DXTickStream stream, SchemaOptions schemaOptions, SchemaProcessor schemaProcessor,
+                                            Map<String, TableDeclaration> tableDeclarations, int encoderThreads) throws SQLException {
+        RecordClassDescriptor[] descriptors = schemaOptions.getTbSchema().getContentClasses();
+        List<UnboundDecoder> decoders = Arrays.stream(descriptors).map(CodecFactory.COMPILED::createFixedUnboundDecoder).collect(Collectors.toList());
+
+        UnboundTableWriter writer = new UnboundTableWriter(stream.getKey(), ColumnNamingScheme.TYPE_AND_NAME, InsertFormat.ROW_BINARY,
+                clickhouseClient, tableDeclarations, schemaProcessor.getColumnDeclarations(), decoders, new MemoryDataInput(), 1);
+        if (encoderThreads > 0)
+            writer.setEncoderThreads(encoderThreads);
+        return writer;
+    }
+
+    private DXTickStream loadMessages() {
+        String streamKey = String.format("%s_%s", EncoderThreadsTests.class.getName(), Instant.now());
+        long timestamp = System.currentTimeMillis();
+
+        DXTickStream stream;
+        TickLoader loader = null;
+        try {
+            stream = createStream(tickDB, streamKey, BestBidOfferTestMessage.class, TradeTestMessage.class);
+            loader = createLoader(stream, BestBidOfferTestMessage.class, TradeTestMessage.class);
+
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                if (i % 3 == 0) {
+                    TradeTestMessage trade = new TradeTestMessage();
+                    trade.setSymbol("TRADE" + i % 5);
+                    trade.setTimeStampMs(timestamp + i / 4);
+                    trade.setPrice(100.5f + i);
+                    trade.setSize(i % 7 == 0 ? Double.NaN : i * 0.25);
+                    if (i % 2 == 0)
+                        trade.setCondition("C" + i);
+                    trade.setSequenceNumber(i);
+                    loader.send(trade);
+                } else {
+                    BestBidOfferTestMessage quote = new BestBidOfferTestMessage();
+                    quote.setSymbol("QUOTE" + i % 5);
+                    quote.setTimeStampMs(timestamp + i / 4);
+                    quote.setOfferPrice(200.125 + i);
+                    quote.setOfferSize(i);
+                    quote.setOfferNumOfOrders(i % 11);
+                    if (i % 5 != 0)
+                        quote.setOfferQuoteId("Q" + i);
+                    quote.setSequenceNumber(i);
+                    loader.send(quote);
+                }
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            if (loader != null)
+                loader.close();
+        }
+
+        return stream;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+/**
+ * Tunes batch size by measured message size, arrival rate and insert latency. Batch size is chosen to reach the
+ * target part size while visibility latency (time to fill the batch plus time to insert it) stays within the target.
+ * Static flush settings are upper bounds.
+ */
+public class AdaptiveFlushPolicy extends FlushPolicy {
+
+    // weight of the latest measurement in moving averages
+    private static final double ALPHA = 0.3;
+
+    private final int minMessageCount;
+    private final long targetBatchBytes;
+    private final long targetLatencyMs;
+
+    private double bytesPerMessage = Double.NaN;
+    private double messagesPerMs = Double.NaN;
+    private double sendMsPerMessage = Double.NaN;
+
+    private volatile int messageCount;
+    private volatile long timeoutMs;
+
+    public AdaptiveFlushPolicy(int flushMessageCount, long flushTimeoutMs,
+                               int minFlushMessageCount, long targetBatchBytes, long targetLatencyMs) {
+        super(flushMessageCount, flushTimeoutMs);
+
+        if (minFlushMessageCount <= 0 || minFlushMessageCount > flushMessageCount)
+            throw new IllegalArgumentException("Illegal minFlushMessageCount");
+        if (targetBatchBytes <= 0)
+            throw new IllegalArgumentException("Illegal targetBatchBytes");
+        if (targetLatencyMs <= 0)
+            throw new IllegalArgumentException("Illegal targetFlushLatencyMs");
+
+        this.minMessageCount = minFlushMessageCount;
+        this.targetBatchBytes = targetBatchBytes;
+        this.targetLatencyMs = targetLatencyMs;
+        this.messageCount = flushMessageCount;
+        this.timeoutMs = Math.min(flushTimeoutMs, targetLatencyMs);
+    }
+
+    @Override
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    @Override
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    @Override
+    public synchronized void onBatchFilled(int messages, long bytes, long fillNanos) {
+        if (messages <= 0)
+            return;
+
+        bytesPerMessage = average(bytesPerMessage, (double) bytes / messages);
+        if (fillNanos > 0)
+            messagesPerMs = average(messagesPerMs, messages / (fillNanos / 1_000_000.0));
+        update();
+    }
+
+    @Override
+    public synchronized void onBatchSent(int messages, long sendNanos) {
+        if (messages <= 0)
+            return;
+
+        sendMsPerMessage = average(sendMsPerMessage, sendNanos / 1_000_000.0 / messages);
+        update();
+    }
+
+    private void update() {
+        double count = maxMessageCount;
+        if (bytesPerMessage > 0)
+            count = Math.min(count, targetBatchBytes / bytesPerMessage);
+
+        double latencyPerMessage = (messagesPerMs > 0 ? 1 / messagesPerMs : 0) +
+                (sendMsPerMessage > 0 ? sendMsPerMessage : 0);
+        if (latencyPerMessage > 0)
+            count = Math.min(count, targetLatencyMs / latencyPerMessage);
+
+        int newCount = (int) Math.max(minMessageCount, count);
+        long sendMs = sendMsPerMessage > 0 ? (long) (sendMsPerMessage * newCount) : 0;
+
+        messageCount = newCount;
+        timeoutMs = Math.max(1, Math.min(maxTimeoutMs, targetLatencyMs - sendMs));
+    }
+
+    private static double average(double average, double value) {
+        return Double.isNaN(average) ? value : average + ALPHA * (value - average);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.util.Decimal64Helper;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of array column values. Primitive values are kept unboxed, storage grows amortized and is never shrunk.
+ */
+public class ArrayBuffer {
+
+    public enum Kind {
+        INT8, INT16, INT32, INT64, BOOLEAN, FLOAT32, FLOAT64,
+        /**
+         * Decimal64 values in binary representation.
+         */
+        DECIMAL64,
+        OBJECT
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Kind kind;
+    private final boolean defaultIsNull;
+    private final long defaultLong;
+    private final double defaultDouble;
+    private final Object defaultObject;
+
+    private long[] longs;
+    private double[] doubles;
+    private Object[] objects;
+    private boolean[] nulls = new boolean[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @param defaultValue value of elements which were added with {@link #addDefault()}, should match the kind
+     */
+    public ArrayBuffer(Kind kind, Object defaultValue) {
+        this.kind = kind;
+        this.defaultIsNull = defaultValue == null;
+
+        switch (kind) {
+            case FLOAT32:
+            case FLOAT64:
+                doubles = new double[INITIAL_CAPACITY];
+                defaultLong = 0;
+                defaultDouble = defaultValue != null ? ((Number) defaultValue).doubleValue() : 0;
+                defaultObject = null;
+                break;
+            case OBJECT:
+                objects = new Object[INITIAL_CAPACITY];
+                defaultLong = 0;
+                defaultDouble = 0;
+                defaultObject = defaultValue;
+                break;
+            default:
+                longs = new long[INITIAL_CAPACITY];
+                defaultLong = toLong(defaultValue);
+                defaultDouble = 0;
+                defaultObject = null;
+        }
+    }
+
+    /**
+     * @return whether default value can be stored in the buffer of given kind
+     */
+    public static boolean isCompatible(Kind kind, Object defaultValue) {
+        switch (kind) {
+            case OBJECT:
+                return true;
+            case BOOLEAN:
+                return defaultValue == null || defaultValue instanceof Boolean || defaultValue instanceof Integer;
+            case DECIMAL64:
+                return defaultValue == null || defaultValue instanceof Long;
+            default:
+                return defaultValue == null || defaultValue instanceof java.util.Date ||
+                        defaultValue instanceof Number && !(defaultValue instanceof BigDecimal);
+        }
+    }
+
+    /**
+     * @return kind of buffer which keeps values of both kinds, {@link Kind#OBJECT} for different kinds
+     */
+    public static Kind getCommonKind(Kind kind, Kind other) {
+        return kind == null || kind == other ? other : Kind.OBJECT;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        if (objects != null)
+            Arrays.fill(objects, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Appends default value and returns its index.
+     */
+    public int addDefault() {
+        ensureCapacity(size + 1);
+
+        nulls[size] = defaultIsNull;
+        if (longs != null)
+            longs[size] = defaultLong;
+        else if (doubles != null)
+            doubles[size] = defaultDouble;
+        else
+            objects[size] = defaultObject;
+
+        return size++;
+    }
+
+    public void setNull(int index) {
+        nulls[index] = true;
+        if (objects != null)
+            objects[index] = null;
+    }
+
+    public void setLong(int index, long value) {
+        nulls[index] = false;
+        longs[index] = value;
+    }
+
+    public void setDouble(int index, double value) {
+        nulls[index] = false;
+        doubles[index] = value;
+    }
+
+    public void setObject(int index, Object value) {
+        nulls[index] = value == null;
+        objects[index] = value;
+    }
+
+    public boolean isNull(int index) {
+        return nulls[index];
+    }
+
+    public long getLong(int index) {
+        return longs[index];
+    }
+
+    public double getDouble(int index) {
+        return doubles[index];
+    }
+
+    public Object getObject(int index) {
+        return objects[index];
+    }
+
+    /**
+     * @return boxed values of the same types as {@link RawDecoder} produces
+     */
+    public Object[] toObjects() {
+        Object[] result = new Object[size];
+        for (int i = 0; i < size; i++) {
+            if (nulls[i])
+                continue;
+
+            switch (kind) {
+                case INT8:
+                    result[i] = (byte) longs[i];
+                    break;
+                case INT16:
+                    result[i] = (short) longs[i];
+                    break;
+                case INT32:
+                    result[i] = (int) longs[i];
+                    break;
+                case INT64:
+                    result[i] = longs[i];
+                    break;
+                case BOOLEAN:
+                    result[i] = longs[i] != 0;
+                    break;
+                case FLOAT32:
+                    result[i] = (float) doubles[i];
+                    break;
+                case FLOAT64:
+                    result[i] = doubles[i];
+                    break;
+                case DECIMAL64:
+                    result[i] = EncoderUtil.isSpecialDecimal64(longs[i]) ?
+                            EncoderUtil.getSpecialDecimal64Value(longs[i]) : Decimal64Helper.toBigDecimal(longs[i]);
+                    break;
+                default:
+                    result[i] = objects[i];
+            }
+        }
+        return result;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= nulls.length)
+            return;
+
+        int newCapacity = Math.max(capacity, nulls.length * 2);
+        nulls = Arrays.copyOf(nulls, newCapacity);
+        if (longs != null)
+            longs = Arrays.copyOf(longs, newCapacity);
+        if (doubles != null)
+            doubles = Arrays.copyOf(doubles, newCapacity);
+        if (objects != null)
+            objects = Arrays.copyOf(objects, newCapacity);
+    }
+
+    private static long toLong(Object value) {
+        if (value == null)
+            return 0;
+        if (value instanceof Boolean)
+            return (Boolean) value ? 1 : 0;
+        if (value instanceof java.util.Date)
+            return ((java.util.Date) value).getTime();
+        return ((Number) value).longValue();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.ClickhouseClient;
+import com.epam.deltix.clickhouse.models.TableIdentity;
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+import org.springframework.dao.DataAccessException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Flush policy of async inserts: sends small batches at short interval and periodically reports client send
+ * latency separately from the latency of server-side async insert buffer, taken from
+ * {@code system.asynchronous_insert_log}.
+ */
+public class AsyncInsertPolicy extends FlushPolicy {
+
+    private static final Log LOG = LogFactory.getLog(AsyncInsertPolicy.class);
+    private static final long REPORT_INTERVAL_MS = 60_000;
+
+    private final FlushPolicy policy;
+    private final long flushTimeoutMs;
+    private final ClickhouseClient clickhouseClient;
+    private final String key;
+    private final List<TableIdentity> tables;
+
+    private long lastReportTime = System.currentTimeMillis();
+    private boolean serverStatisticsAvailable = true;
+    private int sentBatches;
+    private long sentNanos;
+    private long maxSentNanos;
+
+    /**
+     * @param policy         policy which defines batch size, flush timeout is limited by {@code flushTimeoutMs}
+     * @param flushTimeoutMs flush interval of async inserts
+     */
+    public AsyncInsertPolicy(FlushPolicy policy, long flushTimeoutMs, ClickhouseClient clickhouseClient,
+                             String key, List<TableIdentity> tables) {
+        super(policy.maxMessageCount, policy.maxTimeoutMs);
+
+        if (flushTimeoutMs <= 0)
+            throw new IllegalArgumentException("Illegal asyncFlushTimeoutMs");
+
+        this.policy = policy;
+        this.flushTimeoutMs = flushTimeoutMs;
+        this.clickhouseClient = clickhouseClient;
+        this.key = key;
+        this.tables = tables;
+    }
+
+    @Override
+    public int getMessageCount() {
+        return policy.getMessageCount();
+    }
+
+    @Override
+    public long getTimeoutMs() {
+        return Math.min(policy.getTimeoutMs(), flushTimeoutMs);
+    }
+
+    @Override
+    public void onBatchFilled(int messages, long bytes, long fillNanos) {
+        policy.onBatchFilled(messages, bytes, fillNanos);
+
+        long now = System.currentTimeMillis();
+        if (now >= lastReportTime + REPORT_INTERVAL_MS) {
+            report(lastReportTime);
+            lastReportTime = now;
+        }
+    }
+
+    @Override
+    public void onBatchSent(int messages, long sendNanos) {
+        policy.onBatchSent(messages, sendNanos);
+
+        synchronized (this) {
+            sentBatches++;
+            sentNanos += sendNanos;
+            maxSentNanos = Math.max(maxSentNanos, sendNanos);
+        }
+    }
+
+    private void report(long since) {
+        int batches;
+        long averageNanos;
+        long maxNanos;
+        synchronized (this) {
+            batches = sentBatches;
+            averageNanos = sentBatches > 0 ? sentNanos / sentBatches : 0;
+            maxNanos = maxSentNanos;
+            sentBatches = 0;
+            sentNanos = maxSentNanos = 0;
+        }
+
+        LOG.info()
+                .append("Replication ")
+                .append(key)
+                .append(": async inserts ")
+                .append(batches)
+                .append(" batches, client send avg ")
+                .append(averageNanos / 1_000_000)
+                .append(" ms, max ")
+                .append(maxNanos / 1_000_000)
+                .append(" ms.")
+                .commit();
+
+        if (serverStatisticsAvailable)
+            reportServerStatistics(since);
+    }
+
+    private void reportServerStatistics(long since) {
+        String latency = "(toUnixTimestamp64Micro(flush_time_microseconds) - toUnixTimestamp64Micro(event_time_microseconds)) / 1000";
+        String selectQuery = String.format("SELECT count() AS inserts, avg(%s) AS average, max(%s) AS maximum " +
+                        "FROM system.asynchronous_insert_log WHERE event_time_microseconds >= fromUnixTimestamp64Milli(toInt64(%s)) AND (%s)",
+                latency, latency, since,
+                tables.stream()
+                        .map(table -> String.format("database = '%s' AND table = '%s'", table.getDatabaseName(), table.getTableName()))
+                        .collect(Collectors.joining(") OR (", "(", ")")));
+        LOG.debug()
+                .append(selectQuery)
+                .commit();
+
+        try {
+            clickhouseClient.getJdbcTemplate().query(selectQuery, rs -> {
+                LOG.info()
+                        .append("Replication ")
+                        .append(key)
+                        .append(": async insert buffer flushes ")
+                        .append(rs.getLong("inserts"))
+                        .append(" inserts, server flush latency avg ")
+                        .append(rs.getLong("average"))
+                        .append(" ms, max ")
+                        .append(rs.getLong("maximum"))
+                        .append(" ms.")
+                        .commit();
+            });
+        } catch (DataAccessException e) {
+            // system.asynchronous_insert_log is not enabled on server
+            serverStatisticsAvailable = false;
+            LOG.warn()
+                    .append("Replication ")
+                    .append(key)
+                    .append(": server async insert statistics are not available. ")
+                    .append(e.getMessage())
+                    .commit();
+        }
+    }
+}
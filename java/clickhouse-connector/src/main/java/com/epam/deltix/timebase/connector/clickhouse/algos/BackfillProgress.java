@@ -0,0 +1,152 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.ClickhouseClient;
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps time slices of historical backfill per replication key in Clickhouse,
+ * so restarted replication resumes only unfinished slices.
+ */
+public class BackfillProgress {
+
+    public static final String TABLE_NAME = "timebase_backfill_slices";
+
+    private static final Log LOG = LogFactory.getLog(BackfillProgress.class);
+
+    private final ClickhouseClient clickhouseClient;
+    private final String tableName;
+    private final AtomicLong version = new AtomicLong();
+
+    public BackfillProgress(ClickhouseClient clickhouseClient, String database) {
+        this.clickhouseClient = clickhouseClient;
+        this.tableName = database + "." + TABLE_NAME;
+    }
+
+    public void prepareTable() {
+        String createQuery = String.format("CREATE TABLE IF NOT EXISTS %s (" +
+                "key String, slice_from Int64, slice_to Int64, completed UInt8, version UInt64" +
+                ") ENGINE = ReplacingMergeTree(version) ORDER BY (key, slice_from)", tableName);
+        LOG.debug()
+                .append(createQuery)
+                .commit();
+        clickhouseClient.getJdbcTemplate().execute(createQuery);
+    }
+
+    /**
+     * Returns slices of the given replication key ordered by time, or empty list if backfill was not started.
+     */
+    public List<Slice> load(String key) {
+        String selectQuery = String.format("SELECT slice_from, slice_to, completed FROM %s FINAL WHERE key = ? ORDER BY slice_from",
+                tableName);
+        return clickhouseClient.getJdbcTemplate().query(selectQuery,
+                (rs, rowNum) -> new Slice(rs.getLong(1), rs.getLong(2), rs.getInt(3) != 0),
+                key);
+    }
+
+    public void save(String key, List<Slice> slices) {
+        for (Slice slice : slices)
+            update(key, slice);
+    }
+
+    public void complete(String key, Slice slice) {
+        slice.completed = true;
+        update(key, slice);
+    }
+
+    public void clear(String key) {
+        String deleteQuery = String.format("ALTER TABLE %s DELETE WHERE key = ?", tableName);
+        clickhouseClient.getJdbcTemplate().update(deleteQuery, key);
+    }
+
+    private void update(String key, Slice slice) {
+        String insertQuery = String.format("INSERT INTO %s (key, slice_from, slice_to, completed, version) VALUES (?, ?, ?, ?, ?)",
+                tableName);
+        clickhouseClient.getJdbcTemplate().update(insertQuery,
+                key, slice.from, slice.to, slice.completed ? 1 : 0, nextVersion());
+    }
+
+    // later row wins on merge, versions also grow across restarts
+    private long nextVersion() {
+        return version.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+    }
+
+    /**
+     * Splits time range [from, to) into at most {@code count} slices of equal length, the last slice may be shorter.
+     */
+    public static List<Slice> split(long from, long to, int count) {
+        if (count <= 0)
+            throw new IllegalArgumentException("Illegal slice count: " + count);
+
+        List<Slice> slices = new ArrayList<>(count);
+        long length = to - from;
+        if (length <= 0)
+            return slices;
+
+        long step = Math.max(1, (length + count - 1) / count);
+        for (long sliceFrom = from; sliceFrom < to; ) {
+            long sliceTo = to - sliceFrom > step ? sliceFrom + step : to;
+            slices.add(new Slice(sliceFrom, sliceTo, false));
+            sliceFrom = sliceTo;
+        }
+        return slices;
+    }
+
+    public static class Slice {
+        private final long from;
+        private final long to;
+        private volatile boolean completed;
+
+        public Slice(long from, long to, boolean completed) {
+            this.from = from;
+            this.to = to;
+            this.completed = completed;
+        }
+
+        /**
+         * Start timestamp (inclusive), ms
+         */
+        public long getFrom() {
+            return from;
+        }
+
+        /**
+         * End timestamp (exclusive), ms
+         */
+        public long getTo() {
+            return to;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        /**
+         * Returns timestamp replication of the slice resumes from, given the last timestamp already replicated
+         * within the slice or Long.MIN_VALUE if none. Rows of the last timestamp are truncated and replicated again.
+         */
+        public long getResumeFrom(long lastTimestamp) {
+            return lastTimestamp == Long.MIN_VALUE ? from : Math.max(from, Math.min(lastTimestamp, to));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import java.util.*;
+
+class ClickhouseContext {
+    InsertBatch statement;
+    private final List<ColumnDeclarationEx> columnDeclarations;
+
+    private final Map<String, ColumnDeclarationEx> map = new HashMap<>();
+    private final Map<String, FieldContext> fieldContexts = new HashMap<>();
+
+    public ClickhouseContext(List<ColumnDeclarationEx> columnDeclarations) {
+        this.columnDeclarations = columnDeclarations;
+        for (int i = 0; columnDeclarations != null && i < columnDeclarations.size(); i++)
+            map.put(columnDeclarations.get(i).getDbColumnName(), columnDeclarations.get(i));
+    }
+
+    public ColumnDeclarationEx getColumn(String name) {
+        return map.get(name);
+    }
+
+    public FieldContext getFieldContext(String name) {
+        FieldContext fieldContext = fieldContexts.get(name);
+        if (fieldContext == null) {
+            fieldContext = new FieldContext(this, getColumn(name));
+            fieldContexts.put(name, fieldContext);
+        }
+        return fieldContext;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.models.TableIdentity;
+import com.epam.deltix.qsrv.hf.pub.codec.UnboundDecoder;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+class Codec {
+    // insert statement per flush buffer, created on first use of the buffer
+    final InsertBatch[] insertStatements;
+    final TableIdentity tableIdentity;
+    final List<ColumnDeclarationEx> insertColumns;
+    final ClickhouseContext clickhouseContext;
+    UnboundDecoder unboundDecoder;
+    // lane of the target table, top-level types only
+    UnboundTableWriter.Lane lane;
+    Map<String, BiConsumer<TimebaseContext, FieldContext>> fieldCodecs;
+    final TimebaseContext timebaseContext = new TimebaseContext();
+    // codecs by field ordinal, compiled for top-level types only
+    FieldCodec[] fieldCodecTable;
+    boolean writePartition;
+    MessageEncoder messageEncoder;
+    final MessageEncoder.FieldEncoder fieldEncoder = this::encodeField;
+
+    String getTypeName() {
+        return unboundDecoder.getClassInfo().getDescriptor().getName();
+    }
+
+    public Codec(UnboundDecoder unboundDecoder,
+                Map<String, BiConsumer<TimebaseContext, FieldContext>> fieldCodecs,
+                List<ColumnDeclarationEx> insertColumns,
+                TableIdentity tableIdentity,
+                int bufferCount) {
+
+        this.unboundDecoder = unboundDecoder;
+        this.fieldCodecs = fieldCodecs;
+        this.insertColumns = insertColumns;
+        this.tableIdentity = tableIdentity;
+        this.insertStatements = new InsertBatch[bufferCount];
+
+        clickhouseContext = new ClickhouseContext(insertColumns);
+    }
+
+    public UnboundDecoder getUnboundDecoder() {
+        return unboundDecoder;
+    }
+
+    public Map<String, BiConsumer<TimebaseContext, FieldContext>> getFieldCodecs() {
+        return fieldCodecs;
+    }
+
+    public TimebaseContext getTimebaseContext() {
+        return timebaseContext;
+    }
+
+    public ClickhouseContext getClickhouseContext() {
+        return clickhouseContext;
+    }
+
+    private void encodeField(int fieldIndex) {
+        FieldCodec fieldCodec = fieldCodecTable[fieldIndex];
+        fieldCodec.codec.accept(timebaseContext, fieldCodec.fieldContext);
+    }
+}
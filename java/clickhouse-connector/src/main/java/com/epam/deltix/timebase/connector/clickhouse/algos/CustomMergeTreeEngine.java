@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.schema.ColumnDeclaration;
+import com.epam.deltix.clickhouse.schema.engines.Engine;
+import com.epam.deltix.timebase.connector.clickhouse.model.TableLayout;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * MergeTree engine with table layout of replication request, unset parts of layout fall back to connector defaults.
+ */
+public class CustomMergeTreeEngine implements Engine {
+
+    private static final String MERGE_TREE_ENGINE_NAME = "MergeTree";
+    private static final int DEFAULT_GRANULARITY_INDEX = 8192;
+
+    private final String partitionBy;
+    private final String orderBy;
+    private final String ttl;
+    private final int granularityIndex;
+
+    public CustomMergeTreeEngine(TableLayout layout, ColumnDeclaration defaultPartitionColumn, List<ColumnDeclaration> defaultPrimaryKeyColumns) {
+        if (layout == null)
+            throw new IllegalArgumentException("layout is null");
+        if (layout.getIndexGranularity() != null && layout.getIndexGranularity() <= 0)
+            throw new IllegalArgumentException("granularityIndex must be greater than zero.");
+        if (layout.getOrderBy() == null && (defaultPrimaryKeyColumns == null || defaultPrimaryKeyColumns.isEmpty()))
+            throw new IllegalArgumentException("Primary key columns are not defined.");
+
+        this.partitionBy = layout.getPartitionBy() != null ? layout.getPartitionBy() :
+                defaultPartitionColumn != null ? defaultPartitionColumn.getDbColumnName() : null;
+        this.orderBy = layout.getOrderBy() != null ? layout.getOrderBy() :
+                defaultPrimaryKeyColumns.stream().map(ColumnDeclaration::getDbColumnName).collect(Collectors.joining(", "));
+        this.ttl = layout.getTtl();
+        this.granularityIndex = layout.getIndexGranularity() != null ? layout.getIndexGranularity() : DEFAULT_GRANULARITY_INDEX;
+    }
+
+    @Override
+    public String getSqlDefinition() {
+        StringBuilder sb = new StringBuilder(MERGE_TREE_ENGINE_NAME);
+
+        sb.append("()");
+        if (partitionBy != null)
+            sb.append(" partition by ").append(partitionBy);
+
+        sb.append(" order by (").append(orderBy).append(')');
+
+        if (ttl != null)
+            sb.append(" ttl ").append(ttl);
+
+        sb.append(" settings index_granularity = ");
+        sb.append(granularityIndex);
+
+        return sb.toString();
+    }
+
+    @Override
+    public String getName() {
+        return MERGE_TREE_ENGINE_NAME;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.qsrv.hf.pub.codec.NonStaticFieldInfo;
+
+class ElementCodec {
+    final String typeName;
+    final NonStaticFieldInfo[] fields;
+    // buffer index by field ordinal, -1 for fields without column
+    final int[] bufferIndexes;
+
+    ElementCodec(String typeName, NonStaticFieldInfo[] fields, int[] bufferIndexes) {
+        this.typeName = typeName;
+        this.fields = fields;
+        this.bufferIndexes = bufferIndexes;
+    }
+
+    int indexOf(NonStaticFieldInfo field, int expectedIndex) {
+        if (expectedIndex < fields.length && fields[expectedIndex] == field)
+            return expectedIndex;
+
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] == field || fields[i].getName().equals(field.getName()))
+                return i;
+        }
+        throw new IllegalStateException(String.format("Unknown field '%s'", field.getName()));
+    }
+}
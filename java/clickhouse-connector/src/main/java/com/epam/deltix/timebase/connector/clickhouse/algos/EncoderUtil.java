@@ -0,0 +1,173 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.util.Decimal64Helper;
+import com.epam.deltix.qsrv.hf.pub.codec.UnboundDecoder;
+import com.epam.deltix.timebase.connector.clickhouse.util.ClickhouseUtil;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Encoders of the current field of {@link UnboundDecoder} into {@link InsertBatch}.
+ * Methods are invoked from generated {@link MessageEncoder} classes, so all of them share {@link #ENCODE_DESC}.
+ */
+public class EncoderUtil {
+    public final static String INTERNAL_NAME = "com/epam/deltix/timebase/connector/clickhouse/algos/EncoderUtil";
+
+    public final static String ENCODE_DESC = "(Lcom/epam/deltix/qsrv/hf/pub/codec/UnboundDecoder;Lcom/epam/deltix/timebase/connector/clickhouse/algos/InsertBatch;I)V";
+
+    public final static String ENCODE_INT8_NAME = "encodeInt8";
+    public final static String ENCODE_INT16_NAME = "encodeInt16";
+    public final static String ENCODE_INT32_NAME = "encodeInt32";
+    public final static String ENCODE_INT64_NAME = "encodeInt64";
+    public final static String ENCODE_FLOAT32_NAME = "encodeFloat32";
+    public final static String ENCODE_FLOAT64_NAME = "encodeFloat64";
+    public final static String ENCODE_DECIMAL64_NAME = "encodeDecimal64";
+    public final static String ENCODE_TIMESTAMP_NAME = "encodeTimestamp";
+    public final static String ENCODE_TIME_OF_DAY_NAME = "encodeTimeOfDay";
+    public final static String ENCODE_STRING_NAME = "encodeString";
+    public final static String ENCODE_BOOLEAN_NAME = "encodeBoolean";
+    public final static String ENCODE_BINARY_NAME = "encodeBinary";
+
+    public static void encodeInt8(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        if (decoder.isNull())
+            statement.setNull(index, Types.INTEGER);
+        else
+            statement.setByte(index, (byte) decoder.getInt());
+    }
+
+    public static void encodeInt16(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        if (decoder.isNull())
+            statement.setNull(index, Types.INTEGER);
+        else
+            statement.setShort(index, (short) decoder.getInt());
+    }
+
+    public static void encodeInt32(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        if (decoder.isNull())
+            statement.setNull(index, Types.INTEGER);
+        else
+            statement.setInt(index, decoder.getInt());
+    }
+
+    public static void encodeInt64(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        if (decoder.isNull())
+            statement.setNull(index, Types.INTEGER);
+        else
+            statement.setLong(index, decoder.getLong());
+    }
+
+    public static void encodeFloat32(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        if (decoder.isNull())
+            statement.setNull(index, Types.FLOAT);
+        else
+            statement.setFloat(index, decoder.getFloat());
+    }
+
+    public static void encodeFloat64(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        if (decoder.isNull())
+            statement.setNull(index, Types.FLOAT);
+        else
+            statement.setDouble(index, decoder.getDouble());
+    }
+
+    public static void encodeDecimal64(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        if (decoder.isNull()) {
+            statement.setNull(index, Types.FLOAT);
+            return;
+        }
+
+        long decimal64Long = decoder.getLong();
+        if (isSpecialDecimal64(decimal64Long)) {
+            BigDecimal value = getSpecialDecimal64Value(decimal64Long);
+            if (value == null)
+                statement.setNull(index, Types.FLOAT);
+            else
+                statement.setBigDecimal(index, value);
+        } else {
+            statement.setDecimal64(index, decimal64Long);
+        }
+    }
+
+    /**
+     * @return true for Decimal64 NaN, infinities and bounds, which are inserted as {@link #getSpecialDecimal64Value(long)}
+     */
+    public static boolean isSpecialDecimal64(long value) {
+        return Decimal64Helper.isNaN(value) || Decimal64Helper.isBound(value);
+    }
+
+    /**
+     * @return null for NaN, Decimal128 bounds of the default scale for infinities and Decimal64 bounds
+     */
+    public static BigDecimal getSpecialDecimal64Value(long value) {
+        if (Decimal64Helper.isNaN(value))
+            return null;
+
+        return Decimal64Helper.isNegative(value) ? ClickhouseUtil.DECIMAL_128_MIN_VALUE : ClickhouseUtil.DECIMAL_128_MAX_VALUE;
+    }
+
+    public static void encodeTimestamp(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        if (decoder.isNull()) {
+            statement.setNull(index, Types.TIMESTAMP);
+        } else {
+            long value = decoder.getLong();
+
+            if (value > ClickhouseUtil.DATETIME_64_MAX_VALUE)
+                value = ClickhouseUtil.DATETIME_64_MAX_VALUE;
+            else if (value < ClickhouseUtil.DATETIME_64_MIN_VALUE)
+                value = ClickhouseUtil.DATETIME_64_MIN_VALUE;
+
+            statement.setTimestamp(index, value);
+        }
+    }
+
+    public static void encodeTimeOfDay(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        if (decoder.isNull())
+            statement.setNull(index, Types.INTEGER);
+        else
+            statement.setInt(index, decoder.getInt());
+    }
+
+    public static void encodeString(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        if (decoder.isNull())
+            statement.setNull(index, Types.VARCHAR);
+        else
+            statement.setString(index, decoder.getString());
+    }
+
+    public static void encodeBoolean(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        if (decoder.isNull())
+            statement.setNull(index, Types.BOOLEAN);
+        else
+            statement.setBoolean(index, decoder.getBoolean());
+    }
+
+    public static void encodeBinary(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        if (decoder.isNull()) {
+            statement.setNull(index, Types.BINARY);
+        } else {
+            int binaryLength = decoder.getBinaryLength();
+            byte[] binaryValue = new byte[binaryLength];
+            decoder.getBinary(0, binaryLength, binaryValue, 0);
+
+            statement.setBytes(index, binaryValue);
+        }
+    }
+}
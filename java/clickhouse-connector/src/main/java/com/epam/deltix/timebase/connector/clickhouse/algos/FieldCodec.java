@@ -0,0 +1,34 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.qsrv.hf.pub.codec.NonStaticFieldInfo;
+
+import java.util.function.BiConsumer;
+
+class FieldCodec {
+    final NonStaticFieldInfo field;
+    // null when field is not replicated
+    final BiConsumer<TimebaseContext, FieldContext> codec;
+    final FieldContext fieldContext;
+
+    FieldCodec(NonStaticFieldInfo field, BiConsumer<TimebaseContext, FieldContext> codec, FieldContext fieldContext) {
+        this.field = field;
+        this.codec = codec;
+        this.fieldContext = fieldContext;
+    }
+}
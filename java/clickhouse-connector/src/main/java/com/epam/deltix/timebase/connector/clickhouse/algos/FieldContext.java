@@ -0,0 +1,47 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.qsrv.hf.pub.codec.RecordClassInfo;
+
+import java.util.*;
+
+class FieldContext {
+    final ColumnDeclarationEx columnDeclaration;
+    final ClickhouseContext clickhouseContext;
+    // compiled codecs of object column per concrete class
+    private Map<RecordClassInfo, ObjectCodec> objectCodecs;
+    NestedCodec nestedCodec;
+
+    public FieldContext(ClickhouseContext clickhouseContext, ColumnDeclarationEx columnDeclaration) {
+        assert clickhouseContext != null;
+        assert columnDeclaration != null;
+
+        this.clickhouseContext = clickhouseContext;
+        this.columnDeclaration = columnDeclaration;
+    }
+
+    ObjectCodec getObjectCodec(RecordClassInfo info) {
+        return objectCodecs != null ? objectCodecs.get(info) : null;
+    }
+
+    void putObjectCodec(RecordClassInfo info, ObjectCodec codec) {
+        if (objectCodecs == null)
+            objectCodecs = new IdentityHashMap<>();
+        objectCodecs.put(info, codec);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+/**
+ * Decides when the batch of a table writer is flushed. Default policy uses static message count and timeout.
+ */
+public class FlushPolicy {
+
+    protected final int maxMessageCount;
+    protected final long maxTimeoutMs;
+
+    public FlushPolicy(int flushMessageCount, long flushTimeoutMs) {
+        if (flushMessageCount <= 0)
+            throw new IllegalArgumentException("Illegal flushMessageCount");
+        if (flushTimeoutMs <= 0)
+            throw new IllegalArgumentException("Illegal flushTimeoutMs");
+
+        this.maxMessageCount = flushMessageCount;
+        this.maxTimeoutMs = flushTimeoutMs;
+    }
+
+    /**
+     * Batch is flushed when it reaches this number of messages.
+     */
+    public int getMessageCount() {
+        return maxMessageCount;
+    }
+
+    /**
+     * Batch is flushed when this time passed since the previous flush.
+     */
+    public long getTimeoutMs() {
+        return maxTimeoutMs;
+    }
+
+    /**
+     * Called by the reading thread when batch is handed over to flush.
+     *
+     * @param messages  number of messages in batch
+     * @param bytes     size of source messages in batch
+     * @param fillNanos time between the first message of batch and flush
+     */
+    public void onBatchFilled(int messages, long bytes, long fillNanos) {
+    }
+
+    /**
+     * Called when batch reached Clickhouse, possibly by the flusher thread.
+     *
+     * @param messages  number of messages in batch
+     * @param sendNanos time of insert
+     */
+    public void onBatchSent(int messages, long sendNanos) {
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import java.sql.SQLException;
+
+/**
+ * Batch of rows for a single insert statement. Parameter indices are 1-based like in {@link java.sql.PreparedStatement}.
+ */
+public interface InsertBatch extends AutoCloseable {
+
+    String DEDUPLICATION_TOKEN_SETTING = "insert_deduplication_token";
+
+    void setNull(int parameterIndex, int sqlType) throws SQLException;
+
+    void setByte(int parameterIndex, byte value) throws SQLException;
+
+    void setShort(int parameterIndex, short value) throws SQLException;
+
+    void setInt(int parameterIndex, int value) throws SQLException;
+
+    void setLong(int parameterIndex, long value) throws SQLException;
+
+    void setFloat(int parameterIndex, float value) throws SQLException;
+
+    void setDouble(int parameterIndex, double value) throws SQLException;
+
+    void setBigDecimal(int parameterIndex, java.math.BigDecimal value) throws SQLException;
+
+    /**
+     * @param value finite Decimal64 value in its binary representation
+     */
+    void setDecimal64(int parameterIndex, long value) throws SQLException;
+
+    void setBoolean(int parameterIndex, boolean value) throws SQLException;
+
+    void setString(int parameterIndex, CharSequence value) throws SQLException;
+
+    void setBytes(int parameterIndex, byte[] value) throws SQLException;
+
+    /**
+     * @param epochMillis milliseconds since epoch
+     */
+    void setTimestamp(int parameterIndex, long epochMillis) throws SQLException;
+
+    /**
+     * @param epochMillis milliseconds since epoch, time part is truncated
+     */
+    void setDate(int parameterIndex, long epochMillis) throws SQLException;
+
+    void setArray(int parameterIndex, String elementTypeName, Object[] values) throws SQLException;
+
+    void setArray(int parameterIndex, ArrayBuffer values) throws SQLException;
+
+    void setObject(int parameterIndex, Object value) throws SQLException;
+
+    /**
+     * Sets column default value which was declared for the column by {@link SchemaProcessor}.
+     */
+    void setDefault(int parameterIndex, Object defaultValue) throws SQLException;
+
+    void setDefault(int parameterIndex, Object defaultValue, int sqlType) throws SQLException;
+
+    void addBatch() throws SQLException;
+
+    /**
+     * Sets Clickhouse query setting of the following {@link #executeBatch()} calls. Null value removes the setting.
+     */
+    void setSetting(String name, String value) throws SQLException;
+
+    /**
+     * Sets {@code insert_deduplication_token} of the next {@link #executeBatch()}, so Clickhouse drops the batch
+     * if it was already inserted with the same token. Null disables the token.
+     */
+    default void setDeduplicationToken(String token) throws SQLException {
+        setSetting(DEDUPLICATION_TOKEN_SETTING, token);
+    }
+
+    void executeBatch() throws SQLException;
+
+    @Override
+    void close() throws SQLException;
+}
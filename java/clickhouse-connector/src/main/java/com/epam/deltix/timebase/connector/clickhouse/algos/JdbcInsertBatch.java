@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.clickhouse.client.ClickHouseRequest;
+import com.clickhouse.data.value.ClickHouseArrayValue;
+import com.clickhouse.jdbc.ClickHouseStatement;
+import com.epam.deltix.clickhouse.util.Decimal64Helper;
+
+import java.math.BigDecimal;
+import java.sql.*;
+
+/**
+ * {@link InsertBatch} backed by JDBC {@link PreparedStatement} batches.
+ */
+public class JdbcInsertBatch implements InsertBatch {
+
+    private final PreparedStatement statement;
+
+    public JdbcInsertBatch(Connection connection, String insertIntoQuery) throws SQLException {
+        this.statement = connection.prepareStatement(insertIntoQuery);
+    }
+
+    public Connection getConnection() throws SQLException {
+        return statement.getConnection();
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        statement.setNull(parameterIndex, sqlType);
+    }
+
+    @Override
+    public void setByte(int parameterIndex, byte value) throws SQLException {
+        statement.setByte(parameterIndex, value);
+    }
+
+    @Override
+    public void setShort(int parameterIndex, short value) throws SQLException {
+        statement.setShort(parameterIndex, value);
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int value) throws SQLException {
+        statement.setInt(parameterIndex, value);
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long value) throws SQLException {
+        statement.setLong(parameterIndex, value);
+    }
+
+    @Override
+    public void setFloat(int parameterIndex, float value) throws SQLException {
+        statement.setFloat(parameterIndex, value);
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double value) throws SQLException {
+        statement.setDouble(parameterIndex, value);
+    }
+
+    @Override
+    public void setBigDecimal(int parameterIndex, BigDecimal value) throws SQLException {
+        statement.setBigDecimal(parameterIndex, value);
+    }
+
+    @Override
+    public void setDecimal64(int parameterIndex, long value) throws SQLException {
+        statement.setBigDecimal(parameterIndex, Decimal64Helper.toBigDecimal(value));
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean value) throws SQLException {
+        statement.setBoolean(parameterIndex, value);
+    }
+
+    @Override
+    public void setString(int parameterIndex, CharSequence value) throws SQLException {
+        statement.setString(parameterIndex, value.toString());
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] value) throws SQLException {
+        statement.setBytes(parameterIndex, value);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, long epochMillis) throws SQLException {
+        statement.setTimestamp(parameterIndex, new Timestamp(epochMillis));
+    }
+
+    @Override
+    public void setDate(int parameterIndex, long epochMillis) throws SQLException {
+        statement.setDate(parameterIndex, new Date(epochMillis));
+    }
+
+    @Override
+    public void setArray(int parameterIndex, String elementTypeName, Object[] values) throws SQLException {
+        statement.setArray(parameterIndex, statement.getConnection().createArrayOf(elementTypeName, values));
+    }
+
+    @Override
+    public void setArray(int parameterIndex, ArrayBuffer values) throws SQLException {
+        statement.setObject(parameterIndex, ClickHouseArrayValue.of(values.toObjects()));
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object value) throws SQLException {
+        statement.setObject(parameterIndex, value);
+    }
+
+    @Override
+    public void setDefault(int parameterIndex, Object defaultValue) throws SQLException {
+        statement.setObject(parameterIndex, defaultValue);
+    }
+
+    @Override
+    public void setDefault(int parameterIndex, Object defaultValue, int sqlType) throws SQLException {
+        statement.setObject(parameterIndex, defaultValue, sqlType);
+    }
+
+    @Override
+    public void addBatch() throws SQLException {
+        statement.addBatch();
+    }
+
+    @Override
+    public void setSetting(String name, String value) throws SQLException {
+        ClickHouseRequest<?> request = statement.unwrap(ClickHouseStatement.class).getRequest();
+        if (value != null)
+            request.set(name, value);
+        else
+            request.removeSetting(name);
+    }
+
+    @Override
+    public void executeBatch() throws SQLException {
+        statement.executeBatch();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        statement.close();
+    }
+}
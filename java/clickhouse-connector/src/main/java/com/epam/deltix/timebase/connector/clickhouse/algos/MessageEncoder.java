@@ -0,0 +1,38 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.qsrv.hf.pub.codec.UnboundDecoder;
+
+import java.sql.SQLException;
+
+/**
+ * Encodes all fields of a message of one type into insert batch. Implementations are generated by {@link MessageEncoderGenerator}.
+ */
+public interface MessageEncoder {
+
+    /**
+     * @param decoder   decoder positioned at the beginning of the message
+     * @param statement batch to encode the row into
+     * @param fields    encoder of fields that are not handled by the generated code (arrays and objects)
+     */
+    void encode(UnboundDecoder decoder, InsertBatch statement, FieldEncoder fields) throws SQLException;
+
+    interface FieldEncoder {
+        void encode(int fieldIndex) throws SQLException;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.qsrv.hf.pub.codec.NonStaticFieldInfo;
+import com.epam.deltix.qsrv.hf.pub.codec.UnboundDecoder;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.jar.asm.Label;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Type;
+
+import static net.bytebuddy.jar.asm.Opcodes.*;
+
+/**
+ * Generates body of {@link MessageEncoder#encode} for one message type and target table:
+ * fields are visited in declaration order and each scalar field is written by a direct call of {@link EncoderUtil} method
+ * with constant statement index, other replicated fields are delegated to {@link MessageEncoder.FieldEncoder}.
+ */
+public class MessageEncoderGenerator implements ByteCodeAppender {
+    private final static String INTERNAL_DECODER_NAME = Type.getInternalName(UnboundDecoder.class);
+    private final static String INTERNAL_FIELD_ENCODER_NAME = Type.getInternalName(MessageEncoder.FieldEncoder.class);
+
+    private final NonStaticFieldInfo[] fields;
+    private final ColumnDeclarationEx[] columns;
+
+    /**
+     * @param fields  non-static fields of the message type
+     * @param columns target column per field, {@code null} for fields that are not replicated
+     */
+    public MessageEncoderGenerator(NonStaticFieldInfo[] fields, ColumnDeclarationEx[] columns) {
+        if (fields.length != columns.length)
+            throw new IllegalArgumentException("Fields and columns count mismatch.");
+
+        this.fields = fields;
+        this.columns = columns;
+    }
+
+    @Override
+    public Size apply(MethodVisitor methodVisitor,
+                      Implementation.Context implementationContext,
+                      MethodDescription instrumentedMethod) {
+        // there is no need to visit fields after last replicated one
+        int fieldCount = columns.length;
+        while (fieldCount > 0 && columns[fieldCount - 1] == null)
+            fieldCount--;
+
+        Label end = new Label();
+        for (int i = 0; i < fieldCount; i++) {
+            // if (!decoder.nextField()) return;
+            loadDecoderOnStack(methodVisitor);
+            methodVisitor.visitMethodInsn(UnboundDecoder.class.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL,
+                    INTERNAL_DECODER_NAME, "nextField", "()Z", UnboundDecoder.class.isInterface());
+            methodVisitor.visitJumpInsn(IFEQ, end);
+
+            if (columns[i] == null)
+                continue;
+
+            ScalarEncoder encoder = ScalarEncoder.forType(fields[i].getType());
+            if (encoder != null) {
+                // EncoderUtil.encodeXXX(decoder, statement, statementIndex);
+                loadDecoderOnStack(methodVisitor);
+                methodVisitor.visitVarInsn(ALOAD, 2);
+                pushInt(methodVisitor, columns[i].getStatementIndex());
+                methodVisitor.visitMethodInsn(INVOKESTATIC, EncoderUtil.INTERNAL_NAME, encoder.getMethodName(), EncoderUtil.ENCODE_DESC, false);
+            } else {
+                // fields.encode(fieldIndex);
+                methodVisitor.visitVarInsn(ALOAD, 3);
+                pushInt(methodVisitor, i);
+                methodVisitor.visitMethodInsn(INVOKEINTERFACE, INTERNAL_FIELD_ENCODER_NAME, "encode", "(I)V", true);
+            }
+        }
+
+        if (fieldCount > 0) {
+            methodVisitor.visitLabel(end);
+            methodVisitor.visitFrame(F_SAME, 0, null, 0, null);
+        }
+        methodVisitor.visitInsn(RETURN);
+
+        return new Size(3, instrumentedMethod.getStackSize());
+    }
+
+    private void loadDecoderOnStack(MethodVisitor methodVisitor) {
+        // load `UnboundDecoder` onto the stack from a local variable #1
+        methodVisitor.visitVarInsn(ALOAD, 1);
+    }
+
+    private static void pushInt(MethodVisitor methodVisitor, int value) {
+        if (value >= -1 && value <= 5)
+            methodVisitor.visitInsn(ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+            methodVisitor.visitIntInsn(BIPUSH, value);
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+            methodVisitor.visitIntInsn(SIPUSH, value);
+        else
+            methodVisitor.visitLdcInsn(value);
+    }
+}
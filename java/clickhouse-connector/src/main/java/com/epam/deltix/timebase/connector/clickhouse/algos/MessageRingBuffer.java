@@ -0,0 +1,279 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.qsrv.hf.pub.RawMessage;
+import com.epam.deltix.qsrv.hf.pub.md.RecordClassDescriptor;
+
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-producer/single-consumer ring buffer of raw messages, located in a memory-mapped temporary file.
+ * Cursor thread copies messages into the buffer without allocation and encoder thread drains it,
+ * so bursts of messages are absorbed off-heap instead of stalling the cursor.
+ * <p>
+ * Record layout: length, type index, timestamp, symbol length, data length, symbol chars, data bytes,
+ * aligned to 8 bytes. Record which does not fit till the end of buffer is preceded by padding marker
+ * and written from the start.
+ * <p>
+ * Buffer is stopped by {@link #finish()} and released by {@link #close()}, which must be called
+ * after producer and consumer threads stop using it.
+ */
+public class MessageRingBuffer implements Closeable {
+
+    private static final Log LOG = LogFactory.getLog(MessageRingBuffer.class);
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+    private static final int PADDING = -1;
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final int capacity;
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer producerBuffer;
+    private final ByteBuffer consumerBuffer;
+    private Path file; // not null if the file could not be deleted while mapped
+
+    private final AtomicLong head = new AtomicLong(); // next position to read
+    private final AtomicLong tail = new AtomicLong(); // next position to write
+    private volatile boolean finished = false;
+    private volatile boolean closed = false;
+
+    // producer state
+    private long cachedHead = 0;
+    private RecordClassDescriptor[] types = new RecordClassDescriptor[16];
+
+    // consumer state
+    private byte[] data = new byte[1024];
+    private final StringBuilder symbol = new StringBuilder();
+
+    public MessageRingBuffer(long size) {
+        if (size < 64 * 1024 || size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Illegal ring buffer size " + size);
+
+        this.capacity = (int) (size & ~7L);
+
+        Path file;
+        try {
+            file = Files.createTempFile("timebase-replication-", ".ring");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create ring buffer file", e);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            deleteFile(file);
+            throw new UncheckedIOException("Failed to map ring buffer file", e);
+        }
+
+        // file of mapped buffer can not be deleted on Windows, it is deleted on close then
+        if (!deleteFile(file)) {
+            this.file = file;
+            file.toFile().deleteOnExit();
+        }
+
+        this.producerBuffer = buffer;
+        this.consumerBuffer = buffer.duplicate();
+    }
+
+    /**
+     * Copies message into the buffer, waits while the buffer is full.
+     *
+     * @return false if the buffer is finished
+     */
+    public boolean offer(RawMessage message, int typeIndex) {
+        checkNotClosed();
+
+        CharSequence messageSymbol = message.getSymbol();
+        int symbolLength = messageSymbol != null ? messageSymbol.length() : 0;
+        int length = align(HEADER_SIZE + symbolLength * 2 + message.length);
+        if (length > capacity / 2)
+            throw new IllegalArgumentException(String.format("Message of %d bytes exceeds ring buffer capacity.", message.length));
+
+        long position = tail.get();
+        int index = (int) (position % capacity);
+        int remaining = capacity - index;
+        int required = length <= remaining ? length : remaining + length;
+        while (position + required - cachedHead > capacity) {
+            if (finished)
+                return false;
+
+            long current = head.get();
+            if (current == cachedHead)
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            cachedHead = current;
+        }
+
+        if (length > remaining) {
+            producerBuffer.putInt(index, PADDING);
+            position += remaining;
+            index = 0;
+        }
+
+        if (typeIndex >= types.length)
+            types = Arrays.copyOf(types, Math.max(typeIndex + 1, types.length * 2));
+        types[typeIndex] = message.type;
+
+        producerBuffer.putInt(index, length);
+        producerBuffer.putInt(index + 4, typeIndex);
+        producerBuffer.putLong(index + 8, message.getTimeStampMs());
+        producerBuffer.putInt(index + 16, symbolLength);
+        producerBuffer.putInt(index + 20, message.length);
+        int offset = index + HEADER_SIZE;
+        for (int i = 0; i < symbolLength; i++, offset += 2)
+            producerBuffer.putChar(offset, messageSymbol.charAt(i));
+        producerBuffer.position(offset);
+        producerBuffer.put(message.data, message.offset, message.length);
+
+        tail.lazySet(position + length);
+        return true;
+    }
+
+    /**
+     * Reads next message into the given one, waits till a message is available or timeout expires.
+     * Message data and symbol are reused by subsequent calls.
+     *
+     * @return type index of the message or -1 if no message is available
+     */
+    public int poll(RawMessage message, long timeoutNanos) {
+        checkNotClosed();
+
+        long position = head.get();
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (true) {
+            boolean done = finished;
+            if (tail.get() != position)
+                break;
+            if (done || System.nanoTime() - deadline >= 0)
+                return -1;
+
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+
+        int index = (int) (position % capacity);
+        int length = consumerBuffer.getInt(index);
+        if (length == PADDING) {
+            position += capacity - index;
+            index = 0;
+            length = consumerBuffer.getInt(index);
+        }
+
+        int typeIndex = consumerBuffer.getInt(index + 4);
+        long timestamp = consumerBuffer.getLong(index + 8);
+        int symbolLength = consumerBuffer.getInt(index + 16);
+        int dataLength = consumerBuffer.getInt(index + 20);
+        int offset = index + HEADER_SIZE;
+        symbol.setLength(0);
+        for (int i = 0; i < symbolLength; i++, offset += 2)
+            symbol.append(consumerBuffer.getChar(offset));
+        if (dataLength > data.length)
+            data = new byte[Math.max(dataLength, data.length * 2)];
+        consumerBuffer.position(offset);
+        consumerBuffer.get(data, 0, dataLength);
+
+        message.type = types[typeIndex];
+        message.setTimeStampMs(timestamp);
+        message.setSymbol(symbol);
+        message.setBytes(data, 0, dataLength);
+
+        head.lazySet(position + length);
+        return typeIndex;
+    }
+
+    /**
+     * Stops the buffer: producer is not able to add messages, consumer drains remaining ones.
+     */
+    public void finish() {
+        finished = true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Returns true when the buffer is finished and all messages are read.
+     */
+    public boolean isDrained() {
+        return finished && tail.get() == head.get();
+    }
+
+    /**
+     * Finishes the buffer, unmaps it and deletes its file. Buffer must not be accessed by other threads.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+
+        finished = true;
+        closed = true;
+        unmap(buffer);
+        if (file != null && deleteFile(file))
+            file = null;
+    }
+
+    private void checkNotClosed() {
+        if (closed)
+            throw new IllegalStateException("Ring buffer is closed.");
+    }
+
+    private static boolean deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // releases mapping without waiting for GC, mapping stays till the buffer is collected if the cleaner is not accessible
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.warn()
+                    .append("Failed to unmap ring buffer: ")
+                    .append(e.getMessage())
+                    .commit();
+        }
+    }
+
+    private static int align(int length) {
+        return (length + 7) & ~7;
+    }
+}
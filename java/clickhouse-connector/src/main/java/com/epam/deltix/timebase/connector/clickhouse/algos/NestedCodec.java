@@ -0,0 +1,271 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.schema.types.*;
+import com.epam.deltix.qsrv.hf.pub.ReadableValue;
+import com.epam.deltix.qsrv.hf.pub.codec.NonStaticFieldInfo;
+import com.epam.deltix.qsrv.hf.pub.codec.RecordClassInfo;
+import com.epam.deltix.qsrv.hf.pub.codec.RecordLayout;
+import com.epam.deltix.qsrv.hf.pub.codec.UnboundDecoder;
+import com.epam.deltix.qsrv.hf.pub.md.*;
+import com.epam.deltix.qsrv.hf.pub.md.DateTimeDataType;
+import com.epam.deltix.timebase.connector.clickhouse.model.ColumnNamingScheme;
+import com.epam.deltix.timebase.connector.clickhouse.util.ClickhouseUtil;
+
+import java.sql.*;
+import java.util.*;
+
+import static com.epam.deltix.timebase.connector.clickhouse.algos.RawDecoder.readField;
+
+/**
+ * Encodes array of objects into Nested column: values of every sub-column are collected into reusable
+ * {@link ArrayBuffer} and written as arrays.
+ */
+class NestedCodec {
+    private final TimebaseContext timebaseContext;
+    private final List<ColumnDeclarationEx> columns;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    // buffers of columns, null for object columns
+    private final ArrayBuffer[] buffers;
+    // sub-columns, sub-column index by field name and buffers of sub-columns of object columns, null for other columns
+    private final List<List<ColumnDeclarationEx>> objectColumns = new ArrayList<>();
+    private final List<Map<String, Integer>> objectFieldIndexes = new ArrayList<>();
+    private final ArrayBuffer[][] objectBuffers;
+    // every buffer which gets a value per element
+    private final List<ArrayBuffer> elementBuffers = new ArrayList<>();
+    private final Map<RecordClassInfo, ElementCodec> elementCodecs = new IdentityHashMap<>();
+
+    NestedCodec(NestedDataType dataType, ClassDataType elementType, TimebaseContext timebaseContext, ColumnNamingScheme columnNamingScheme) {
+        this.timebaseContext = timebaseContext;
+        this.columns = ClickhouseUtil.toExColumnsUnchecked(dataType.getColumns());
+        for (int i = 0; i < columns.size(); i++)
+            columnIndexes.put(columns.get(i).getDbColumnName(), i);
+
+        ArrayBuffer.Kind[][] objectKinds = new ArrayBuffer.Kind[columns.size()][];
+        for (ColumnDeclarationEx column : columns) {
+            SqlDataType columnDataType = column.getDbDataType();
+            if (columnDataType instanceof NestedDataType)
+                throw new UnsupportedOperationException(String.format("Column '%s': arrays of objects inside array " +
+                        "elements are not supported.", column.getDbColumnName()));
+
+            if (columnDataType instanceof ObjectDataType) {
+                List<ColumnDeclarationEx> subColumns = ClickhouseUtil.toExColumnsUnchecked(((ObjectDataType) columnDataType).getColumns());
+                Map<String, Integer> fieldIndexes = new HashMap<>();
+                for (int j = 0; j < subColumns.size(); j++)
+                    fieldIndexes.put(UnboundTableWriter.getFieldNameByColumn(subColumns.get(j).getDbColumnName(), columnNamingScheme), j);
+
+                objectKinds[objectColumns.size()] = new ArrayBuffer.Kind[subColumns.size()];
+                objectColumns.add(subColumns);
+                objectFieldIndexes.add(fieldIndexes);
+            } else {
+                objectColumns.add(null);
+                objectFieldIndexes.add(null);
+            }
+        }
+
+        // the same column may be filled from fields of several classes
+        ArrayBuffer.Kind[] kinds = new ArrayBuffer.Kind[columns.size()];
+        for (RecordClassDescriptor descriptor : elementType.getDescriptors()) {
+            for (NonStaticFieldInfo field : new RecordLayout(descriptor).getNonStaticFields()) {
+                Integer index = columnIndexes.get(timebaseContext.getColumnName(descriptor.getName(), field.getName()));
+                if (index == null)
+                    continue;
+
+                if (objectKinds[index] == null) {
+                    kinds[index] = ArrayBuffer.getCommonKind(kinds[index], getKind(field.getType()));
+                } else if (field.getType() instanceof ClassDataType) {
+                    for (RecordClassDescriptor objectDescriptor : ((ClassDataType) field.getType()).getDescriptors()) {
+                        for (NonStaticFieldInfo objectField : new RecordLayout(objectDescriptor).getNonStaticFields()) {
+                            Integer subIndex = objectFieldIndexes.get(index).get(objectField.getName());
+                            if (subIndex != null)
+                                objectKinds[index][subIndex] = ArrayBuffer.getCommonKind(objectKinds[index][subIndex], getKind(objectField.getType()));
+                        }
+                    }
+                }
+            }
+        }
+
+        buffers = new ArrayBuffer[columns.size()];
+        objectBuffers = new ArrayBuffer[columns.size()][];
+        for (int i = 0; i < columns.size(); i++) {
+            if (objectKinds[i] == null) {
+                buffers[i] = createBuffer(kinds[i], columns.get(i));
+                elementBuffers.add(buffers[i]);
+            } else {
+                List<ColumnDeclarationEx> subColumns = objectColumns.get(i);
+                objectBuffers[i] = new ArrayBuffer[subColumns.size()];
+                for (int j = 0; j < subColumns.size(); j++) {
+                    objectBuffers[i][j] = createBuffer(objectKinds[i][j], subColumns.get(j));
+                    elementBuffers.add(objectBuffers[i][j]);
+                }
+            }
+        }
+    }
+
+    private static ArrayBuffer createBuffer(ArrayBuffer.Kind kind, ColumnDeclarationEx column) {
+        if (kind == null || !ArrayBuffer.isCompatible(kind, column.getDefaultValue()))
+            kind = ArrayBuffer.Kind.OBJECT;
+        return new ArrayBuffer(kind, column.getDefaultValue());
+    }
+
+    void encode(UnboundDecoder udec, int len, InsertBatch statement) throws SQLException {
+        for (ArrayBuffer buffer : elementBuffers)
+            buffer.clear();
+
+        for (int ii = 0; ii < len; ii++) {
+            int index = 0;
+            for (ArrayBuffer buffer : elementBuffers)
+                index = buffer.addDefault();
+
+            final ReadableValue rv = udec.nextReadableElement();
+            // null element keeps default values of all columns
+            if (rv.isNull())
+                continue;
+
+            final UnboundDecoder decoder = rv.getFieldDecoder();
+            final ElementCodec elementCodec = getElementCodec(decoder.getClassInfo());
+
+            buffers[0].setObject(index, elementCodec.typeName);
+
+            int fieldIndex = 0;
+            while (decoder.nextField()) {
+                fieldIndex = elementCodec.indexOf(decoder.getField(), fieldIndex);
+                int bufferIndex = elementCodec.bufferIndexes[fieldIndex++];
+                if (bufferIndex < 0)
+                    continue;
+
+                if (objectBuffers[bufferIndex] != null)
+                    readElementObject(decoder, objectBuffers[bufferIndex], objectFieldIndexes.get(bufferIndex), index);
+                else
+                    readElementField(decoder, elementCodec.fields[fieldIndex - 1].getType(), buffers[bufferIndex], index);
+            }
+        }
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (objectBuffers[i] != null) {
+                List<ColumnDeclarationEx> subColumns = objectColumns.get(i);
+                for (int j = 0; j < subColumns.size(); j++)
+                    statement.setArray(subColumns.get(j).getStatementIndex(), objectBuffers[i][j]);
+            } else {
+                statement.setArray(columns.get(i).getStatementIndex(), buffers[i]);
+            }
+        }
+    }
+
+    // fields of object go to buffers of its sub-columns, null object sets all of them null
+    private static void readElementObject(UnboundDecoder decoder, ArrayBuffer[] buffers, Map<String, Integer> fieldIndexes, int index) {
+        if (decoder.isNull()) {
+            for (ArrayBuffer buffer : buffers)
+                buffer.setNull(index);
+            return;
+        }
+
+        final UnboundDecoder objectDecoder = decoder.getFieldDecoder();
+        final Integer typeIndex = fieldIndexes.get(SchemaProcessor.TYPE_COLUMN_NAME);
+        if (typeIndex != null && objectDecoder.getClassInfo() != null)
+            buffers[typeIndex].setObject(index, objectDecoder.getClassInfo().getDescriptor().getName());
+
+        while (objectDecoder.nextField()) {
+            final NonStaticFieldInfo field = objectDecoder.getField();
+            final Integer fieldIndex = fieldIndexes.get(field.getName());
+            if (fieldIndex != null)
+                readElementField(objectDecoder, field.getType(), buffers[fieldIndex], index);
+        }
+    }
+
+    private ElementCodec getElementCodec(RecordClassInfo info) {
+        ElementCodec elementCodec = elementCodecs.get(info);
+        if (elementCodec == null) {
+            String typeName = info.getDescriptor().getName();
+            NonStaticFieldInfo[] fields = info.getNonStaticFields();
+            int[] bufferIndexes = new int[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                Integer index = columnIndexes.get(timebaseContext.getColumnName(typeName, fields[i].getName()));
+                bufferIndexes[i] = index != null ? index : -1;
+            }
+
+            elementCodec = new ElementCodec(typeName, fields, bufferIndexes);
+            elementCodecs.put(info, elementCodec);
+        }
+        return elementCodec;
+    }
+
+    private static void readElementField(UnboundDecoder decoder, DataType type, ArrayBuffer buffer, int index) {
+        if (decoder.isNull()) {
+            buffer.setNull(index);
+            return;
+        }
+
+        switch (buffer.getKind()) {
+            case INT8:
+            case INT16:
+            case INT32:
+                buffer.setLong(index, decoder.getInt());
+                break;
+            case INT64:
+            case DECIMAL64:
+                buffer.setLong(index, decoder.getLong());
+                break;
+            case BOOLEAN:
+                buffer.setLong(index, decoder.getBoolean() ? 1 : 0);
+                break;
+            case FLOAT32:
+                buffer.setDouble(index, decoder.getFloat());
+                break;
+            case FLOAT64:
+                buffer.setDouble(index, decoder.getDouble());
+                break;
+            default:
+                buffer.setObject(index, readField(type, decoder));
+        }
+    }
+
+    /**
+     * @return kind of buffer which keeps values as {@link RawDecoder#readField} reads them, but unboxed
+     */
+    private static ArrayBuffer.Kind getKind(DataType type) {
+        if (type instanceof IntegerDataType) {
+            String encoding = type.getEncoding();
+            if (IntegerDataType.ENCODING_INT8.equals(encoding))
+                return ArrayBuffer.Kind.INT8;
+            else if (IntegerDataType.ENCODING_INT16.equals(encoding))
+                return ArrayBuffer.Kind.INT16;
+            else if (IntegerDataType.ENCODING_INT32.equals(encoding))
+                return ArrayBuffer.Kind.INT32;
+            else if (IntegerDataType.ENCODING_INT64.equals(encoding))
+                return ArrayBuffer.Kind.INT64;
+        } else if (type instanceof FloatDataType) {
+            switch (((FloatDataType) type).getScale()) {
+                case FloatDataType.FIXED_FLOAT:
+                    return ArrayBuffer.Kind.FLOAT32;
+                case FloatDataType.SCALE_AUTO:
+                case FloatDataType.SCALE_DECIMAL64:
+                    return ArrayBuffer.Kind.DECIMAL64;
+                default:
+                    return ArrayBuffer.Kind.FLOAT64;
+            }
+        } else if (type instanceof BooleanDataType) {
+            return ArrayBuffer.Kind.BOOLEAN;
+        } else if (type instanceof DateTimeDataType) {
+            return ArrayBuffer.Kind.INT64;
+        } else if (type instanceof TimeOfDayDataType) {
+            return ArrayBuffer.Kind.INT32;
+        }
+        return ArrayBuffer.Kind.OBJECT;
+    }
+}
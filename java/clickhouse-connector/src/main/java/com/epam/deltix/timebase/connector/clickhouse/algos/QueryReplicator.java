@@ -60,8 +60,9 @@ public class QueryReplicator extends Replicator {
                            ClickhouseProperties clickhouseProperties,
                            int flushMessageCount,
                            long flushTimeoutMs,
+                           int flushBufferCount,
                            Consumer<Replicator> onStopped) {
-        super(tickDb, clickhouseClient, clickhouseProperties, onStopped, flushMessageCount, flushTimeoutMs);
+        super(tickDb, clickhouseClient, clickhouseProperties, onStopped, flushMessageCount, flushTimeoutMs, flushBufferCount);
         this.request = queryRequest;
     }
     @Override
@@ -79,12 +80,21 @@ public class QueryReplicator extends Replicator {
                     .append(": prepare target table schema.")
                     .commit();
             Map<String, TableDeclaration> clickhouseTables = schemaProcessor.prepareClickhouseTable();
+            prepareShards(schemaOptions, clickhouseTables.values());
+            reportColumnSizes(clickhouseTables.values());
 
-            long from = Long.MIN_VALUE;
-            if (WriteMode.APPEND == request.getWriteMode()) {
-                from = findLastTimestamp(clickhouseTables.values());
-                truncateData(clickhouseTables.values(), from);
-            }
+            ReplicationCheckpoint checkpoint = createCheckpoint(request);
+            // checkpoint of created tables is stale, e.g. tables were dropped manually
+            if (checkpoint != null && (WriteMode.REWRITE == request.getWriteMode() || schemaProcessor.isTableCreated()))
+                checkpoint.clear(request.getKey());
+
+            prepareDeduplication(checkpoint, clickhouseTables.values());
+
+            ReplicationCheckpoint.Position start = new ReplicationCheckpoint.Position(Long.MIN_VALUE, 0);
+            if (WriteMode.APPEND == request.getWriteMode())
+                start = restorePosition(checkpoint, request.getKey(), "", clickhouseTables.values(), null);
+            long from = start.getTimestamp();
+            ReplicationCheckpoint.ResumeFilter resumeFilter = new ReplicationCheckpoint.ResumeFilter(start);
 
             SelectionOptions selectionOptions = new SelectionOptions(true, true);
 
@@ -93,11 +103,17 @@ public class QueryReplicator extends Replicator {
 
             List<UnboundDecoder> decoders = Arrays.stream(descriptors).map(CodecFactory.COMPILED::createFixedUnboundDecoder).collect(Collectors.toList());
 
-            tableWriter = new UnboundTableWriter(request.getKey(), request.getColumnNamingScheme(), clickhouseClient,
-                    clickhouseTables,  schemaProcessor.getColumnDeclarations(), decoders, in/*, 10_000, 5_000*/);
+            tableWriter = new UnboundTableWriter(request.getKey(), request.getColumnNamingScheme(), request.getInsertFormat(), clickhouseClient,
+                    clickhouseTables,  schemaProcessor.getColumnDeclarations(), decoders, in, flushBufferCount);
             if (!request.getIncludePartitionColumn()) {
                 tableWriter.removeFixedColumn(SchemaProcessor.PARTITION_COLUMN_NAME);
             }
+            tableWriter.setFlushPolicy(createFlushPolicy());
+            configureInsertMode(tableWriter, request, clickhouseTables.values());
+            configureEncoding(tableWriter, request);
+            configureRouting(tableWriter, request.getKey());
+            FlushPolicy flushPolicy = tableWriter.getFlushPolicy();
+            attachCheckpoint(tableWriter, checkpoint, request.getKey(), "", start);
             try (InstrumentMessageSource cursor = tickDb.executeQuery(request.getQuery(), selectionOptions, null, null, from )) {
                 // making live cursor non-blocking
                 cursor.setAvailabilityListener(this::notifyDataAvailable);
@@ -106,11 +122,8 @@ public class QueryReplicator extends Replicator {
                     if (cancel)
                         break;
 
-                    if (tableWriter.getBatchMsgCount() > 0) { // we have messages in queue
-                        if (tableWriter.getBatchMsgCount() >= flushMessageCount || // batch size reached
-                                TimeKeeper.currentTime >= lastFlushTimestamp + flushTimeoutMs) // flush interval reached
-                            flush();
-                    }
+                    if (shouldFlush(tableWriter, flushPolicy, lastFlushTimestamp))
+                        flush();
 
                     synchronized (unblockingCursorLock) {
                         try {
@@ -130,13 +143,15 @@ public class QueryReplicator extends Replicator {
                                             .append(", ").append(messageHelper.getValues(message)).append("}").commit();
                                     continue;
                                 }
+                                if (resumeFilter.skip(message.getTimeStampMs()))
+                                    continue;
                                 tableWriter.send(message, cursor);
                             } else
                                 break;
                             count++;
                         } catch (UnavailableResourceException e) {
                             try {
-                                long timeout = flushTimeoutMs - (TimeKeeper.currentTime - lastFlushTimestamp);
+                                long timeout = flushPolicy.getTimeoutMs() - (TimeKeeper.currentTime - lastFlushTimestamp);
                                 if (timeout > 0) {
                                     unblockingCursorLock.wait(timeout);
                                 } else {
@@ -170,7 +185,7 @@ public class QueryReplicator extends Replicator {
         } finally {
             if (tableWriter != null)
                 tableWriter.close();
-            onStopped.accept(this);
+            notifyStopped();
             LOG.info()
                     .append("Replication ")
                     .append(request.getKey())
@@ -214,7 +229,8 @@ public class QueryReplicator extends Replicator {
             mapping = new HashMap<>(){{put(ALL_TYPES, request.getTable());}};
         }
 
-        return new SchemaOptions(recordClassSet, mapping, request.getWriteMode(), request.getColumnNamingScheme(), request.getIncludePartitionColumn());
+        return new SchemaOptions(recordClassSet, mapping, request.getWriteMode(), request.getColumnNamingScheme(), request.getIncludePartitionColumn(),
+                request.getTableLayout());
     }
 
     @Override
@@ -16,14 +16,13 @@
  */
 package com.epam.deltix.timebase.connector.clickhouse.algos;
 
-import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.clickhouse.util.Decimal64Helper;
 import com.epam.deltix.qsrv.hf.pub.NullValueException;
 import com.epam.deltix.qsrv.hf.pub.ReadableValue;
 import com.epam.deltix.qsrv.hf.pub.codec.NonStaticFieldInfo;
 import com.epam.deltix.qsrv.hf.pub.codec.UnboundDecoder;
 import com.epam.deltix.qsrv.hf.pub.md.*;
 
-import java.math.BigDecimal;
 import java.util.*;
 
 public class RawDecoder {
@@ -97,7 +96,7 @@ public class RawDecoder {
             return  rv.getDouble();
         else if (tbFloatDataType.getScale() == FloatDataType.SCALE_AUTO ||
                 tbFloatDataType.getScale() == FloatDataType.SCALE_DECIMAL64)
-            return  new BigDecimal(Decimal64Utils.toString(rv.getLong()));
+            return  readDecimal64(rv.getLong());
         else
             return  rv.getDouble();
 
@@ -107,6 +106,10 @@ public class RawDecoder {
 //            return rv.getDouble();
     }
 
+    private static Object    readDecimal64(long value) {
+        return EncoderUtil.isSpecialDecimal64(value) ? EncoderUtil.getSpecialDecimal64Value(value) : Decimal64Helper.toBigDecimal(value);
+    }
+
     protected static Object    readDateTime(DateTimeDataType type, ReadableValue rv) {
         return rv.getLong();
     }
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.ClickhouseClient;
+import com.epam.deltix.clickhouse.models.ClickhouseTableIdentity;
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the last position committed to Clickhouse per replication key and reading lane (single cursor or
+ * symbol shard), so restarted replication continues from the position without scanning and truncating target tables.
+ */
+public class ReplicationCheckpoint {
+
+    public static final String TABLE_NAME = "timebase_replication_checkpoints";
+    public static final String BATCHES_TABLE_NAME = "timebase_replication_batches";
+    public static final long DEFAULT_SAVE_INTERVAL_MS = 1_000;
+
+    // end of the batch which is open while replication without deduplication sends batches
+    private static final Position OPEN_BATCH_END = new Position(Long.MAX_VALUE, Integer.MAX_VALUE);
+
+    private static final Log LOG = LogFactory.getLog(ReplicationCheckpoint.class);
+
+    private final ClickhouseClient clickhouseClient;
+    private final String database;
+    private final String tableName;
+    private final String batchesTableName;
+    private final long saveIntervalMs;
+    private final AtomicLong version = new AtomicLong();
+
+    public ReplicationCheckpoint(ClickhouseClient clickhouseClient, String database) {
+        this(clickhouseClient, database, DEFAULT_SAVE_INTERVAL_MS);
+    }
+
+    /**
+     * @param saveIntervalMs minimal interval between saves of committed position of a lane, positions committed
+     *                       in between are coalesced into the latest one
+     */
+    public ReplicationCheckpoint(ClickhouseClient clickhouseClient, String database, long saveIntervalMs) {
+        this.clickhouseClient = clickhouseClient;
+        this.database = database;
+        this.tableName = database + "." + TABLE_NAME;
+        this.batchesTableName = database + "." + BATCHES_TABLE_NAME;
+        this.saveIntervalMs = saveIntervalMs;
+    }
+
+    public void prepareTable() {
+        String createQuery = String.format("CREATE TABLE IF NOT EXISTS %s (" +
+                "key String, lane String, timestamp Int64, offset UInt32, version UInt64" +
+                ") ENGINE = ReplacingMergeTree(version) ORDER BY (key, lane)", tableName);
+        LOG.debug()
+                .append(createQuery)
+                .commit();
+        clickhouseClient.getJdbcTemplate().execute(createQuery);
+    }
+
+    /**
+     * Creates table of batches which are being sent.
+     */
+    public void prepareBatchesTable() {
+        String createQuery = String.format("CREATE TABLE IF NOT EXISTS %s (" +
+                "key String, lane String, slot UInt32, first_timestamp Int64, first_offset UInt32, " +
+                "last_timestamp Int64, last_offset UInt32, version UInt64" +
+                ") ENGINE = ReplacingMergeTree(version) ORDER BY (key, lane, slot)", batchesTableName);
+        LOG.debug()
+                .append(createQuery)
+                .commit();
+        clickhouseClient.getJdbcTemplate().execute(createQuery);
+        // existence of the table is checked by clear
+        clickhouseClient.invalidateMetadata(ClickhouseTableIdentity.of(database, BATCHES_TABLE_NAME));
+    }
+
+    /**
+     * Returns the last committed position of the lane or null if nothing was committed.
+     */
+    public Position load(String key, String lane) {
+        String selectQuery = String.format("SELECT timestamp, offset FROM %s FINAL WHERE key = ? AND lane = ?", tableName);
+        List<Position> positions = clickhouseClient.getJdbcTemplate().query(selectQuery,
+                (rs, rowNum) -> new Position(rs.getLong(1), rs.getInt(2)),
+                key, lane);
+        return positions.isEmpty() ? null : positions.get(0);
+    }
+
+    public void save(String key, String lane, Position position) {
+        String insertQuery = String.format("INSERT INTO %s (key, lane, timestamp, offset, version) VALUES (?, ?, ?, ?, ?)",
+                tableName);
+        clickhouseClient.getJdbcTemplate().update(insertQuery,
+                key, lane, position.timestamp, position.offset, nextVersion());
+    }
+
+    /**
+     * Records bounds of the batch before it is sent. Slot is reused by later batches,
+     * so the number of slots must not be less than the number of batches sent concurrently.
+     */
+    public void saveBatch(String key, String lane, int slot, Position first, Position last) {
+        String insertQuery = String.format("INSERT INTO %s (key, lane, slot, first_timestamp, first_offset, " +
+                "last_timestamp, last_offset, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", batchesTableName);
+        clickhouseClient.getJdbcTemplate().update(insertQuery,
+                key, lane, slot, first.timestamp, first.offset, last.timestamp, last.offset, nextVersion());
+    }
+
+    /**
+     * Returns end positions of batches which were sent but not committed after the given position, ordered by position.
+     */
+    public List<Position> loadPendingBatches(String key, String lane, Position committed) {
+        String selectQuery = String.format("SELECT last_timestamp, last_offset FROM %s FINAL WHERE key = ? AND lane = ?",
+                batchesTableName);
+        List<Position> batches = clickhouseClient.getJdbcTemplate().query(selectQuery,
+                (rs, rowNum) -> new Position(rs.getLong(1), rs.getInt(2)),
+                key, lane);
+        return batches.stream()
+                .filter(position -> position.compareTo(committed) > 0)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    public void clear(String key) {
+        String deleteQuery = String.format("ALTER TABLE %s DELETE WHERE key = ?", tableName);
+        clickhouseClient.getJdbcTemplate().update(deleteQuery, key);
+        if (clickhouseClient.existsTable(ClickhouseTableIdentity.of(database, BATCHES_TABLE_NAME))) {
+            deleteQuery = String.format("ALTER TABLE %s DELETE WHERE key = ?", batchesTableName);
+            clickhouseClient.getJdbcTemplate().update(deleteQuery, key);
+        }
+    }
+
+    /**
+     * Returns position replication restarts from, given the committed position. It is the committed position when
+     * no rows past it can be in tables: no batch was pending after the commit, or pending batches are deduplicated
+     * and resent. Otherwise rows from the committed timestamp on are deleted and replicated again, since rows
+     * of that timestamp inserted after the commit cannot be told apart.
+     */
+    public static Position getRestartPosition(Position committed, boolean exact) {
+        return exact ? committed : new Position(committed.timestamp, 0);
+    }
+
+    /**
+     * Creates commit listener of the reading lane. Committed positions are saved at most once per save interval
+     * and the latest one when writer is closed. With deduplication bounds of each batch are saved before it is sent,
+     * so pending batches are resent with the same tokens. Otherwise a single batch open till the writer is closed
+     * is saved, so restart after failure knows that rows past the committed position may be inserted.
+     *
+     * @param slots number of batch slots with deduplication, not less than the number of batches sent concurrently;
+     *              0 without deduplication
+     */
+    public UnboundTableWriter.CommitListener createCommitListener(String key, String lane, int slots) {
+        return new LaneCommitListener(key, lane, slots);
+    }
+
+    // later row wins on merge, versions also grow across restarts
+    private long nextVersion() {
+        return version.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+    }
+
+    private class LaneCommitListener implements UnboundTableWriter.CommitListener {
+        private final String key;
+        private final String lane;
+        // end positions of batches kept in slots, null without deduplication
+        private final Position[] batches;
+        private boolean batchOpen;
+        private Position committed;
+        private Position saved;
+        private long savedTime;
+
+        private LaneCommitListener(String key, String lane, int slots) {
+            this.key = key;
+            this.lane = lane;
+            this.batches = slots > 0 ? new Position[slots] : null;
+        }
+
+        @Override
+        public synchronized void onSending(long sequence, Position first, Position last) {
+            if (batches == null) {
+                if (!batchOpen) {
+                    saveBatch(key, lane, 0, first, OPEN_BATCH_END);
+                    batchOpen = true;
+                }
+                return;
+            }
+
+            // batch of the reused slot is not resent after restart, so its end must be saved as committed first
+            int slot = (int) (sequence % batches.length);
+            if (batches[slot] != null && (saved == null || batches[slot].compareTo(saved) > 0))
+                saveCommitted();
+            batches[slot] = last;
+            saveBatch(key, lane, slot, first, last);
+        }
+
+        @Override
+        public synchronized void onCommitted(Position position) {
+            committed = position;
+            if (System.currentTimeMillis() - savedTime >= saveIntervalMs)
+                saveCommitted();
+        }
+
+        @Override
+        public synchronized void onClosed() {
+            saveCommitted();
+            if (batchOpen) {
+                saveBatch(key, lane, 0, committed, committed);
+                batchOpen = false;
+            }
+        }
+
+        private void saveCommitted() {
+            if (committed == null || committed.equals(saved))
+                return;
+
+            save(key, lane, committed);
+            saved = committed;
+            savedTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Skips messages of the start timestamp which were committed before restart.
+     */
+    public static class ResumeFilter {
+        private final long timestamp;
+        private int skip;
+
+        public ResumeFilter(Position start) {
+            this.timestamp = start.timestamp;
+            this.skip = start.offset;
+        }
+
+        /**
+         * @return true if message with the given timestamp is the next committed message
+         */
+        public boolean skip(long messageTimestamp) {
+            if (skip > 0 && messageTimestamp == timestamp) {
+                skip--;
+                return true;
+            }
+            skip = 0;
+            return false;
+        }
+    }
+
+    /**
+     * Position in the message sequence of a cursor: timestamp of the last committed message
+     * and number of committed messages with this timestamp.
+     */
+    public static class Position implements Comparable<Position> {
+        private final long timestamp;
+        private final int offset;
+
+        public Position(long timestamp, int offset) {
+            this.timestamp = timestamp;
+            this.offset = offset;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Position that = (Position) o;
+
+            return timestamp == that.timestamp && offset == that.offset;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(timestamp) + offset;
+        }
+
+        @Override
+        public String toString() {
+            return timestamp + "." + offset;
+        }
+
+        @Override
+        public int compareTo(Position other) {
+            return compareTo(other.timestamp, other.offset);
+        }
+
+        public int compareTo(long timestamp, int offset) {
+            int result = Long.compare(this.timestamp, timestamp);
+            return result != 0 ? result : Integer.compare(this.offset, offset);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.util.ExecutorsUtil;
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs live replications on a bounded pool of threads. Task takes a thread only when it is woken,
+ * by availability listener of its cursor or by its own timer, so idle replications cost no thread.
+ */
+public class ReplicationScheduler implements Closeable {
+
+    private static final Log LOG = LogFactory.getLog(ReplicationScheduler.class);
+
+    private final ScheduledExecutorService executor;
+
+    public ReplicationScheduler(int threads) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("Illegal scheduler threads");
+
+        AtomicInteger index = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(threads,
+                r -> new Thread(r, String.format("Replication scheduler %s", index.getAndIncrement())));
+    }
+
+    /**
+     * Work of live replication split into short runs.
+     */
+    public interface Task {
+
+        /**
+         * Processes available data without blocking.
+         *
+         * @return delay in milliseconds till the next run if the task is not woken earlier, -1 when the task is finished
+         */
+        long run() throws Exception;
+
+        /**
+         * Called once when the task is finished or failed.
+         *
+         * @param error failure of the task or null
+         */
+        void onFinished(Throwable error);
+    }
+
+    /**
+     * Starts the task, the first run is executed immediately.
+     */
+    public Handle schedule(Task task) {
+        Handle handle = new Handle(task);
+        handle.wake();
+        return handle;
+    }
+
+    @Override
+    public void close() {
+        ExecutorsUtil.shutdownAndAwaitTermination(executor, ExecutorsUtil.DEFAULT_SHUTDOWN_TIMEOUT_MS);
+    }
+
+    /**
+     * Scheduled task, never runs concurrently with itself.
+     */
+    public class Handle {
+        private static final int IDLE = 0;
+        private static final int SCHEDULED = 1;
+        private static final int RUNNING = 2;
+        private static final int RUNNING_WOKEN = 3; // woken while running, runs again right after
+        private static final int FINISHED = 4;
+
+        private final Task task;
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+        private volatile ScheduledFuture<?> timer;
+
+        private Handle(Task task) {
+            this.task = task;
+        }
+
+        /**
+         * Requests the next run of the task as soon as possible.
+         */
+        public void wake() {
+            while (true) {
+                int current = state.get();
+                if (current == IDLE) {
+                    if (state.compareAndSet(IDLE, SCHEDULED)) {
+                        executor.execute(this::runTask);
+                        return;
+                    }
+                } else if (current == RUNNING) {
+                    if (state.compareAndSet(RUNNING, RUNNING_WOKEN))
+                        return;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void runTask() {
+            state.set(RUNNING);
+            ScheduledFuture<?> pendingTimer = timer;
+            if (pendingTimer != null)
+                pendingTimer.cancel(false);
+
+            long delay;
+            try {
+                delay = task.run();
+            } catch (Throwable e) {
+                finish(e);
+                return;
+            }
+
+            if (delay < 0) {
+                finish(null);
+            } else if (state.compareAndSet(RUNNING, IDLE)) {
+                if (delay == 0)
+                    wake();
+                else
+                    timer = executor.schedule(this::wake, delay, TimeUnit.MILLISECONDS);
+            } else {
+                state.set(SCHEDULED);
+                executor.execute(this::runTask);
+            }
+        }
+
+        private void finish(Throwable error) {
+            state.set(FINISHED);
+            try {
+                task.onFinished(error);
+            } catch (Throwable e) {
+                LOG.error()
+                        .append("Completion of replication task failed.")
+                        .append(e)
+                        .commit();
+            }
+        }
+    }
+}
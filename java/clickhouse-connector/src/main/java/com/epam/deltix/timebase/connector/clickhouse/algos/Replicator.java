@@ -17,13 +17,23 @@
 package com.epam.deltix.timebase.connector.clickhouse.algos;
 
 import com.epam.deltix.clickhouse.ClickhouseClient;
+import com.epam.deltix.clickhouse.models.ClickhouseTableIdentity;
+import com.epam.deltix.clickhouse.models.TableIdentity;
+import com.epam.deltix.clickhouse.pool.ShardRouter;
 import com.epam.deltix.clickhouse.schema.TableDeclaration;
+import com.epam.deltix.clickhouse.util.SqlQueryHelper;
 import com.epam.deltix.gflog.api.Log;
 import com.epam.deltix.gflog.api.LogFactory;
 import com.epam.deltix.qsrv.hf.tickdb.pub.DXTickDB;
 import com.epam.deltix.timebase.connector.clickhouse.configuration.properties.ClickhouseProperties;
+import com.epam.deltix.timebase.connector.clickhouse.model.InsertFormat;
+import com.epam.deltix.timebase.connector.clickhouse.model.InsertMode;
+import com.epam.deltix.timebase.connector.clickhouse.model.ReplicationRequest;
+import com.epam.deltix.timebase.connector.clickhouse.model.SchemaOptions;
+import com.epam.deltix.util.time.TimeKeeper;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
 
 import java.sql.ResultSet;
@@ -33,7 +43,11 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public abstract class Replicator implements Runnable {
 
@@ -49,9 +63,32 @@ public abstract class Replicator implements Runnable {
     protected final Consumer<Replicator> onStopped;
     protected final int flushMessageCount;
     protected final long flushTimeoutMs;
+    protected final int flushBufferCount;
+
+    // number of the latest inserted blocks which non-replicated target tables remember for deduplication
+    private static final int DEDUPLICATION_WINDOW = 100;
+    // batches of a lane recorded for deduplication, so committed position is saved at least once per this number
+    // of batches; resent batches stay within deduplication window
+    private static final int DEDUPLICATION_BATCH_SLOTS = 64;
+    public static final String DISTRIBUTED_TABLE_SUFFIX = "_distributed";
+
+    private long asyncFlushTimeoutMs = 200;
+    private boolean checkpoints = false;
+    private boolean deduplication = false;
+    private boolean adaptiveFlush = false;
+    private boolean columnSizeReport = false;
+    private int minFlushMessageCount;
+    private long targetBatchBytes;
+    private long targetFlushLatencyMs;
+    // size of off-heap buffer between cursor and encoder, 0 - messages are encoded by cursor thread
+    protected long ringBufferSize = 0;
+    // shared scheduler of live replications, null - replication occupies own thread
+    protected ReplicationScheduler scheduler;
+    protected ShardRouter shardRouter;
+    private final CountDownLatch stopped = new CountDownLatch(1);
 
     public Replicator(DXTickDB tickDb, ClickhouseClient clickhouseClient, ClickhouseProperties clickhouseProperties,
-                      Consumer<Replicator> onStopped, int flushMessageCount, long flushTimeoutMs) {
+                      Consumer<Replicator> onStopped, int flushMessageCount, long flushTimeoutMs, int flushBufferCount) {
         this.tickDb = tickDb;
         this.clickhouseClient = clickhouseClient;
         this.clickhouseProperties = clickhouseProperties;
@@ -61,9 +98,390 @@ public abstract class Replicator implements Runnable {
             throw new IllegalArgumentException("Illegal flushMessageCount");
         if (flushTimeoutMs <= 0)
             throw new IllegalArgumentException("Illegal flushTimeoutMs");
+        if (flushBufferCount <= 0)
+            throw new IllegalArgumentException("Illegal flushBufferCount");
 
         this.flushMessageCount = flushMessageCount;
         this.flushTimeoutMs = flushTimeoutMs;
+        this.flushBufferCount = flushBufferCount;
+    }
+
+    /**
+     * Enables adaptive batch size, static flushMessageCount and flushTimeoutMs become upper bounds.
+     */
+    public void setAdaptiveFlush(int minFlushMessageCount, long targetBatchBytes, long targetFlushLatencyMs) {
+        this.adaptiveFlush = true;
+        this.minFlushMessageCount = Math.min(minFlushMessageCount, flushMessageCount);
+        this.targetBatchBytes = targetBatchBytes;
+        this.targetFlushLatencyMs = targetFlushLatencyMs;
+    }
+
+    /**
+     * Runs live replication on the shared scheduler instead of replication thread.
+     */
+    public void setScheduler(ReplicationScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Whether live replication runs on the shared scheduler, otherwise it occupies own thread till stopped.
+     */
+    public boolean isScheduled() {
+        return false;
+    }
+
+    /**
+     * Distributes inserts between shards of {@code clickhouse.cluster}: target tables are created on each shard
+     * and read through {@code Distributed} tables on the main node.
+     */
+    public void setShardRouter(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Waits till the replication is stopped, live replication may outlive its {@link #run()} on the scheduler.
+     */
+    public void awaitStopped() throws InterruptedException {
+        stopped.await();
+    }
+
+    protected void notifyStopped() {
+        onStopped.accept(this);
+        stopped.countDown();
+    }
+
+    /**
+     * Enables off-heap ring buffer of the given size between cursor thread and encoder thread.
+     */
+    public void setRingBufferSize(long ringBufferSize) {
+        if (ringBufferSize < 0)
+            throw new IllegalArgumentException("Illegal ringBufferSize");
+
+        this.ringBufferSize = ringBufferSize;
+    }
+
+    /**
+     * Sets flush interval of replications in {@link InsertMode#ASYNC} insert mode.
+     */
+    public void setAsyncFlushTimeoutMs(long asyncFlushTimeoutMs) {
+        if (asyncFlushTimeoutMs <= 0)
+            throw new IllegalArgumentException("Illegal asyncFlushTimeoutMs");
+
+        this.asyncFlushTimeoutMs = asyncFlushTimeoutMs;
+    }
+
+    /**
+     * Switches table writer to async inserts when requested: small batches are sent at short interval
+     * with {@code async_insert=1} and collected into parts by Clickhouse.
+     */
+    protected void configureInsertMode(UnboundTableWriter writer, ReplicationRequest request, Collection<TableDeclaration> clickhouseTables) {
+        if (request.getInsertMode() != InsertMode.ASYNC)
+            return;
+
+        boolean wait = request.getWaitForAsyncInsert() == null || request.getWaitForAsyncInsert();
+        writer.setInsertSetting("async_insert", "1");
+        writer.setInsertSetting("wait_for_async_insert", wait ? "1" : "0");
+        // insert_deduplication_token of async inserts is ignored otherwise
+        if (checkpoints && deduplication)
+            writer.setInsertSetting("async_insert_deduplicate", "1");
+        writer.setFlushPolicy(new AsyncInsertPolicy(writer.getFlushPolicy(), asyncFlushTimeoutMs, clickhouseClient, request.getKey(),
+                clickhouseTables.stream().map(TableDeclaration::getTableIdentity).collect(Collectors.toList())));
+    }
+
+    /**
+     * Creates target tables on each shard and {@code Distributed} tables over them on the main node.
+     */
+    protected void prepareShards(SchemaOptions schemaOptions, Collection<TableDeclaration> clickhouseTables) throws SQLException {
+        if (shardRouter == null)
+            return;
+
+        // ON CLUSTER DDL has already created tables on each node
+        if (clickhouseProperties.getDdlCluster() == null) {
+            for (ShardRouter.Shard shard : shardRouter.getShards())
+                new SchemaProcessor(schemaOptions, shard.getClient(), clickhouseProperties).prepareClickhouseTable();
+        }
+
+        prepareDistributedTables(clickhouseTables);
+    }
+
+    /**
+     * Applies changed TimeBase schema to tables of each shard, see {@link SchemaProcessor#evolveClickhouseTable()}.
+     */
+    protected void evolveShards(SchemaOptions schemaOptions, Collection<TableDeclaration> clickhouseTables) throws SQLException {
+        if (shardRouter == null)
+            return;
+
+        if (clickhouseProperties.getDdlCluster() == null) {
+            for (ShardRouter.Shard shard : shardRouter.getShards())
+                new SchemaProcessor(schemaOptions, shard.getClient(), clickhouseProperties).evolveClickhouseTable();
+        }
+
+        prepareDistributedTables(clickhouseTables);
+    }
+
+    private void prepareDistributedTables(Collection<TableDeclaration> clickhouseTables) {
+        for (TableDeclaration clickhouseTable : clickhouseTables) {
+            TableIdentity table = clickhouseTable.getTableIdentity();
+            // replaced to follow schema changes of shard tables
+            String createQuery = String.format("CREATE OR REPLACE TABLE %s AS %s ENGINE = Distributed('%s', '%s', '%s', rand())",
+                    getReadTable(clickhouseTable), table, clickhouseProperties.getCluster(), table.getDatabaseName(), table.getTableName());
+            LOG.debug()
+                    .append(createQuery)
+                    .commit();
+            clickhouseClient.getJdbcTemplate().execute(createQuery);
+            clickhouseClient.invalidateMetadata(table);
+        }
+    }
+
+    /**
+     * Routes inserts of table writer between shards: to the least loaded shard or, with deduplication,
+     * always to the same shard, because each shard deduplicates own inserts only.
+     */
+    protected void configureRouting(UnboundTableWriter writer, String key) {
+        if (shardRouter == null)
+            return;
+
+        writer.setInsertDataSource(deduplication ? shardRouter.getShard(key) : shardRouter);
+    }
+
+    /**
+     * Returns table which contains rows of all shards.
+     */
+    protected String getReadTable(TableDeclaration clickhouseTable) {
+        TableIdentity table = clickhouseTable.getTableIdentity();
+        return shardRouter == null ? table.toString() :
+                ClickhouseTableIdentity.of(table.getDatabaseName(), table.getTableName() + DISTRIBUTED_TABLE_SUFFIX).toString();
+    }
+
+    /**
+     * Returns target table of ALTER query, with ON CLUSTER clause when DDL is executed on cluster.
+     */
+    protected String getAlterTable(TableDeclaration clickhouseTable) {
+        StringBuilder sb = new StringBuilder(clickhouseTable.getTableIdentity().toString());
+        return SqlQueryHelper.appendOnCluster(sb, clickhouseProperties.getDdlCluster()).toString();
+    }
+
+    /**
+     * Returns clients of nodes which execute ALTER queries of target tables.
+     */
+    protected List<ClickhouseClient> getTargetClients() {
+        if (shardRouter == null || clickhouseProperties.getDdlCluster() != null)
+            return Collections.singletonList(clickhouseClient);
+
+        return shardRouter.getShards().stream().map(ShardRouter.Shard::getClient).collect(Collectors.toList());
+    }
+
+    /**
+     * Enables parallel encoding stage of table writer when requested.
+     */
+    protected void configureEncoding(UnboundTableWriter writer, ReplicationRequest request) {
+        if (request.getEncoderThreads() == null || request.getEncoderThreads() <= 0)
+            return;
+
+        if (request.getInsertFormat() != InsertFormat.ROW_BINARY) {
+            LOG.warn()
+                    .append("Replication ")
+                    .append(request.getKey())
+                    .append(": encoderThreads require ROW_BINARY insert format, messages are encoded sequentially.")
+                    .commit();
+            return;
+        }
+
+        writer.setEncoderThreads(request.getEncoderThreads());
+    }
+
+    /**
+     * Enables keeping committed positions in {@link ReplicationCheckpoint#TABLE_NAME} table, so restart in APPEND mode
+     * does not scan and truncate target tables.
+     */
+    public void setCheckpoints(boolean checkpoints) {
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * Enables exactly-once inserts: batches are sent with {@code insert_deduplication_token} and bounds of batches
+     * being sent are recorded, so after restart they are sent again with the same tokens. Requires checkpoints.
+     */
+    public void setDeduplication(boolean deduplication) {
+        this.deduplication = deduplication;
+    }
+
+    /**
+     * Enables logging of compressed bytes per row of target table columns, see {@link #reportColumnSizes}.
+     */
+    public void setColumnSizeReport(boolean columnSizeReport) {
+        this.columnSizeReport = columnSizeReport;
+    }
+
+    /**
+     * Logs compressed and uncompressed bytes per row, compression ratio and codec of each column of active parts.
+     * Allows to compare column types and codecs on existing data. Sharded tables report data of the first shard.
+     */
+    protected void reportColumnSizes(Collection<TableDeclaration> clickhouseTables) {
+        if (!columnSizeReport)
+            return;
+
+        // local tables of the shards have the same layout, so data of one shard is representative
+        JdbcTemplate jdbcTemplate = shardRouter != null ?
+                shardRouter.getShards().get(0).getClient().getJdbcTemplate() : clickhouseClient.getJdbcTemplate();
+        for (TableDeclaration clickhouseTable : clickhouseTables) {
+            String database = clickhouseTable.getTableIdentity().getDatabaseName();
+            String table = clickhouseTable.getTableIdentity().getTableName();
+            Long rows = jdbcTemplate.queryForObject(
+                    "SELECT sum(rows) FROM system.parts WHERE active AND database = ? AND table = ?", Long.class, database, table);
+            if (rows == null || rows == 0) {
+                LOG.info()
+                        .append("Column sizes of ")
+                        .append(clickhouseTable.getTableIdentity().toString())
+                        .append(": no rows")
+                        .commit();
+                continue;
+            }
+
+            long[] total = new long[2];
+            jdbcTemplate.query(
+                    "SELECT name, type, compression_codec, data_compressed_bytes, data_uncompressed_bytes FROM system.columns " +
+                            "WHERE database = ? AND table = ? ORDER BY data_compressed_bytes DESC", rs -> {
+                        long compressed = rs.getLong("data_compressed_bytes");
+                        long uncompressed = rs.getLong("data_uncompressed_bytes");
+                        total[0] += compressed;
+                        total[1] += uncompressed;
+                        LOG.info()
+                                .append("Column ")
+                                .append(table)
+                                .append('.')
+                                .append(rs.getString("name"))
+                                .append(' ')
+                                .append(rs.getString("type"))
+                                .append(' ')
+                                .append(rs.getString("compression_codec"))
+                                .append(": ")
+                                .append((double) compressed / rows)
+                                .append(" compressed bytes/row, ")
+                                .append((double) uncompressed / rows)
+                                .append(" uncompressed bytes/row, ratio ")
+                                .append(compressed == 0 ? 0 : (double) uncompressed / compressed)
+                                .commit();
+                    }, database, table);
+            LOG.info()
+                    .append("Table ")
+                    .append(clickhouseTable.getTableIdentity().toString())
+                    .append(": ")
+                    .append(rows)
+                    .append(" rows, ")
+                    .append((double) total[0] / rows)
+                    .append(" compressed bytes/row, ")
+                    .append((double) total[1] / rows)
+                    .append(" uncompressed bytes/row")
+                    .commit();
+        }
+    }
+
+    /**
+     * Returns prepared checkpoint storage or null if checkpoints are disabled.
+     */
+    protected ReplicationCheckpoint createCheckpoint(ReplicationRequest request) {
+        if (!checkpoints)
+            return null;
+
+        if (request.getInsertMode() == InsertMode.ASYNC && Boolean.FALSE.equals(request.getWaitForAsyncInsert()))
+            throw new IllegalArgumentException(String.format("Replication %s: waitForAsyncInsert=false cannot be used " +
+                    "with checkpoints, positions would be committed before rows are flushed to tables.", request.getKey()));
+
+        ReplicationCheckpoint checkpoint = new ReplicationCheckpoint(clickhouseClient, clickhouseProperties.getDatabase());
+        checkpoint.prepareTable();
+        checkpoint.prepareBatchesTable();
+        return checkpoint;
+    }
+
+    /**
+     * Enables deduplication window of non-replicated target tables, replicated tables deduplicate inserts by default.
+     */
+    protected void prepareDeduplication(ReplicationCheckpoint checkpoint, Collection<TableDeclaration> clickhouseTables) {
+        if (checkpoint == null || !deduplication || clickhouseProperties.isReplicated())
+            return;
+
+        for (TableDeclaration clickhouseTable : clickhouseTables) {
+            String alterQuery = String.format("ALTER TABLE %s MODIFY SETTING non_replicated_deduplication_window = %s",
+                    getAlterTable(clickhouseTable), DEDUPLICATION_WINDOW);
+            LOG.debug()
+                    .append(alterQuery)
+                    .commit();
+            for (ClickhouseClient client : getTargetClients())
+                client.getJdbcTemplate().execute(alterQuery);
+        }
+    }
+
+    /**
+     * Connects table writer of the reading lane with checkpoint storage, continuing from the given position.
+     */
+    protected void attachCheckpoint(UnboundTableWriter writer, ReplicationCheckpoint checkpoint, String key, String lane,
+                                    ReplicationCheckpoint.Position start) {
+        if (checkpoint == null)
+            return;
+
+        writer.setPosition(start);
+        if (deduplication) {
+            writer.setDeduplicationToken(key + "/" + lane);
+            writer.setReplayBatches(checkpoint.loadPendingBatches(key, lane, start));
+        }
+        // flush waits for the next buffer, so no more than flushBufferCount batches are sent concurrently
+        writer.setCommitListener(checkpoint.createCommitListener(key, lane,
+                deduplication ? Math.max(DEDUPLICATION_BATCH_SLOTS, flushBufferCount) : 0));
+    }
+
+    /**
+     * Restores position of the reading lane from checkpoint, or from the last timestamp of rows matching
+     * SQL {@code filter} (may be null) when there is no checkpoint. Rows matching the filter from the committed
+     * timestamp on are deleted only when batches were pending on stop and are not deduplicated,
+     * so restart after clean stop does not change target tables.
+     */
+    protected ReplicationCheckpoint.Position restorePosition(ReplicationCheckpoint checkpoint, String key, String lane,
+                                                             Collection<TableDeclaration> clickhouseTables, String filter) {
+        if (checkpoint != null) {
+            ReplicationCheckpoint.Position position = checkpoint.load(key, lane);
+            if (position != null) {
+                LOG.info()
+                        .append("Replication ")
+                        .append(key)
+                        .append(": continue from checkpoint ")
+                        .append(formatToDateTime3(position.getTimestamp()))
+                        .append(" offset ")
+                        .append(position.getOffset())
+                        .commit();
+                boolean exact = deduplication || checkpoint.loadPendingBatches(key, lane, position).isEmpty();
+                if (!exact)
+                    truncateDataFrom(clickhouseTables, position.getTimestamp(), filter);
+                return ReplicationCheckpoint.getRestartPosition(position, exact);
+            }
+        }
+
+        long timestamp = filter == null ? findLastTimestamp(clickhouseTables) : findLastTimestamp(clickhouseTables, filter);
+        truncateData(clickhouseTables, timestamp, filter);
+        return new ReplicationCheckpoint.Position(timestamp, 0);
+    }
+
+    /**
+     * Returns true when the batch of the writer has to be flushed: batch sent before restart is repeated completely,
+     * or batch size or flush interval of the policy is reached. Shared by all reading loops, so they flush alike.
+     */
+    protected static boolean shouldFlush(UnboundTableWriter writer, FlushPolicy flushPolicy, long lastFlushTimestamp) {
+        if (writer.getBatchMsgCount() == 0)
+            return false;
+        if (writer.isReplaying())
+            return writer.isReplayBatchComplete();
+
+        return writer.getBatchMsgCount() >= flushPolicy.getMessageCount() ||
+                TimeKeeper.currentTime >= lastFlushTimestamp + flushPolicy.getTimeoutMs();
+    }
+
+    /**
+     * Creates flush policy for a single table writer.
+     */
+    protected FlushPolicy createFlushPolicy() {
+        return adaptiveFlush ?
+                new AdaptiveFlushPolicy(flushMessageCount, flushTimeoutMs, minFlushMessageCount, targetBatchBytes, targetFlushLatencyMs) :
+                new FlushPolicy(flushMessageCount, flushTimeoutMs);
     }
 
     public abstract void stop();
@@ -75,7 +493,7 @@ public abstract class Replicator implements Runnable {
         final String maxTimestampAlias = "maxTimestamp";
         String selectQuery = String.format("SELECT min(%s) as %s, max(%s) AS %s FROM %s",
                 SchemaProcessor.TIMESTAMP_COLUMN_NAME, minTimestampAlias, SchemaProcessor.TIMESTAMP_COLUMN_NAME, maxTimestampAlias,
-                clickhouseTable.getTableIdentity().toString());
+                getReadTable(clickhouseTable));
         LOG.debug()
                 .append(selectQuery)
                 .commit();
@@ -104,7 +522,7 @@ public abstract class Replicator implements Runnable {
     protected Long getMaxTimestamp(TableDeclaration clickhouseTable) {
         final String maxTimestampAlias = "maxTimestamp";
         String selectQuery = String.format("SELECT max(%s) AS %s FROM %s",
-                SchemaProcessor.TIMESTAMP_COLUMN_NAME, maxTimestampAlias, clickhouseTable.getTableIdentity().toString());
+                SchemaProcessor.TIMESTAMP_COLUMN_NAME, maxTimestampAlias, getReadTable(clickhouseTable));
         LOG.debug()
                 .append(selectQuery)
                 .commit();
@@ -119,10 +537,48 @@ public abstract class Replicator implements Runnable {
         });
     }
 
+    /**
+     * Returns max timestamp of rows matching SQL {@code filter}.
+     */
+    protected Long getMaxTimestamp(TableDeclaration clickhouseTable, String filter) {
+        final String maxTimestampAlias = "maxTimestamp";
+        String selectQuery = String.format("SELECT max(%s) AS %s, count() AS matched FROM %s WHERE %s",
+                SchemaProcessor.TIMESTAMP_COLUMN_NAME, maxTimestampAlias, getReadTable(clickhouseTable), filter);
+        LOG.debug()
+                .append(selectQuery)
+                .commit();
+        return clickhouseClient.getJdbcTemplate().query(selectQuery, rs -> {
+            if (rs.next()) {
+                // max() of empty set is 0 (epoch), so check count of matched rows instead
+                Timestamp maxTimestamp = rs.getLong("matched") == 0 ? null : getTimestamp(rs, maxTimestampAlias);
+                if (maxTimestamp == null)
+                    return Long.MIN_VALUE;
+                return maxTimestamp.getTime();
+            }
+            return Long.MIN_VALUE;
+        });
+    }
+
     protected long findLastTimestamp(Collection<TableDeclaration> clickhouseTables) {
         return clickhouseTables.stream().mapToLong(this::getMaxTimestamp).max().orElse(Long.MIN_VALUE);
     }
 
+    protected long findLastTimestamp(Collection<TableDeclaration> clickhouseTables, String filter) {
+        return clickhouseTables.stream().mapToLong(table -> getMaxTimestamp(table, filter)).max().orElse(Long.MIN_VALUE);
+    }
+
+    protected String timeRangeFilter(long from, long to) {
+        return String.format("%s >= toDateTime64('%s',9) AND %s < toDateTime64('%s',9)",
+                SchemaProcessor.TIMESTAMP_COLUMN_NAME, formatToDateTime3(from),
+                SchemaProcessor.TIMESTAMP_COLUMN_NAME, formatToDateTime3(to));
+    }
+
+    protected String symbolsFilter(Collection<String> symbols) {
+        return symbols.stream()
+                .map(symbol -> "'" + symbol.replace("\\", "\\\\").replace("'", "\\'") + "'")
+                .collect(Collectors.joining(", ", SchemaProcessor.INSTRUMENT_COLUMN_NAME + " IN (", ")"));
+    }
+
     protected String formatToDateTime3(long timestamp) {
         return DATE_TIME_FORMATTER.format(Instant.ofEpochMilli(timestamp));
     }
@@ -141,6 +597,24 @@ public abstract class Replicator implements Runnable {
     }
 
     protected void truncateData(Collection<TableDeclaration> clickhouseTables, long timestamp) {
+        truncateData(clickhouseTables, timestamp, null);
+    }
+
+    /**
+     * Deletes rows with the given timestamp, optionally limited to rows matching SQL {@code filter}.
+     */
+    protected void truncateData(Collection<TableDeclaration> clickhouseTables, long timestamp, String filter) {
+        deleteData(clickhouseTables, timestamp, "=", filter);
+    }
+
+    /**
+     * Deletes rows with the given or later timestamp, optionally limited to rows matching SQL {@code filter}.
+     */
+    protected void truncateDataFrom(Collection<TableDeclaration> clickhouseTables, long timestamp, String filter) {
+        deleteData(clickhouseTables, timestamp, ">=", filter);
+    }
+
+    private void deleteData(Collection<TableDeclaration> clickhouseTables, long timestamp, String operator, String filter) {
         if (timestamp != Long.MIN_VALUE){
             for (TableDeclaration clickhouseTable : clickhouseTables) {
                 LOG.info()
@@ -151,13 +625,16 @@ public abstract class Replicator implements Runnable {
                         .append(formatToDateTime3(timestamp))
                         .commit();
 
-                String deleteTailQuery = String.format("ALTER TABLE %s DELETE WHERE %s = toDateTime64('%s',9)",
-                        clickhouseTable.getTableIdentity().toString(), SchemaProcessor.TIMESTAMP_COLUMN_NAME, formatToDateTime3(timestamp));
+                String deleteTailQuery = String.format("ALTER TABLE %s DELETE WHERE %s %s toDateTime64('%s',9)",
+                        getAlterTable(clickhouseTable), SchemaProcessor.TIMESTAMP_COLUMN_NAME, operator, formatToDateTime3(timestamp));
+                if (filter != null)
+                    deleteTailQuery += " AND " + filter;
                 LOG.debug()
                         .append(deleteTailQuery)
                         .commit();
 
-                clickhouseClient.getJdbcTemplate().execute(deleteTailQuery);
+                for (ClickhouseClient client : getTargetClients())
+                    client.getJdbcTemplate().execute(deleteTailQuery);
             }
         }
     }
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.clickhouse.client.ClickHouseException;
+import com.clickhouse.client.ClickHouseRequest;
+import com.clickhouse.client.ClickHouseResponse;
+import com.clickhouse.data.ClickHouseFormat;
+import com.clickhouse.jdbc.ClickHouseStatement;
+import com.epam.deltix.clickhouse.models.TableIdentity;
+import com.epam.deltix.clickhouse.schema.ColumnDeclaration;
+import com.epam.deltix.clickhouse.schema.types.ArraySqlType;
+import com.epam.deltix.clickhouse.schema.types.NestedDataType;
+import com.epam.deltix.clickhouse.schema.types.ObjectDataType;
+import com.epam.deltix.clickhouse.schema.types.SqlDataType;
+import com.epam.deltix.clickhouse.util.SqlQueryHelper;
+import com.epam.deltix.clickhouse.writer.RowBinaryBuffer;
+import com.epam.deltix.clickhouse.writer.RowBinaryColumn;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link InsertBatch} which encodes rows into reusable off-heap RowBinary buffer and sends the whole batch
+ * as a single {@code INSERT ... FORMAT RowBinary} request, bypassing JDBC parameter binding.
+ * Connection is taken from the data source only while the batch is sent.
+ */
+public class RowBinaryInsertBatch implements InsertBatch {
+
+    private final DataSource dataSource;
+    private final String insertIntoQuery;
+    private final RowBinaryColumn[] columns;
+
+    // values of the current row in the order they were set, columns may be set in any order
+    private final RowBinaryBuffer row = new RowBinaryBuffer();
+    private final int[] offsets;
+    private final int[] lengths;
+
+    private final RowBinaryBuffer batch = new RowBinaryBuffer();
+    private int rowCount;
+    private final Map<String, String> settings = new HashMap<>();
+
+    /**
+     * @param dataSource data source of the batch or null for batch which only encodes rows to be appended to another one
+     */
+    public RowBinaryInsertBatch(DataSource dataSource, TableIdentity tableIdentity, List<ColumnDeclarationEx> insertColumns) {
+        this.insertIntoQuery = SqlQueryHelper.getInsertIntoQuery(tableIdentity, insertColumns, ClickHouseFormat.RowBinary.name());
+        this.dataSource = dataSource;
+
+        List<SqlDataType> types = getInsertTypes(insertColumns);
+        columns = new RowBinaryColumn[types.size()];
+        for (int i = 0; i < columns.length; i++)
+            columns[i] = new RowBinaryColumn(types.get(i));
+
+        offsets = new int[columns.length];
+        lengths = new int[columns.length];
+        Arrays.fill(offsets, -1);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getSize() {
+        return batch.size();
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) {
+        RowBinaryColumn column = begin(parameterIndex);
+        column.writeNull(row);
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setByte(int parameterIndex, byte value) {
+        setLong(parameterIndex, value);
+    }
+
+    @Override
+    public void setShort(int parameterIndex, short value) {
+        setLong(parameterIndex, value);
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int value) {
+        setLong(parameterIndex, value);
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long value) {
+        RowBinaryColumn column = begin(parameterIndex);
+        column.writeLong(row, value);
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setFloat(int parameterIndex, float value) {
+        setDouble(parameterIndex, value);
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double value) {
+        RowBinaryColumn column = begin(parameterIndex);
+        column.writeDouble(row, value);
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setBigDecimal(int parameterIndex, BigDecimal value) {
+        RowBinaryColumn column = begin(parameterIndex);
+        column.writeDecimal(row, value);
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setDecimal64(int parameterIndex, long value) {
+        RowBinaryColumn column = begin(parameterIndex);
+        column.writeDecimal64(row, value);
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean value) {
+        RowBinaryColumn column = begin(parameterIndex);
+        column.writeBoolean(row, value);
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setString(int parameterIndex, CharSequence value) {
+        RowBinaryColumn column = begin(parameterIndex);
+        column.writeString(row, value);
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] value) {
+        RowBinaryColumn column = begin(parameterIndex);
+        column.writeBytes(row, value, 0, value.length);
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, long epochMillis) {
+        RowBinaryColumn column = begin(parameterIndex);
+        column.writeTimestamp(row, epochMillis);
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setDate(int parameterIndex, long epochMillis) {
+        setTimestamp(parameterIndex, epochMillis);
+    }
+
+    @Override
+    public void setArray(int parameterIndex, String elementTypeName, Object[] values) {
+        RowBinaryColumn column = begin(parameterIndex);
+        column.writeArray(row, values);
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setArray(int parameterIndex, ArrayBuffer values) {
+        RowBinaryColumn column = begin(parameterIndex);
+        RowBinaryColumn elementColumn = column.beginArray(row, values.size());
+        for (int i = 0; i < values.size(); i++) {
+            if (values.isNull(i)) {
+                elementColumn.writeNull(row);
+                continue;
+            }
+
+            switch (values.getKind()) {
+                case BOOLEAN:
+                    elementColumn.writeBoolean(row, values.getLong(i) != 0);
+                    break;
+                case FLOAT32:
+                case FLOAT64:
+                    elementColumn.writeDouble(row, values.getDouble(i));
+                    break;
+                case DECIMAL64:
+                    long decimal64 = values.getLong(i);
+                    if (!EncoderUtil.isSpecialDecimal64(decimal64)) {
+                        elementColumn.writeDecimal64(row, decimal64);
+                    } else {
+                        BigDecimal value = EncoderUtil.getSpecialDecimal64Value(decimal64);
+                        if (value == null)
+                            elementColumn.writeNull(row);
+                        else
+                            elementColumn.writeDecimal(row, value);
+                    }
+                    break;
+                case OBJECT:
+                    elementColumn.writeObject(row, values.getObject(i));
+                    break;
+                default:
+                    elementColumn.writeLong(row, values.getLong(i));
+            }
+        }
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object value) {
+        RowBinaryColumn column = begin(parameterIndex);
+        column.writeObject(row, value);
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setDefault(int parameterIndex, Object defaultValue) {
+        RowBinaryColumn column = begin(parameterIndex);
+        column.writeDefault(row);
+        end(parameterIndex);
+    }
+
+    @Override
+    public void setDefault(int parameterIndex, Object defaultValue, int sqlType) {
+        setDefault(parameterIndex, defaultValue);
+    }
+
+    @Override
+    public void addBatch() {
+        for (int i = 0; i < columns.length; i++) {
+            if (offsets[i] >= 0)
+                batch.writeBytes(row, offsets[i], lengths[i]);
+            else
+                columns[i].writeDefault(batch);
+        }
+
+        row.clear();
+        Arrays.fill(offsets, -1);
+        rowCount++;
+    }
+
+    /**
+     * Moves encoded rows of the given batch to the end of this batch.
+     */
+    public void append(RowBinaryInsertBatch rows) {
+        batch.writeBytes(rows.batch, 0, rows.batch.size());
+        rowCount += rows.rowCount;
+
+        rows.batch.clear();
+        rows.rowCount = 0;
+    }
+
+    /**
+     * Writes encoded rows in RowBinary format, the batch is not changed.
+     */
+    void writeTo(OutputStream out) throws IOException {
+        batch.writeTo(out);
+    }
+
+    @Override
+    public void setSetting(String name, String value) {
+        if (value != null)
+            settings.put(name, value);
+        else
+            settings.remove(name);
+    }
+
+    @Override
+    public void executeBatch() throws SQLException {
+        if (rowCount == 0)
+            return;
+        if (dataSource == null)
+            throw new UnsupportedOperationException("Batch without data source cannot be executed.");
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            ClickHouseRequest.Mutation request = statement.unwrap(ClickHouseStatement.class).write();
+            for (Map.Entry<String, String> setting : settings.entrySet())
+                request.set(setting.getKey(), setting.getValue());
+
+            try (ClickHouseResponse response = request
+                    .query(insertIntoQuery)
+                    .format(ClickHouseFormat.RowBinary)
+                    .data(batch::writeTo)
+                    .executeAndWait()) {
+                // response is closed to release connection resources
+            }
+        } catch (ClickHouseException e) {
+            throw new SQLException(e.getMessage(), e);
+        } finally {
+            batch.clear();
+            rowCount = 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        // connection is not kept between batches
+    }
+
+    private RowBinaryColumn begin(int parameterIndex) {
+        offsets[parameterIndex - 1] = row.size();
+        return columns[parameterIndex - 1];
+    }
+
+    private void end(int parameterIndex) {
+        lengths[parameterIndex - 1] = row.size() - offsets[parameterIndex - 1];
+    }
+
+    /**
+     * Returns types of insert columns in the same order as statement indices assigned by
+     * {@link com.epam.deltix.timebase.connector.clickhouse.util.ClickhouseUtil#setStatementIndex(List)}.
+     */
+    private static List<SqlDataType> getInsertTypes(List<ColumnDeclarationEx> insertColumns) {
+        List<SqlDataType> result = new ArrayList<>();
+        for (ColumnDeclarationEx column : insertColumns) {
+            SqlDataType dataType = column.getDbDataType();
+            if (dataType instanceof NestedDataType) {
+                for (ColumnDeclaration nestedColumn : ((NestedDataType) dataType).getColumns()) {
+                    SqlDataType nestedType = nestedColumn.getDbDataType();
+                    if (nestedType instanceof ObjectDataType) {
+                        for (ColumnDeclaration objectColumn : ((ObjectDataType) nestedType).getColumns())
+                            result.add(new ArraySqlType(objectColumn.getDbDataType()));
+                    } else {
+                        result.add(new ArraySqlType(nestedType));
+                    }
+                }
+            } else {
+                result.add(dataType);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.qsrv.hf.pub.codec.UnboundDecoder;
+import com.epam.deltix.qsrv.hf.pub.md.*;
+
+import java.sql.SQLException;
+
+/**
+ * Encoder of a scalar TimeBase field, resolved once per field data type.
+ */
+public enum ScalarEncoder {
+    INT8(EncoderUtil.ENCODE_INT8_NAME, EncoderUtil::encodeInt8),
+    INT16(EncoderUtil.ENCODE_INT16_NAME, EncoderUtil::encodeInt16),
+    INT32(EncoderUtil.ENCODE_INT32_NAME, EncoderUtil::encodeInt32),
+    INT64(EncoderUtil.ENCODE_INT64_NAME, EncoderUtil::encodeInt64),
+    FLOAT32(EncoderUtil.ENCODE_FLOAT32_NAME, EncoderUtil::encodeFloat32),
+    FLOAT64(EncoderUtil.ENCODE_FLOAT64_NAME, EncoderUtil::encodeFloat64),
+    DECIMAL64(EncoderUtil.ENCODE_DECIMAL64_NAME, EncoderUtil::encodeDecimal64),
+    TIMESTAMP(EncoderUtil.ENCODE_TIMESTAMP_NAME, EncoderUtil::encodeTimestamp),
+    TIME_OF_DAY(EncoderUtil.ENCODE_TIME_OF_DAY_NAME, EncoderUtil::encodeTimeOfDay),
+    STRING(EncoderUtil.ENCODE_STRING_NAME, EncoderUtil::encodeString),
+    BOOLEAN(EncoderUtil.ENCODE_BOOLEAN_NAME, EncoderUtil::encodeBoolean),
+    BINARY(EncoderUtil.ENCODE_BINARY_NAME, EncoderUtil::encodeBinary);
+
+    private final String methodName;
+    private final Encoder encoder;
+
+    ScalarEncoder(String methodName, Encoder encoder) {
+        this.methodName = methodName;
+        this.encoder = encoder;
+    }
+
+    /**
+     * @return name of {@link EncoderUtil} method with {@link EncoderUtil#ENCODE_DESC} descriptor
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public void encode(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException {
+        encoder.encode(decoder, statement, index);
+    }
+
+    /**
+     * @return encoder for the data type or {@code null} for arrays and objects
+     */
+    public static ScalarEncoder forType(DataType dataType) {
+        if (dataType instanceof IntegerDataType) {
+            switch (((IntegerDataType) dataType).getNativeTypeSize()) {
+                case 1:
+                    return INT8;
+                case 2:
+                    return INT16;
+                case 4:
+                    return INT32;
+                default:
+                    return INT64;
+            }
+        } else if (dataType instanceof FloatDataType) {
+            switch (((FloatDataType) dataType).getScale()) {
+                case FloatDataType.FIXED_FLOAT:
+                    return FLOAT32;
+                case FloatDataType.SCALE_DECIMAL64:
+                    return DECIMAL64;
+                default:
+                    return FLOAT64;
+            }
+        } else if (dataType instanceof DateTimeDataType) {
+            return TIMESTAMP;
+        } else if (dataType instanceof TimeOfDayDataType) {
+            return TIME_OF_DAY;
+        } else if (dataType instanceof VarcharDataType || dataType instanceof EnumDataType || dataType instanceof CharDataType) {
+            // @PH: char is written as string, bytes are formatted by the CH-jdbc driver in hexadecimal format that are not human-readable
+            return STRING;
+        } else if (dataType instanceof BooleanDataType) {
+            return BOOLEAN;
+        } else if (dataType instanceof BinaryDataType) {
+            return BINARY;
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface Encoder {
+        void encode(UnboundDecoder decoder, InsertBatch statement, int index) throws SQLException;
+    }
+}
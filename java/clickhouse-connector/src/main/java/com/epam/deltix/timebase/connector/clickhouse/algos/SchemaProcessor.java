@@ -23,10 +23,14 @@ import com.epam.deltix.qsrv.hf.pub.md.*;
 import com.epam.deltix.qsrv.hf.pub.md.DateTimeDataType;
 import com.epam.deltix.clickhouse.ClickhouseClient;
 import com.epam.deltix.clickhouse.models.ClickhouseTableIdentity;
+import com.epam.deltix.clickhouse.models.TableIdentity;
 import com.epam.deltix.clickhouse.schema.ColumnDeclaration;
+import com.epam.deltix.clickhouse.schema.IndexDeclaration;
+import com.epam.deltix.clickhouse.schema.ProjectionDeclaration;
 import com.epam.deltix.clickhouse.schema.TableDeclaration;
 import com.epam.deltix.clickhouse.schema.engines.Engine;
 import com.epam.deltix.clickhouse.schema.engines.MergeTreeEngine;
+import com.epam.deltix.clickhouse.schema.engines.ReplicatedMergeTreeEngine;
 import com.epam.deltix.clickhouse.util.SqlQueryHelper;
 import com.epam.deltix.dfp.Decimal64Utils;
 import com.epam.deltix.gflog.api.Log;
@@ -37,6 +41,7 @@ import com.epam.deltix.qsrv.hf.pub.codec.RecordLayout;
 import com.epam.deltix.timebase.connector.clickhouse.configuration.properties.ClickhouseProperties;
 import com.epam.deltix.timebase.connector.clickhouse.model.ColumnNamingScheme;
 import com.epam.deltix.timebase.connector.clickhouse.model.SchemaOptions;
+import com.epam.deltix.timebase.connector.clickhouse.model.TableLayout;
 import com.epam.deltix.timebase.connector.clickhouse.model.WriteMode;
 import com.epam.deltix.timebase.connector.clickhouse.util.StringUtil;
 import com.epam.deltix.util.collections.DuplicateKeyException;
@@ -71,6 +76,7 @@ public class SchemaProcessor {
     private final ClickhouseProperties clickhouseProperties;
 
     private final Map<String, List<ColumnDeclarationEx>> columnDeclarations = new HashMap<>();
+    private boolean tableCreated;
 
     public SchemaProcessor(SchemaOptions schemaOptions,
                            ClickhouseClient clickhouseClient,
@@ -510,6 +516,13 @@ public class SchemaProcessor {
     }
 
 
+    /**
+     * Returns true if a target table was created by this processor.
+     */
+    public boolean isTableCreated() {
+        return tableCreated;
+    }
+
     public Map<String, TableDeclaration> prepareClickhouseTable() throws SQLException {
         return adjustTargetSchema();
     }
@@ -526,7 +539,8 @@ public class SchemaProcessor {
                 .append(createIfNotExists)
                 .commit();
 
-        clickhouseClient.createDatabase(clickhouseProperties.getDatabase(), createIfNotExists);
+        String cluster = clickhouseProperties.getDdlCluster();
+        clickhouseClient.createDatabase(clickhouseProperties.getDatabase(), createIfNotExists, cluster);
 
         for (Map.Entry<String, TableDeclaration> entry : clickhouseTableDeclarations.entrySet()) {
             TableDeclaration tableDeclaration = entry.getValue();
@@ -535,27 +549,159 @@ public class SchemaProcessor {
                         .append("Drop table if exists ")
                         .append(tableDeclaration.getTableIdentity().toString())
                         .commit();
-                clickhouseClient.dropTable(tableDeclaration.getTableIdentity(), true);
+                // replicated table releases its Keeper path before it is created again
+                clickhouseClient.dropTable(tableDeclaration.getTableIdentity(), true, cluster, clickhouseProperties.isReplicated());
             }
 
             if (clickhouseClient.existsTable(tableDeclaration.getTableIdentity())) {
                 TableDeclaration actualTable = clickhouseClient.describeTable(tableDeclaration.getTableIdentity());
                 clickhouseTableDeclarations.replace(entry.getKey(), mergeTableDeclaration(tableDeclaration, actualTable));
             } else {
-                Engine engine;
-                if (schemaOptions.isIncludePartitionColumn()) {
-                    engine = new MergeTreeEngine(tableDeclaration.getColumns().get(0), tableDeclaration.getColumns().subList(1, 3));
-                } else {
-                    engine = new SimpleMergeTreeEngine(tableDeclaration.getColumns().subList(0, 2));
+                createTable(tableDeclaration, cluster);
+            }
+
+            prepareIndexes(clickhouseTableDeclarations.get(entry.getKey()), cluster);
+        }
+        return clickhouseTableDeclarations;
+    }
+
+    /**
+     * Adjusts target tables to changed TimeBase schema without dropping them: missing tables are created and
+     * columns of new fields are added to existing tables. Types of existing columns are not changed, so changed
+     * field types fail like on replication start.
+     */
+    public Map<String, TableDeclaration> evolveClickhouseTable() throws SQLException {
+        Map<String, TableDeclaration> clickhouseTableDeclarations = timebaseStreamToClickhouseTable();
+        String cluster = clickhouseProperties.getDdlCluster();
+
+        for (Map.Entry<String, TableDeclaration> entry : clickhouseTableDeclarations.entrySet()) {
+            TableDeclaration tableDeclaration = entry.getValue();
+            TableIdentity tableIdentity = tableDeclaration.getTableIdentity();
+            if (clickhouseClient.existsTable(tableIdentity)) {
+                TableDeclaration expectedTable = schemaOptions.getTableLayout().getColumnTypePolicy().apply(tableDeclaration);
+                for (ColumnDeclaration column : getMissingColumns(expectedTable.getColumns(),
+                        clickhouseClient.describeTable(tableIdentity).getColumns())) {
+                    LOG.info()
+                            .append("Add column ")
+                            .append(column.getSqlDefinition())
+                            .append(" to table ")
+                            .append(tableIdentity.toString())
+                            .commit();
+                    clickhouseClient.addColumn(tableIdentity, column, cluster);
                 }
-                LOG.debug().append(SqlQueryHelper.getCreateTableQuery(tableDeclaration, engine, createIfNotExists)).commit();
-                clickhouseClient.createTable(tableDeclaration, engine, createIfNotExists);
+
+                TableDeclaration actualTable = clickhouseClient.describeTable(tableIdentity);
+                clickhouseTableDeclarations.replace(entry.getKey(), mergeTableDeclaration(tableDeclaration, actualTable));
+            } else {
+                createTable(tableDeclaration, cluster);
             }
 
+            prepareIndexes(clickhouseTableDeclarations.get(entry.getKey()), cluster);
         }
         return clickhouseTableDeclarations;
     }
 
+    private void createTable(TableDeclaration tableDeclaration, String cluster) throws SQLException {
+        boolean createIfNotExists = true;
+        Engine engine;
+        if (!schemaOptions.getTableLayout().isDefaultEngine()) {
+            engine = schemaOptions.isIncludePartitionColumn() ?
+                    new CustomMergeTreeEngine(schemaOptions.getTableLayout(), tableDeclaration.getColumns().get(0), tableDeclaration.getColumns().subList(1, 3)) :
+                    new CustomMergeTreeEngine(schemaOptions.getTableLayout(), null, tableDeclaration.getColumns().subList(0, 2));
+        } else if (schemaOptions.isIncludePartitionColumn()) {
+            engine = new MergeTreeEngine(tableDeclaration.getColumns().get(0), tableDeclaration.getColumns().subList(1, 3));
+        } else {
+            engine = new SimpleMergeTreeEngine(tableDeclaration.getColumns().subList(0, 2));
+        }
+        if (clickhouseProperties.isReplicated())
+            engine = new ReplicatedMergeTreeEngine(engine, clickhouseProperties.getZooKeeperPath(), clickhouseProperties.getReplicaName());
+        // storage types apply to created table only, written values stay the same
+        TableDeclaration createdTable = schemaOptions.getTableLayout().getColumnTypePolicy().apply(tableDeclaration);
+        LOG.debug().append(SqlQueryHelper.getCreateTableQuery(createdTable, engine, createIfNotExists, cluster)).commit();
+        clickhouseClient.createTable(createdTable, engine, createIfNotExists, cluster);
+        tableCreated = true;
+    }
+
+    /**
+     * Returns flat columns of the expected table which are missing in the actual one, as they are added by
+     * {@code ALTER TABLE ADD COLUMN}.
+     */
+    static List<ColumnDeclaration> getMissingColumns(List<ColumnDeclaration> expectedColumns, List<ColumnDeclaration> actualColumns) {
+        Set<String> actualNames = getFlatColumns(actualColumns, null).stream()
+                .map(ColumnDeclaration::getDbColumnName)
+                .collect(Collectors.toSet());
+        return getFlatColumns(expectedColumns, null).stream()
+                .filter(column -> !actualNames.contains(column.getDbColumnName()))
+                .collect(Collectors.toList());
+    }
+
+    // columns of nested objects are stored as separate columns named by path, see TableSchemaMerger;
+    // each column of Nested is Array column named 'parent.column'
+    private static List<ColumnDeclaration> getFlatColumns(List<ColumnDeclaration> columns, String parentName) {
+        List<ColumnDeclaration> flatColumns = new ArrayList<>();
+        for (ColumnDeclaration column : columns) {
+            String columnName = parentName == null ? column.getDbColumnName() : parentName + COLUMN_NAME_PART_SEPARATOR + column.getDbColumnName();
+            if (column.getDbDataType() instanceof ObjectDataType) {
+                flatColumns.addAll(getFlatColumns(((ObjectDataType) column.getDbDataType()).getColumns(), columnName));
+            } else if (column.getDbDataType() instanceof NestedDataType) {
+                for (ColumnDeclaration nestedColumn : getFlatColumns(((NestedDataType) column.getDbDataType()).getColumns(), null)) {
+                    flatColumns.add(new ColumnDeclaration(columnName + "." + nestedColumn.getDbColumnName(),
+                            new ArraySqlType(nestedColumn.getDbDataType()), nestedColumn.getDefaultExpression(),
+                            nestedColumn.isPartition(), nestedColumn.isIndex(), nestedColumn.getCodec()));
+                }
+            } else {
+                flatColumns.add(new ColumnDeclaration(columnName, column.getDbDataType(), column.getDefaultExpression(),
+                        column.isPartition(), column.isIndex(), column.getCodec()));
+            }
+        }
+        return flatColumns;
+    }
+
+    /**
+     * Adds requested and inferred data skipping indexes and projections missing in the table.
+     * They cover rows inserted later, rows of existing table are covered after MATERIALIZE INDEX/PROJECTION.
+     */
+    private void prepareIndexes(TableDeclaration tableDeclaration, String cluster) throws SQLException {
+        TableLayout layout = schemaOptions.getTableLayout();
+        Map<String, IndexDeclaration> indexes = new LinkedHashMap<>();
+        if (layout.isInferIndexes()) {
+            for (IndexDeclaration index : inferIndexes(tableDeclaration, layout))
+                indexes.put(index.getName(), index);
+        }
+        for (IndexDeclaration index : layout.getIndexes())
+            indexes.put(index.getName(), index);
+
+        for (IndexDeclaration index : indexes.values()) {
+            LOG.debug().append(SqlQueryHelper.getAddIndexQuery(tableDeclaration.getTableIdentity(), index, cluster)).commit();
+            clickhouseClient.addIndex(tableDeclaration.getTableIdentity(), index, cluster);
+        }
+        for (ProjectionDeclaration projection : layout.getProjections()) {
+            LOG.debug().append(SqlQueryHelper.getAddProjectionQuery(tableDeclaration.getTableIdentity(), projection, cluster)).commit();
+            clickhouseClient.addProjection(tableDeclaration.getTableIdentity(), projection, cluster);
+        }
+    }
+
+    /**
+     * Bloom filter on instrument unless it leads sorting key, set index on enum columns.
+     */
+    private static List<IndexDeclaration> inferIndexes(TableDeclaration tableDeclaration, TableLayout layout) {
+        List<IndexDeclaration> indexes = new ArrayList<>();
+        for (ColumnDeclaration column : tableDeclaration.getColumns()) {
+            String name = column.getDbColumnName();
+            SqlDataType type = column.getDbDataType();
+            if (type instanceof NullableDataType)
+                type = ((NullableDataType) type).getNestedType();
+
+            if (INSTRUMENT_COLUMN_NAME.equals(name)) {
+                if (layout.getOrderBy() == null || !layout.getOrderBy().trim().startsWith(INSTRUMENT_COLUMN_NAME))
+                    indexes.add(new IndexDeclaration("idx_" + name, "`" + name + "`", "bloom_filter", 4));
+            } else if (type instanceof Enum8DataType || type instanceof Enum16DataType) {
+                indexes.add(new IndexDeclaration("idx_" + name.replaceAll("\\W+", "_"), "`" + name + "`", "set(0)", 4));
+            }
+        }
+        return indexes;
+    }
+
     private TableDeclaration mergeTableDeclaration(TableDeclaration expectedTable, TableDeclaration actualTable) {
         TableSchemaMerger schemaMerger = new TableSchemaMerger(expectedTable, actualTable);
         if (schemaMerger.mergeSchema()) {
@@ -18,6 +18,7 @@ package com.epam.deltix.timebase.connector.clickhouse.algos;
 
 import com.epam.deltix.clickhouse.ClickhouseClient;
 import com.epam.deltix.clickhouse.schema.TableDeclaration;
+import com.epam.deltix.clickhouse.util.ExecutorsUtil;
 import com.epam.deltix.qsrv.hf.pub.RawMessage;
 import com.epam.deltix.qsrv.hf.pub.codec.CodecFactory;
 import com.epam.deltix.qsrv.hf.pub.codec.UnboundDecoder;
@@ -25,6 +26,7 @@ import com.epam.deltix.qsrv.hf.pub.md.NamedDescriptor;
 import com.epam.deltix.qsrv.hf.pub.md.RecordClassDescriptor;
 import com.epam.deltix.qsrv.hf.pub.md.RecordClassSet;
 import com.epam.deltix.qsrv.hf.tickdb.pub.*;
+import com.epam.deltix.timebase.messages.IdentityKey;
 import com.epam.deltix.timebase.connector.clickhouse.configuration.properties.ClickhouseProperties;
 import com.epam.deltix.timebase.connector.clickhouse.model.SchemaOptions;
 import com.epam.deltix.timebase.connector.clickhouse.model.StreamRequest;
@@ -36,6 +38,17 @@ import com.epam.deltix.util.time.TimeKeeper;
 
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -44,9 +57,11 @@ public class StreamReplicator extends Replicator {
 
     private final StreamRequest request;
     private volatile boolean cancel = false;
-    private long lastFlushTimestamp = 0;
-    private UnboundTableWriter tableWriter = null;
-    private final Object unblockingCursorLock = new Object();
+    private final AtomicLong replicatedCount = new AtomicLong();
+    // shards running on the scheduler
+    private final List<Shard> scheduledShards = new CopyOnWriteArrayList<>();
+    // schema of live shards, replaced when stream descriptors change
+    private volatile LiveSchema liveSchema;
 
 
     public StreamReplicator(StreamRequest streamRequest,
@@ -55,15 +70,15 @@ public class StreamReplicator extends Replicator {
                             ClickhouseProperties clickhouseProperties,
                             int flushMessageCount,
                             long flushTimeoutMs,
+                            int flushBufferCount,
                             Consumer<Replicator> onStopped) {
-        super(tickDb, clickhouseClient, clickhouseProperties, onStopped, flushMessageCount, flushTimeoutMs);
+        super(tickDb, clickhouseClient, clickhouseProperties, onStopped, flushMessageCount, flushTimeoutMs, flushBufferCount);
         this.request = streamRequest;
     }
 
     @Override
     public void run() {
-        long count = 0;
-        int reportThreshold = Math.min(flushMessageCount * 10, 1_000_000);
+        boolean scheduled = false;
         try {
             DXTickStream stream = tickDb.getStream(request.getStream());
 
@@ -76,64 +91,73 @@ public class StreamReplicator extends Replicator {
                     .append(": prepare target table schema.")
                     .commit();
             Map<String, TableDeclaration> clickhouseTables = schemaProcessor.prepareClickhouseTable();
+            prepareShards(schemaOptions, clickhouseTables.values());
+            reportColumnSizes(clickhouseTables.values());
 
-            long from = Long.MIN_VALUE;
-            if (WriteMode.APPEND == request.getWriteMode()) {
-                from = findLastTimestamp(clickhouseTables.values());
-                truncateData(clickhouseTables.values(), from);
+            List<BackfillProgress.Slice> slices = Collections.emptyList();
+            BackfillProgress backfillProgress = null;
+            if (request.getBackfillSlices() > 1) {
+                backfillProgress = new BackfillProgress(clickhouseClient, clickhouseProperties.getDatabase());
+                backfillProgress.prepareTable();
+                if (WriteMode.REWRITE == request.getWriteMode())
+                    backfillProgress.clear(request.getKey());
+                else
+                    slices = backfillProgress.load(request.getKey());
             }
 
-            SelectionOptions selectionOptions = new SelectionOptions(true, true);
+            ReplicationCheckpoint checkpoint = createCheckpoint(request);
+            // checkpoint of created tables is stale, e.g. tables were dropped manually
+            if (checkpoint != null && (WriteMode.REWRITE == request.getWriteMode() || schemaProcessor.isTableCreated()))
+                checkpoint.clear(request.getKey());
 
-            MemoryDataInput in = new MemoryDataInput();
-            RecordClassDescriptor[] descriptors = schemaOptions.getTbSchema().getContentClasses();
-            List<UnboundDecoder> decoders = Arrays.stream(descriptors).map(CodecFactory.COMPILED::createFixedUnboundDecoder).collect(Collectors.toList());
+            prepareDeduplication(checkpoint, clickhouseTables.values());
+            liveSchema = new LiveSchema(schemaOptions, schemaProcessor, clickhouseTables);
 
-            tableWriter = new UnboundTableWriter(request.getKey(), request.getColumnNamingScheme(), clickhouseClient,
-                    clickhouseTables,  schemaProcessor.getColumnDeclarations(), decoders, in/*, 10_000, 5_000*/);
-            if (!request.getIncludePartitionColumn()) {
-                tableWriter.removeFixedColumn(SchemaProcessor.PARTITION_COLUMN_NAME);
-            }
-            try (TickCursor cursor = stream.select(from, selectionOptions)) {
-                // making live cursor non-blocking
-                cursor.setAvailabilityListener(this::notifyDataAvailable);
+            int shardCount = Math.max(1, request.getSymbolShards());
+            boolean restorePositions = false;
+            long from = Long.MIN_VALUE;
+            if (slices.stream().anyMatch(slice -> !slice.isCompleted())) {
+                // resume previous backfill, each slice restores own position
+                from = slices.get(slices.size() - 1).getTo();
+            } else {
+                // backfill is done only once, later restarts continue live tail
+                boolean startBackfill = backfillProgress != null && slices.isEmpty();
 
-                do {
-                    if (cancel)
-                        break;
+                // shards progress independently, so each shard restores own position unless backfill starts now
+                restorePositions = WriteMode.APPEND == request.getWriteMode() && !startBackfill &&
+                        (shardCount > 1 || checkpoint != null);
+                if (WriteMode.APPEND == request.getWriteMode() && !restorePositions) {
+                    from = findLastTimestamp(clickhouseTables.values());
+                    truncateData(clickhouseTables.values(), from);
+                }
 
-                    if (tableWriter.getBatchMsgCount() > 0) { // we have messages in queue
-                        if (tableWriter.getBatchMsgCount() >= flushMessageCount || // batch size reached
-                                TimeKeeper.currentTime >= lastFlushTimestamp + flushTimeoutMs) // flush interval reached
-                            flush();
+                if (startBackfill) {
+                    long[] range = stream.getTimeRange();
+                    if (range != null) {
+                        slices = BackfillProgress.split(Math.max(from, range[0]), range[1] + 1, request.getBackfillSlices());
+                        backfillProgress.save(request.getKey(), slices);
+                        if (!slices.isEmpty())
+                            from = slices.get(slices.size() - 1).getTo();
                     }
+                }
+            }
 
-                    synchronized (unblockingCursorLock) {
-                        try {
-                            if (cursor.next())
-                                tableWriter.send((RawMessage) cursor.getMessage(), cursor);
-                            else
-                                break;
-                            count++;
-                        } catch (UnavailableResourceException e) {
-                            try {
-                                long timeout = flushTimeoutMs - (TimeKeeper.currentTime - lastFlushTimestamp);
-                                if (timeout > 0) {
-                                    unblockingCursorLock.wait(timeout);
-                                } else {
-                                    lastFlushTimestamp = TimeKeeper.currentTime;
-                                }
-                            } catch (InterruptedException ie) {
-                                // continue
-                            }
-                        }
+            backfill(stream, schemaOptions, schemaProcessor, clickhouseTables, backfillProgress, slices);
 
-                        if (count % reportThreshold == 0 && count > 0)
-                            LOG.info().append("Replication ").append(request.getKey())
-                                    .append(": write ").append(count).append(" messages.").commit();
-                    }
-                } while (true);
+            List<Shard> shards = createShards(stream, clickhouseTables, checkpoint, shardCount, from, restorePositions);
+            if (isScheduled()) {
+                // replication is stopped by the last finished shard
+                scheduled = true;
+                scheduleShards(stream, schemaOptions, schemaProcessor, clickhouseTables, shards);
+                return;
+            }
+
+            if (shards.size() == 1) {
+                shards.get(0).replicate(stream, schemaOptions, schemaProcessor, clickhouseTables);
+            } else {
+                runShards(stream, schemaOptions, schemaProcessor, clickhouseTables, shards);
             }
+
             LOG.info()
                     .append("Replication ")
                     .append(request.getKey())
@@ -149,34 +173,293 @@ public class StreamReplicator extends Replicator {
                     .append(e)
                     .commit();
         } finally {
-            if (tableWriter != null)
-                tableWriter.close();
-            onStopped.accept(this);
-            LOG.info()
-                    .append("Replication ")
-                    .append(request.getKey())
-                    .append(": stopped. Replicated ")
-                    .append(count).append(" messages.")
-                    .commit();
+            if (!scheduled)
+                finished();
         }
     }
 
     @Override
-    public void stop() {
-        cancel = true;
+    public boolean isScheduled() {
+        return scheduler != null && ringBufferSize == 0;
+    }
+
+    private void finished() {
+        notifyStopped();
+        LOG.info()
+                .append("Replication ")
+                .append(request.getKey())
+                .append(": stopped. Replicated ")
+                .append(replicatedCount.get()).append(" messages.")
+                .commit();
+    }
+
+    /**
+     * Hands shards over to the scheduler, replication is stopped when the last shard is finished.
+     */
+    private void scheduleShards(DXTickStream stream, SchemaOptions schemaOptions, SchemaProcessor schemaProcessor,
+                                Map<String, TableDeclaration> clickhouseTables, List<Shard> shards) throws SQLException {
+        AtomicInteger running = new AtomicInteger(shards.size());
+        Consumer<Throwable> onFinished = error -> {
+            if (error != null) {
+                cancel = true;
+                scheduledShards.forEach(Shard::wake);
+                LOG.error()
+                        .append("Replication ")
+                        .append(request.getKey())
+                        .append(": unhandled exception during replication process. Stopping.")
+                        .append(error)
+                        .commit();
+            }
+
+            if (running.decrementAndGet() == 0) {
+                LOG.info()
+                        .append("Replication ")
+                        .append(request.getKey())
+                        .append(": read process finished. Stopping.")
+                        .commit();
+                finished();
+            }
+        };
+
+        int started = 0;
+        try {
+            for (Shard shard : shards) {
+                shard.schedule(stream, schemaOptions, schemaProcessor, clickhouseTables, onFinished);
+                started++;
+            }
+        } catch (SQLException | RuntimeException e) {
+            cancel = true;
+            scheduledShards.forEach(Shard::wake);
+            if (running.addAndGet(started - shards.size()) == 0)
+                finished();
+            throw e;
+        }
+    }
+
+    /**
+     * Splits stream instruments into shards by symbol hash. Single shard subscribes to all instruments.
+     */
+    private List<Shard> createShards(DXTickStream stream, Map<String, TableDeclaration> clickhouseTables, ReplicationCheckpoint checkpoint,
+                                     int shardCount, long from, boolean restorePositions) {
+        ReplicationCheckpoint.Position start = new ReplicationCheckpoint.Position(from, 0);
+        if (shardCount == 1) {
+            if (restorePositions)
+                start = restorePosition(checkpoint, request.getKey(), "", clickhouseTables.values(), null);
+            return Collections.singletonList(new Shard(0, 1, null, start, checkpoint));
+        }
+
+        List<Set<String>> symbols = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++)
+            symbols.add(new HashSet<>());
+        for (IdentityKey entity : stream.listEntities()) {
+            String symbol = entity.getSymbol().toString();
+            symbols.get(shardOf(symbol, shardCount)).add(symbol);
+        }
+
+        List<Shard> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            ReplicationCheckpoint.Position shardStart = start;
+            if (restorePositions && !symbols.get(i).isEmpty())
+                shardStart = restorePosition(checkpoint, request.getKey(), i + "/" + shardCount, clickhouseTables.values(),
+                        symbolsFilter(symbols.get(i)));
+            shards.add(new Shard(i, shardCount, symbols.get(i), shardStart, checkpoint));
+        }
+        return shards;
+    }
+
+    private void runShards(DXTickStream stream, SchemaOptions schemaOptions, SchemaProcessor schemaProcessor,
+                           Map<String, TableDeclaration> clickhouseTables, List<Shard> shards) throws Exception {
+        LOG.info()
+                .append("Replication ")
+                .append(request.getKey())
+                .append(": replicate ")
+                .append(shards.size())
+                .append(" symbol shards.")
+                .commit();
+
+        ExecutorService executor = Executors.newFixedThreadPool(shards.size(),
+                new ThreadFactory() {
+                    private final AtomicInteger index = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, String.format("Replication '%s' shard %s", request.getKey(), index.getAndIncrement()));
+                    }
+                });
+        try {
+            List<Future<?>> futures = new ArrayList<>(shards.size());
+            for (Shard shard : shards) {
+                futures.add(executor.submit(() -> {
+                    shard.replicate(stream, schemaOptions, schemaProcessor, clickhouseTables);
+                    return null;
+                }));
+            }
+
+            awaitAll(futures);
+        } finally {
+            ExecutorsUtil.shutdownAndAwaitTermination(executor, ExecutorsUtil.DEFAULT_SHUTDOWN_TIMEOUT_MS);
+        }
+    }
+
+    private static int shardOf(String symbol, int shardCount) {
+        return Math.floorMod(symbol.hashCode(), shardCount);
     }
 
-    private void notifyDataAvailable() {
-        synchronized (unblockingCursorLock) {
-            unblockingCursorLock.notify();
+    // first failure stops the whole replication
+    private void awaitAll(List<Future<?>> futures) throws Exception {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                cancel = true;
+                if (e.getCause() instanceof Exception)
+                    throw (Exception) e.getCause();
+                throw e;
+            }
         }
     }
 
-    private void flush() throws SQLException {
-        tableWriter.flush();
-        lastFlushTimestamp = TimeKeeper.currentTime;
+    private UnboundTableWriter createTableWriter(SchemaOptions schemaOptions, SchemaProcessor schemaProcessor, Map<String, TableDeclaration> clickhouseTables) throws SQLException {
+        MemoryDataInput in = new MemoryDataInput();
+
+        UnboundTableWriter writer = new UnboundTableWriter(request.getKey(), request.getColumnNamingScheme(), request.getInsertFormat(), clickhouseClient,
+                clickhouseTables,  schemaProcessor.getColumnDeclarations(), createDecoders(schemaOptions), in, flushBufferCount);
+        if (!request.getIncludePartitionColumn()) {
+            writer.removeFixedColumn(SchemaProcessor.PARTITION_COLUMN_NAME);
+        }
+        writer.setFlushPolicy(createFlushPolicy());
+        configureInsertMode(writer, request, clickhouseTables.values());
+        configureEncoding(writer, request);
+        configureRouting(writer, request.getKey());
+        return writer;
+    }
+
+    private static List<UnboundDecoder> createDecoders(SchemaOptions schemaOptions) {
+        RecordClassDescriptor[] descriptors = schemaOptions.getTbSchema().getContentClasses();
+        return Arrays.stream(descriptors).map(CodecFactory.COMPILED::createFixedUnboundDecoder).collect(Collectors.toList());
+    }
+
+    /**
+     * Applies changed descriptors of the stream to target tables, so live shards continue without restart,
+     * see {@link SchemaProcessor#evolveClickhouseTable()}. Schema already changed by another shard is reused.
+     */
+    private synchronized LiveSchema evolveSchema(DXTickStream stream, LiveSchema current, RecordClassDescriptor type) throws SQLException {
+        if (liveSchema.contains(type))
+            return liveSchema;
+
+        SchemaOptions schemaOptions = getSchemaOptions(stream);
+        LiveSchema evolved = new LiveSchema(schemaOptions, new SchemaProcessor(schemaOptions, clickhouseClient, clickhouseProperties), null);
+        if (!evolved.contains(type)) {
+            // message of previous schema version, it is decoded by own layout
+            liveSchema.add(type);
+            return current;
+        }
+
+        LOG.info()
+                .append("Replication ")
+                .append(request.getKey())
+                .append(": schema of stream changed by type ")
+                .append(type.getName())
+                .append(", adjust target tables.")
+                .commit();
+        Map<String, TableDeclaration> clickhouseTables = evolved.schemaProcessor.evolveClickhouseTable();
+        evolveShards(schemaOptions, clickhouseTables.values());
+
+        liveSchema = new LiveSchema(schemaOptions, evolved.schemaProcessor, clickhouseTables);
+        return liveSchema;
     }
 
+    /**
+     * Replicates unfinished history slices in parallel, each slice by own cursor and writer.
+     */
+    private void backfill(DXTickStream stream, SchemaOptions schemaOptions, SchemaProcessor schemaProcessor, Map<String, TableDeclaration> clickhouseTables,
+                          BackfillProgress backfillProgress, List<BackfillProgress.Slice> slices) throws Exception {
+        List<BackfillProgress.Slice> unfinished = slices.stream()
+                .filter(slice -> !slice.isCompleted())
+                .collect(Collectors.toList());
+        if (unfinished.isEmpty())
+            return;
+
+        LOG.info()
+                .append("Replication ")
+                .append(request.getKey())
+                .append(": backfill ")
+                .append(unfinished.size())
+                .append(" of ")
+                .append(slices.size())
+                .append(" slices.")
+                .commit();
+
+        ExecutorService executor = Executors.newFixedThreadPool(unfinished.size(),
+                new ThreadFactory() {
+                    private final AtomicInteger index = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, String.format("Replication '%s' backfill %s", request.getKey(), index.incrementAndGet()));
+                    }
+                });
+        try {
+            List<Future<?>> futures = new ArrayList<>(unfinished.size());
+            for (BackfillProgress.Slice slice : unfinished) {
+                futures.add(executor.submit(() -> {
+                    replicateSlice(stream, schemaOptions, schemaProcessor, clickhouseTables, backfillProgress, slice);
+                    return null;
+                }));
+            }
+
+            // other slices are stopped on failure, their progress is kept
+            awaitAll(futures);
+        } finally {
+            ExecutorsUtil.shutdownAndAwaitTermination(executor, ExecutorsUtil.DEFAULT_SHUTDOWN_TIMEOUT_MS);
+        }
+    }
+
+    private void replicateSlice(DXTickStream stream, SchemaOptions schemaOptions, SchemaProcessor schemaProcessor, Map<String, TableDeclaration> clickhouseTables,
+                                BackfillProgress backfillProgress, BackfillProgress.Slice slice) throws SQLException {
+        long lastTimestamp = findLastTimestamp(clickhouseTables.values(), timeRangeFilter(slice.getFrom(), slice.getTo()));
+        truncateData(clickhouseTables.values(), lastTimestamp);
+        long from = slice.getResumeFrom(lastTimestamp);
+
+        try (UnboundTableWriter writer = createTableWriter(schemaOptions, schemaProcessor, clickhouseTables);
+             TickCursor cursor = stream.select(from, new SelectionOptions(true, false))) {
+            while (!cancel && cursor.next()) {
+                RawMessage message = (RawMessage) cursor.getMessage();
+                if (message.getTimeStampMs() >= slice.getTo())
+                    break;
+
+                writer.send(message, cursor);
+                replicatedCount.incrementAndGet();
+                if (writer.getBatchMsgCount() >= writer.getFlushPolicy().getMessageCount())
+                    writer.flush();
+            }
+
+            if (cancel)
+                return;
+
+            writer.flush();
+            writer.awaitPendingFlushes();
+        }
+
+        backfillProgress.complete(request.getKey(), slice);
+        LOG.info()
+                .append("Replication ")
+                .append(request.getKey())
+                .append(": backfill slice [")
+                .append(formatToDateTime3(slice.getFrom()))
+                .append(", ")
+                .append(formatToDateTime3(slice.getTo()))
+                .append(") completed.")
+                .commit();
+    }
+
+    @Override
+    public void stop() {
+        cancel = true;
+        scheduledShards.forEach(Shard::wake);
+    }
+
+
     private SchemaOptions getSchemaOptions(DXTickStream stream) {
         RecordClassSet classSet = new RecordClassSet(stream.isFixedType() ?
                 new RecordClassDescriptor[]{stream.getFixedType()} :
@@ -195,7 +478,344 @@ public class StreamReplicator extends Replicator {
             }};
         }
 
-        return new SchemaOptions(classSet, mapping, request.getWriteMode(), request.getColumnNamingScheme(), request.getIncludePartitionColumn());
+        return new SchemaOptions(classSet, mapping, request.getWriteMode(), request.getColumnNamingScheme(), request.getIncludePartitionColumn(),
+                request.getTableLayout());
+    }
+
+    /**
+     * Live replication of a subset of stream instruments (all instruments when symbols are not set)
+     * by own cursor and writer.
+     */
+    private class Shard implements ReplicationScheduler.Task {
+        private final int index;
+        private final int shardCount;
+        private final Set<String> symbols;
+        private final long from;
+        private final ReplicationCheckpoint.Position start;
+        private final ReplicationCheckpoint checkpoint;
+        private final Object unblockingCursorLock = new Object();
+        private long lastFlushTimestamp = 0;
+        private long lastEntitiesCheck = 0;
+        private UnboundTableWriter tableWriter = null;
+        // event-driven mode, see schedule
+        private DXTickStream stream;
+        private TickCursor cursor;
+        private FlushPolicy flushPolicy;
+        private ReplicationCheckpoint.ResumeFilter resumeFilter;
+        private long count;
+        private Consumer<Throwable> finishListener;
+        private volatile ReplicationScheduler.Handle handle;
+        private LiveSchema schema;
+        private RecordClassDescriptor lastType;
+
+        Shard(int index, int shardCount, Set<String> symbols, ReplicationCheckpoint.Position start, ReplicationCheckpoint checkpoint) {
+            this.index = index;
+            this.shardCount = shardCount;
+            this.symbols = symbols;
+            this.from = start.getTimestamp();
+            this.start = start;
+            this.checkpoint = checkpoint;
+        }
+
+        String getLane() {
+            return shardCount == 1 ? "" : index + "/" + shardCount;
+        }
+
+        void replicate(DXTickStream stream, SchemaOptions schemaOptions, SchemaProcessor schemaProcessor,
+                       Map<String, TableDeclaration> clickhouseTables) throws SQLException {
+            int reportThreshold = Math.min(flushMessageCount * 10, 1_000_000);
+            long count = 0;
+
+            SelectionOptions selectionOptions = new SelectionOptions(true, true);
+
+            schema = liveSchema;
+            tableWriter = createTableWriter(schemaOptions, schemaProcessor, clickhouseTables);
+            FlushPolicy flushPolicy = tableWriter.getFlushPolicy();
+            attachCheckpoint(tableWriter, checkpoint, request.getKey(), getLane(), start);
+            ReplicationCheckpoint.ResumeFilter resumeFilter = new ReplicationCheckpoint.ResumeFilter(start);
+            try (TickCursor cursor = symbols == null ?
+                    stream.select(from, selectionOptions) :
+                    stream.select(from, selectionOptions, null, symbols.toArray(new CharSequence[0]))) {
+                // making live cursor non-blocking
+                cursor.setAvailabilityListener(this::notifyDataAvailable);
+
+                if (ringBufferSize > 0) {
+                    replicateBuffered(stream, cursor, flushPolicy, resumeFilter, reportThreshold);
+                    return;
+                }
+
+                do {
+                    if (cancel)
+                        break;
+
+                    if (shouldFlush(tableWriter, flushPolicy, lastFlushTimestamp))
+                        flush();
+
+                    if (symbols != null && TimeKeeper.currentTime >= lastEntitiesCheck + flushTimeoutMs)
+                        addNewEntities(stream, cursor);
+
+                    synchronized (unblockingCursorLock) {
+                        try {
+                            if (!cursor.next())
+                                break;
+
+                            RawMessage message = (RawMessage) cursor.getMessage();
+                            if (resumeFilter.skip(message.getTimeStampMs()))
+                                continue;
+
+                            checkSchema(stream, message.type);
+                            tableWriter.send(message, cursor);
+                            count++;
+                            replicatedCount.incrementAndGet();
+                        } catch (UnavailableResourceException e) {
+                            try {
+                                long timeout = flushPolicy.getTimeoutMs() - (TimeKeeper.currentTime - lastFlushTimestamp);
+                                if (timeout > 0) {
+                                    unblockingCursorLock.wait(timeout);
+                                } else {
+                                    lastFlushTimestamp = TimeKeeper.currentTime;
+                                }
+                            } catch (InterruptedException ie) {
+                                // continue
+                            }
+                        }
+
+                        if (count % reportThreshold == 0 && count > 0)
+                            LOG.info().append("Replication ").append(request.getKey())
+                                    .append(shardCount > 1 ? " shard " + index : "")
+                                    .append(": write ").append(count).append(" messages.").commit();
+                    }
+                } while (true);
+            } finally {
+                tableWriter.close();
+            }
+        }
+
+        /**
+         * Starts event-driven replication on the scheduler: shard takes a scheduler thread only when its cursor
+         * has data or its batch has to be flushed.
+         */
+        void schedule(DXTickStream stream, SchemaOptions schemaOptions, SchemaProcessor schemaProcessor,
+                      Map<String, TableDeclaration> clickhouseTables, Consumer<Throwable> onFinished) throws SQLException {
+            this.stream = stream;
+            this.finishListener = onFinished;
+            schema = liveSchema;
+            tableWriter = createTableWriter(schemaOptions, schemaProcessor, clickhouseTables);
+            flushPolicy = tableWriter.getFlushPolicy();
+            attachCheckpoint(tableWriter, checkpoint, request.getKey(), getLane(), start);
+            resumeFilter = new ReplicationCheckpoint.ResumeFilter(start);
+
+            try {
+                SelectionOptions selectionOptions = new SelectionOptions(true, true);
+                cursor = symbols == null ?
+                        stream.select(from, selectionOptions) :
+                        stream.select(from, selectionOptions, null, symbols.toArray(new CharSequence[0]));
+                cursor.setAvailabilityListener(this::wake);
+            } catch (RuntimeException e) {
+                tableWriter.close();
+                throw e;
+            }
+
+            scheduledShards.add(this);
+            handle = scheduler.schedule(this);
+        }
+
+        void wake() {
+            ReplicationScheduler.Handle scheduled = handle;
+            if (scheduled != null)
+                scheduled.wake();
+        }
+
+        @Override
+        public long run() throws SQLException {
+            int reportThreshold = Math.min(flushMessageCount * 10, 1_000_000);
+            // limited number of messages per run, so busy shards do not starve others
+            for (int i = 0; i < flushMessageCount; i++) {
+                if (cancel)
+                    return -1;
+
+                if (shouldFlush(tableWriter, flushPolicy, lastFlushTimestamp))
+                    flush();
+
+                if (symbols != null && TimeKeeper.currentTime >= lastEntitiesCheck + flushTimeoutMs)
+                    addNewEntities(stream, cursor);
+
+                try {
+                    if (!cursor.next())
+                        return -1;
+                } catch (UnavailableResourceException e) {
+                    // woken by availability listener or when the batch has to be flushed
+                    long timeout = flushPolicy.getTimeoutMs() - (TimeKeeper.currentTime - lastFlushTimestamp);
+                    if (timeout > 0)
+                        return timeout;
+
+                    lastFlushTimestamp = TimeKeeper.currentTime;
+                    return flushPolicy.getTimeoutMs();
+                }
+
+                RawMessage message = (RawMessage) cursor.getMessage();
+                if (resumeFilter.skip(message.getTimeStampMs()))
+                    continue;
+
+                checkSchema(stream, message.type);
+                tableWriter.send(message, cursor);
+                count++;
+                replicatedCount.incrementAndGet();
+
+                if (count % reportThreshold == 0)
+                    LOG.info().append("Replication ").append(request.getKey())
+                            .append(shardCount > 1 ? " shard " + index : "")
+                            .append(": write ").append(count).append(" messages.").commit();
+            }
+            return 0;
+        }
+
+        @Override
+        public void onFinished(Throwable error) {
+            scheduledShards.remove(this);
+            try {
+                cursor.close();
+            } finally {
+                tableWriter.close();
+                finishListener.accept(error);
+            }
+        }
+
+        /**
+         * Cursor is read by a separate thread into off-heap ring buffer, messages are encoded and flushed by this thread.
+         */
+        private void replicateBuffered(DXTickStream stream, TickCursor cursor, FlushPolicy flushPolicy,
+                                       ReplicationCheckpoint.ResumeFilter resumeFilter, int reportThreshold) throws SQLException {
+            MessageRingBuffer ringBuffer = new MessageRingBuffer(ringBufferSize);
+            AtomicReference<RuntimeException> readerError = new AtomicReference<>();
+            Thread reader = new Thread(() -> {
+                try {
+                    read(stream, cursor, ringBuffer, resumeFilter);
+                } catch (RuntimeException e) {
+                    readerError.set(e);
+                } finally {
+                    ringBuffer.finish();
+                }
+            }, "replication-" + request.getKey() + (shardCount > 1 ? "-" + index : "") + "-reader");
+            reader.start();
+
+            RawMessage message = new RawMessage();
+            long count = 0;
+            try {
+                while (!cancel) {
+                    if (shouldFlush(tableWriter, flushPolicy, lastFlushTimestamp))
+                        flush();
+
+                    long timeout = flushPolicy.getTimeoutMs() - (TimeKeeper.currentTime - lastFlushTimestamp);
+                    int typeIndex = ringBuffer.poll(message, TimeUnit.MILLISECONDS.toNanos(Math.max(timeout, 1)));
+                    if (typeIndex < 0) {
+                        if (ringBuffer.isDrained())
+                            break;
+                        if (timeout <= 0)
+                            lastFlushTimestamp = TimeKeeper.currentTime;
+                        continue;
+                    }
+
+                    checkSchema(stream, message.type);
+                    tableWriter.send(message, typeIndex);
+                    count++;
+                    replicatedCount.incrementAndGet();
+
+                    if (count % reportThreshold == 0)
+                        LOG.info().append("Replication ").append(request.getKey())
+                                .append(shardCount > 1 ? " shard " + index : "")
+                                .append(": write ").append(count).append(" messages.").commit();
+                }
+            } finally {
+                ringBuffer.finish();
+                notifyDataAvailable();
+                try {
+                    reader.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // mapping is released by GC if the reader is still running
+                if (!reader.isAlive())
+                    ringBuffer.close();
+            }
+
+            if (readerError.get() != null)
+                throw readerError.get();
+        }
+
+        private void read(DXTickStream stream, TickCursor cursor, MessageRingBuffer ringBuffer, ReplicationCheckpoint.ResumeFilter resumeFilter) {
+            while (!cancel && !ringBuffer.isFinished()) {
+                if (symbols != null && TimeKeeper.currentTime >= lastEntitiesCheck + flushTimeoutMs)
+                    addNewEntities(stream, cursor);
+
+                RawMessage message;
+                synchronized (unblockingCursorLock) {
+                    try {
+                        if (!cursor.next())
+                            return;
+
+                        message = (RawMessage) cursor.getMessage();
+                    } catch (UnavailableResourceException e) {
+                        try {
+                            unblockingCursorLock.wait(flushTimeoutMs);
+                        } catch (InterruptedException ie) {
+                            // continue
+                        }
+                        continue;
+                    }
+                }
+
+                if (resumeFilter.skip(message.getTimeStampMs()))
+                    continue;
+
+                // message is copied outside of the lock, so availability listener is not blocked by full buffer
+                if (!ringBuffer.offer(message, cursor.getCurrentTypeIndex()))
+                    return;
+            }
+        }
+
+        // live cursor delivers messages of changed stream schema, target tables and codecs are adjusted in place
+        private void checkSchema(DXTickStream stream, RecordClassDescriptor type) throws SQLException {
+            if (type == lastType)
+                return;
+
+            lastType = type;
+            if (schema.contains(type))
+                return;
+
+            LiveSchema evolved = evolveSchema(stream, schema, type);
+            if (evolved != schema) {
+                schema = evolved;
+                tableWriter.updateSchema(evolved.clickhouseTables, evolved.schemaProcessor.getColumnDeclarations(),
+                        createDecoders(evolved.schemaOptions));
+            }
+        }
+
+        // instruments which appeared in the stream after replication start
+        private void addNewEntities(DXTickStream stream, TickCursor cursor) {
+            lastEntitiesCheck = TimeKeeper.currentTime;
+
+            List<CharSequence> added = new ArrayList<>();
+            for (IdentityKey entity : stream.listEntities()) {
+                String symbol = entity.getSymbol().toString();
+                if (shardOf(symbol, shardCount) == index && symbols.add(symbol))
+                    added.add(symbol);
+            }
+
+            if (!added.isEmpty())
+                cursor.addEntities(added.toArray(new CharSequence[0]));
+        }
+
+        private void notifyDataAvailable() {
+            synchronized (unblockingCursorLock) {
+                unblockingCursorLock.notify();
+            }
+        }
+
+        private void flush() throws SQLException {
+            tableWriter.flush();
+            lastFlushTimestamp = TimeKeeper.currentTime;
+        }
     }
 
     @Override
@@ -217,4 +837,35 @@ public class StreamReplicator extends Replicator {
     public int hashCode() {
         return request.hashCode();
     }
+
+    /**
+     * Target schema of live replication with descriptors it was built from.
+     */
+    private static class LiveSchema {
+        private final SchemaOptions schemaOptions;
+        private final SchemaProcessor schemaProcessor;
+        private final Map<String, TableDeclaration> clickhouseTables;
+        private final Set<String> types = ConcurrentHashMap.newKeySet();
+
+        LiveSchema(SchemaOptions schemaOptions, SchemaProcessor schemaProcessor, Map<String, TableDeclaration> clickhouseTables) {
+            this.schemaOptions = schemaOptions;
+            this.schemaProcessor = schemaProcessor;
+            this.clickhouseTables = clickhouseTables;
+            for (RecordClassDescriptor descriptor : schemaOptions.getTbSchema().getContentClasses())
+                add(descriptor);
+        }
+
+        boolean contains(RecordClassDescriptor type) {
+            return types.contains(getTypeKey(type));
+        }
+
+        void add(RecordClassDescriptor type) {
+            types.add(getTypeKey(type));
+        }
+
+        // guid changes with fields of the class
+        private static String getTypeKey(RecordClassDescriptor type) {
+            return type.getName() + "/" + type.getGuid();
+        }
+    }
 }
\ No newline at end of file
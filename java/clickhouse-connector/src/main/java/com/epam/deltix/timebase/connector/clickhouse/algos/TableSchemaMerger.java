@@ -22,6 +22,7 @@ import com.epam.deltix.clickhouse.schema.types.ObjectDataType;
 import com.epam.deltix.clickhouse.schema.types.SqlDataType;
 import com.epam.deltix.gflog.api.Log;
 import com.epam.deltix.gflog.api.LogFactory;
+import com.epam.deltix.timebase.connector.clickhouse.model.ColumnTypePolicy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -70,7 +71,9 @@ public class TableSchemaMerger {
                 String columnName = parentName == null ? column.getDbColumnName() : parentName + SchemaProcessor.COLUMN_NAME_PART_SEPARATOR + column.getDbColumnName();
                 ColumnDeclaration actualColumn = actualTableColumns.get(columnName);
                 if (actualColumn != null) {
-                    if (actualColumn.getDbDataType().getSqlDefinition().equals(column.getDbDataType().getSqlDefinition())) {
+                    // LowCardinality changes storage only, values are written the same way
+                    if (ColumnTypePolicy.getStorageIndependentDefinition(actualColumn.getDbDataType())
+                            .equals(ColumnTypePolicy.getStorageIndependentDefinition(column.getDbDataType()))) {
                         filterColumns.add(column);
                     } else {
                         String message = String.format("Existing table: '%s' does not match the types for column: '%s'. Expected type: %s",
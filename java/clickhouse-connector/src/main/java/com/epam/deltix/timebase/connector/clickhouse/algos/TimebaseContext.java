@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.qsrv.hf.pub.codec.NonStaticFieldInfo;
+import com.epam.deltix.qsrv.hf.pub.codec.RecordClassInfo;
+import com.epam.deltix.qsrv.hf.pub.codec.RecordLayout;
+import com.epam.deltix.qsrv.hf.pub.codec.UnboundDecoder;
+import com.epam.deltix.qsrv.hf.pub.md.*;
+import com.epam.deltix.timebase.connector.clickhouse.model.ColumnNamingScheme;
+
+import java.util.*;
+
+class TimebaseContext {
+    private final Map<String, String> mapping = new HashMap<>(); // map for fieldName -> columnName
+    UnboundDecoder messageDecoder;
+
+    String getColumnName(String typeName, String fieldName) {
+        return mapping.get(buildKey(typeName, fieldName));
+    }
+
+    void buildMappings(RecordClassInfo info, ColumnNamingScheme scheme) {
+        NonStaticFieldInfo[] fields = info.getNonStaticFields();
+        String typeName = info.getDescriptor().getName();
+        for (int i = 0; i < fields.length; i++) {
+            com.epam.deltix.qsrv.hf.pub.md.DataType type = fields[i].getType();
+            if (type.getCode() == com.epam.deltix.qsrv.hf.pub.md.DataType.T_ARRAY_TYPE) {
+                DataType elementDataType = ((ArrayDataType) type).getElementDataType();
+                if (elementDataType.getCode() == DataType.T_OBJECT_TYPE) {
+                    RecordClassDescriptor[] descriptors = ((ClassDataType) elementDataType).getDescriptors();
+                    for (RecordClassDescriptor descriptor : descriptors) {
+                        buildMappings(new RecordLayout(descriptor), scheme);
+                    }
+                }
+            }
+            mapping.put(buildKey(typeName, fields[i].getName()), SchemaProcessor.getColumnName(info.getDescriptor(), fields[i], scheme));
+        }
+    }
+
+    private String buildKey(String typeName, String fieldName) {
+        return typeName + "_" + fieldName;
+    }
+}
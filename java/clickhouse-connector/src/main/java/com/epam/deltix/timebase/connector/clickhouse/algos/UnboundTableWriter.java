@@ -19,114 +19,165 @@ package com.epam.deltix.timebase.connector.clickhouse.algos;
 import com.clickhouse.data.value.ClickHouseArrayValue;
 import com.epam.deltix.clickhouse.ClickhouseClient;
 import com.epam.deltix.clickhouse.models.TableIdentity;
+import com.epam.deltix.clickhouse.pool.ShardRouter;
 import com.epam.deltix.clickhouse.schema.ColumnDeclaration;
 import com.epam.deltix.clickhouse.schema.TableDeclaration;
 import com.epam.deltix.clickhouse.schema.types.*;
 import com.epam.deltix.clickhouse.util.CheckedConsumer;
+import com.epam.deltix.clickhouse.util.ExecutorsUtil;
 import com.epam.deltix.clickhouse.util.SqlQueryHelper;
-import com.epam.deltix.dfp.Decimal64Utils;
 import com.epam.deltix.gflog.api.Log;
 import com.epam.deltix.gflog.api.LogEntry;
 import com.epam.deltix.gflog.api.LogFactory;
-import com.epam.deltix.qsrv.hf.pub.NullValueException;
 import com.epam.deltix.qsrv.hf.pub.RawMessage;
 import com.epam.deltix.qsrv.hf.pub.ReadableValue;
+import com.epam.deltix.qsrv.hf.pub.codec.CodecFactory;
 import com.epam.deltix.qsrv.hf.pub.codec.NonStaticFieldInfo;
 import com.epam.deltix.qsrv.hf.pub.codec.RecordClassInfo;
-import com.epam.deltix.qsrv.hf.pub.codec.RecordLayout;
 import com.epam.deltix.qsrv.hf.pub.codec.UnboundDecoder;
 import com.epam.deltix.qsrv.hf.pub.md.*;
-import com.epam.deltix.qsrv.hf.pub.md.ArrayDataType;
-import com.epam.deltix.qsrv.hf.pub.md.DateTimeDataType;
 import com.epam.deltix.qsrv.hf.tickdb.pub.query.TypedMessageSource;
 import com.epam.deltix.timebase.connector.clickhouse.functional.CheckedBiConsumer;
 import com.epam.deltix.timebase.connector.clickhouse.model.ColumnNamingScheme;
+import com.epam.deltix.timebase.connector.clickhouse.model.InsertFormat;
 import com.epam.deltix.timebase.connector.clickhouse.util.ClickhouseUtil;
 import com.epam.deltix.util.memory.MemoryDataInput;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.Implementation;
 
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.*;
-import java.sql.Date;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.epam.deltix.timebase.connector.clickhouse.algos.ColumnDeclarationEx.getColumnsDeepForDefinition;
 import static com.epam.deltix.timebase.connector.clickhouse.algos.RawDecoder.readField;
 
 import static com.epam.deltix.timebase.connector.clickhouse.algos.Replicator.ALL_TYPES;
+import static net.bytebuddy.matcher.ElementMatchers.named;
 
 public class UnboundTableWriter implements Closeable {
 
     private static final Log LOG = LogFactory.getLog(UnboundTableWriter.class);
+    private static final int ENCODE_CHUNK_SIZE = 256;
     private final String writerName;
     private final ColumnNamingScheme columnNamingScheme;
-    private final Map<String, List<ColumnDeclarationEx>> columnDeclarations;
-    //    private final ClickhouseClientSettings settings;
-    //private final BlockingQueue<T> messages;
-    //private final UnboundTableWriter.Flusher flusher = new UnboundTableWriter.Flusher();
-    //private final Thread flusherThread;
+    private final InsertFormat insertFormat;
+    private Map<String, List<ColumnDeclarationEx>> columnDeclarations;
     private final MemoryDataInput dataInput;
-    //    private static final UUID WRITER_ID = UUID.randomUUID();
-    private final Map<String, UnboundDecoder> messageDecoders;
-    private final Map<String, TableDeclaration> declarations;
-    //    private int flushSize;
-//    private long flushIntervalMs;
-    // temp
-    private final Connection clickhouseConnection;
-    //    private final ClickhouseContext clickhouseContext;
+    private Map<String, UnboundDecoder> messageDecoders;
+    private Map<String, TableDeclaration> declarations;
+    private final ClickhouseClient clickhouseClient;
+    private final int flushBufferCount;
+    // writer lane per target table, lanes are flushed concurrently
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+    private volatile boolean flushFailed = false;
+    private int currentBuffer = 0;
     private final List<Codec> fieldCodecs;
 
     private final Set<String> fixedColumnNames = new HashSet<>(List.of(SchemaProcessor.FIXED_COLUMN_NAMES));
     private final Map<RecordClassInfo, Codec> fieldCodecsByRecordClassInfo;
 
-    //    private final ClickhouseContext clickhouseContext = new ClickhouseContext();
-//    private final TimebaseContext timebaseContext = new TimebaseContext();
-    //private volatile boolean closing = false;
     private int batchMsgCount = 0;
+    private long batchBytes = 0;
+    private long batchStartNanos = 0;
     private long minMsgTimestamp = Long.MIN_VALUE;
     private long maxMsgTimestamp = Long.MIN_VALUE;
+    private FlushPolicy flushPolicy;
+    // Clickhouse settings of all insert queries
+    private final Map<String, String> insertSettings = new LinkedHashMap<>();
+    // overrides data source of the client for inserts
+    private DataSource insertDataSource;
+    // position of the last sent message, see ReplicationCheckpoint.Position
+    private long lastTimestamp = Long.MIN_VALUE;
+    private int lastTimestampCount = 0;
+    private CommitListener commitListener;
+    private ReplicationCheckpoint.Position batchFirstPosition;
+    // prefix of insert_deduplication_token, null when inserts are not deduplicated
+    private String deduplicationToken;
+    // end positions of batches which were sent before restart and must be sent again with the same bounds
+    private final ArrayDeque<ReplicationCheckpoint.Position> replayBatches = new ArrayDeque<>();
+    private boolean replayBatchComplete = false;
+    private long flushSequence = 0;
+    private long committedSequence = 0;
+    private final TreeMap<Long, ReplicationCheckpoint.Position> completedFlushes = new TreeMap<>();
+    // parallel encoding stage: chunks of messages are encoded by pool threads and appended to the batch in order
+    private final boolean encoder;
+    private int encoderThreads = 0;
+    private ExecutorService encoderPool;
+    private final ArrayDeque<EncodeChunk> pendingChunks = new ArrayDeque<>();
+    private final ArrayDeque<EncodeChunk> freeChunks = new ArrayDeque<>();
+    private EncodeChunk currentChunk;
 
     public UnboundTableWriter(
             String writerName,
             ColumnNamingScheme columnNamingScheme,
+            InsertFormat insertFormat,
             ClickhouseClient clickhouseClient,
             Map<String, TableDeclaration> declarations,
             Map<String, List<ColumnDeclarationEx>> columnDeclarations,
             List<UnboundDecoder> messageDecoders,
-            MemoryDataInput dataInput/*,
-            int flushSize,
-            long flushIntervalMs*/) throws SQLException {
+            MemoryDataInput dataInput,
+            int flushBufferCount) throws SQLException {
         this.writerName = writerName;
         this.columnNamingScheme = columnNamingScheme;
+        this.insertFormat = insertFormat != null ? insertFormat : InsertFormat.JDBC;
         this.columnDeclarations = columnDeclarations;
 
+        if (flushBufferCount <= 0)
+            throw new IllegalArgumentException("Illegal flushBufferCount");
+
         debug()
                 .append("initializing.")
                 .commit();
 
-
-//        this.flushSize = flushSize;
-//        this.flushIntervalMs = flushIntervalMs;
-
-        //messages = new ArrayBlockingQueue<>(messageQueueCapacity);
-//        this.clickhouseClient = clickhouseClient; // new ClickhouseClient(dataSource);
-//        this.settings = clickhouseClient.getSettings();
         this.dataInput = dataInput;
         this.messageDecoders = messageDecoders.stream().collect(Collectors.toMap(unboundDecoder ->
                 unboundDecoder.getClassInfo().getDescriptor().getName(), unboundDecoder -> unboundDecoder));
         this.declarations = declarations;
 
 
-        clickhouseConnection = clickhouseClient.getConnection();
+        this.clickhouseClient = clickhouseClient;
+        this.flushBufferCount = flushBufferCount;
+        this.encoder = false;
 
         fieldCodecs = new ArrayList<>();
         fieldCodecsByRecordClassInfo = new HashMap<>();
+    }
 
-//        flusherThread = new Thread(flusher, "TableWriter flusher thread");
-//        flusherThread.start();
+    // encoder of parallel encoding stage, encodes messages into batches without connection
+    private UnboundTableWriter(UnboundTableWriter writer) {
+        this.writerName = writer.writerName;
+        this.columnNamingScheme = writer.columnNamingScheme;
+        this.insertFormat = writer.insertFormat;
+        this.columnDeclarations = writer.columnDeclarations;
+        this.dataInput = new MemoryDataInput();
+        // decoders keep state of the current message, so encoder has own ones
+        this.messageDecoders = writer.messageDecoders.values().stream().collect(Collectors.toMap(unboundDecoder ->
+                unboundDecoder.getClassInfo().getDescriptor().getName(), unboundDecoder ->
+                CodecFactory.COMPILED.createFixedUnboundDecoder(unboundDecoder.getClassInfo().getDescriptor())));
+        this.declarations = writer.declarations;
+        this.clickhouseClient = writer.clickhouseClient;
+        this.flushBufferCount = 1;
+        this.encoder = true;
+        this.fixedColumnNames.retainAll(writer.fixedColumnNames);
+
+        fieldCodecs = new ArrayList<>();
+        fieldCodecsByRecordClassInfo = new HashMap<>();
     }
 
     private Map<String, BiConsumer<TimebaseContext, FieldContext>> buildCodecs(UnboundTableWriter writer, RecordClassInfo classInfo, Set<String> processColumnNames) {
@@ -144,140 +195,12 @@ public class UnboundTableWriter implements Closeable {
 
             final com.epam.deltix.qsrv.hf.pub.md.DataType tbDataType = dataField.getType();
 
-            if (tbDataType instanceof IntegerDataType) {
-                codec = (TimebaseContext tbContext, FieldContext fieldContext) -> {
-                    final UnboundDecoder rv = tbContext.messageDecoder;
-                    final ClickhouseContext chContext = fieldContext.clickhouseContext;
-                    if (rv.isNull())
-                        chContext.statement.setNull(fieldContext.columnDeclaration.getStatementIndex(), Types.INTEGER);
-                    else {
-                        IntegerDataType tbIntegerDataType = (IntegerDataType) tbDataType;
-                        switch (tbIntegerDataType.getNativeTypeSize()) {
-                            case 1:
-                                chContext.statement.setByte(fieldContext.columnDeclaration.getStatementIndex(), (byte) rv.getInt());
-                                break;
-                            case 2:
-                                chContext.statement.setShort(fieldContext.columnDeclaration.getStatementIndex(), (short) rv.getInt());
-                                break;
-                            case 4:
-                                chContext.statement.setInt(fieldContext.columnDeclaration.getStatementIndex(), rv.getInt());
-                                break;
-                            default:
-                                chContext.statement.setLong(fieldContext.columnDeclaration.getStatementIndex(), rv.getLong());
-                        }
-                    }
-                };
-            } else if (tbDataType instanceof FloatDataType) {
-                codec = (TimebaseContext tbContext, FieldContext fieldContext) -> {
-                    final UnboundDecoder rv = tbContext.messageDecoder;
-                    final ClickhouseContext chContext = fieldContext.clickhouseContext;
-                    int statementIndex = fieldContext.columnDeclaration.getStatementIndex();
-
-                    if (rv.isNull())
-                        chContext.statement.setNull(statementIndex, Types.FLOAT);
-                    else {
-                        FloatDataType tbFloatDataType = (FloatDataType) tbDataType;
-
-                        switch (tbFloatDataType.getScale()) {
-                            case FloatDataType.FIXED_FLOAT:
-                                chContext.statement.setFloat(statementIndex, rv.getFloat());
-                                break;
-                            case FloatDataType.FIXED_DOUBLE:
-                            case FloatDataType.SCALE_AUTO:
-                                chContext.statement.setDouble(statementIndex, rv.getDouble());
-                                break;
-                            case FloatDataType.SCALE_DECIMAL64:
-                                long decimal64Long = rv.getLong();
-                                if (decimal64Long == Decimal64Utils.MAX_VALUE || decimal64Long == Decimal64Utils.POSITIVE_INFINITY) {
-                                    chContext.statement.setBigDecimal(statementIndex, ClickhouseUtil.DECIMAL_128_MAX_VALUE);
-                                } else if (decimal64Long == Decimal64Utils.MIN_VALUE || decimal64Long == Decimal64Utils.NEGATIVE_INFINITY) {
-                                    chContext.statement.setBigDecimal(statementIndex, ClickhouseUtil.DECIMAL_128_MIN_VALUE);
-                                }
-                                //todo support
-/*                                else if (decimal64Long == Decimal64Utils.NaN) {
-                                }*/
-                                else {
-                                    chContext.statement.setBigDecimal(statementIndex, new BigDecimal(Decimal64Utils.toString(rv.getLong())));
-                                }
-                                break;
-
-                            default:
-                                chContext.statement.setDouble(statementIndex, rv.getDouble());
-                        }
-                    }
-                };
-            } else if (tbDataType instanceof DateTimeDataType) {
-                codec = (TimebaseContext tbContext, FieldContext fieldContext) -> {
-                    final ClickhouseContext chContext = fieldContext.clickhouseContext;
-
-                    if (tbContext.messageDecoder.isNull()) {
-                        chContext.statement.setNull(fieldContext.columnDeclaration.getStatementIndex(), Types.TIMESTAMP);
-                    } else {
-                        long value = tbContext.messageDecoder.getLong();
+            final ScalarEncoder scalarEncoder = ScalarEncoder.forType(tbDataType);
 
-                        if (value > ClickhouseUtil.DATETIME_64_MAX_VALUE)
-                            value = ClickhouseUtil.DATETIME_64_MAX_VALUE;
-                        else if (value < ClickhouseUtil.DATETIME_64_MIN_VALUE)
-                            value = ClickhouseUtil.DATETIME_64_MIN_VALUE;
-
-                        chContext.statement.setTimestamp(fieldContext.columnDeclaration.getStatementIndex(), new Timestamp(value));
-                    }
-                };
-            } else if (tbDataType instanceof TimeOfDayDataType) {
-                codec = (TimebaseContext tbContext, FieldContext fieldContext) -> {
-                    final ClickhouseContext chContext = fieldContext.clickhouseContext;
-                    if (tbContext.messageDecoder.isNull())
-                        chContext.statement.setNull(fieldContext.columnDeclaration.getStatementIndex(), Types.INTEGER);
-                    else
-                        chContext.statement.setInt(fieldContext.columnDeclaration.getStatementIndex(), tbContext.messageDecoder.getInt());
-                };
-            } else if (tbDataType instanceof VarcharDataType) {
-                codec = (TimebaseContext tbContext, FieldContext fieldContext) -> {
-                    final ClickhouseContext chContext = fieldContext.clickhouseContext;
-                    if (tbContext.messageDecoder.isNull())
-                        chContext.statement.setNull(fieldContext.columnDeclaration.getStatementIndex(), Types.VARCHAR);
-                    else
-                        chContext.statement.setString(fieldContext.columnDeclaration.getStatementIndex(), tbContext.messageDecoder.getString());
-                };
-            } else if (tbDataType instanceof EnumDataType) {
-                codec = (TimebaseContext tbContext, FieldContext fieldContext) -> {
-                    final ClickhouseContext chContext = fieldContext.clickhouseContext;
-                    if (tbContext.messageDecoder.isNull())
-                        chContext.statement.setNull(fieldContext.columnDeclaration.getStatementIndex(), Types.VARCHAR);
-                    else
-                        chContext.statement.setString(fieldContext.columnDeclaration.getStatementIndex(), tbContext.messageDecoder.getString());
-                };
-            } else if (tbDataType instanceof CharDataType) {
-                codec = (TimebaseContext tbContext, FieldContext fieldContext) -> {
-                    final ClickhouseContext chContext = fieldContext.clickhouseContext;
-                    if (tbContext.messageDecoder.isNull())
-                        chContext.statement.setNull(fieldContext.columnDeclaration.getStatementIndex(), Types.VARCHAR);
-                    else
-                        chContext.statement.setString(fieldContext.columnDeclaration.getStatementIndex(), tbContext.messageDecoder.getString());
-                    // @PH: in this case, the bytes are formatted by the CH-jdbc driver in hexadecimal format that are not human-readable
-                    //chContext.statement.setBytes(fieldContext.columnDeclaration.getStatementIndex(), new byte[] { (byte) tbContext.messageDecoder.getChar() });
-                };
-            } else if (tbDataType instanceof BooleanDataType) {
-                codec = (TimebaseContext tbContext, FieldContext fieldContext) -> {
-                    final ClickhouseContext chContext = fieldContext.clickhouseContext;
-                    if (tbContext.messageDecoder.isNull())
-                        chContext.statement.setNull(fieldContext.columnDeclaration.getStatementIndex(), Types.BOOLEAN);
-                    else
-                        chContext.statement.setBoolean(fieldContext.columnDeclaration.getStatementIndex(), tbContext.messageDecoder.getBoolean());
-                };
-            } else if (tbDataType instanceof BinaryDataType) {
-                codec = (TimebaseContext tbContext, FieldContext fieldContext) -> {
-                    final ClickhouseContext chContext = fieldContext.clickhouseContext;
-                    if (tbContext.messageDecoder.isNull())
-                        chContext.statement.setNull(fieldContext.columnDeclaration.getStatementIndex(), Types.BINARY);
-                    else {
-                        int binaryLength = tbContext.messageDecoder.getBinaryLength();
-                        byte[] binaryValue = new byte[binaryLength];
-                        tbContext.messageDecoder.getBinary(0, binaryLength, binaryValue, 0);
-
-                        chContext.statement.setBytes(fieldContext.columnDeclaration.getStatementIndex(), binaryValue);
-                    }
-                };
+            if (scalarEncoder != null) {
+                codec = (TimebaseContext tbContext, FieldContext fieldContext) ->
+                        scalarEncoder.encode(tbContext.messageDecoder, fieldContext.clickhouseContext.statement,
+                                fieldContext.columnDeclaration.getStatementIndex());
             } else if (tbDataType instanceof ArrayDataType) {
 
                 codec = (TimebaseContext tbContext, FieldContext fieldContext) -> {
@@ -299,64 +222,14 @@ public class UnboundTableWriter implements Closeable {
 
 
                         if (isClassDataType) {
-                            final NestedDataType dataType = (NestedDataType) columnDeclaration.getDbDataType();
-                            final List<ColumnDeclarationEx> columnsEx = ClickhouseUtil.toExColumnsUnchecked(dataType.getColumns());
-
-                            ArrayList<List<Object>> values = new ArrayList<>(columnsEx.size());
-                            //TODO: need to optimize
-                            Map<String, Integer> name2ColumnIndex = new HashMap<>();
-                            for (int i2 = 0; i2 < columnsEx.size(); ++i2) {
-                                values.add(new ArrayList<Object>());
-                                name2ColumnIndex.put(columnsEx.get(i2).getDbColumnName(), i2);
+                            NestedCodec nestedCodec = fieldContext.nestedCodec;
+                            if (nestedCodec == null) {
+                                nestedCodec = new NestedCodec((NestedDataType) columnDeclaration.getDbDataType(),
+                                        (ClassDataType) elementType, tbContext, columnNamingScheme);
+                                fieldContext.nestedCodec = nestedCodec;
                             }
 
-                            for (int ii = 0; ii < len; ii++) {
-                                for (int i2 = 0; i2 < values.size(); ++i2) {
-                                    values.get(i2).add(columnsEx.get(i2).getDefaultValue());
-                                }
-
-                                try {
-                                    final ReadableValue rv = udec.nextReadableElement();
-                                    final UnboundDecoder decoder = rv.getFieldDecoder();
-
-                                    final RecordClassDescriptor descriptor = decoder.getClassInfo().getDescriptor();
-                                    List<Object> objects = values.get(0);
-                                    objects.set(objects.size() - 1, descriptor.getName());
-
-                                    // dump field/value pairs
-                                    while (decoder.nextField()) {
-                                        NonStaticFieldInfo field = decoder.getField();
-                                        Object fieldValue = readField(field.getType(), decoder);
-                                        final String columnName = tbContext.getColumnName(descriptor.getName(), field.getName());
-                                        objects = values.get(name2ColumnIndex.get(columnName));
-                                        objects.set(objects.size() - 1, fieldValue);
-                                    }
-
-                                } catch (NullValueException e) {
-                                }
-
-                            }
-
-                            for (int i1 = 0; i1 < columnsEx.size(); i1++) {
-                                ColumnDeclaration c = columnsEx.get(i1);
-                                ColumnDeclarationEx ce = (ColumnDeclarationEx) c;
-                                List<Object> objects = values.get(i1);
-                                if (ce.getDbDataType() instanceof NestedDataType) {
-                                    throw new UnsupportedOperationException();
-                                } else if (ce.getDbDataType() instanceof ObjectDataType) {
-                                    List<ColumnDeclarationEx> columns = ClickhouseUtil.toExColumnsUnchecked(((ObjectDataType) ce.getDbDataType()).getColumns());
-                                    for (ColumnDeclarationEx column : columns) {
-                                        Object[] valuesArray = new Object[objects.size()];
-                                        for (int i2 = 0; i2 < objects.size(); i2++) {
-                                            Map<String, Object> object = (Map<String, Object>) objects.get(i2);
-                                            valuesArray[i2] = object.get(getFieldNameByColumn(column.getDbColumnName(), columnNamingScheme));
-                                        }
-                                        chContext.statement.setObject(column.getStatementIndex(), ClickHouseArrayValue.of(valuesArray));
-                                    }
-                                } else {
-                                    chContext.statement.setObject(ce.getStatementIndex(), ClickHouseArrayValue.of(objects.toArray()));
-                                }
-                            }
+                            nestedCodec.encode(udec, len, chContext.statement);
 
                         } else {
                             Object[] values = new Object[len];
@@ -365,7 +238,7 @@ public class UnboundTableWriter implements Closeable {
                                 final ReadableValue rv = udec.nextReadableElement();
                                 values[ii] = readField(elementType, rv);
                             }
-                            chContext.statement.setArray(columnDeclaration.getStatementIndex(), (Array) getArrayValues(chContext, columnDeclaration, values));
+                            setArrayValues(chContext, columnDeclaration, values);
                         }
                     }
                 };
@@ -382,31 +255,34 @@ public class UnboundTableWriter implements Closeable {
                         final UnboundDecoder decoder = udec.getFieldDecoder();
                         final RecordClassInfo info = decoder.getClassInfo();
 
-                        ObjectDataType objectDataType = (ObjectDataType) fieldContext.columnDeclaration.getDbDataType();
+                        ObjectCodec objectCodec = fieldContext.getObjectCodec(info);
+                        if (objectCodec == null) {
+                            ObjectDataType objectDataType = (ObjectDataType) fieldContext.columnDeclaration.getDbDataType();
 
-                        List<ColumnDeclarationEx> columns = ClickhouseUtil.toExColumnsUnchecked(objectDataType.getColumns());
-                        Set<String> availableFieldsNames = ClickhouseUtil.getAvailableFieldsNames(columns);
-                        availableFieldsNames.remove(SchemaProcessor.TYPE_COLUMN_NAME);
+                            List<ColumnDeclarationEx> columns = ClickhouseUtil.toExColumnsUnchecked(objectDataType.getColumns());
+                            Set<String> availableFieldsNames = ClickhouseUtil.getAvailableFieldsNames(columns);
+                            availableFieldsNames.remove(SchemaProcessor.TYPE_COLUMN_NAME);
+
+                            Codec fieldCodec = writer.fieldCodecsByRecordClassInfo.get(info);
+                            if (fieldCodec == null) {
+                                fieldCodec = new Codec(decoder, buildCodecs(writer, info, availableFieldsNames),
+                                        null/*columnsEx*/, null, 0);
+                                writer.fieldCodecsByRecordClassInfo.put(decoder.getClassInfo(), fieldCodec);
+                                fieldCodec.timebaseContext.buildMappings(info, columnNamingScheme);
+                            }
 
-                        Codec fieldCodec = writer.fieldCodecsByRecordClassInfo.get(info);
-                        if (fieldCodec == null) {
-                            fieldCodec = new Codec(writer.clickhouseConnection, null, decoder,
-                                    buildCodecs(writer, info, availableFieldsNames), null/*columnsEx*/, clickhouseContext.statement);
-                            writer.fieldCodecsByRecordClassInfo.put(decoder.getClassInfo(), fieldCodec);
-                            fieldCodec.timebaseContext.buildMappings(info, columnNamingScheme);
+                            FieldCodec[] fieldCodecs = compileFieldCodecs(info, fieldCodec.timebaseContext, fieldCodec.getFieldCodecs(),
+                                    columnName -> availableFieldsNames.contains(columnName) ?
+                                            new FieldContext(clickhouseContext, findColumnByName(columns, columnName)) : null);
+                            objectCodec = new ObjectCodec(fieldCodec.timebaseContext, columns.get(0).getStatementIndex(), fieldCodecs);
+                            fieldContext.putObjectCodec(info, objectCodec);
                         }
 
-                        fieldCodec.getTimebaseContext().messageDecoder = decoder;
-                        TimebaseContext fieldTimebaseContext = fieldCodec.timebaseContext;
-                        clickhouseContext.statement.setString(columns.get(0).getStatementIndex(), info.getDescriptor().getName());
+                        TimebaseContext fieldTimebaseContext = objectCodec.timebaseContext;
+                        fieldTimebaseContext.messageDecoder = decoder;
+                        clickhouseContext.statement.setString(objectCodec.typeStatementIndex, info.getDescriptor().getName());
 
-                        while (decoder.nextField()) {
-                            String columnName = fieldTimebaseContext.getColumnName(info.getDescriptor().getName(), decoder.getField().getName());
-                            if (availableFieldsNames.contains(columnName)) {
-                                fieldCodec.getFieldCodecs().get(columnName).accept(fieldCodec.getTimebaseContext(),
-                                        new FieldContext(clickhouseContext, findColumnByName(columns, columnName)));
-                            }
-                        }
+                        encodeFields(decoder, fieldTimebaseContext, objectCodec.fieldCodecs);
                     }
                 };
             } else {
@@ -427,7 +303,7 @@ public class UnboundTableWriter implements Closeable {
         return null;
     }
 
-    private static String getFieldNameByColumn(String dbColumnName, ColumnNamingScheme columnNamingScheme) {
+    static String getFieldNameByColumn(String dbColumnName, ColumnNamingScheme columnNamingScheme) {
         int index = dbColumnName.indexOf('_');
         if (index != -1) {
             switch (columnNamingScheme) {
@@ -440,13 +316,14 @@ public class UnboundTableWriter implements Closeable {
         return dbColumnName;
     }
 
-    private static Object getArrayValues(ClickhouseContext chContext, ColumnDeclarationEx columnDeclaration, Object[] values) throws SQLException {
+    private static void setArrayValues(ClickhouseContext chContext, ColumnDeclarationEx columnDeclaration, Object[] values) throws SQLException {
         SqlDataType dbDataType = columnDeclaration.getDbDataType();
         if (dbDataType instanceof ArraySqlType) {
             String dataTypeName = ((ArraySqlType) dbDataType).getElementType().getSqlDefinition();
-            return chContext.statement.getConnection().createArrayOf(dataTypeName, values);
+            chContext.statement.setArray(columnDeclaration.getStatementIndex(), dataTypeName, values);
+        } else {
+            chContext.statement.setObject(columnDeclaration.getStatementIndex(), values);
         }
-        return values;
     }
 
     public static void setNullableValue(ClickhouseContext clickhouseContext, ColumnDeclarationEx columnDeclaration) throws SQLException {
@@ -460,69 +337,67 @@ public class UnboundTableWriter implements Closeable {
         if (dataType instanceof NullableDataType) {
             throw new UnsupportedOperationException();
         } else if (dataType instanceof ArraySqlType) {
-            clickhouseContext.statement.setArray(columnDeclaration.getStatementIndex(), (Array) getArrayValues(clickhouseContext, columnDeclaration, new Object[0]));
-//        } else if (dataType instanceof BinaryDataType) {
-//            essentialDataType = ClickHouseDataType.String;
+            setArrayValues(clickhouseContext, columnDeclaration, new Object[0]);
         } else if (dataType instanceof UInt8DataType) {
             if (isNullable)
                 clickhouseContext.statement.setNull(columnDeclaration.getStatementIndex(), Types.INTEGER);
             else
-                clickhouseContext.statement.setObject(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.INTEGER);
+                clickhouseContext.statement.setDefault(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.INTEGER);
         } else if (dataType instanceof StringDataType) {
             if (isNullable)
                 clickhouseContext.statement.setNull(columnDeclaration.getStatementIndex(), Types.VARCHAR);
             else
-                clickhouseContext.statement.setObject(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.VARCHAR);
+                clickhouseContext.statement.setDefault(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.VARCHAR);
         } else if (dataType instanceof DateDataType) {
             if (isNullable)
                 clickhouseContext.statement.setNull(columnDeclaration.getStatementIndex(), Types.TIMESTAMP);
             else
-                clickhouseContext.statement.setObject(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.TIMESTAMP);
+                clickhouseContext.statement.setDefault(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.TIMESTAMP);
         } else if (dataType instanceof DateTime64DataType) {
             if (isNullable)
                 clickhouseContext.statement.setNull(columnDeclaration.getStatementIndex(), Types.TIMESTAMP);
             else
-                clickhouseContext.statement.setObject(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.TIMESTAMP);
+                clickhouseContext.statement.setDefault(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.TIMESTAMP);
         } else if (dataType instanceof Enum16DataType) {
             if (isNullable)
                 clickhouseContext.statement.setNull(columnDeclaration.getStatementIndex(), Types.VARCHAR);
             else
-                clickhouseContext.statement.setObject(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.VARCHAR);
+                clickhouseContext.statement.setDefault(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.VARCHAR);
         } else if (dataType instanceof Float32DataType) {
             if (isNullable)
                 clickhouseContext.statement.setNull(columnDeclaration.getStatementIndex(), Types.FLOAT);
             else
-                clickhouseContext.statement.setObject(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.FLOAT);
+                clickhouseContext.statement.setDefault(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.FLOAT);
         } else if (dataType instanceof Float64DataType) {
             if (isNullable)
                 clickhouseContext.statement.setNull(columnDeclaration.getStatementIndex(), Types.DOUBLE);
             else
-                clickhouseContext.statement.setObject(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.DOUBLE);
+                clickhouseContext.statement.setDefault(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.DOUBLE);
         } else if (dataType instanceof DecimalDataType) {
             if (isNullable)
                 clickhouseContext.statement.setNull(columnDeclaration.getStatementIndex(), Types.DECIMAL);
             else
-                clickhouseContext.statement.setObject(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.DECIMAL);
+                clickhouseContext.statement.setDefault(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.DECIMAL);
         } else if (dataType instanceof Int8DataType) {
             if (isNullable)
                 clickhouseContext.statement.setNull(columnDeclaration.getStatementIndex(), Types.INTEGER);
             else
-                clickhouseContext.statement.setObject(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.INTEGER);
+                clickhouseContext.statement.setDefault(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.INTEGER);
         } else if (dataType instanceof Int16DataType) {
             if (isNullable)
                 clickhouseContext.statement.setNull(columnDeclaration.getStatementIndex(), Types.INTEGER);
             else
-                clickhouseContext.statement.setObject(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.INTEGER);
+                clickhouseContext.statement.setDefault(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.INTEGER);
         } else if (dataType instanceof Int32DataType) {
             if (isNullable)
                 clickhouseContext.statement.setNull(columnDeclaration.getStatementIndex(), Types.INTEGER);
             else
-                clickhouseContext.statement.setObject(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.INTEGER);
+                clickhouseContext.statement.setDefault(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.INTEGER);
         } else if (dataType instanceof Int64DataType) {
             if (isNullable)
                 clickhouseContext.statement.setNull(columnDeclaration.getStatementIndex(), Types.BIGINT);
             else
-                clickhouseContext.statement.setObject(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.BIGINT);
+                clickhouseContext.statement.setDefault(columnDeclaration.getStatementIndex(), columnDeclaration.getDefaultValue(), Types.BIGINT);
         } else if (dataType instanceof NestedDataType) {
             setInnerNullValues(clickhouseContext, columnDeclaration, true);
         } else if (dataType instanceof ObjectDataType) {
@@ -555,7 +430,7 @@ public class UnboundTableWriter implements Closeable {
                 if (isNested) {
                     clickhouseContext.statement.setObject(cd.getStatementIndex(), null);
                 } else {
-                    clickhouseContext.statement.setObject(cd.getStatementIndex(), cd.getDefaultValue());
+                    clickhouseContext.statement.setDefault(cd.getStatementIndex(), cd.getDefaultValue());
                 }
             } catch (SQLException e) {
                 throw new RuntimeException(e);
@@ -590,45 +465,196 @@ public class UnboundTableWriter implements Closeable {
     {
         dataInput.setBytes(message.data, message.offset, message.length);
         UnboundDecoder messageDecoder = codec.getUnboundDecoder();
-        Map<String, BiConsumer<TimebaseContext, FieldContext>> fieldCodecs = codec.getFieldCodecs();
         messageDecoder.beginRead(dataInput);
 
         ClickhouseContext clickhouseContext = codec.getClickhouseContext();
-        Set<String> availableColumnNames = clickhouseContext.map.keySet();
 
         int parameterIndex = 1;
         long millisTime = message.getTimeStampMs(); // TODO: switch to nanos
         CharSequence symbol = message.getSymbol();
 
-        // TODO: heavily allocates
-        PreparedStatement statement = codec.getInsertStatement();
-        if (availableColumnNames.contains(SchemaProcessor.PARTITION_COLUMN_NAME)) {
-            statement.setDate(parameterIndex++, new Date(millisTime));
+        InsertBatch statement = getInsertStatement(codec);
+        if (codec.writePartition) {
+            statement.setDate(parameterIndex++, millisTime);
         }
-        statement.setTimestamp(parameterIndex++, new Timestamp(millisTime));
-        statement.setString(parameterIndex++, symbol.toString());
+        statement.setTimestamp(parameterIndex++, millisTime);
+        statement.setString(parameterIndex++, symbol);
         statement.setString(parameterIndex++, message.type.getName());
 
         TimebaseContext timebaseContext = codec.getTimebaseContext();
         timebaseContext.messageDecoder = messageDecoder;
         clickhouseContext.statement = statement;
-        //fieldContext.columnDeclaration.getStatementIndex() = parameterIndex;
 
-        while (messageDecoder.nextField()) {
-            String columnName = timebaseContext.getColumnName(message.type.getName(), messageDecoder.getField().getName());
-            if (availableColumnNames.contains(columnName)) {
-                fieldCodecs.get(columnName).accept(timebaseContext,
-                        new FieldContext(clickhouseContext, codec.clickhouseContext.getColumn(columnName)));
-            }
-        }
+        if (codec.messageEncoder != null)
+            codec.messageEncoder.encode(messageDecoder, statement, codec.fieldEncoder);
+        else
+            encodeFields(messageDecoder, timebaseContext, codec.fieldCodecTable);
 
         statement.addBatch();
     }
 
+    private MessageEncoder getMessageEncoder(FieldCodec[] fieldCodecs) {
+        NonStaticFieldInfo[] fields = new NonStaticFieldInfo[fieldCodecs.length];
+        ColumnDeclarationEx[] columns = new ColumnDeclarationEx[fieldCodecs.length];
+        for (int i = 0; i < fieldCodecs.length; i++) {
+            fields[i] = fieldCodecs[i].field;
+            columns[i] = fieldCodecs[i].codec != null ? fieldCodecs[i].fieldContext.columnDeclaration : null;
+        }
+
+        try {
+            DynamicType.Unloaded<MessageEncoder> unloadedType = new ByteBuddy()
+                    .subclass(MessageEncoder.class)
+                    .method(named("encode"))
+                    .intercept(new Implementation.Simple(new MessageEncoderGenerator(fields, columns)))
+                    .make();
+
+            return unloadedType
+                    .load(MessageEncoder.class.getClassLoader())
+                    .getLoaded()
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // encoding falls back to the codec table
+            warn()
+                    .append("Error while creating generated encoder.")
+                    .append(e)
+                    .commit();
+            return null;
+        }
+    }
+
+    private static void encodeFields(UnboundDecoder decoder, TimebaseContext timebaseContext, FieldCodec[] fieldCodecs) {
+        int fieldIndex = 0;
+        while (decoder.nextField()) {
+            FieldCodec fieldCodec = getFieldCodec(fieldCodecs, fieldIndex++, decoder.getField());
+            if (fieldCodec.codec != null)
+                fieldCodec.codec.accept(timebaseContext, fieldCodec.fieldContext);
+        }
+    }
+
+    private static FieldCodec getFieldCodec(FieldCodec[] fieldCodecs, int fieldIndex, NonStaticFieldInfo field) {
+        // decoder walks fields in declaration order, so the ordinal matches in the common case
+        if (fieldIndex < fieldCodecs.length && fieldCodecs[fieldIndex].field == field)
+            return fieldCodecs[fieldIndex];
+
+        for (FieldCodec fieldCodec : fieldCodecs) {
+            if (fieldCodec.field == field || fieldCodec.field.getName().equals(field.getName()))
+                return fieldCodec;
+        }
+        throw new IllegalStateException(String.format("Unknown field '%s'", field.getName()));
+    }
+
+    /**
+     * Resolves column name, codec and field context for every non-static field of the class once,
+     * so that encoding does not need any lookups by name.
+     */
+    private static FieldCodec[] compileFieldCodecs(RecordClassInfo classInfo,
+                                                   TimebaseContext timebaseContext,
+                                                   Map<String, BiConsumer<TimebaseContext, FieldContext>> codecs,
+                                                   Function<String, FieldContext> fieldContexts) {
+        NonStaticFieldInfo[] fields = classInfo.getNonStaticFields();
+        String typeName = classInfo.getDescriptor().getName();
+
+        FieldCodec[] result = new FieldCodec[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            String columnName = timebaseContext.getColumnName(typeName, fields[i].getName());
+            BiConsumer<TimebaseContext, FieldContext> codec = columnName != null ? codecs.get(columnName) : null;
+            FieldContext fieldContext = codec != null ? fieldContexts.apply(columnName) : null;
+
+            result[i] = new FieldCodec(fields[i], fieldContext != null ? codec : null, fieldContext);
+        }
+        return result;
+    }
+
     public int getBatchMsgCount() {
         return batchMsgCount;
     }
 
+    /**
+     * Policy which receives batch measurements, may be null.
+     */
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    public void setFlushPolicy(FlushPolicy flushPolicy) {
+        this.flushPolicy = flushPolicy;
+    }
+
+    /**
+     * Encodes messages by the given number of threads. Messages are split into chunks which are encoded in parallel,
+     * encoded rows are appended to the batch in order of messages, so batches are the same as with sequential encoding.
+     * Supported by ROW_BINARY insert format only.
+     */
+    public void setEncoderThreads(int encoderThreads) {
+        if (encoderThreads <= 0)
+            throw new IllegalArgumentException("Illegal encoderThreads");
+        if (insertFormat != InsertFormat.ROW_BINARY)
+            throw new UnsupportedOperationException(String.format("Parallel encoding is not supported by insert format '%s'.", insertFormat));
+        if (encoderPool != null)
+            throw new IllegalStateException("Encoder threads are already set.");
+
+        this.encoderThreads = encoderThreads;
+        this.encoderPool = Executors.newFixedThreadPool(encoderThreads, r -> new Thread(r, String.format("Writer '%s' encoder", writerName)));
+    }
+
+    /**
+     * Sets data source of insert connections, e.g. router between shards, must be called before the first message is sent.
+     */
+    public void setInsertDataSource(DataSource insertDataSource) {
+        this.insertDataSource = insertDataSource;
+    }
+
+    /**
+     * Sets Clickhouse setting of all insert queries, must be called before the first message is sent.
+     */
+    public void setInsertSetting(String name, String value) {
+        insertSettings.put(name, value);
+    }
+
+    /**
+     * Listener which is notified with the position of the last message of each batch committed to Clickhouse.
+     */
+    public void setCommitListener(CommitListener commitListener) {
+        this.commitListener = commitListener;
+    }
+
+    /**
+     * Enables deduplication of inserts: each batch is sent with {@code insert_deduplication_token} built from
+     * the given prefix, type name and positions of the first and the last message of batch.
+     */
+    public void setDeduplicationToken(String prefix) {
+        this.deduplicationToken = prefix;
+    }
+
+    /**
+     * Sets end positions of batches which were sent but not committed before restart. Until they are replayed,
+     * batches are cut at these positions only, so the replayed batches get the same deduplication tokens.
+     */
+    public void setReplayBatches(List<ReplicationCheckpoint.Position> batches) {
+        replayBatches.clear();
+        replayBatches.addAll(batches);
+    }
+
+    public boolean isReplaying() {
+        return !replayBatches.isEmpty() || replayBatchComplete;
+    }
+
+    /**
+     * Returns true when the current batch reached the end of replayed batch and must be flushed.
+     */
+    public boolean isReplayBatchComplete() {
+        return replayBatchComplete;
+    }
+
+    /**
+     * Sets position of the cursor when replication continues from a checkpoint.
+     */
+    public void setPosition(ReplicationCheckpoint.Position position) {
+        lastTimestamp = position.getTimestamp();
+        lastTimestampCount = position.getOffset();
+    }
+
     public long getMinMsgTimestamp() {
         return minMsgTimestamp;
     }
@@ -638,119 +664,469 @@ public class UnboundTableWriter implements Closeable {
     }
 
     public final void send(RawMessage message, TypedMessageSource info) throws SQLException {
-//        if (inClosing.get())
-//            throw new IllegalArgumentException(String.format("Table writer `%s` closing.", writerName));
+        send(message, info.getCurrentTypeIndex());
+    }
 
+    /**
+     * Sends message of the given type index of source cursor, type of the message is taken from {@code message.type}.
+     */
+    public final void send(RawMessage message, int typeIndex) throws SQLException {
         if (message == null)
             throw new IllegalArgumentException("Message cannot be null.");
 
-        Codec codec = null;
+        Codec codec = getCodec(message, typeIndex);
+
+        if (encoderPool != null)
+            addToChunk(message, typeIndex);
+        else
+            encode(message, dataInput, codec);
+        if (batchMsgCount++ == 0)
+            batchStartNanos = System.nanoTime();
+        batchBytes += message.length;
+        if (lastTimestamp == message.getTimeStampMs()) {
+            lastTimestampCount++;
+        } else {
+            lastTimestamp = message.getTimeStampMs();
+            lastTimestampCount = 1;
+        }
+        if (batchMsgCount == 1)
+            batchFirstPosition = new ReplicationCheckpoint.Position(lastTimestamp, lastTimestampCount);
+        if (!replayBatches.isEmpty() && replayBatches.peekFirst().compareTo(lastTimestamp, lastTimestampCount) <= 0) {
+            replayBatches.pollFirst();
+            replayBatchComplete = true;
+        }
+        if (minMsgTimestamp == Long.MIN_VALUE)
+            minMsgTimestamp = message.getTimeStampMs();
+        maxMsgTimestamp = message.getTimeStampMs();
+    }
 
-        int typeIndex = info.getCurrentTypeIndex();
+    private Codec getCodec(RawMessage message, int typeIndex) {
         if (typeIndex >= fieldCodecs.size()) {
             for (int i = 0, count = typeIndex - fieldCodecs.size() + 1; i < count; ++i)
                 fieldCodecs.add(null);
         }
 
-        codec = fieldCodecs.get(typeIndex);
+        Codec codec = fieldCodecs.get(typeIndex);
 
         if (codec == null) {
-            UnboundDecoder unboundDecoder = messageDecoders.get(info.getCurrentType().getName());
+            UnboundDecoder unboundDecoder = messageDecoders.get(message.type.getName());
+            // message written before schema change of the stream is decoded by own layout
+            if (!Objects.equals(unboundDecoder.getClassInfo().getDescriptor().getGuid(), message.type.getGuid()))
+                unboundDecoder = CodecFactory.COMPILED.createFixedUnboundDecoder(message.type);
             TableDeclaration declaration = declarations.containsKey(ALL_TYPES) ? declarations.get(ALL_TYPES) :
-                    declarations.get(info.getCurrentType().getName());
+                    declarations.get(message.type.getName());
             List<ColumnDeclarationEx> insertColumns = ClickhouseUtil.getInsertColumns(declaration, columnDeclarations.get(message.type.getName()));
             Set<String> availableFieldsNames = ClickhouseUtil.getAvailableFieldsNames(insertColumns);
             availableFieldsNames.removeAll(fixedColumnNames);
 
-            codec = new Codec(clickhouseConnection, declaration.getTableIdentity(), unboundDecoder,
-                    buildCodecs(this, unboundDecoder.getClassInfo(), availableFieldsNames), insertColumns, null);
+            codec = new Codec(unboundDecoder, buildCodecs(this, unboundDecoder.getClassInfo(), availableFieldsNames),
+                    insertColumns, declaration.getTableIdentity(), flushBufferCount);
+            codec.lane = getLane(declaration.getTableIdentity());
+            codec.lane.codecs.add(codec);
             fieldCodecs.set(typeIndex, codec);
             fieldCodecsByRecordClassInfo.put(unboundDecoder.getClassInfo(), codec);
 
             codec.timebaseContext.buildMappings(unboundDecoder.getClassInfo(), columnNamingScheme);
+
+            final ClickhouseContext clickhouseContext = codec.clickhouseContext;
+            codec.fieldCodecTable = compileFieldCodecs(unboundDecoder.getClassInfo(), codec.timebaseContext, codec.getFieldCodecs(),
+                    columnName -> clickhouseContext.getColumn(columnName) != null ? clickhouseContext.getFieldContext(columnName) : null);
+            codec.writePartition = clickhouseContext.getColumn(SchemaProcessor.PARTITION_COLUMN_NAME) != null;
+            codec.messageEncoder = getMessageEncoder(codec.fieldCodecTable);
         }
 
-//        final ClickhouseContext clickhouseContext = codec.clickhouseContext;
-//        try {
-        encode(message, dataInput, codec);
-        batchMsgCount++;
-        if (minMsgTimestamp == Long.MIN_VALUE)
-            minMsgTimestamp = message.getTimeStampMs();
-        maxMsgTimestamp = message.getTimeStampMs();
+        return codec;
+    }
+
+    private void addToChunk(RawMessage message, int typeIndex) throws SQLException {
+        if (currentChunk == null)
+            currentChunk = nextChunk();
+
+        currentChunk.add(message, typeIndex);
+        if (currentChunk.size == ENCODE_CHUNK_SIZE)
+            submitChunk();
+    }
 
-        //flusher.autoResetEvent.set();
+    private EncodeChunk nextChunk() throws SQLException {
+        if (freeChunks.isEmpty()) {
+            // two chunks per thread keep encoders busy while the oldest chunk is appended
+            if (pendingChunks.size() < encoderThreads * 2)
+                return new EncodeChunk(new UnboundTableWriter(this));
 
-//            if (++batchMsgCount == flushSize) {
-//                insertStatement.executeBatch();
-//                batchMsgCount = 0;
-//            }
+            appendChunk(pendingChunks.pollFirst());
+        }
+        return freeChunks.pollFirst();
+    }
 
-//        } catch (SQLException ex) {
-//            error()
-//                    .append("message processing failed.")
-//                    .append(System.lineSeparator())
-//                    .append(ex)
-//                    .commit();
-//        }
+    private void submitChunk() {
+        final EncodeChunk chunk = currentChunk;
+        currentChunk = null;
+        chunk.future = encoderPool.submit(() -> {
+            chunk.encode();
+            return null;
+        });
+        pendingChunks.addLast(chunk);
     }
 
+    // appends encoded rows of all chunks to the batch in order of messages
+    private void appendChunks() throws SQLException {
+        if (currentChunk != null)
+            submitChunk();
+
+        while (!pendingChunks.isEmpty())
+            appendChunk(pendingChunks.pollFirst());
+    }
+
+    private void appendChunk(EncodeChunk chunk) throws SQLException {
+        try {
+            chunk.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for encoder.", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SQLException)
+                throw (SQLException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new SQLException(cause);
+        }
+
+        // encoder assigns codecs by the same type indices
+        final List<Codec> encoderCodecs = chunk.encoder.fieldCodecs;
+        for (int i = 0; i < encoderCodecs.size(); i++) {
+            final Codec encoderCodec = encoderCodecs.get(i);
+            final RowBinaryInsertBatch rows = encoderCodec != null ? (RowBinaryInsertBatch) encoderCodec.insertStatements[0] : null;
+            if (rows != null && rows.getRowCount() > 0)
+                ((RowBinaryInsertBatch) getInsertStatement(fieldCodecs.get(i))).append(rows);
+        }
+
+        chunk.clear();
+        freeChunks.addLast(chunk);
+    }
+
+    /**
+     * Returns encoded rows of the current batch in RowBinary format, rows of message types follow in order
+     * of type indices. Batch is not sent, used by tests to compare batches encoded with and without encoder threads.
+     */
+    byte[] getBatchBytes() throws SQLException {
+        if (insertFormat != InsertFormat.ROW_BINARY)
+            throw new UnsupportedOperationException(String.format("Batch bytes are not available for insert format '%s'.", insertFormat));
+
+        if (encoderPool != null)
+            appendChunks();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            for (Codec codec : fieldCodecs) {
+                final InsertBatch statement = codec != null ? codec.insertStatements[currentBuffer] : null;
+                if (statement != null)
+                    ((RowBinaryInsertBatch) statement).writeTo(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private InsertBatch getInsertStatement(Codec codec) throws SQLException {
+        InsertBatch statement = codec.insertStatements[currentBuffer];
+        if (insertFormat == InsertFormat.JDBC && statement != null &&
+                ((JdbcInsertBatch) statement).getConnection() != codec.lane.getConnection(currentBuffer)) {
+            // batch of the buffer goes to another shard than the previous one
+            statement.close();
+            statement = null;
+        }
+        if (statement == null) {
+            statement = createInsertBatch(codec);
+            codec.insertStatements[currentBuffer] = statement;
+        }
+        return statement;
+    }
+
+    private InsertBatch createInsertBatch(Codec codec) throws SQLException {
+        final List<ColumnDeclarationEx> columns = getColumnsDeepForDefinition(codec.insertColumns);
+        final InsertBatch batch;
+        switch (insertFormat) {
+            case ROW_BINARY:
+                // takes pooled connection only while sending, encoder batches are never sent
+                batch = new RowBinaryInsertBatch(encoder ? null : getInsertDataSource(), codec.tableIdentity, columns);
+                break;
+            case JDBC:
+                // prepared statement keeps connection of the lane buffer, it is opened outside of the pool
+                batch = new JdbcInsertBatch(codec.lane.getConnection(currentBuffer), SqlQueryHelper.getInsertIntoQuery(codec.tableIdentity, columns));
+                break;
+            default:
+                throw new UnsupportedOperationException(String.format("Insert format '%s' is not supported.", insertFormat));
+        }
+
+        for (Map.Entry<String, String> setting : insertSettings.entrySet())
+            batch.setSetting(setting.getKey(), setting.getValue());
+        return batch;
+    }
+
+    private DataSource getInsertDataSource() {
+        return insertDataSource != null ? insertDataSource : clickhouseClient.getDataSource();
+    }
+
+    // data source of the next JDBC batch, the least loaded shard is picked for each batch of routed inserts
+    private DataSource getLaneDataSource() {
+        if (insertDataSource instanceof ShardRouter)
+            return ((ShardRouter) insertDataSource).getLeastLoadedShard();
+        return insertDataSource != null ? insertDataSource : clickhouseClient.getUnpooledDataSource();
+    }
+
+    // JDBC lanes keep connections for the writer lifetime, so they are not counted against the pool of short-lived ones
+    private static Connection openLaneConnection(DataSource dataSource) throws SQLException {
+        if (dataSource instanceof ShardRouter.Shard)
+            return ((ShardRouter.Shard) dataSource).getClient().getUnpooledDataSource().getConnection();
+        return dataSource.getConnection();
+    }
+
+    private Lane getLane(TableIdentity tableIdentity) {
+        final String tableName = tableIdentity.getDatabaseName() + "." + tableIdentity.getTableName();
+        return lanes.computeIfAbsent(tableName, name -> new Lane(name, flushBufferCount));
+    }
+
+    /**
+     * Sends current batch to Clickhouse. Batches of different tables are sent concurrently, each table by its own
+     * flusher thread. When more than one flush buffer is configured, this method only waits until the next buffer
+     * is released by the previous flush.
+     */
     public void flush() throws SQLException {
         if (batchMsgCount == 0)
             return;
 
-        for (Codec codec : fieldCodecs) {
-            if (codec != null)
+        if (encoderPool != null)
+            appendChunks();
+
+        final List<Lane> flushLanes = new ArrayList<>(lanes.size());
+        for (Lane lane : lanes.values()) {
+            if (lane.hasStatements(currentBuffer))
+                flushLanes.add(lane);
+        }
+
+        final FlushPolicy policy = flushPolicy;
+        final int messages = batchMsgCount;
+        final ReplicationCheckpoint.Position position = new ReplicationCheckpoint.Position(lastTimestamp, lastTimestampCount);
+        final long sequence = ++flushSequence;
+        if (deduplicationToken != null) {
+            final String token = deduplicationToken + "/" + batchFirstPosition + "-" + position;
+            for (Lane lane : flushLanes) {
+                for (Codec codec : lane.codecs) {
+                    if (codec.insertStatements[currentBuffer] != null)
+                        codec.insertStatements[currentBuffer].setDeduplicationToken(token + "/" + codec.getTypeName());
+                }
+            }
+        }
+        if (commitListener != null)
+            commitListener.onSending(sequence, batchFirstPosition, position);
+        replayBatchComplete = false;
+        if (policy != null)
+            policy.onBatchFilled(messages, batchBytes, System.nanoTime() - batchStartNanos);
+
+        if (flushBufferCount == 1 && flushLanes.size() == 1) {
+            final long start = System.nanoTime();
+            final Lane lane = flushLanes.get(0);
+            executeBatches(lane.takeBatchShard(currentBuffer), lane.getStatements(currentBuffer));
+            if (policy != null)
+                policy.onBatchSent(messages, System.nanoTime() - start);
+            onCommitted(sequence, position);
+        } else {
+            // batch is sent when the slowest lane completes
+            final long start = System.nanoTime();
+            final AtomicInteger pendingLanes = new AtomicInteger(flushLanes.size());
+
+            for (Lane lane : lanes.values())
+                lane.checkPendingFlushes();
+
+            for (Lane lane : flushLanes) {
+                final List<InsertBatch> statements = lane.getStatements(currentBuffer);
+                final ShardRouter.Shard shard = lane.takeBatchShard(currentBuffer);
+                lane.submit(currentBuffer, () -> {
+                    if (flushFailed)
+                        throw new SQLException("Previous flush failed.");
+
+                    try {
+                        executeBatches(shard, statements);
+                    } catch (SQLException | RuntimeException e) {
+                        flushFailed = true;
+                        throw e;
+                    }
+                    if (pendingLanes.decrementAndGet() == 0) {
+                        if (policy != null)
+                            policy.onBatchSent(messages, System.nanoTime() - start);
+                        onCommitted(sequence, position);
+                    }
+                    return null;
+                });
+            }
+
+            // with single buffer this waits for the flush which was just submitted
+            currentBuffer = (currentBuffer + 1) % flushBufferCount;
+            SQLException error = null;
+            for (Lane lane : flushLanes) {
                 try {
-                    codec.getInsertStatement().executeBatch();
+                    lane.awaitFlush(currentBuffer);
                 } catch (SQLException e) {
-                    LOG.error("Execute query failed by: " + e.getMessage());
-                    throw e;
+                    if (error == null)
+                        error = e;
                 }
+            }
+            if (error != null)
+                throw error;
         }
+
         batchMsgCount = 0;
+        batchBytes = 0;
         minMsgTimestamp = maxMsgTimestamp = Long.MIN_VALUE;
     }
 
+    // batches of different tables may complete out of order, position is reported when all previous batches completed
+    private synchronized void onCommitted(long sequence, ReplicationCheckpoint.Position position) throws SQLException {
+        if (commitListener == null)
+            return;
+
+        completedFlushes.put(sequence, position);
+        ReplicationCheckpoint.Position committed = null;
+        while (!completedFlushes.isEmpty() && completedFlushes.firstKey() == committedSequence + 1) {
+            committed = completedFlushes.pollFirstEntry().getValue();
+            committedSequence++;
+        }
+
+        if (committed != null)
+            commitListener.onCommitted(committed);
+    }
+
+    // no batch is pending after close only if all sent batches were committed
+    private synchronized void notifyClosed() {
+        if (commitListener == null || committedSequence != flushSequence)
+            return;
+
+        try {
+            commitListener.onClosed();
+        } catch (SQLException | RuntimeException e) {
+            error()
+                    .append("Commit on close failed.")
+                    .append(e)
+                    .commit();
+        }
+    }
+
+    /**
+     * Waits until all batches handed over to flusher threads reach Clickhouse.
+     */
+    public void awaitPendingFlushes() throws SQLException {
+        for (Lane lane : lanes.values()) {
+            for (int i = 0; i < flushBufferCount; i++)
+                lane.awaitFlush(i);
+        }
+    }
+
+    // inserts of JDBC batches count in the load of the shard, connections of other batches are measured by the shard
+    private static void executeBatches(ShardRouter.Shard shard, List<InsertBatch> statements) throws SQLException {
+        if (shard == null) {
+            executeBatches(statements);
+        } else {
+            shard.measure(() -> {
+                executeBatches(statements);
+                return null;
+            });
+        }
+    }
+
+    private static void executeBatches(List<InsertBatch> statements) throws SQLException {
+        for (InsertBatch statement : statements) {
+            try {
+                statement.executeBatch();
+            } catch (SQLException e) {
+                LOG.error("Execute query failed by: " + e.getMessage());
+                throw e;
+            }
+        }
+    }
+
     @Override
     public void close() {
-//        if (inClosing.compareAndSet(false, true)) {
-//            debug()
-//                    .append("closing")
-//                    .commit();
-
         info().append("Closing.").commit();
 
+        if (encoderPool != null)
+            ExecutorsUtil.shutdownAndAwaitTermination(encoderPool, ExecutorsUtil.DEFAULT_SHUTDOWN_TIMEOUT_MS);
+
+        for (Lane lane : lanes.values()) {
+            // let batches which were already handed over to the flusher reach Clickhouse
+            for (int i = 0; i < flushBufferCount; i++) {
+                try {
+                    lane.awaitFlush(i);
+                } catch (SQLException | RuntimeException e) {
+                    error()
+                            .append("Pending flush of ")
+                            .append(lane.tableName)
+                            .append(" failed.")
+                            .append(e)
+                            .commit();
+                }
+            }
+            if (lane.flusher != null)
+                ExecutorsUtil.shutdownAndAwaitTermination(lane.flusher, ExecutorsUtil.DEFAULT_SHUTDOWN_TIMEOUT_MS);
+        }
+        notifyClosed();
+
         try {
             for (Codec codec : fieldCodecs) {
                 if (codec != null) {
-                    PreparedStatement insertStatement = codec.getInsertStatement();
-                    if (insertStatement != null)
-                        insertStatement.close();
+                    for (InsertBatch insertStatement : codec.insertStatements) {
+                        if (insertStatement != null)
+                            insertStatement.close();
+                    }
                 }
             }
 
-            if (clickhouseConnection != null)
-                clickhouseConnection.close();
+            for (Lane lane : lanes.values()) {
+                for (Map<DataSource, Connection> connections : lane.connections) {
+                    for (Connection clickhouseConnection : connections.values())
+                        clickhouseConnection.close();
+                }
+            }
         } catch (SQLException e) {
             error()
                     .append("Close operation failed.")
                     .append(e)
                     .commit();
         }
+    }
+
+    /**
+     * Switches writer to changed schema of the stream without closing it. Current batch is flushed with previous
+     * codecs, codecs of new target columns and message types are built on next messages. Connections are kept.
+     */
+    public void updateSchema(Map<String, TableDeclaration> declarations,
+                             Map<String, List<ColumnDeclarationEx>> columnDeclarations,
+                             List<UnboundDecoder> messageDecoders) throws SQLException {
+        flush();
+        awaitPendingFlushes();
+
+        for (Codec codec : fieldCodecs) {
+            if (codec != null) {
+                for (InsertBatch insertStatement : codec.insertStatements) {
+                    if (insertStatement != null)
+                        insertStatement.close();
+                }
+            }
+        }
+        for (Lane lane : lanes.values())
+            lane.codecs.clear();
+        fieldCodecs.clear();
+        fieldCodecsByRecordClassInfo.clear();
+        // encoders of parallel stage copy schema of the writer, so they are created again
+        freeChunks.clear();
+
+        this.declarations = declarations;
+        this.columnDeclarations = columnDeclarations;
+        this.messageDecoders = messageDecoders.stream().collect(Collectors.toMap(unboundDecoder ->
+                unboundDecoder.getClassInfo().getDescriptor().getName(), unboundDecoder -> unboundDecoder));
 
-//            flusher.autoResetEvent.set();
-//
-//            try {
-//                flusherThread.join();
-//            } catch (InterruptedException e) {
-//                LOG.info()
-//                        .append("Flushed thread was interrupted.");
-//            }
-//        } else {
-//            debug()
-//                    .append("ignoring close request: already closing.")
-//                    .commit();
-//        }
+        info().append("Schema updated.").commit();
     }
 
     public boolean removeFixedColumn(String name) {
@@ -771,6 +1147,13 @@ public class UnboundTableWriter implements Closeable {
                 .append(": ");
     }
 
+    private LogEntry warn() {
+        return LOG.warn()
+                .append("Writer ")
+                .append(writerName)
+                .append(": ");
+    }
+
     private LogEntry error() {
         return LOG.error()
                 .append("Writer ")
@@ -778,119 +1161,187 @@ public class UnboundTableWriter implements Closeable {
                 .append(": ");
     }
 
-    private static class Codec {
-        private final PreparedStatement insertStatement;
-        private final ClickhouseContext clickhouseContext;
-        UnboundDecoder unboundDecoder;
-        Map<String, BiConsumer<TimebaseContext, FieldContext>> fieldCodecs;
-        final TimebaseContext timebaseContext = new TimebaseContext();
-        private String insertIntoQuery;
-
-        public Codec(Connection clickhouseConnection,
-                    TableIdentity tableIdentity,
-                    UnboundDecoder unboundDecoder,
-                    Map<String, BiConsumer<TimebaseContext, FieldContext>> fieldCodecs,
-                    List<ColumnDeclarationEx> insertColumns,
-                    PreparedStatement insertStatement) throws SQLException {
-
-            this.unboundDecoder = unboundDecoder;
-            this.fieldCodecs = fieldCodecs;
-
-            if (insertStatement == null) {
-                insertIntoQuery = SqlQueryHelper.getInsertIntoQuery(tableIdentity, getColumnsDeepForDefinition(insertColumns));
-                this.insertStatement = clickhouseConnection.prepareStatement(insertIntoQuery);
-            } else {
-                this.insertStatement = insertStatement;
-            }
-            clickhouseContext = new ClickhouseContext(insertColumns);
-            clickhouseContext.statement = getInsertStatement();
+    public interface CommitListener {
+        /**
+         * Called before batch is sent.
+         *
+         * @param sequence number of batch, starting from 1
+         * @param first    position of the first message of batch
+         * @param last     position of the last message of batch
+         */
+        default void onSending(long sequence, ReplicationCheckpoint.Position first, ReplicationCheckpoint.Position last) throws SQLException {
         }
 
+        void onCommitted(ReplicationCheckpoint.Position position) throws SQLException;
 
-        public PreparedStatement getInsertStatement() {
-            return insertStatement;
+        /**
+         * Called when writer is closed after all sent batches were committed.
+         */
+        default void onClosed() throws SQLException {
         }
+    }
 
-        public UnboundDecoder getUnboundDecoder() {
-            return unboundDecoder;
+    /**
+     * Writer lane of a single target table. Each buffer uses own connection, so the flusher thread never shares
+     * connection with the reading thread, and single flusher thread keeps batches of the table in the same order
+     * as they were filled.
+     */
+    class Lane {
+        private final String tableName;
+        // JDBC connections of each buffer by data source they were opened from
+        private final List<Map<DataSource, Connection>> connections;
+        // data source and connection of the JDBC batch filled in each buffer
+        private final DataSource[] batchDataSources;
+        private final Connection[] batchConnections;
+        private final Future<?>[] pendingFlushes;
+        private final List<Codec> codecs = new ArrayList<>();
+        private ExecutorService flusher;
+
+        Lane(String tableName, int bufferCount) {
+            this.tableName = tableName;
+            this.connections = new ArrayList<>(bufferCount);
+            for (int i = 0; i < bufferCount; i++)
+                this.connections.add(new HashMap<>());
+            this.batchDataSources = new DataSource[bufferCount];
+            this.batchConnections = new Connection[bufferCount];
+            this.pendingFlushes = new Future<?>[bufferCount];
         }
 
-        public Map<String, BiConsumer<TimebaseContext, FieldContext>> getFieldCodecs() {
-            return fieldCodecs;
+        Connection getConnection(int buffer) throws SQLException {
+            if (batchConnections[buffer] == null) {
+                final DataSource dataSource = getLaneDataSource();
+                Connection connection = connections.get(buffer).get(dataSource);
+                if (connection == null) {
+                    connection = openLaneConnection(dataSource);
+                    connections.get(buffer).put(dataSource, connection);
+                }
+                batchDataSources[buffer] = dataSource;
+                batchConnections[buffer] = connection;
+            }
+            return batchConnections[buffer];
         }
 
-        public String getInsertIntoQuery() {
-            return insertIntoQuery;
+        /**
+         * Returns shard of the JDBC batch filled in the buffer, if any, the next batch picks the shard again.
+         */
+        ShardRouter.Shard takeBatchShard(int buffer) {
+            final DataSource dataSource = batchDataSources[buffer];
+            batchDataSources[buffer] = null;
+            batchConnections[buffer] = null;
+            return dataSource instanceof ShardRouter.Shard ? (ShardRouter.Shard) dataSource : null;
         }
 
-        public TimebaseContext getTimebaseContext() {
-            return timebaseContext;
+        boolean hasStatements(int buffer) {
+            for (Codec codec : codecs) {
+                if (codec.insertStatements[buffer] != null)
+                    return true;
+            }
+            return false;
         }
 
-        public ClickhouseContext getClickhouseContext() {
-            return clickhouseContext;
+        List<InsertBatch> getStatements(int buffer) {
+            final List<InsertBatch> statements = new ArrayList<>(codecs.size());
+            for (Codec codec : codecs) {
+                if (codec.insertStatements[buffer] != null)
+                    statements.add(codec.insertStatements[buffer]);
+            }
+            return statements;
         }
-    }
-
-    static class FieldContext {
-        private final ColumnDeclarationEx columnDeclaration;
-        private final ClickhouseContext clickhouseContext;
 
-        public FieldContext(ClickhouseContext clickhouseContext, ColumnDeclarationEx columnDeclaration) {
-            assert clickhouseContext != null;
-            assert columnDeclaration != null;
-
-            this.clickhouseContext = clickhouseContext;
-            this.columnDeclaration = columnDeclaration;
+        void submit(int buffer, Callable<Void> flush) {
+            if (flusher == null)
+                flusher = Executors.newSingleThreadExecutor(r -> new Thread(r, String.format("Writer '%s' flusher %s", writerName, tableName)));
+            pendingFlushes[buffer] = flusher.submit(flush);
         }
-    }
 
-    static class ClickhouseContext {
-        //        int parameterIndex;
-        PreparedStatement statement;
-        private final List<ColumnDeclarationEx> columnDeclarations;
-
-        private final Map<String, ColumnDeclarationEx> map = new HashMap<>();
-
-        public ClickhouseContext(List<ColumnDeclarationEx> columnDeclarations) {
-            this.columnDeclarations = columnDeclarations;
-            for (int i = 0; columnDeclarations != null && i < columnDeclarations.size(); i++)
-                map.put(columnDeclarations.get(i).getDbColumnName(), columnDeclarations.get(i));
+        void checkPendingFlushes() throws SQLException {
+            for (int i = 0; i < pendingFlushes.length; i++) {
+                if (pendingFlushes[i] != null && pendingFlushes[i].isDone())
+                    awaitFlush(i);
+            }
         }
 
-        public ColumnDeclarationEx getColumn(String name) {
-            return map.get(name);
+        void awaitFlush(int buffer) throws SQLException {
+            final Future<?> pendingFlush = pendingFlushes[buffer];
+            if (pendingFlush == null)
+                return;
+
+            try {
+                pendingFlush.get();
+                pendingFlushes[buffer] = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for flush.", e);
+            } catch (ExecutionException e) {
+                pendingFlushes[buffer] = null;
+                final Throwable cause = e.getCause();
+                if (cause instanceof SQLException)
+                    throw (SQLException) cause;
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                throw new SQLException(cause);
+            }
         }
     }
 
-    private static class TimebaseContext {
-        private final Map<String, String> mapping = new HashMap<>(); // map for fieldName -> columnName
-        private UnboundDecoder messageDecoder;
+    /**
+     * Messages copied for parallel encoding, encoded by own encoder into batches without connection.
+     */
+    private static class EncodeChunk {
+        private final UnboundTableWriter encoder;
+        private final RawMessage message = new RawMessage();
+        private final StringBuilder symbol = new StringBuilder();
+        private final int[] typeIndices = new int[ENCODE_CHUNK_SIZE];
+        private final RecordClassDescriptor[] types = new RecordClassDescriptor[ENCODE_CHUNK_SIZE];
+        private final long[] timestamps = new long[ENCODE_CHUNK_SIZE];
+        private final int[] symbolEnds = new int[ENCODE_CHUNK_SIZE];
+        private final int[] dataEnds = new int[ENCODE_CHUNK_SIZE];
+        private final StringBuilder symbols = new StringBuilder();
+        private byte[] data = new byte[64 * 1024];
+        private int size;
+        private Future<?> future;
+
+        EncodeChunk(UnboundTableWriter encoder) {
+            this.encoder = encoder;
+        }
 
-        String getColumnName(String typeName, String fieldName) {
-            return mapping.get(buildKey(typeName, fieldName));
+        void add(RawMessage message, int typeIndex) {
+            int dataStart = size > 0 ? dataEnds[size - 1] : 0;
+            if (dataStart + message.length > data.length)
+                data = Arrays.copyOf(data, Math.max(dataStart + message.length, data.length * 2));
+            System.arraycopy(message.data, message.offset, data, dataStart, message.length);
+
+            typeIndices[size] = typeIndex;
+            types[size] = message.type;
+            timestamps[size] = message.getTimeStampMs();
+            if (message.getSymbol() != null)
+                symbols.append(message.getSymbol());
+            symbolEnds[size] = symbols.length();
+            dataEnds[size] = dataStart + message.length;
+            size++;
         }
 
-        void buildMappings(RecordClassInfo info, ColumnNamingScheme scheme) {
-            NonStaticFieldInfo[] fields = info.getNonStaticFields();
-            String typeName = info.getDescriptor().getName();
-            for (int i = 0; i < fields.length; i++) {
-                com.epam.deltix.qsrv.hf.pub.md.DataType type = fields[i].getType();
-                if (type.getCode() == com.epam.deltix.qsrv.hf.pub.md.DataType.T_ARRAY_TYPE) {
-                    DataType elementDataType = ((ArrayDataType) type).getElementDataType();
-                    if (elementDataType.getCode() == DataType.T_OBJECT_TYPE) {
-                        RecordClassDescriptor[] descriptors = ((ClassDataType) elementDataType).getDescriptors();
-                        for (RecordClassDescriptor descriptor : descriptors) {
-                            buildMappings(new RecordLayout(descriptor), scheme);
-                        }
-                    }
-                }
-                mapping.put(buildKey(typeName, fields[i].getName()), SchemaProcessor.getColumnName(info.getDescriptor(), fields[i], scheme));
+        void encode() throws SQLException {
+            for (int i = 0; i < size; i++) {
+                int symbolStart = i > 0 ? symbolEnds[i - 1] : 0;
+                int dataStart = i > 0 ? dataEnds[i - 1] : 0;
+                symbol.setLength(0);
+                symbol.append(symbols, symbolStart, symbolEnds[i]);
+
+                message.type = types[i];
+                message.setTimeStampMs(timestamps[i]);
+                message.setSymbol(symbol);
+                message.setBytes(data, dataStart, dataEnds[i] - dataStart);
+                encoder.encode(message, encoder.dataInput, encoder.getCodec(message, typeIndices[i]));
             }
         }
 
-        private String buildKey(String typeName, String fieldName) {
-            return typeName + "_" + fieldName;
+        void clear() {
+            Arrays.fill(types, 0, size, null);
+            symbols.setLength(0);
+            size = 0;
+            future = null;
         }
     }
+
 }
\ No newline at end of file
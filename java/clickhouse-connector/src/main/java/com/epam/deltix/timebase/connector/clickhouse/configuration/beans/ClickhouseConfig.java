@@ -19,6 +19,8 @@ package com.epam.deltix.timebase.connector.clickhouse.configuration.beans;
 import com.clickhouse.client.config.ClickHouseDefaults;
 import com.clickhouse.jdbc.ClickHouseDataSource;
 import com.epam.deltix.clickhouse.ClickhouseClient;
+import com.epam.deltix.clickhouse.ClickhouseClientSettings;
+import com.epam.deltix.clickhouse.pool.ShardRouter;
 import com.epam.deltix.timebase.connector.clickhouse.configuration.properties.ClickhouseProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +36,8 @@ import org.springframework.jdbc.core.PreparedStatementSetter;
 import javax.sql.DataSource;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import static com.clickhouse.client.config.ClickHouseClientOption.USE_OBJECTS_IN_ARRAYS;
@@ -46,11 +50,7 @@ public class ClickhouseConfig {
     @Bean(name="clickHouseDataSource")
     @Lazy
     public DataSource clickHouseDataSource(ClickhouseProperties clickhouseProperties) throws SQLException {
-        final Properties clickHouseProperties = new Properties();
-        clickHouseProperties.put(USE_OBJECTS_IN_ARRAYS.getKey(), true);
-        clickHouseProperties.put(ClickHouseDefaults.USER.getKey(), clickhouseProperties.getUsername());
-        clickHouseProperties.put(ClickHouseDefaults.PASSWORD.getKey(), clickhouseProperties.getPassword());
-        return new ClickHouseDataSource(clickhouseProperties.getUrl(), clickHouseProperties);
+        return createDataSource(clickhouseProperties.getUrl(), clickhouseProperties);
     }
 
     @Autowired
@@ -86,7 +86,43 @@ public class ClickhouseConfig {
     @Autowired
     @Bean(name="clickHouseClient")
     @Lazy
-    public ClickhouseClient clickHouseClient(@Qualifier("clickHouseDataSource") DataSource clickHouseDataSource) {
-        return new ClickhouseClient(clickHouseDataSource);
+    public ClickhouseClient clickHouseClient(@Qualifier("clickHouseDataSource") DataSource clickHouseDataSource,
+                                             ClickhouseProperties clickhouseProperties) {
+        return new ClickhouseClient(clickHouseDataSource, createClientSettings(clickhouseProperties));
+    }
+
+    /**
+     * Creates router of inserts between {@code clickhouse.shards}, or returns null when shards are not configured.
+     */
+    public static ShardRouter createShardRouter(ClickhouseProperties clickhouseProperties) throws SQLException {
+        List<String> shards = clickhouseProperties.getShards();
+        if (shards == null || shards.isEmpty())
+            return null;
+        if (clickhouseProperties.getCluster() == null || clickhouseProperties.getCluster().isEmpty())
+            throw new IllegalArgumentException("clickhouse.cluster is required for clickhouse.shards");
+
+        List<ClickhouseClient> clients = new ArrayList<>(shards.size());
+        for (String url : shards)
+            clients.add(new ClickhouseClient(createDataSource(url, clickhouseProperties), createClientSettings(clickhouseProperties)));
+        return new ShardRouter(clients);
+    }
+
+    private static DataSource createDataSource(String url, ClickhouseProperties clickhouseProperties) throws SQLException {
+        final Properties clickHouseProperties = new Properties();
+        clickHouseProperties.put(USE_OBJECTS_IN_ARRAYS.getKey(), true);
+        clickHouseProperties.put(ClickHouseDefaults.USER.getKey(), clickhouseProperties.getUsername());
+        clickHouseProperties.put(ClickHouseDefaults.PASSWORD.getKey(), clickhouseProperties.getPassword());
+        return new ClickHouseDataSource(url, clickHouseProperties);
+    }
+
+    private static ClickhouseClientSettings createClientSettings(ClickhouseProperties clickhouseProperties) {
+        // connections are pooled and shared by all replications
+        ClickhouseClientSettings settings = new ClickhouseClientSettings();
+        settings.setMaxConnections(clickhouseProperties.getMaxConnections());
+        settings.setConnectionAcquireTimeoutMs(clickhouseProperties.getConnectionAcquireTimeoutMs());
+        settings.setConnectionIdleTimeoutMs(clickhouseProperties.getConnectionIdleTimeoutMs());
+        settings.setConnectionValidationIntervalMs(clickhouseProperties.getConnectionValidationIntervalMs());
+        settings.setMetadataCacheTtlMs(clickhouseProperties.getMetadataCacheTtlMs());
+        return settings;
     }
 }
\ No newline at end of file
@@ -19,6 +19,9 @@ package com.epam.deltix.timebase.connector.clickhouse.configuration.properties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @ConfigurationProperties(prefix = "clickhouse")
 public class ClickhouseProperties {
@@ -33,6 +36,27 @@ public class ClickhouseProperties {
 
     private String database;
 
+    private int maxConnections = 32;
+
+    private long connectionAcquireTimeoutMs = 30_000;
+
+    private long connectionIdleTimeoutMs = 300_000;
+
+    private long connectionValidationIntervalMs = 30_000;
+
+    private long metadataCacheTtlMs = 60_000;
+
+    private List<String> shards = new ArrayList<>();
+
+    private String cluster;
+
+    private boolean onCluster = false;
+
+    private boolean replicated = false;
+
+    private String zooKeeperPath = "/clickhouse/tables/{shard}/{database}/{table}";
+
+    private String replicaName = "{replica}";
 
     public String getUrl() {
         return url;
@@ -73,4 +97,106 @@ public class ClickhouseProperties {
     public void setDatabase(String database) {
         this.database = database;
     }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public long getConnectionAcquireTimeoutMs() {
+        return connectionAcquireTimeoutMs;
+    }
+
+    public void setConnectionAcquireTimeoutMs(long connectionAcquireTimeoutMs) {
+        this.connectionAcquireTimeoutMs = connectionAcquireTimeoutMs;
+    }
+
+    public long getConnectionIdleTimeoutMs() {
+        return connectionIdleTimeoutMs;
+    }
+
+    public void setConnectionIdleTimeoutMs(long connectionIdleTimeoutMs) {
+        this.connectionIdleTimeoutMs = connectionIdleTimeoutMs;
+    }
+
+    public long getConnectionValidationIntervalMs() {
+        return connectionValidationIntervalMs;
+    }
+
+    public void setConnectionValidationIntervalMs(long connectionValidationIntervalMs) {
+        this.connectionValidationIntervalMs = connectionValidationIntervalMs;
+    }
+
+    /**
+     * Max age of table columns loaded from system.columns, 0 - each table is described by own query
+     */
+    public long getMetadataCacheTtlMs() {
+        return metadataCacheTtlMs;
+    }
+
+    public void setMetadataCacheTtlMs(long metadataCacheTtlMs) {
+        this.metadataCacheTtlMs = metadataCacheTtlMs;
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<String> shards) {
+        this.shards = shards;
+    }
+
+    public String getCluster() {
+        return cluster;
+    }
+
+    public void setCluster(String cluster) {
+        this.cluster = cluster;
+    }
+
+    public boolean isOnCluster() {
+        return onCluster;
+    }
+
+    public void setOnCluster(boolean onCluster) {
+        this.onCluster = onCluster;
+    }
+
+    public boolean isReplicated() {
+        return replicated;
+    }
+
+    public void setReplicated(boolean replicated) {
+        this.replicated = replicated;
+    }
+
+    public String getZooKeeperPath() {
+        return zooKeeperPath;
+    }
+
+    public void setZooKeeperPath(String zooKeeperPath) {
+        this.zooKeeperPath = zooKeeperPath;
+    }
+
+    public String getReplicaName() {
+        return replicaName;
+    }
+
+    public void setReplicaName(String replicaName) {
+        this.replicaName = replicaName;
+    }
+
+    /**
+     * Returns cluster of DDL queries or null if they are executed on the connected node only.
+     */
+    public String getDdlCluster() {
+        if (!onCluster)
+            return null;
+        if (cluster == null || cluster.isEmpty())
+            throw new IllegalArgumentException("clickhouse.cluster is required for clickhouse.onCluster");
+        return cluster;
+    }
 }
\ No newline at end of file
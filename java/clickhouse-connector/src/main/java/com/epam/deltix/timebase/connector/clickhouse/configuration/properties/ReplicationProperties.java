@@ -17,6 +17,8 @@
 package com.epam.deltix.timebase.connector.clickhouse.configuration.properties;
 
 import com.epam.deltix.timebase.connector.clickhouse.model.ColumnNamingScheme;
+import com.epam.deltix.timebase.connector.clickhouse.model.InsertFormat;
+import com.epam.deltix.timebase.connector.clickhouse.model.InsertMode;
 import com.epam.deltix.timebase.connector.clickhouse.model.QueryRequest;
 import com.epam.deltix.timebase.connector.clickhouse.model.StreamRequest;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -32,8 +34,25 @@ public class ReplicationProperties {
     private List<QueryRequest> queries = new ArrayList<>();
     private ColumnNamingScheme columnNamingScheme = ColumnNamingScheme.NAME_AND_DATATYPE;
     private boolean includePartitionColumn = true;
+    private InsertFormat insertFormat = InsertFormat.JDBC;
+    private InsertMode insertMode = InsertMode.SYNC;
+    private boolean waitForAsyncInsert = true;
+    private long asyncFlushTimeoutMs = 200;
+    private long ringBufferSize = 0;
+    private int encoderThreads = 0;
+    private boolean inferIndexes = false;
+    private boolean compactColumnTypes = false;
+    private boolean columnSizeReport = false;
+    private int schedulerThreads = 0;
     private int flushMessageCount = 10_000;
     private long flushTimeoutMs = 60_000;
+    private int flushBufferCount = 1;
+    private boolean checkpoints = true;
+    private boolean deduplication = false;
+    private boolean adaptiveFlush = false;
+    private int minFlushMessageCount = 100;
+    private long targetBatchBytes = 64 * 1024 * 1024;
+    private long targetFlushLatencyMs = 1_000;
     private long pollingIntervalMs = 60_000;
 
     public List<QueryRequest> getQueries() {
@@ -68,6 +87,79 @@ public class ReplicationProperties {
         this.flushTimeoutMs = flushTimeoutMs;
     }
 
+    public int getFlushBufferCount() {
+        return flushBufferCount;
+    }
+
+    public void setFlushBufferCount(int flushBufferCount) {
+        this.flushBufferCount = flushBufferCount;
+    }
+
+    /**
+     * Keep committed positions in Clickhouse, so restart in APPEND mode does not scan target tables.
+     * Without deduplication rows from the committed timestamp on are deleted on restart
+     */
+    public boolean isCheckpoints() {
+        return checkpoints;
+    }
+
+    public void setCheckpoints(boolean checkpoints) {
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * Send batches with insert_deduplication_token, so batches resent after restart are dropped by Clickhouse.
+     * Requires checkpoints
+     */
+    public boolean isDeduplication() {
+        return deduplication;
+    }
+
+    public void setDeduplication(boolean deduplication) {
+        this.deduplication = deduplication;
+    }
+
+    /**
+     * Tune batch size by measured insert latency and throughput, flushMessageCount and flushTimeoutMs become upper bounds
+     */
+    public boolean isAdaptiveFlush() {
+        return adaptiveFlush;
+    }
+
+    public void setAdaptiveFlush(boolean adaptiveFlush) {
+        this.adaptiveFlush = adaptiveFlush;
+    }
+
+    public int getMinFlushMessageCount() {
+        return minFlushMessageCount;
+    }
+
+    public void setMinFlushMessageCount(int minFlushMessageCount) {
+        this.minFlushMessageCount = minFlushMessageCount;
+    }
+
+    /**
+     * Target size of source messages in batch, which approximates size of the Clickhouse part
+     */
+    public long getTargetBatchBytes() {
+        return targetBatchBytes;
+    }
+
+    public void setTargetBatchBytes(long targetBatchBytes) {
+        this.targetBatchBytes = targetBatchBytes;
+    }
+
+    /**
+     * Target time between message arrival and its visibility in Clickhouse
+     */
+    public long getTargetFlushLatencyMs() {
+        return targetFlushLatencyMs;
+    }
+
+    public void setTargetFlushLatencyMs(long targetFlushLatencyMs) {
+        this.targetFlushLatencyMs = targetFlushLatencyMs;
+    }
+
     public long getPollingIntervalMs() {
         return pollingIntervalMs;
     }
@@ -91,4 +183,102 @@ public class ReplicationProperties {
     public void setIncludePartitionColumn(boolean includePartitionColumn) {
         this.includePartitionColumn = includePartitionColumn;
     }
+
+    public InsertFormat getInsertFormat() {
+        return insertFormat;
+    }
+
+    public void setInsertFormat(InsertFormat insertFormat) {
+        this.insertFormat = insertFormat;
+    }
+
+    public InsertMode getInsertMode() {
+        return insertMode;
+    }
+
+    public void setInsertMode(InsertMode insertMode) {
+        this.insertMode = insertMode;
+    }
+
+    public boolean isWaitForAsyncInsert() {
+        return waitForAsyncInsert;
+    }
+
+    public void setWaitForAsyncInsert(boolean waitForAsyncInsert) {
+        this.waitForAsyncInsert = waitForAsyncInsert;
+    }
+
+    /**
+     * Flush interval of replications in ASYNC insert mode
+     */
+    public long getAsyncFlushTimeoutMs() {
+        return asyncFlushTimeoutMs;
+    }
+
+    public void setAsyncFlushTimeoutMs(long asyncFlushTimeoutMs) {
+        this.asyncFlushTimeoutMs = asyncFlushTimeoutMs;
+    }
+
+    /**
+     * Size in bytes of off-heap buffer between cursor and encoder of stream replications, 0 - disabled
+     */
+    public long getRingBufferSize() {
+        return ringBufferSize;
+    }
+
+    public void setRingBufferSize(long ringBufferSize) {
+        this.ringBufferSize = ringBufferSize;
+    }
+
+    public boolean isInferIndexes() {
+        return inferIndexes;
+    }
+
+    public void setInferIndexes(boolean inferIndexes) {
+        this.inferIndexes = inferIndexes;
+    }
+
+    /**
+     * Whether instrument and type columns of created tables are LowCardinality(String) and timestamp has delta codec
+     */
+    public boolean isCompactColumnTypes() {
+        return compactColumnTypes;
+    }
+
+    public void setCompactColumnTypes(boolean compactColumnTypes) {
+        this.compactColumnTypes = compactColumnTypes;
+    }
+
+    /**
+     * Whether compressed and uncompressed bytes per row of target table columns are logged after replication started
+     */
+    public boolean isColumnSizeReport() {
+        return columnSizeReport;
+    }
+
+    public void setColumnSizeReport(boolean columnSizeReport) {
+        this.columnSizeReport = columnSizeReport;
+    }
+
+    /**
+     * Number of threads encoding messages in parallel, 0 - messages are encoded by replication thread
+     */
+    public int getEncoderThreads() {
+        return encoderThreads;
+    }
+
+    public void setEncoderThreads(int encoderThreads) {
+        this.encoderThreads = encoderThreads;
+    }
+
+    /**
+     * Number of threads running live replications, 0 - each replication runs on own thread
+     */
+    public int getSchedulerThreads() {
+        return schedulerThreads;
+    }
+
+    public void setSchedulerThreads(int schedulerThreads) {
+        this.schedulerThreads = schedulerThreads;
+    }
 }
\ No newline at end of file
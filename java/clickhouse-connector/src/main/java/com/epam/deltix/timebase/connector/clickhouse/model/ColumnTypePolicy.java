@@ -0,0 +1,133 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.model;
+
+import com.epam.deltix.clickhouse.schema.ColumnDeclaration;
+import com.epam.deltix.clickhouse.schema.TableDeclaration;
+import com.epam.deltix.clickhouse.schema.types.NullableDataType;
+import com.epam.deltix.clickhouse.schema.types.ObjectDataType;
+import com.epam.deltix.clickhouse.schema.types.SqlDataType;
+import com.epam.deltix.clickhouse.schema.types.StringDataType;
+import com.epam.deltix.timebase.connector.clickhouse.algos.SchemaProcessor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage types of created table columns: {@code LowCardinality} strings and compression codecs.
+ * Values are written the same way, so policy affects only CREATE TABLE statement.
+ */
+public class ColumnTypePolicy {
+
+    public static final ColumnTypePolicy DEFAULT = new ColumnTypePolicy(false, Collections.emptyList(), Collections.emptyMap());
+
+    public static final String TIMESTAMP_CODEC = "DoubleDelta, ZSTD";
+
+    private final boolean compact;
+    private final Set<String> lowCardinalityColumns;
+    private final Map<String, String> columnCodecs;
+
+    /**
+     * @param compact               whether instrument and type columns are {@code LowCardinality(String)} and
+     *                              timestamp column is compressed with {@link #TIMESTAMP_CODEC}
+     * @param lowCardinalityColumns additional string columns stored as {@code LowCardinality}
+     * @param columnCodecs          codecs by column name, e.g. {@code Delta, ZSTD}, override defaults
+     */
+    public ColumnTypePolicy(boolean compact, List<String> lowCardinalityColumns, Map<String, String> columnCodecs) {
+        this.compact = compact;
+        this.lowCardinalityColumns = lowCardinalityColumns != null ? new HashSet<>(lowCardinalityColumns) : Collections.emptySet();
+        this.columnCodecs = columnCodecs != null ? new HashMap<>(columnCodecs) : Collections.emptyMap();
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public boolean isDefault() {
+        return !compact && lowCardinalityColumns.isEmpty() && columnCodecs.isEmpty();
+    }
+
+    /**
+     * Returns table declaration used to create table. Columns of nested objects are matched by
+     * flattened name, e.g. {@code entry_price}.
+     */
+    public TableDeclaration apply(TableDeclaration tableDeclaration) {
+        if (isDefault())
+            return tableDeclaration;
+
+        return new TableDeclaration(tableDeclaration.getTableIdentity(), apply(tableDeclaration.getColumns(), null));
+    }
+
+    private List<ColumnDeclaration> apply(List<ColumnDeclaration> columns, String parentName) {
+        List<ColumnDeclaration> result = new ArrayList<>(columns.size());
+        for (ColumnDeclaration column : columns) {
+            String name = column.getDbColumnName();
+            String fullName = parentName == null ? name : parentName + SchemaProcessor.COLUMN_NAME_PART_SEPARATOR + name;
+            SqlDataType dataType = column.getDbDataType();
+
+            if (dataType instanceof ObjectDataType) {
+                ObjectDataType objectDataType = (ObjectDataType) dataType;
+                dataType = new ObjectDataType(objectDataType.getColumnName(), apply(objectDataType.getColumns(), fullName));
+            } else if (isLowCardinality(name, fullName)) {
+                dataType = toLowCardinality(dataType);
+            }
+
+            String codec = columnCodecs.get(fullName);
+            if (codec == null && compact && parentName == null && SchemaProcessor.TIMESTAMP_COLUMN_NAME.equals(name))
+                codec = TIMESTAMP_CODEC;
+            if (codec == null)
+                codec = column.getCodec();
+
+            result.add(new ColumnDeclaration(name, dataType, column.getDefaultExpression(), column.isPartition(), column.isIndex(), codec));
+        }
+        return result;
+    }
+
+    private boolean isLowCardinality(String name, String fullName) {
+        if (lowCardinalityColumns.contains(fullName))
+            return true;
+
+        // class names of polymorphic objects are low cardinality at any level
+        return compact && (SchemaProcessor.TYPE_COLUMN_NAME.equals(name) || SchemaProcessor.INSTRUMENT_COLUMN_NAME.equals(fullName));
+    }
+
+    private static SqlDataType toLowCardinality(SqlDataType dataType) {
+        if (dataType instanceof StringDataType)
+            return new StringDataType(true);
+        if (dataType instanceof NullableDataType && ((NullableDataType) dataType).getNestedType() instanceof StringDataType)
+            return new NullableDataType(new StringDataType(true));
+
+        return dataType;
+    }
+
+    /**
+     * Returns type definition without {@code LowCardinality}, which does not change column values.
+     */
+    public static String getStorageIndependentDefinition(SqlDataType dataType) {
+        if (dataType instanceof StringDataType)
+            return dataType.getType().getSqlDefinition();
+        if (dataType instanceof NullableDataType && ((NullableDataType) dataType).getNestedType() instanceof StringDataType)
+            return String.format("%s(%s)", dataType.getType().getSqlDefinition(), ((NullableDataType) dataType).getNestedType().getType().getSqlDefinition());
+
+        return dataType.getSqlDefinition();
+    }
+}
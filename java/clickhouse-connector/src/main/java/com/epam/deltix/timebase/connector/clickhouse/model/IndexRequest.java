@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.model;
+
+import com.epam.deltix.clickhouse.schema.IndexDeclaration;
+
+/**
+ * Data skipping index requested for target tables.
+ */
+public class IndexRequest {
+
+    private String name;
+    private String expression;
+    private String type = "minmax";
+    private int granularity = 1;
+
+    /**
+     * Index name, generated from expression by default
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Indexed expression, e.g. column name
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    public void setExpression(String expression) {
+        this.expression = expression;
+    }
+
+    /**
+     * Index type: minmax, set(N), bloom_filter etc.
+     */
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(int granularity) {
+        this.granularity = granularity;
+    }
+
+    public IndexDeclaration toDeclaration() {
+        if (expression == null || expression.isEmpty())
+            throw new IllegalArgumentException("Index expression is not defined.");
+
+        String indexName = name != null ? name : "idx_" + expression.replaceAll("\\W+", "_");
+        return new IndexDeclaration(indexName, expression, type, granularity);
+    }
+}
@@ -16,9 +16,15 @@
  */
 package com.epam.deltix.timebase.connector.clickhouse.model;
 
+import com.epam.deltix.clickhouse.schema.ProjectionDeclaration;
+
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 public class ReplicationRequest {
 
@@ -29,6 +35,20 @@ public class ReplicationRequest {
     private Map<String, String> typeTableMapping = new HashMap<>();
     private WriteMode writeMode = WriteMode.APPEND;
     private Boolean includePartitionColumn;
+    private InsertFormat insertFormat;
+    private InsertMode insertMode;
+    private Boolean waitForAsyncInsert;
+    private Integer encoderThreads;
+    private String orderBy;
+    private String partitionBy;
+    private String ttl;
+    private Integer indexGranularity;
+    private List<IndexRequest> indexes = new ArrayList<>();
+    private Map<String, String> projections = new LinkedHashMap<>();
+    private Boolean inferIndexes;
+    private Boolean compactColumnTypes;
+    private List<String> lowCardinalityColumns = new ArrayList<>();
+    private Map<String, String> columnCodecs = new LinkedHashMap<>();
 
     public boolean isSplitByTypes() {
         return splitByTypes;
@@ -98,6 +118,168 @@ public class ReplicationRequest {
         this.includePartitionColumn = includePartitionColumn;
     }
 
+    /**
+     * Format used to send inserted rows to Clickhouse
+     */
+    public InsertFormat getInsertFormat() {
+        return insertFormat;
+    }
+
+    public void setInsertFormat(InsertFormat insertFormat) {
+        this.insertFormat = insertFormat;
+    }
+
+    /**
+     * Mode of inserts, ASYNC sends small frequent batches collected into parts by Clickhouse
+     */
+    public InsertMode getInsertMode() {
+        return insertMode;
+    }
+
+    public void setInsertMode(InsertMode insertMode) {
+        this.insertMode = insertMode;
+    }
+
+    /**
+     * Whether async insert waits until data is flushed from server buffer, false requires disabled checkpoints
+     */
+    public Boolean getWaitForAsyncInsert() {
+        return waitForAsyncInsert;
+    }
+
+    public void setWaitForAsyncInsert(Boolean waitForAsyncInsert) {
+        this.waitForAsyncInsert = waitForAsyncInsert;
+    }
+
+    /**
+     * Number of threads encoding messages in parallel, ROW_BINARY insert format only
+     */
+    public Integer getEncoderThreads() {
+        return encoderThreads;
+    }
+
+    public void setEncoderThreads(Integer encoderThreads) {
+        this.encoderThreads = encoderThreads;
+    }
+
+    /**
+     * ORDER BY expression of created tables, (timestamp, instrument) by default
+     */
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    public void setOrderBy(String orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    /**
+     * PARTITION BY expression of created tables, partition column or no partitioning by default
+     */
+    public String getPartitionBy() {
+        return partitionBy;
+    }
+
+    public void setPartitionBy(String partitionBy) {
+        this.partitionBy = partitionBy;
+    }
+
+    /**
+     * TTL expression of created tables, e.g. moves to cold volume
+     */
+    public String getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(String ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * index_granularity of created tables, 8192 by default
+     */
+    public Integer getIndexGranularity() {
+        return indexGranularity;
+    }
+
+    public void setIndexGranularity(Integer indexGranularity) {
+        this.indexGranularity = indexGranularity;
+    }
+
+    /**
+     * Data skipping indexes of target tables
+     */
+    public List<IndexRequest> getIndexes() {
+        return indexes;
+    }
+
+    public void setIndexes(List<IndexRequest> indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * Projections of target tables: name to SELECT query, e.g. SELECT * ORDER BY instrument
+     */
+    public Map<String, String> getProjections() {
+        return projections;
+    }
+
+    public void setProjections(Map<String, String> projections) {
+        this.projections = projections;
+    }
+
+    /**
+     * Whether indexes are added to instrument and enum columns
+     */
+    public Boolean getInferIndexes() {
+        return inferIndexes;
+    }
+
+    public void setInferIndexes(Boolean inferIndexes) {
+        this.inferIndexes = inferIndexes;
+    }
+
+    /**
+     * Whether instrument and type columns are LowCardinality(String) and timestamp has delta codec
+     */
+    public Boolean getCompactColumnTypes() {
+        return compactColumnTypes;
+    }
+
+    public void setCompactColumnTypes(Boolean compactColumnTypes) {
+        this.compactColumnTypes = compactColumnTypes;
+    }
+
+    /**
+     * Additional String columns stored as LowCardinality(String)
+     */
+    public List<String> getLowCardinalityColumns() {
+        return lowCardinalityColumns;
+    }
+
+    public void setLowCardinalityColumns(List<String> lowCardinalityColumns) {
+        this.lowCardinalityColumns = lowCardinalityColumns;
+    }
+
+    /**
+     * Compression codecs by column name, e.g. Delta, ZSTD
+     */
+    public Map<String, String> getColumnCodecs() {
+        return columnCodecs;
+    }
+
+    public void setColumnCodecs(Map<String, String> columnCodecs) {
+        this.columnCodecs = columnCodecs;
+    }
+
+    public TableLayout getTableLayout() {
+        return new TableLayout(orderBy, partitionBy, ttl, indexGranularity,
+                indexes.stream().map(IndexRequest::toDeclaration).collect(Collectors.toList()),
+                projections.entrySet().stream().map(e -> new ProjectionDeclaration(e.getKey(), e.getValue())).collect(Collectors.toList()),
+                inferIndexes != null && inferIndexes,
+                new ColumnTypePolicy(compactColumnTypes != null && compactColumnTypes, lowCardinalityColumns, columnCodecs));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
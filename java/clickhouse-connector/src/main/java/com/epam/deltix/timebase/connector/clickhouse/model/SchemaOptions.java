@@ -27,14 +27,21 @@ public class SchemaOptions {
     private final WriteMode writeMode;
     private final ColumnNamingScheme columnNamingScheme;
     private final boolean includePartitionColumn;
+    private final TableLayout tableLayout;
 
     public SchemaOptions(RecordClassSet tbSchema, Map<String, String> mapping, WriteMode writeMode,
                          ColumnNamingScheme columnNamingScheme, boolean includePartitionColumn) {
+        this(tbSchema, mapping, writeMode, columnNamingScheme, includePartitionColumn, new TableLayout(null, null, null, null));
+    }
+
+    public SchemaOptions(RecordClassSet tbSchema, Map<String, String> mapping, WriteMode writeMode,
+                         ColumnNamingScheme columnNamingScheme, boolean includePartitionColumn, TableLayout tableLayout) {
         this.tbSchema = tbSchema;
         this.mapping = mapping;
         this.writeMode = writeMode;
         this.columnNamingScheme = columnNamingScheme;
         this.includePartitionColumn = includePartitionColumn;
+        this.tableLayout = tableLayout;
     }
 
     public RecordClassSet getTbSchema() {
@@ -56,4 +63,8 @@ public class SchemaOptions {
     public boolean isIncludePartitionColumn() {
         return includePartitionColumn;
     }
+
+    public TableLayout getTableLayout() {
+        return tableLayout;
+    }
 }
\ No newline at end of file
@@ -19,6 +19,8 @@ package com.epam.deltix.timebase.connector.clickhouse.model;
 public class StreamRequest extends ReplicationRequest {
 
     private String stream;
+    private int backfillSlices = 0;
+    private int symbolShards = 0;
 
     public StreamRequest() {
     }
@@ -40,6 +42,28 @@ public class StreamRequest extends ReplicationRequest {
         }
     }
 
+    /**
+     * Number of time slices replicated in parallel on first replication of the stream history (0 or 1 to disable)
+     */
+    public int getBackfillSlices() {
+        return backfillSlices;
+    }
+
+    public void setBackfillSlices(int backfillSlices) {
+        this.backfillSlices = backfillSlices;
+    }
+
+    /**
+     * Number of instrument shards replicated in parallel by own cursors and writers (0 or 1 to disable)
+     */
+    public int getSymbolShards() {
+        return symbolShards;
+    }
+
+    public void setSymbolShards(int symbolShards) {
+        this.symbolShards = symbolShards;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
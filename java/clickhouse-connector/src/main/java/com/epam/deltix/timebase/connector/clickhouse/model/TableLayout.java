@@ -0,0 +1,105 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.model;
+
+import com.epam.deltix.clickhouse.schema.IndexDeclaration;
+import com.epam.deltix.clickhouse.schema.ProjectionDeclaration;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Layout of created MergeTree tables, null values keep connector defaults.
+ */
+public class TableLayout {
+
+    private final String orderBy;
+    private final String partitionBy;
+    private final String ttl;
+    private final Integer indexGranularity;
+    private final List<IndexDeclaration> indexes;
+    private final List<ProjectionDeclaration> projections;
+    private final boolean inferIndexes;
+    private final ColumnTypePolicy columnTypePolicy;
+
+    public TableLayout(String orderBy, String partitionBy, String ttl, Integer indexGranularity) {
+        this(orderBy, partitionBy, ttl, indexGranularity, Collections.emptyList(), Collections.emptyList(), false);
+    }
+
+    public TableLayout(String orderBy, String partitionBy, String ttl, Integer indexGranularity,
+                       List<IndexDeclaration> indexes, List<ProjectionDeclaration> projections, boolean inferIndexes) {
+        this(orderBy, partitionBy, ttl, indexGranularity, indexes, projections, inferIndexes, ColumnTypePolicy.DEFAULT);
+    }
+
+    public TableLayout(String orderBy, String partitionBy, String ttl, Integer indexGranularity,
+                       List<IndexDeclaration> indexes, List<ProjectionDeclaration> projections, boolean inferIndexes,
+                       ColumnTypePolicy columnTypePolicy) {
+        if (indexGranularity != null && indexGranularity <= 0)
+            throw new IllegalArgumentException("indexGranularity must be greater than zero.");
+
+        this.orderBy = orderBy;
+        this.partitionBy = partitionBy;
+        this.ttl = ttl;
+        this.indexGranularity = indexGranularity;
+        this.indexes = indexes;
+        this.projections = projections;
+        this.inferIndexes = inferIndexes;
+        this.columnTypePolicy = columnTypePolicy;
+    }
+
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    public String getPartitionBy() {
+        return partitionBy;
+    }
+
+    public String getTtl() {
+        return ttl;
+    }
+
+    public Integer getIndexGranularity() {
+        return indexGranularity;
+    }
+
+    public List<IndexDeclaration> getIndexes() {
+        return indexes;
+    }
+
+    public List<ProjectionDeclaration> getProjections() {
+        return projections;
+    }
+
+    /**
+     * Whether indexes are added to instrument and enum columns of TimeBase schema.
+     */
+    public boolean isInferIndexes() {
+        return inferIndexes;
+    }
+
+    public ColumnTypePolicy getColumnTypePolicy() {
+        return columnTypePolicy;
+    }
+
+    /**
+     * Whether table engine has default ordering, partitioning and settings.
+     */
+    public boolean isDefaultEngine() {
+        return orderBy == null && partitionBy == null && ttl == null && indexGranularity == null;
+    }
+}
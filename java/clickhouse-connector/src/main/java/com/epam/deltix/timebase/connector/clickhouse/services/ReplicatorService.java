@@ -17,6 +17,8 @@
 package com.epam.deltix.timebase.connector.clickhouse.services;
 
 import com.epam.deltix.clickhouse.ClickhouseClient;
+import com.epam.deltix.clickhouse.pool.ShardRouter;
+import com.epam.deltix.clickhouse.util.ExecutorsUtil;
 import com.epam.deltix.gflog.api.Log;
 import com.epam.deltix.gflog.api.LogFactory;
 import com.epam.deltix.qsrv.hf.pub.md.ClassSet;
@@ -28,9 +30,11 @@ import com.epam.deltix.qsrv.hf.tickdb.pub.DXTickDB;
 import com.epam.deltix.qsrv.hf.tickdb.pub.DXTickStream;
 import com.epam.deltix.qsrv.hf.tickdb.pub.SelectionOptions;
 import com.epam.deltix.timebase.connector.clickhouse.ClickhouseConnectorApplication;
+import com.epam.deltix.timebase.connector.clickhouse.configuration.beans.ClickhouseConfig;
 import com.epam.deltix.timebase.connector.clickhouse.configuration.properties.ClickhouseProperties;
 import com.epam.deltix.timebase.connector.clickhouse.configuration.properties.ReplicationProperties;
 import com.epam.deltix.timebase.connector.clickhouse.algos.QueryReplicator;
+import com.epam.deltix.timebase.connector.clickhouse.algos.ReplicationScheduler;
 import com.epam.deltix.timebase.connector.clickhouse.algos.Replicator;
 import com.epam.deltix.timebase.connector.clickhouse.algos.StreamReplicator;
 import com.epam.deltix.timebase.connector.clickhouse.model.QueryRequest;
@@ -43,8 +47,14 @@ import org.springframework.stereotype.Service;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static com.epam.deltix.timebase.connector.clickhouse.algos.QueryReplicator.QUERY_STATUS_MESSAGE_TYPE;
@@ -58,8 +68,12 @@ public class ReplicatorService {
     private final ClickhouseClient clickhouseClient;
     private final ClickhouseProperties clickhouseProperties;
     private final ReplicationProperties replicationProperties;
-    private final Map<Replicator, Thread> replicators = new ConcurrentHashMap<>();
+    private final Set<Replicator> replicators = ConcurrentHashMap.newKeySet();
     private Timer timer;
+    // bounded execution: live replications run on the scheduler, preparation and backfill on pooled threads
+    private ReplicationScheduler scheduler;
+    private ExecutorService startExecutor;
+    private ShardRouter shardRouter;
 
     @Autowired
     public ReplicatorService(ClickhouseClient clickhouseClient, DXTickDB tickDb,
@@ -74,8 +88,19 @@ public class ReplicatorService {
 
 
     @PostConstruct
-    private void init() {
+    private void init() throws SQLException {
+        shardRouter = ClickhouseConfig.createShardRouter(clickhouseProperties);
         connectionCheck();
+        if (replicationProperties.getSchedulerThreads() > 0) {
+            scheduler = new ReplicationScheduler(replicationProperties.getSchedulerThreads());
+            AtomicInteger index = new AtomicInteger();
+            // preparation and backfill of scheduled replications, threads are released when idle
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(replicationProperties.getSchedulerThreads(),
+                    replicationProperties.getSchedulerThreads(), 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    r -> new Thread(r, String.format("Replicator %s", index.getAndIncrement())));
+            executor.allowCoreThreadTimeOut(true);
+            startExecutor = executor;
+        }
         if (replicationProperties.getPollingIntervalMs() > 0)
             startTimer();
         else
@@ -98,8 +123,9 @@ public class ReplicatorService {
             if (!clickhouseReady) {
                 try {
                     LOG.info().append("Connection to clickhouse ").append(clickhouseProperties.getUrl()).commit();
-                    Connection connection = clickhouseClient.getConnection();
-                    clickhouseReady = connection.isValid(clickhouseProperties.getTimeout());
+                    try (Connection connection = clickhouseClient.getConnection()) {
+                        clickhouseReady = connection.isValid(clickhouseProperties.getTimeout());
+                    }
                 } catch (Exception e) {
                     LOG.error().append("Can't connect to clickhouse ").append(clickhouseProperties.getUrl()).append(" ")
                             .append(e.getMessage()).commit();
@@ -124,32 +150,37 @@ public class ReplicatorService {
             timer.cancel();
         }
 
-        // first stop all threads
-        for (Map.Entry<Replicator, Thread> entry : replicators.entrySet())
-            entry.getKey().stop();
+        // first stop all replications
+        for (Replicator replicator : replicators)
+            replicator.stop();
 
         // then wait for completion
-        for (Map.Entry<Replicator, Thread> entry : replicators.entrySet()) {
-            Thread replicatorThread = entry.getValue();
-
+        for (Replicator replicator : replicators) {
             try {
                 LOG.info()
-                        .append("Joining thread '")
-                        .append(replicatorThread.getName())
+                        .append("Waiting for replication '")
+                        .append(replicator.getKey())
                         .append("'")
                         .commit();
 
-                replicatorThread.join();
+                replicator.awaitStopped();
             } catch (InterruptedException e) {
                 // log and continue
                 LOG.info()
-                        .append("Thread '")
-                        .append(replicatorThread.getName())
+                        .append("Waiting for replication '")
+                        .append(replicator.getKey())
                         .append("' interrupted.")
                         .commit();
             }
         }
 
+        if (startExecutor != null)
+            ExecutorsUtil.shutdownAndAwaitTermination(startExecutor, ExecutorsUtil.DEFAULT_SHUTDOWN_TIMEOUT_MS);
+        if (scheduler != null)
+            scheduler.close();
+        if (shardRouter != null)
+            shardRouter.close();
+
         LOG.info().append("ReplicatorService disposed.").commit();
     }
 
@@ -173,23 +204,39 @@ public class ReplicatorService {
             if (request.getColumnNamingScheme() == null) {
                 request.setColumnNamingScheme(replicationProperties.getColumnNamingScheme());
             }
+            if (request.getInsertFormat() == null) {
+                request.setInsertFormat(replicationProperties.getInsertFormat());
+            }
+            if (request.getInsertMode() == null) {
+                request.setInsertMode(replicationProperties.getInsertMode());
+            }
+            if (request.getWaitForAsyncInsert() == null) {
+                request.setWaitForAsyncInsert(replicationProperties.isWaitForAsyncInsert());
+            }
+            if (request.getEncoderThreads() == null) {
+                request.setEncoderThreads(replicationProperties.getEncoderThreads());
+            }
+            if (request.getInferIndexes() == null) {
+                request.setInferIndexes(replicationProperties.isInferIndexes());
+            }
+            if (request.getCompactColumnTypes() == null) {
+                request.setCompactColumnTypes(replicationProperties.isCompactColumnTypes());
+            }
         }
 
         List<QueryRequest> queryRequests = replicationProperties.getQueries();
         List<StreamRequest> streamRequests = replicationProperties.getStreams();
         validateRequests(queryRequests, streamRequests);
 
-        Set<String> runningReplicationKeys = replicators.keySet().stream().map(Replicator::getKey).collect(Collectors.toSet());
+        Set<String> runningReplicationKeys = replicators.stream().map(Replicator::getKey).collect(Collectors.toSet());
         streamRequests.stream()
                 .filter(sr -> !runningReplicationKeys.contains(sr.getKey()))
                 .forEach(streamRequest -> {
                     Replicator replicator = new StreamReplicator(streamRequest, tickDb, clickhouseClient, clickhouseProperties,
                     replicationProperties.getFlushMessageCount(),
-                    replicationProperties.getFlushTimeoutMs(), this::onReplicatorStopped);
-                    Thread replicatorThread = new Thread(replicator, String.format("Stream replicator '%s'", replicator.getKey()));
-
-                    replicators.put(replicator, replicatorThread);
-                    replicatorThread.start();
+                    replicationProperties.getFlushTimeoutMs(), replicationProperties.getFlushBufferCount(), this::onReplicatorStopped);
+                    configure(replicator);
+                    start(replicator, String.format("Stream replicator '%s'", replicator.getKey()));
                 });
 
         queryRequests.stream()
@@ -197,14 +244,40 @@ public class ReplicatorService {
                 .forEach(queryRequest -> {
             Replicator replicator = new QueryReplicator(queryRequest, tickDb, clickhouseClient, clickhouseProperties,
                     replicationProperties.getFlushMessageCount(),
-                    replicationProperties.getFlushTimeoutMs(), this::onReplicatorStopped);
-            Thread replicatorThread = new Thread(replicator, String.format("Query replicator '%s'", replicator.getKey()));
-
-            replicators.put(replicator, replicatorThread);
-            replicatorThread.start();
+                    replicationProperties.getFlushTimeoutMs(), replicationProperties.getFlushBufferCount(), this::onReplicatorStopped);
+            configure(replicator);
+            start(replicator, String.format("Query replicator '%s'", replicator.getKey()));
         });
     }
 
+    private void start(Replicator replicator, String threadName) {
+        replicators.add(replicator);
+        if (replicator.isScheduled()) {
+            startExecutor.execute(replicator);
+        } else {
+            if (scheduler != null)
+                LOG.warn()
+                        .append("Replication ")
+                        .append(replicator.getKey())
+                        .append(" runs on own thread: query replications and stream replications with ringBufferSize are not scheduled.")
+                        .commit();
+            new Thread(replicator, threadName).start();
+        }
+    }
+
+    private void configure(Replicator replicator) {
+        replicator.setCheckpoints(replicationProperties.isCheckpoints());
+        replicator.setScheduler(scheduler);
+        replicator.setShardRouter(shardRouter);
+        replicator.setAsyncFlushTimeoutMs(replicationProperties.getAsyncFlushTimeoutMs());
+        replicator.setRingBufferSize(replicationProperties.getRingBufferSize());
+        replicator.setDeduplication(replicationProperties.isDeduplication());
+        replicator.setColumnSizeReport(replicationProperties.isColumnSizeReport());
+        if (replicationProperties.isAdaptiveFlush())
+            replicator.setAdaptiveFlush(replicationProperties.getMinFlushMessageCount(),
+                    replicationProperties.getTargetBatchBytes(), replicationProperties.getTargetFlushLatencyMs());
+    }
+
     private void validateRequests(List<QueryRequest> queries, List<StreamRequest> streamRequests) {
         List<String> allTargetTables = new ArrayList<>();
         for (StreamRequest streamRequest : streamRequests) {
@@ -272,7 +345,7 @@ public class ReplicatorService {
                 .collect(Collectors.toList());
     }
 
-    private Thread onReplicatorStopped(Replicator streamReplicator) {
-        return replicators.remove(streamReplicator);
+    private void onReplicatorStopped(Replicator streamReplicator) {
+        replicators.remove(streamReplicator);
     }
 }
\ No newline at end of file
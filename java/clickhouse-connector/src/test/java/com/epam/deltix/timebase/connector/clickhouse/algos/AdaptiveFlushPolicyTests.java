@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveFlushPolicyTests {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    void initial_expectStaticBounds() {
+        AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(10_000, 60_000, 100, 1_000_000, 2_000);
+
+        assertEquals(10_000, policy.getMessageCount());
+        assertEquals(2_000, policy.getTimeoutMs());
+    }
+
+    @Test
+    void largeMessages_expectCountBoundByTargetBytes() {
+        AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(100_000, 60_000, 100, 1_000_000, 10_000);
+
+        policy.onBatchFilled(1_000, 100_000, 0);
+
+        assertEquals(10_000, policy.getMessageCount());
+        assertEquals(10_000, policy.getTimeoutMs());
+    }
+
+    @Test
+    void slowInserts_expectCountBoundByTargetLatency() {
+        AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(100_000, 60_000, 100, Long.MAX_VALUE, 1_000);
+
+        // 8 messages per ms arrive, insert takes 0.125 ms per message
+        policy.onBatchFilled(1_000, 1_000, 125 * MS);
+        policy.onBatchSent(1_000, 125 * MS);
+
+        assertEquals(4_000, policy.getMessageCount());
+        assertEquals(500, policy.getTimeoutMs());
+    }
+
+    @Test
+    void movingAverage_expectLatestMeasurementWeighted() {
+        AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(100_000, 60_000, 100, 1_000_000, 10_000);
+
+        policy.onBatchFilled(1_000, 100_000, 0);
+        policy.onBatchFilled(1_000, 200_000, 0);
+
+        // 100 + 0.3 * (200 - 100) bytes per message
+        assertEquals(7_692, policy.getMessageCount());
+    }
+
+    @Test
+    void verySlowInserts_expectClampToMinCountAndTimeout() {
+        AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(10_000, 60_000, 500, Long.MAX_VALUE, 1_000);
+
+        policy.onBatchSent(1_000, 10_000 * MS);
+
+        assertEquals(500, policy.getMessageCount());
+        assertEquals(1, policy.getTimeoutMs());
+    }
+
+    @Test
+    void fastSmallMessages_expectClampToStaticBounds() {
+        AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(10_000, 500, 100, 1_000_000_000, 1_000);
+
+        policy.onBatchFilled(1_000, 1_000, MS);
+        policy.onBatchSent(1_000, MS);
+
+        assertEquals(10_000, policy.getMessageCount());
+        assertEquals(500, policy.getTimeoutMs());
+    }
+
+    @Test
+    void emptyBatch_expectIgnored() {
+        AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(10_000, 60_000, 100, 1_000, 2_000);
+
+        policy.onBatchFilled(0, 0, MS);
+        policy.onBatchSent(0, MS);
+
+        assertEquals(10_000, policy.getMessageCount());
+        assertEquals(2_000, policy.getTimeoutMs());
+    }
+
+    @Test
+    void illegalSettings_expectException() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveFlushPolicy(100, 1_000, 0, 1_000, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveFlushPolicy(100, 1_000, 200, 1_000, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveFlushPolicy(100, 1_000, 10, 0, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveFlushPolicy(100, 1_000, 10, 1_000, 0));
+    }
+}
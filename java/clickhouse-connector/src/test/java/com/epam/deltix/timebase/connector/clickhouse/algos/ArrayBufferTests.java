@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.util.Decimal64Helper;
+import com.epam.deltix.timebase.connector.clickhouse.util.ClickhouseUtil;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArrayBufferTests {
+
+    @Test
+    void addDefault_expectDefaultOrNull() {
+        ArrayBuffer withDefault = new ArrayBuffer(ArrayBuffer.Kind.INT32, 7);
+        ArrayBuffer withoutDefault = new ArrayBuffer(ArrayBuffer.Kind.FLOAT64, null);
+
+        int index = withDefault.addDefault();
+        withoutDefault.addDefault();
+        withoutDefault.setDouble(withoutDefault.addDefault(), 1.5);
+
+        assertEquals(0, index);
+        assertFalse(withDefault.isNull(0));
+        assertEquals(7, withDefault.getLong(0));
+        assertArrayEquals(new Object[] {7}, withDefault.toObjects());
+        assertTrue(withoutDefault.isNull(0));
+        assertArrayEquals(new Object[] {null, 1.5}, withoutDefault.toObjects());
+    }
+
+    @Test
+    void setNull_expectNullElement() {
+        ArrayBuffer buffer = new ArrayBuffer(ArrayBuffer.Kind.OBJECT, "default");
+
+        buffer.addDefault();
+        buffer.setNull(buffer.addDefault());
+        buffer.setObject(buffer.addDefault(), "value");
+
+        assertArrayEquals(new Object[] {"default", null, "value"}, buffer.toObjects());
+        assertNull(buffer.getObject(1));
+    }
+
+    @Test
+    void getCommonKind_expectObjectForMixedKinds() {
+        assertEquals(ArrayBuffer.Kind.INT64, ArrayBuffer.getCommonKind(null, ArrayBuffer.Kind.INT64));
+        assertEquals(ArrayBuffer.Kind.INT64, ArrayBuffer.getCommonKind(ArrayBuffer.Kind.INT64, ArrayBuffer.Kind.INT64));
+        assertEquals(ArrayBuffer.Kind.OBJECT, ArrayBuffer.getCommonKind(ArrayBuffer.Kind.INT32, ArrayBuffer.Kind.INT64));
+        assertEquals(ArrayBuffer.Kind.OBJECT, ArrayBuffer.getCommonKind(ArrayBuffer.Kind.FLOAT32, ArrayBuffer.Kind.DECIMAL64));
+    }
+
+    @Test
+    void isCompatible_expectDefaultMatchingKind() {
+        assertTrue(ArrayBuffer.isCompatible(ArrayBuffer.Kind.INT64, 1L));
+        assertTrue(ArrayBuffer.isCompatible(ArrayBuffer.Kind.INT64, new java.util.Date(1)));
+        assertTrue(ArrayBuffer.isCompatible(ArrayBuffer.Kind.DECIMAL64, null));
+        assertFalse(ArrayBuffer.isCompatible(ArrayBuffer.Kind.INT64, BigDecimal.ONE));
+        assertFalse(ArrayBuffer.isCompatible(ArrayBuffer.Kind.DECIMAL64, BigDecimal.ONE));
+        assertFalse(ArrayBuffer.isCompatible(ArrayBuffer.Kind.INT32, "text"));
+        assertTrue(ArrayBuffer.isCompatible(ArrayBuffer.Kind.OBJECT, "text"));
+    }
+
+    @Test
+    void addBeyondInitialCapacity_expectAllValues() {
+        ArrayBuffer longs = new ArrayBuffer(ArrayBuffer.Kind.INT64, null);
+        ArrayBuffer objects = new ArrayBuffer(ArrayBuffer.Kind.OBJECT, null);
+
+        for (int i = 0; i < 100; i++) {
+            longs.setLong(longs.addDefault(), i);
+            int index = objects.addDefault();
+            if (i % 3 != 0)
+                objects.setObject(index, "v" + i);
+        }
+
+        assertEquals(100, longs.size());
+        Object[] longValues = longs.toObjects();
+        Object[] objectValues = objects.toObjects();
+        for (int i = 0; i < 100; i++) {
+            assertEquals((long) i, longValues[i]);
+            assertEquals(i % 3 != 0 ? "v" + i : null, objectValues[i]);
+        }
+
+        objects.clear();
+        assertEquals(0, objects.size());
+        objects.addDefault();
+        assertArrayEquals(new Object[] {null}, objects.toObjects());
+    }
+
+    @Test
+    void toObjects_expectRawDecoderTypes() {
+        ArrayBuffer int8 = new ArrayBuffer(ArrayBuffer.Kind.INT8, null);
+        int8.setLong(int8.addDefault(), -3);
+        ArrayBuffer float32 = new ArrayBuffer(ArrayBuffer.Kind.FLOAT32, null);
+        float32.setDouble(float32.addDefault(), 0.5);
+        ArrayBuffer booleans = new ArrayBuffer(ArrayBuffer.Kind.BOOLEAN, false);
+        booleans.setLong(booleans.addDefault(), 1);
+        booleans.addDefault();
+
+        assertArrayEquals(new Object[] {(byte) -3}, int8.toObjects());
+        assertArrayEquals(new Object[] {0.5f}, float32.toObjects());
+        assertArrayEquals(new Object[] {true, false}, booleans.toObjects());
+    }
+
+    @Test
+    void toObjectsDecimal64_expectSpecialValuesReplaced() {
+        ArrayBuffer buffer = new ArrayBuffer(ArrayBuffer.Kind.DECIMAL64, null);
+        buffer.setLong(buffer.addDefault(), (397L << 53) | 15);
+        buffer.setLong(buffer.addDefault(), 0x7C00000000000000L);
+        buffer.setLong(buffer.addDefault(), 0xF800000000000000L);
+        buffer.setLong(buffer.addDefault(), Decimal64Helper.MAX_VALUE);
+
+        assertArrayEquals(new Object[] {new BigDecimal("1.5"), null, ClickhouseUtil.DECIMAL_128_MIN_VALUE,
+                ClickhouseUtil.DECIMAL_128_MAX_VALUE}, buffer.toObjects());
+    }
+}
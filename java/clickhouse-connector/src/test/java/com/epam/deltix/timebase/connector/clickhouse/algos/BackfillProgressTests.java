@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackfillProgressTests {
+
+    @Test
+    void split_expectEqualSlicesCoveringRange() {
+        List<BackfillProgress.Slice> slices = BackfillProgress.split(100, 200, 4);
+
+        assertSlices(slices, 100, 125, 150, 175, 200);
+    }
+
+    @Test
+    void splitUneven_expectShorterLastSlice() {
+        assertSlices(BackfillProgress.split(0, 10, 4), 0, 3, 6, 9, 10);
+        assertSlices(BackfillProgress.split(0, 10, 6), 0, 2, 4, 6, 8, 10);
+    }
+
+    @Test
+    void splitCountGreaterThanLength_expectUnitSlices() {
+        assertSlices(BackfillProgress.split(5, 8, 10), 5, 6, 7, 8);
+    }
+
+    @Test
+    void splitEmptyRange_expectNoSlices() {
+        assertTrue(BackfillProgress.split(10, 10, 4).isEmpty());
+        assertTrue(BackfillProgress.split(10, 5, 4).isEmpty());
+    }
+
+    @Test
+    void splitNearMaxTimestamp_expectNoOverflow() {
+        assertSlices(BackfillProgress.split(Long.MAX_VALUE - 10, Long.MAX_VALUE, 3),
+                Long.MAX_VALUE - 10, Long.MAX_VALUE - 6, Long.MAX_VALUE - 2, Long.MAX_VALUE);
+    }
+
+    @Test
+    void splitIllegalCount_expectException() {
+        assertThrows(IllegalArgumentException.class, () -> BackfillProgress.split(0, 10, 0));
+    }
+
+    @Test
+    void getResumeFrom_expectLastReplicatedTimestamp() {
+        BackfillProgress.Slice slice = new BackfillProgress.Slice(100, 200, false);
+
+        assertEquals(100, slice.getResumeFrom(Long.MIN_VALUE));
+        assertEquals(150, slice.getResumeFrom(150));
+        assertEquals(100, slice.getResumeFrom(100));
+    }
+
+    private static void assertSlices(List<BackfillProgress.Slice> slices, long... bounds) {
+        assertEquals(bounds.length - 1, slices.size());
+        for (int i = 0; i < slices.size(); i++) {
+            assertEquals(bounds[i], slices.get(i).getFrom());
+            assertEquals(bounds[i + 1], slices.get(i).getTo());
+            assertFalse(slices.get(i).isCompleted());
+        }
+    }
+}
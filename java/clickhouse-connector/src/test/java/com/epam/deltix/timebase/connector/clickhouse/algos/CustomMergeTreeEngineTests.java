@@ -0,0 +1,89 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.models.ClickhouseTableIdentity;
+import com.epam.deltix.clickhouse.schema.ColumnDeclaration;
+import com.epam.deltix.clickhouse.schema.TableDeclaration;
+import com.epam.deltix.clickhouse.schema.engines.ReplicatedMergeTreeEngine;
+import com.epam.deltix.clickhouse.schema.types.DateDataType;
+import com.epam.deltix.clickhouse.schema.types.DateTime64DataType;
+import com.epam.deltix.clickhouse.schema.types.StringDataType;
+import com.epam.deltix.clickhouse.util.SqlQueryHelper;
+import com.epam.deltix.timebase.connector.clickhouse.model.TableLayout;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomMergeTreeEngineTests {
+
+    private final ColumnDeclaration partition = new ColumnDeclaration("partition", new DateDataType());
+    private final ColumnDeclaration timestamp = new ColumnDeclaration("timestamp", new DateTime64DataType(9));
+    private final ColumnDeclaration instrument = new ColumnDeclaration("instrument", new StringDataType());
+    private final List<ColumnDeclaration> primaryKey = Arrays.asList(timestamp, instrument);
+
+    @Test
+    void getSqlDefinition_expectCustomLayout() {
+        TableLayout layout = new TableLayout("instrument, timestamp", "toYYYYMM(timestamp)",
+                "toDateTime(timestamp) + INTERVAL 30 DAY DELETE", 1024);
+
+        CustomMergeTreeEngine engine = new CustomMergeTreeEngine(layout, partition, primaryKey);
+
+        assertEquals("MergeTree() partition by toYYYYMM(timestamp) order by (instrument, timestamp) " +
+                "ttl toDateTime(timestamp) + INTERVAL 30 DAY DELETE settings index_granularity = 1024", engine.getSqlDefinition());
+        assertEquals("MergeTree", engine.getName());
+    }
+
+    @Test
+    void getSqlDefinition_expectDefaultsForUnsetParts() {
+        TableLayout layout = new TableLayout(null, null, "toDateTime(timestamp) + INTERVAL 1 DAY", null);
+
+        assertEquals("MergeTree() partition by partition order by (timestamp, instrument) " +
+                        "ttl toDateTime(timestamp) + INTERVAL 1 DAY settings index_granularity = 8192",
+                new CustomMergeTreeEngine(layout, partition, primaryKey).getSqlDefinition());
+        assertEquals("MergeTree() order by (timestamp, instrument) ttl toDateTime(timestamp) + INTERVAL 1 DAY " +
+                        "settings index_granularity = 8192",
+                new CustomMergeTreeEngine(layout, null, primaryKey).getSqlDefinition());
+    }
+
+    @Test
+    void getCreateTableQuery_expectReplicatedEngine() {
+        TableLayout layout = new TableLayout("instrument, timestamp", "toYYYYMM(timestamp)", "toDateTime(timestamp) + INTERVAL 7 DAY", 4096);
+        TableDeclaration table = new TableDeclaration(ClickhouseTableIdentity.of("db", "test"), primaryKey);
+        ReplicatedMergeTreeEngine engine = new ReplicatedMergeTreeEngine(new CustomMergeTreeEngine(layout, null, primaryKey),
+                "/clickhouse/tables/{shard}/{database}/{table}", "{replica}");
+
+        String expected = "CREATE TABLE IF NOT EXISTS db.test ON CLUSTER `main` (`timestamp` DateTime64(9), `instrument` String) " +
+                "ENGINE = ReplicatedMergeTree('/clickhouse/tables/{shard}/{database}/{table}', '{replica}') " +
+                "partition by toYYYYMM(timestamp) order by (instrument, timestamp) ttl toDateTime(timestamp) + INTERVAL 7 DAY " +
+                "settings index_granularity = 4096";
+        assertEquals(expected, SqlQueryHelper.getCreateTableQuery(table, engine, true, "main"));
+    }
+
+    @Test
+    void newEngine_expectIllegalLayout() {
+        TableLayout layout = new TableLayout(null, "toYYYYMM(timestamp)", null, null);
+
+        assertThrows(IllegalArgumentException.class, () -> new CustomMergeTreeEngine(null, partition, primaryKey));
+        assertThrows(IllegalArgumentException.class, () -> new CustomMergeTreeEngine(layout, partition, Collections.emptyList()));
+        assertThrows(IllegalArgumentException.class, () -> new TableLayout(null, null, null, 0));
+    }
+}
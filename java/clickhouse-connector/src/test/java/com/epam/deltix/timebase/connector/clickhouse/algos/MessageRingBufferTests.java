@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.qsrv.hf.pub.RawMessage;
+import com.epam.deltix.qsrv.hf.pub.md.RecordClassDescriptor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageRingBufferTests {
+
+    private static final int SIZE = 64 * 1024;
+
+    private final RecordClassDescriptor trade = new RecordClassDescriptor("Trade", null, false, null);
+    private final RecordClassDescriptor quote = new RecordClassDescriptor("Quote", null, false, null);
+
+    @Test
+    void offerPoll_expectSameMessages() {
+        try (MessageRingBuffer buffer = new MessageRingBuffer(SIZE)) {
+            assertTrue(buffer.offer(message(trade, 1000, "AAPL", 1, 2, 3), 0));
+            assertTrue(buffer.offer(message(quote, 1001, null), 3));
+
+            RawMessage message = new RawMessage();
+            assertEquals(0, buffer.poll(message, 0));
+            assertMessage(message, trade, 1000, "AAPL", 1, 2, 3);
+            assertEquals(3, buffer.poll(message, 0));
+            assertMessage(message, quote, 1001, "");
+            assertEquals(-1, buffer.poll(message, 0));
+            assertFalse(buffer.isDrained());
+        }
+    }
+
+    @Test
+    void offerAtEnd_expectRecordWrittenFromStart() {
+        try (MessageRingBuffer buffer = new MessageRingBuffer(SIZE)) {
+            RawMessage message = new RawMessage();
+            // records of ~20 KB, the fourth one does not fit till the end and is preceded by padding
+            for (int i = 0; i < 3; i++)
+                assertTrue(buffer.offer(message(trade, i, "S" + i, filled(20_000, i)), 0));
+            assertEquals(0, buffer.poll(message, 0));
+            assertMessage(message, trade, 0, "S0", filled(20_000, 0));
+
+            assertTrue(buffer.offer(message(quote, 3, "S3", filled(20_000, 3)), 1));
+            for (int i = 1; i < 4; i++) {
+                assertEquals(i < 3 ? 0 : 1, buffer.poll(message, 0));
+                assertMessage(message, i < 3 ? trade : quote, i, "S" + i, filled(20_000, i));
+            }
+            assertEquals(-1, buffer.poll(message, 0));
+        }
+    }
+
+    @Test
+    void finish_expectRemainingMessagesDrained() {
+        try (MessageRingBuffer buffer = new MessageRingBuffer(SIZE)) {
+            buffer.offer(message(trade, 1, "A", 1), 0);
+            buffer.finish();
+
+            RawMessage message = new RawMessage();
+            assertTrue(buffer.isFinished());
+            assertFalse(buffer.isDrained());
+            assertEquals(0, buffer.poll(message, 0));
+            assertEquals(-1, buffer.poll(message, 0));
+            assertTrue(buffer.isDrained());
+        }
+    }
+
+    @Test
+    void offerToFinishedFullBuffer_expectFalse() {
+        try (MessageRingBuffer buffer = new MessageRingBuffer(SIZE)) {
+            buffer.finish();
+            boolean offered = true;
+            for (int i = 0; i < 4 && offered; i++)
+                offered = buffer.offer(message(trade, i, null, new byte[20_000]), 0);
+
+            assertFalse(offered);
+        }
+    }
+
+    @Test
+    void offerLargeMessage_expectException() {
+        try (MessageRingBuffer buffer = new MessageRingBuffer(SIZE)) {
+            assertThrows(IllegalArgumentException.class, () -> buffer.offer(message(trade, 1, null, new byte[SIZE / 2]), 0));
+        }
+    }
+
+    @Test
+    void offerAfterClose_expectException() {
+        MessageRingBuffer buffer = new MessageRingBuffer(SIZE);
+        buffer.close();
+        buffer.close();
+
+        assertTrue(buffer.isFinished());
+        assertThrows(IllegalStateException.class, () -> buffer.offer(message(trade, 1, null), 0));
+        assertThrows(IllegalStateException.class, () -> buffer.poll(new RawMessage(), 0));
+    }
+
+    @Test
+    void newBuffer_expectIllegalSize() {
+        assertThrows(IllegalArgumentException.class, () -> new MessageRingBuffer(1024));
+        assertThrows(IllegalArgumentException.class, () -> new MessageRingBuffer(Integer.MAX_VALUE + 1L));
+    }
+
+    private static RawMessage message(RecordClassDescriptor type, long timestamp, String symbol, int... data) {
+        byte[] bytes = new byte[data.length];
+        for (int i = 0; i < data.length; i++)
+            bytes[i] = (byte) data[i];
+        return message(type, timestamp, symbol, bytes);
+    }
+
+    private static RawMessage message(RecordClassDescriptor type, long timestamp, String symbol, byte[] data) {
+        RawMessage message = new RawMessage(type);
+        message.setTimeStampMs(timestamp);
+        message.setSymbol(symbol);
+        // data is passed with offset to check that only the message part is copied
+        byte[] bytes = new byte[data.length + 2];
+        System.arraycopy(data, 0, bytes, 1, data.length);
+        message.setBytes(bytes, 1, data.length);
+        return message;
+    }
+
+    private static byte[] filled(int length, int value) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) value);
+        data[length - 1] = (byte) (value + 100);
+        return data;
+    }
+
+    private static void assertMessage(RawMessage message, RecordClassDescriptor type, long timestamp, String symbol, int... data) {
+        byte[] bytes = new byte[data.length];
+        for (int i = 0; i < data.length; i++)
+            bytes[i] = (byte) data[i];
+        assertMessage(message, type, timestamp, symbol, bytes);
+    }
+
+    private static void assertMessage(RawMessage message, RecordClassDescriptor type, long timestamp, String symbol, byte[] data) {
+        assertSame(type, message.type);
+        assertEquals(timestamp, message.getTimeStampMs());
+        assertEquals(symbol, message.getSymbol().toString());
+        assertArrayEquals(data, Arrays.copyOfRange(message.data, message.offset, message.offset + message.length));
+    }
+}
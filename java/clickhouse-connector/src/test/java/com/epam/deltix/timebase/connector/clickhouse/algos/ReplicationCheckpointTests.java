@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.ClickhouseClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationCheckpointTests {
+
+    @Test
+    void getRestartPosition_expectCommittedPositionWithDeduplication() {
+        ReplicationCheckpoint.Position committed = new ReplicationCheckpoint.Position(1_000, 3);
+
+        assertEquals(committed, ReplicationCheckpoint.getRestartPosition(committed, true));
+    }
+
+    @Test
+    void getRestartPosition_expectStartOfCommittedTimestampWithoutDeduplication() {
+        ReplicationCheckpoint.Position committed = new ReplicationCheckpoint.Position(1_000, 3);
+
+        assertEquals(new ReplicationCheckpoint.Position(1_000, 0), ReplicationCheckpoint.getRestartPosition(committed, false));
+    }
+
+    @Test
+    void resumeFilter_expectCommittedMessagesOfStartTimestampSkipped() {
+        ReplicationCheckpoint.ResumeFilter filter = new ReplicationCheckpoint.ResumeFilter(new ReplicationCheckpoint.Position(1_000, 2));
+
+        assertTrue(filter.skip(1_000));
+        assertTrue(filter.skip(1_000));
+        assertFalse(filter.skip(1_000));
+        assertFalse(filter.skip(1_001));
+    }
+
+    @Test
+    void resumeFilter_expectNoSkipAfterLaterTimestamp() {
+        ReplicationCheckpoint.ResumeFilter filter = new ReplicationCheckpoint.ResumeFilter(new ReplicationCheckpoint.Position(1_000, 5));
+
+        assertTrue(filter.skip(1_000));
+        assertFalse(filter.skip(1_001));
+        // fewer messages of the start timestamp than committed, e.g. stream was truncated
+        assertFalse(filter.skip(1_000));
+    }
+
+    @Test
+    void resumeFilter_expectNothingSkippedAfterRestartPositionWithoutDeduplication() {
+        ReplicationCheckpoint.Position restart = ReplicationCheckpoint.getRestartPosition(
+                new ReplicationCheckpoint.Position(1_000, 3), false);
+        ReplicationCheckpoint.ResumeFilter filter = new ReplicationCheckpoint.ResumeFilter(restart);
+
+        assertFalse(filter.skip(1_000));
+    }
+
+    @Test
+    void position_expectOrderedByTimestampAndOffset() {
+        ReplicationCheckpoint.Position position = new ReplicationCheckpoint.Position(1_000, 2);
+
+        assertTrue(position.compareTo(new ReplicationCheckpoint.Position(1_000, 1)) > 0);
+        assertTrue(position.compareTo(new ReplicationCheckpoint.Position(999, 5)) > 0);
+        assertTrue(position.compareTo(new ReplicationCheckpoint.Position(1_001, 0)) < 0);
+        assertEquals(0, position.compareTo(1_000, 2));
+    }
+
+    @Test
+    void commitListener_expectSavesCoalescedWithinInterval() throws SQLException {
+        InsertsClient client = new InsertsClient();
+        UnboundTableWriter.CommitListener listener = new ReplicationCheckpoint(client, "db", 60_000)
+                .createCommitListener("key", "", 0);
+
+        for (int i = 1; i <= 100; i++) {
+            listener.onSending(i, new ReplicationCheckpoint.Position(i, 0), new ReplicationCheckpoint.Position(i, 1));
+            listener.onCommitted(new ReplicationCheckpoint.Position(i, 1));
+        }
+
+        // single open batch and the first commit
+        assertEquals(Arrays.asList(
+                "db.timebase_replication_batches 0 1.0-9223372036854775807.2147483647",
+                "db.timebase_replication_checkpoints 1.1"), client.inserts);
+
+        listener.onClosed();
+
+        assertEquals(4, client.inserts.size());
+        assertEquals("db.timebase_replication_checkpoints 100.1", client.inserts.get(2));
+        assertEquals("db.timebase_replication_batches 0 100.1-100.1", client.inserts.get(3));
+    }
+
+    @Test
+    void commitListener_expectCommittedSavedBeforeBatchSlotIsReused() throws SQLException {
+        InsertsClient client = new InsertsClient();
+        UnboundTableWriter.CommitListener listener = new ReplicationCheckpoint(client, "db", 60_000)
+                .createCommitListener("key", "", 2);
+
+        listener.onSending(1, new ReplicationCheckpoint.Position(1, 0), new ReplicationCheckpoint.Position(1, 1));
+        listener.onCommitted(new ReplicationCheckpoint.Position(1, 1));
+        listener.onSending(2, new ReplicationCheckpoint.Position(2, 0), new ReplicationCheckpoint.Position(2, 1));
+        listener.onCommitted(new ReplicationCheckpoint.Position(2, 1));
+        listener.onSending(3, new ReplicationCheckpoint.Position(3, 0), new ReplicationCheckpoint.Position(3, 1));
+        listener.onCommitted(new ReplicationCheckpoint.Position(3, 1));
+        listener.onSending(4, new ReplicationCheckpoint.Position(4, 0), new ReplicationCheckpoint.Position(4, 1));
+
+        assertEquals(Arrays.asList(
+                "db.timebase_replication_batches 1 1.0-1.1",
+                "db.timebase_replication_checkpoints 1.1",
+                "db.timebase_replication_batches 0 2.0-2.1",
+                "db.timebase_replication_batches 1 3.0-3.1",
+                "db.timebase_replication_checkpoints 3.1",
+                "db.timebase_replication_batches 0 4.0-4.1"), client.inserts);
+    }
+
+    private static class InsertsClient extends ClickhouseClient {
+        private final List<String> inserts = new ArrayList<>();
+        private final JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public int update(String sql, Object... args) {
+                String table = sql.substring("INSERT INTO ".length(), sql.indexOf(' ', "INSERT INTO ".length()));
+                inserts.add(args.length == 5 ?
+                        String.format("%s %s.%s", table, args[2], args[3]) :
+                        String.format("%s %s %s.%s-%s.%s", table, args[2], args[3], args[4], args[5], args[6]));
+                return 1;
+            }
+        };
+
+        private InsertsClient() {
+            super((DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                    (proxy, method, args) -> {
+                        throw new UnsupportedOperationException();
+                    }));
+        }
+
+        @Override
+        public JdbcTemplate getJdbcTemplate() {
+            return jdbcTemplate;
+        }
+    }
+}
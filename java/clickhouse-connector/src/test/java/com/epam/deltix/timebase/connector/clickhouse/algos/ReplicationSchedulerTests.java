@@ -0,0 +1,182 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationSchedulerTests {
+
+    private final ReplicationScheduler scheduler = new ReplicationScheduler(4);
+
+    @AfterEach
+    void close() {
+        scheduler.close();
+    }
+
+    @Test
+    void wakeDuringRun_expectRerun() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TestTask task = new TestTask() {
+            @Override
+            long doRun(int run) throws Exception {
+                if (run == 1) {
+                    running.countDown();
+                    release.await();
+                    return TimeUnit.MINUTES.toMillis(1); // rerun is not caused by the timer
+                }
+                return -1;
+            }
+        };
+
+        ReplicationScheduler.Handle handle = scheduler.schedule(task);
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        handle.wake();
+        release.countDown();
+
+        task.awaitFinished();
+        assertEquals(2, task.runs.get());
+        assertNull(task.error.get());
+    }
+
+    @Test
+    void concurrentWakes_expectNoConcurrentRuns() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        TestTask task = new TestTask() {
+            @Override
+            long doRun(int run) throws Exception {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                Thread.sleep(1);
+                active.decrementAndGet();
+                return run < 200 ? 0 : -1;
+            }
+        };
+
+        ReplicationScheduler.Handle handle = scheduler.schedule(task);
+        List<Thread> wakers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Thread waker = new Thread(() -> {
+                while (task.finished.getCount() > 0)
+                    handle.wake();
+            });
+            waker.start();
+            wakers.add(waker);
+        }
+
+        task.awaitFinished();
+        for (Thread waker : wakers)
+            waker.join();
+        assertEquals(1, maxActive.get());
+        assertEquals(200, task.runs.get());
+    }
+
+    @Test
+    void delay_expectRunByTimer() throws Exception {
+        TestTask task = new TestTask() {
+            @Override
+            long doRun(int run) {
+                return run < 3 ? 10 : -1;
+            }
+        };
+
+        scheduler.schedule(task);
+
+        task.awaitFinished();
+        assertEquals(3, task.runs.get());
+    }
+
+    @Test
+    void finished_expectOnFinishedOnce() throws Exception {
+        TestTask task = new TestTask() {
+            @Override
+            long doRun(int run) {
+                return -1;
+            }
+        };
+
+        ReplicationScheduler.Handle handle = scheduler.schedule(task);
+        task.awaitFinished();
+        handle.wake();
+        handle.wake();
+        scheduler.close();
+
+        assertEquals(1, task.runs.get());
+        assertEquals(1, task.finishedCount.get());
+        assertNull(task.error.get());
+    }
+
+    @Test
+    void runFailed_expectErrorPassedToOnFinished() throws Exception {
+        IllegalStateException failure = new IllegalStateException("failed");
+        TestTask task = new TestTask() {
+            @Override
+            long doRun(int run) {
+                throw failure;
+            }
+        };
+
+        ReplicationScheduler.Handle handle = scheduler.schedule(task);
+        task.awaitFinished();
+        handle.wake();
+        scheduler.close();
+
+        assertSame(failure, task.error.get());
+        assertEquals(1, task.runs.get());
+        assertEquals(1, task.finishedCount.get());
+    }
+
+    @Test
+    void newScheduler_expectIllegalThreads() {
+        assertThrows(IllegalArgumentException.class, () -> new ReplicationScheduler(0));
+    }
+
+    private abstract static class TestTask implements ReplicationScheduler.Task {
+        final AtomicInteger runs = new AtomicInteger();
+        final AtomicInteger finishedCount = new AtomicInteger();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        abstract long doRun(int run) throws Exception;
+
+        @Override
+        public long run() throws Exception {
+            return doRun(runs.incrementAndGet());
+        }
+
+        @Override
+        public void onFinished(Throwable error) {
+            this.error.set(error);
+            finishedCount.incrementAndGet();
+            finished.countDown();
+        }
+
+        void awaitFinished() throws InterruptedException {
+            assertTrue(finished.await(5, TimeUnit.SECONDS), "Task is not finished.");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.timebase.connector.clickhouse.algos;
+
+import com.epam.deltix.clickhouse.schema.ColumnDeclaration;
+import com.epam.deltix.clickhouse.schema.types.DateTime64DataType;
+import com.epam.deltix.clickhouse.schema.types.Float64DataType;
+import com.epam.deltix.clickhouse.schema.types.NestedDataType;
+import com.epam.deltix.clickhouse.schema.types.ObjectDataType;
+import com.epam.deltix.clickhouse.schema.types.StringDataType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaProcessorTests {
+
+    @Test
+    void getMissingColumns_expectFieldAddedToArrayElementClass() {
+        // entries of the stored table were described before the element class got 'size' field
+        List<ColumnDeclaration> actualColumns = Arrays.asList(
+                new ColumnDeclaration("timestamp", new DateTime64DataType(9)),
+                new ColumnDeclaration("entries", new NestedDataType(Arrays.asList(
+                        new ColumnDeclaration("price", new Float64DataType())))));
+        List<ColumnDeclaration> expectedColumns = Arrays.asList(
+                new ColumnDeclaration("timestamp", new DateTime64DataType(9)),
+                new ColumnDeclaration("entries", new NestedDataType(Arrays.asList(
+                        new ColumnDeclaration("price", new Float64DataType()),
+                        new ColumnDeclaration("size", new Float64DataType())))));
+
+        List<ColumnDeclaration> missingColumns = SchemaProcessor.getMissingColumns(expectedColumns, actualColumns);
+
+        assertEquals(Arrays.asList("`entries.size` Array(Float64)"), getSqlDefinitions(missingColumns));
+    }
+
+    @Test
+    void getMissingColumns_expectObjectFieldsOfArrayElementClassByPath() {
+        List<ColumnDeclaration> actualColumns = Arrays.asList(
+                new ColumnDeclaration("entries", new NestedDataType(Arrays.asList(
+                        new ColumnDeclaration("price", new Float64DataType())))));
+        List<ColumnDeclaration> expectedColumns = Arrays.asList(
+                new ColumnDeclaration("entries", new NestedDataType(Arrays.asList(
+                        new ColumnDeclaration("price", new Float64DataType()),
+                        new ColumnDeclaration("venue", new ObjectDataType("venue", Arrays.asList(
+                                new ColumnDeclaration("code", new StringDataType()))))))));
+
+        List<ColumnDeclaration> missingColumns = SchemaProcessor.getMissingColumns(expectedColumns, actualColumns);
+
+        assertEquals(Arrays.asList("`entries.venue_code` Array(String)"), getSqlDefinitions(missingColumns));
+    }
+
+    @Test
+    void getMissingColumns_expectNoColumnsForSameSchema() {
+        List<ColumnDeclaration> columns = Arrays.asList(
+                new ColumnDeclaration("timestamp", new DateTime64DataType(9)),
+                new ColumnDeclaration("entries", new NestedDataType(Arrays.asList(
+                        new ColumnDeclaration("price", new Float64DataType())))));
+
+        assertTrue(SchemaProcessor.getMissingColumns(columns, columns).isEmpty());
+    }
+
+    private static List<String> getSqlDefinitions(List<ColumnDeclaration> columns) {
+        return columns.stream()
+                .map(ColumnDeclaration::getSqlDefinition)
+                .collect(Collectors.toList());
+    }
+}